@@ -32,13 +32,17 @@
 import com.google.common.collect.Sets;
 
 import org.datanucleus.NucleusContext;
+import org.datanucleus.api.jdo.JDODataStoreCache;
 import org.datanucleus.api.jdo.JDOPersistenceManagerFactory;
 import org.datanucleus.store.schema.SchemaAwareStoreManager;
 
 import org.apache.isis.core.commons.components.ApplicationScopedComponent;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.objectstore.jdo.datanucleus.persistence.EntityCache;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.FrameworkSynchronizer;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.IsisLifecycleListener;
+import org.apache.isis.objectstore.jdo.datanucleus.persistence.queries.JdoQueryTemplates;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.cacheable.JdoCacheableFacet;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.embeddedonly.JdoEmbeddedOnlyFacet;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.persistencecapable.JdoPersistenceCapableFacet;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.query.JdoNamedQuery;
@@ -46,8 +50,13 @@
 
 public class DataNucleusApplicationComponents implements ApplicationScopedComponent {
 
+    public static final String LEVEL2_CACHE_TYPE_KEY = "datanucleus.cache.level2.type";
+    public static final String LEVEL2_CACHE_MODE_KEY = "datanucleus.cache.level2.mode";
+
     private final PersistenceManagerFactory persistenceManagerFactory;
+    private final EntityCache entityCache;
     private final Map<String, JdoNamedQuery> namedQueryByName;
+    private final JdoQueryTemplates queryTemplates = new JdoQueryTemplates();
     
     private final IsisLifecycleListener lifecycleListener;
     private final FrameworkSynchronizer synchronizer;
@@ -57,7 +66,11 @@ public class DataNucleusApplicationComponents implements ApplicationScopedCompon
     //
     ///////////////////////////////////////////////////////////////////////////
 
-    public DataNucleusApplicationComponents(final Map<String, String> props, final Collection<ObjectSpecification> objectSpecs) {
+    public DataNucleusApplicationComponents(final Map<String, String> configuredProps, final Collection<ObjectSpecification> objectSpecs) {
+        final Set<String> cacheableClasses = catalogCacheableClasses(objectSpecs);
+        final Map<String, String> props = Maps.newHashMap(configuredProps);
+        addLevel2CachePropertiesIfRequired(props, cacheableClasses);
+
         persistenceManagerFactory = JDOHelper.getPersistenceManagerFactory(props);
         
         final Set<String> classesToBePersisted = catalogClassesToBePersisted(objectSpecs);
@@ -66,9 +79,42 @@ public DataNucleusApplicationComponents(final Map<String, String> props, final C
 
         namedQueryByName = Collections.unmodifiableMap(catalogNamedQueries(objectSpecs));
 
-        synchronizer = new FrameworkSynchronizer();
+        final JDODataStoreCache dataStoreCache = (JDODataStoreCache) persistenceManagerFactory.getDataStoreCache();
+        entityCache = new EntityCache(dataStoreCache.getLevel2Cache(), cacheableClasses);
+
+        synchronizer = new FrameworkSynchronizer(entityCache);
         lifecycleListener = new IsisLifecycleListener(synchronizer);
     }
+
+    /**
+     * Unless configured otherwise, uses DataNucleus' (in-JVM) soft-referenced
+     * level 2 cache for just those entities that are
+     * {@link JdoCacheableFacet cacheable}, or no cache if there are none.
+     */
+    private static void addLevel2CachePropertiesIfRequired(final Map<String, String> props, final Set<String> cacheableClasses) {
+        if(cacheableClasses.isEmpty()) {
+            putIfNotPresent(props, LEVEL2_CACHE_TYPE_KEY, "none");
+            return;
+        } 
+        putIfNotPresent(props, LEVEL2_CACHE_TYPE_KEY, "soft");
+        putIfNotPresent(props, LEVEL2_CACHE_MODE_KEY, "ENABLE_SELECTIVE");
+    }
+
+    private static void putIfNotPresent(final Map<String, String> props, final String key, final String value) {
+        if(!props.containsKey(key)) {
+            props.put(key, value);
+        }
+    }
+
+    private static Set<String> catalogCacheableClasses(Collection<ObjectSpecification> objectSpecs) {
+        Set<String> classNames = Sets.newTreeSet();
+        for (final ObjectSpecification spec : objectSpecs) {
+            if(spec.containsFacet(JdoCacheableFacet.class)) {
+                classNames.add(spec.getFullIdentifier());
+            }
+        }
+        return classNames;
+    }
     
     private void createSchema(final Map<String, String> props, final Set<String> classesToBePersisted) {
         final JDOPersistenceManagerFactory jdopmf = (JDOPersistenceManagerFactory)persistenceManagerFactory;
@@ -129,6 +175,15 @@ public FrameworkSynchronizer getFrameworkSynchronizer() {
     }
 
 
+    ///////////////////////////////////////////////////////////////////////////
+    // EntityCache
+    ///////////////////////////////////////////////////////////////////////////
+
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////
     //
     ///////////////////////////////////////////////////////////////////////////
@@ -144,6 +199,15 @@ public JdoNamedQuery getNamedQuery(String queryName) {
         return namedQueryByName.get(queryName);
     }
 
+    /**
+     * The templates of the queries submitted to the
+     * {@link PersistenceManagerFactory}, shared by all its persistence
+     * managers.
+     */
+    public JdoQueryTemplates getQueryTemplates() {
+        return queryTemplates;
+    }
+
     
     ///////////////////////////////////////////////////////////////////////////
     //
@@ -38,10 +38,10 @@
 
 import org.apache.log4j.Logger;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.config.ConfigurationConstants;
 import org.apache.isis.core.commons.config.IsisConfiguration;
 import org.apache.isis.core.commons.debug.DebugBuilder;
-import org.apache.isis.core.commons.exceptions.NotYetImplementedException;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapterFactory;
 import org.apache.isis.core.metamodel.adapter.ResolveState;
@@ -68,10 +68,13 @@
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindUsingApplibQueryDefault;
 import org.apache.isis.core.runtime.system.context.IsisContext;
 import org.apache.isis.core.runtime.system.persistence.AdapterManagerSpi;
+import org.apache.isis.core.runtime.system.persistence.ObjectStoreStreaming;
 import org.apache.isis.core.runtime.system.persistence.PersistenceQuery;
 import org.apache.isis.core.runtime.system.persistence.PersistenceSession;
 import org.apache.isis.core.runtime.system.transaction.IsisTransaction;
 import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
+import org.apache.isis.objectstore.jdo.datanucleus.persistence.EntityCache;
+import org.apache.isis.objectstore.jdo.datanucleus.persistence.EntityCacheLoader;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.FrameworkSynchronizer;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.FrameworkSynchronizer.CalledFrom;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.commands.DataNucleusCreateObjectCommand;
@@ -82,11 +85,10 @@
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.queries.PersistenceQueryFindByTitleProcessor;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.queries.PersistenceQueryFindUsingApplibQueryProcessor;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.queries.PersistenceQueryProcessor;
-import org.apache.isis.objectstore.jdo.datanucleus.persistence.queries.QueryUtil;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.spi.JdoObjectIdSerializer;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.query.JdoNamedQuery;
 
-public class DataNucleusObjectStore implements ObjectStoreSpi {
+public class DataNucleusObjectStore implements ObjectStoreSpi, ObjectStoreStreaming {
 
     private static final Logger LOG = Logger.getLogger(DataNucleusObjectStore.class);
 
@@ -117,9 +119,11 @@ static enum TransactionMode {
     private final Map<ObjectSpecId, RootOid> registeredServices = Maps.newHashMap();
 
     private PersistenceManager persistenceManager;
+    private EntityCacheLoader entityCacheLoader;
 
     private final Map<Class<?>, PersistenceQueryProcessor<?>> persistenceQueryProcessorByClass = Maps.newHashMap();
     private final FrameworkSynchronizer frameworkSynchronizer;
+    private final EntityCache entityCache;
 
     private State state;
     private TransactionMode transactionMode;
@@ -135,6 +139,7 @@ public DataNucleusObjectStore(ObjectAdapterFactory adapterFactory, DataNucleusAp
         this.adapterFactory = adapterFactory;
         this.applicationComponents = applicationComponents;
         this.frameworkSynchronizer = applicationComponents.getFrameworkSynchronizer();
+        this.entityCache = applicationComponents.getEntityCache();
     }
 
     @Override
@@ -183,6 +188,7 @@ public void close() {
 
     private PersistenceManager openSession() {
         this.persistenceManager = applicationComponents.createPersistenceManager();
+        this.entityCacheLoader = new EntityCacheLoader(entityCache, persistenceManager);
         return this.persistenceManager;
     }
 
@@ -190,7 +196,7 @@ private void addPersistenceQueryProcessors(final PersistenceManager persistenceM
         persistenceQueryProcessorByClass.put(PersistenceQueryFindAllInstances.class, new PersistenceQueryFindAllInstancesProcessor(persistenceManager, frameworkSynchronizer));
         persistenceQueryProcessorByClass.put(PersistenceQueryFindByTitle.class, new PersistenceQueryFindByTitleProcessor(persistenceManager, frameworkSynchronizer));
         persistenceQueryProcessorByClass.put(PersistenceQueryFindByPattern.class, new PersistenceQueryFindByPatternProcessor(persistenceManager, frameworkSynchronizer));
-        persistenceQueryProcessorByClass.put(PersistenceQueryFindUsingApplibQueryDefault.class, new PersistenceQueryFindUsingApplibQueryProcessor(persistenceManager, frameworkSynchronizer));
+        persistenceQueryProcessorByClass.put(PersistenceQueryFindUsingApplibQueryDefault.class, new PersistenceQueryFindUsingApplibQueryProcessor(persistenceManager, frameworkSynchronizer, applicationComponents.getQueryTemplates()));
     }
 
     // ///////////////////////////////////////////////////////////////////////
@@ -246,10 +252,12 @@ public void startTransaction() {
     }
 
     public void endTransaction() {
+        entityCacheLoader.clear();
         commitJdoTransaction();
     }
 
     public void abortTransaction() {
+        entityCacheLoader.clear();
         rollbackJdoTransaction();
     }
 
@@ -387,7 +395,7 @@ public Object loadPojo(final TypedOid oid) {
         try {
             final Class<?> cls = clsOf(rootOid);
             final Object jdoObjectId = JdoObjectIdSerializer.toJdoObjectId(rootOid);
-            result = getPersistenceManager().getObjectById(cls, jdoObjectId);
+            result = entityCacheLoader.load(cls, jdoObjectId);
         } catch (final RuntimeException e) {
             throw e;
         }
@@ -461,7 +469,7 @@ public void resolveImmediately(final ObjectAdapter adapter) {
         }
 
         try {
-            getPersistenceManager().refresh(domainObject);
+            entityCacheLoader.refresh(domainObject);
         } catch (final RuntimeException e) {
             throw new ObjectNotFoundException(adapter.getOid(), e);
         }
@@ -507,10 +515,7 @@ public List<ObjectAdapter> loadInstancesAndAdapt(final PersistenceQuery persiste
         ensureOpened();
         ensureInTransaction();
 
-        final PersistenceQueryProcessor<? extends PersistenceQuery> processor = persistenceQueryProcessorByClass.get(persistenceQuery.getClass());
-        if (processor == null) {
-            throw new UnsupportedFindException(MessageFormat.format("Unsupported criteria type: {0}", persistenceQuery.getClass().getName()));
-        }
+        final PersistenceQueryProcessor<? extends PersistenceQuery> processor = processorFor(persistenceQuery);
         return processPersistenceQuery(processor, persistenceQuery);
     }
 
@@ -519,6 +524,33 @@ private <Q extends PersistenceQuery> List<ObjectAdapter> processPersistenceQuery
         return persistenceQueryProcessor.process((Q)persistenceQuery);
     }
 
+    /**
+     * The query is executed with the datastore fetching the results
+     * <tt>fetchSize</tt> at a time, each only being adapted as the cursor
+     * reaches it.
+     */
+    @Override
+    public QueryCursor<ObjectAdapter> streamInstancesAndAdapt(final PersistenceQuery persistenceQuery, final int fetchSize) {
+        ensureOpened();
+        ensureInTransaction();
+
+        final PersistenceQueryProcessor<? extends PersistenceQuery> processor = processorFor(persistenceQuery);
+        return streamPersistenceQuery(processor, persistenceQuery, fetchSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <Q extends PersistenceQuery> QueryCursor<ObjectAdapter> streamPersistenceQuery(final PersistenceQueryProcessor<Q> persistenceQueryProcessor, final PersistenceQuery persistenceQuery, final int fetchSize) {
+        return persistenceQueryProcessor.stream((Q)persistenceQuery, fetchSize);
+    }
+
+    private PersistenceQueryProcessor<? extends PersistenceQuery> processorFor(final PersistenceQuery persistenceQuery) {
+        final PersistenceQueryProcessor<? extends PersistenceQuery> processor = persistenceQueryProcessorByClass.get(persistenceQuery.getClass());
+        if (processor == null) {
+            throw new UnsupportedFindException(MessageFormat.format("Unsupported criteria type: {0}", persistenceQuery.getClass().getName()));
+        }
+        return processor;
+    }
+
     public boolean hasInstances(final ObjectSpecification specification) {
         ensureOpened();
         ensureInTransaction();
@@ -532,10 +564,17 @@ public boolean hasInstances(final ObjectSpecification specification) {
             return false;
         }
 
-        final Query query = QueryUtil.createQuery(getPersistenceManager(), "o", "select o.id", specification, null);
-        throw new NotYetImplementedException();
-        //query.set.setMaxResults(1);
-        //return !query.getResultList().isEmpty();
+        // only the identity of the first instance (if any) is retrieved, so
+        // nothing is loaded into the persistence manager or adapted
+        final Query query = getPersistenceManager().newQuery(specification.getCorrespondingClass());
+        query.setResult("JDOHelper.getObjectId(this)");
+        query.setRange(0, 1);
+        try {
+            final List<?> results = (List<?>) query.execute();
+            return !results.isEmpty();
+        } finally {
+            query.closeAll();
+        }
     }
 
     // ///////////////////////////////////////////////////////////////////////
@@ -630,11 +669,15 @@ private void ensureStateIs(final State stateRequired) {
     // ///////////////////////////////////////////////////////////////////////
 
     public void debugData(final DebugBuilder debug) {
-        throw new NotYetImplementedException();
+        debug.appendln("state", state);
+        debug.appendln("transaction mode", transactionMode);
+        debug.appendln("registered services", registeredServices.size());
+        debug.appendln();
+        entityCache.debugData(debug);
     }
 
     public String debugTitle() {
-        throw new NotYetImplementedException();
+        return "DataNucleus Object Store";
     }
 
     // ///////////////////////////////////////////////////////////////////////
@@ -43,6 +43,7 @@
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.spi.DataNucleusSimplePersistAlgorithm;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.auditable.AuditableAnnotationInJdoApplibFacetFactory;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.auditable.AuditableMarkerInterfaceInJdoApplibFacetFactory;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.cacheable.JdoCacheableAnnotationFacetFactory;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.datastoreidentity.JdoDatastoreIdentityAnnotationFacetFactory;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.discriminator.JdoDiscriminatorAnnotationFacetFactory;
 import org.apache.isis.objectstore.jdo.metamodel.facets.object.embeddedonly.JdoEmbeddedOnlyAnnotationFacetFactory;
@@ -116,7 +117,7 @@ private static void addDataNucleusPropertiesIfRequired(
         
         putIfNotPresent(props, "datanucleus.autoCreateSchema", "true");
         putIfNotPresent(props, "datanucleus.validateSchema", "true");
-        putIfNotPresent(props, "datanucleus.cache.level2.type", "none");
+        // the level 2 cache is defaulted by DataNucleusApplicationComponents, according to the cacheable entities
     }
 
 
@@ -158,6 +159,7 @@ private void addJdoFacetFactoriesTo(ProgrammingModel baseProgrammingModel) {
         baseProgrammingModel.addFactory(JdoPersistenceCapableAnnotationFacetFactory.class);
         baseProgrammingModel.addFactory(JdoDatastoreIdentityAnnotationFacetFactory.class);
         baseProgrammingModel.addFactory(JdoEmbeddedOnlyAnnotationFacetFactory.class);
+        baseProgrammingModel.addFactory(JdoCacheableAnnotationFacetFactory.class);
 
         baseProgrammingModel.addFactory(JdoPrimaryKeyAnnotationFacetFactory.class);
         baseProgrammingModel.addFactory(JdoDiscriminatorAnnotationFacetFactory.class);
@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jdo.JDOHelper;
+import javax.jdo.PersistenceManagerFactory;
+import javax.jdo.spi.PersistenceCapable;
+
+import org.datanucleus.cache.Level2Cache;
+import org.datanucleus.cache.NullLevel2Cache;
+
+import org.apache.isis.core.commons.debug.DebugBuilder;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.cacheable.JdoCacheableFacet;
+
+/**
+ * The second-level cache of the {@link PersistenceManagerFactory}, as used for
+ * the entities that opt into it (those with the {@link JdoCacheableFacet}).
+ * 
+ * <p>
+ * The cache itself is DataNucleus' own, held within the JVM; this just
+ * decides whether a lookup can be satisfied from it (keeping count of the hits
+ * and misses) and evicts entities as they are stored by Isis.
+ */
+public class EntityCache {
+
+    private final Level2Cache level2Cache;
+    private final Set<String> cacheableClassNames;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public EntityCache(final Level2Cache level2Cache, final Set<String> cacheableClassNames) {
+        this.level2Cache = level2Cache;
+        this.cacheableClassNames = Collections.unmodifiableSet(cacheableClassNames);
+    }
+
+    /**
+     * Whether there is a cache (ie not configured with a
+     * <tt>datanucleus.cache.level2.type</tt> of <tt>none</tt>) and any
+     * entities to hold in it.
+     */
+    public boolean isEnabled() {
+        return !cacheableClassNames.isEmpty() && !(level2Cache instanceof NullLevel2Cache);
+    }
+
+    public boolean isCacheable(final Class<?> cls) {
+        return isEnabled() && cacheableClassNames.contains(cls.getName());
+    }
+
+    /**
+     * Whether the entity with the specified (DataNucleus) object id is held in
+     * the cache, counted as a hit or a miss.
+     */
+    public boolean contains(final Object jdoObjectId) {
+        if (jdoObjectId != null && level2Cache.containsOid(jdoObjectId)) {
+            hits.incrementAndGet();
+            return true;
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Evicts the entity, if cacheable, so that its state as just stored is
+     * read afresh.
+     */
+    public void evict(final PersistenceCapable pojo) {
+        if (!isCacheable(pojo.getClass())) {
+            return;
+        }
+        final Object jdoObjectId = JDOHelper.getObjectId(pojo);
+        if (jdoObjectId == null) {
+            return;
+        }
+        level2Cache.evict(jdoObjectId);
+        evictions.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public void debugData(final DebugBuilder debug) {
+        debug.appendTitle("Level 2 Cache");
+        debug.appendln("enabled", isEnabled());
+        debug.appendln("cacheable classes", cacheableClassNames);
+        if (!isEnabled()) {
+            return;
+        }
+        debug.appendln("size", level2Cache.getSize());
+        debug.appendln("hits", getHits());
+        debug.appendln("misses", getMisses());
+        debug.appendln("evictions", getEvictions());
+    }
+
+}
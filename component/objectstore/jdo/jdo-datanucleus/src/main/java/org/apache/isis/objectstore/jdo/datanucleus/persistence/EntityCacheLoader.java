@@ -0,0 +1,96 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence;
+
+import java.util.Map;
+
+import javax.jdo.PersistenceManager;
+
+import com.google.common.collect.Maps;
+
+import org.apache.isis.objectstore.jdo.datanucleus.DataNucleusObjectStore;
+
+/**
+ * Loads and refreshes entities for a {@link DataNucleusObjectStore}, taking
+ * those held in the {@link EntityCache} from it rather than the datastore.
+ *
+ * <p>
+ * Remembers whether each entity it loads was cached, so that resolving it
+ * straight after does not look it up (and count it) a second time.
+ */
+public class EntityCacheLoader {
+
+    private final EntityCache entityCache;
+    private final PersistenceManager persistenceManager;
+
+    private final Map<Object, Boolean> cachedByLoadedPojo = Maps.newIdentityHashMap();
+
+    public EntityCacheLoader(final EntityCache entityCache, final PersistenceManager persistenceManager) {
+        this.entityCache = entityCache;
+        this.persistenceManager = persistenceManager;
+    }
+
+    /**
+     * If held in the level 2 cache, then the entity is taken from it without
+     * validating it against the datastore (the cache being evicted as entities
+     * are stored); otherwise it is loaded (and so cached) as usual.
+     */
+    public Object load(final Class<?> cls, final Object jdoObjectId) {
+        if (!entityCache.isCacheable(cls)) {
+            return persistenceManager.getObjectById(cls, jdoObjectId);
+        }
+        final Object dnObjectId = persistenceManager.newObjectIdInstance(cls, jdoObjectId);
+        final boolean cached = entityCache.contains(dnObjectId);
+        final Object pojo = persistenceManager.getObjectById(dnObjectId, !cached);
+        if (pojo != null) {
+            cachedByLoadedPojo.put(pojo, cached);
+        }
+        return pojo;
+    }
+
+    /**
+     * Refreshes the entity from the datastore, unless its state is held in the
+     * level 2 cache.
+     */
+    public void refresh(final Object pojo) {
+        if (!isCached(pojo)) {
+            persistenceManager.refresh(pojo);
+        }
+    }
+
+    private boolean isCached(final Object pojo) {
+        final Boolean cached = cachedByLoadedPojo.remove(pojo);
+        if (cached != null) {
+            return cached;
+        }
+        if (!entityCache.isCacheable(pojo.getClass())) {
+            return false;
+        }
+        return entityCache.contains(persistenceManager.getObjectId(pojo));
+    }
+
+    /**
+     * Forgets the entities loaded so far, as the transaction they were loaded
+     * in ends.
+     */
+    public void clear() {
+        cachedByLoadedPojo.clear();
+    }
+
+}
@@ -69,6 +69,12 @@ public enum CalledFrom {
         EVENT_LOAD, EVENT_STORE, EVENT_PREDIRTY, OS_QUERY, OS_RESOLVE, OS_LAZILYLOADED
     }
 
+    private final EntityCache entityCache;
+
+    public FrameworkSynchronizer(final EntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
 
     public void postLoadProcessingFor(final PersistenceCapable pojo, CalledFrom calledFrom) {
 
@@ -145,6 +151,9 @@ public void run() {
                 }
                 
                 Utils.clearDirtyFor(adapter);
+
+                // any cached copy is now stale
+                entityCache.evict(pojo);
                 
                 Version versionIfAny = getVersionIfAny(pojo);
                 adapter.setVersion(versionIfAny);
@@ -0,0 +1,115 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence.queries;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.jdo.FetchPlan;
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.query.JdoNamedQuery;
+
+/**
+ * How to create a JDO {@link Query} for one of the queries that can be
+ * submitted through an applib {@link org.apache.isis.applib.query.Query}.
+ * 
+ * <p>
+ * Query arguments are always passed as parameters, never embedded in the
+ * query itself, so that the query is the same whatever the arguments (and so
+ * can be compiled just once by DataNucleus, and cannot be subverted by the
+ * arguments).
+ */
+public class JdoQueryTemplate {
+
+    /**
+     * Finds the instance with the primary key passed as the parameter named
+     * for the primary key property.
+     */
+    public static JdoQueryTemplate forPrimaryKey(final Class<?> cls, final String pkPropertyId, final Class<?> pkType) {
+        final String filter = "this." + pkPropertyId + " == " + pkPropertyId;
+        final String parameters = pkType.getName() + " " + pkPropertyId;
+        return new JdoQueryTemplate(cls, null, filter, parameters, Collections.<String>emptyList(), 0, 0);
+    }
+
+    /**
+     * Finds the instances using the query of that name, fetching the groups
+     * of its fetch plan (if known).
+     * 
+     * @param namedQuery
+     *            - the query, as held in the metamodel, or <tt>null</tt> if
+     *            not known (eg declared in XML metadata).
+     */
+    public static JdoQueryTemplate forNamedQuery(final Class<?> cls, final String queryName, final JdoNamedQuery namedQuery) {
+        if (namedQuery == null) {
+            return new JdoQueryTemplate(cls, queryName, null, null, Collections.<String>emptyList(), 0, 0);
+        }
+        return new JdoQueryTemplate(cls, queryName, null, null, namedQuery.getFetchGroups(), namedQuery.getFetchSize(), namedQuery.getMaxFetchDepth());
+    }
+
+    private final Class<?> cls;
+    private final String queryName;
+    private final String filter;
+    private final String parameters;
+    private final List<String> fetchGroups;
+    private final int fetchSize;
+    private final int maxFetchDepth;
+
+    private JdoQueryTemplate(final Class<?> cls, final String queryName, final String filter, final String parameters, final List<String> fetchGroups, final int fetchSize, final int maxFetchDepth) {
+        this.cls = cls;
+        this.queryName = queryName;
+        this.filter = filter;
+        this.parameters = parameters;
+        this.fetchGroups = fetchGroups;
+        this.fetchSize = fetchSize;
+        this.maxFetchDepth = maxFetchDepth;
+    }
+
+    /**
+     * A new query, for the provided {@link PersistenceManager}, with its
+     * fetch plan set up.
+     */
+    public Query newQuery(final PersistenceManager persistenceManager) {
+        final Query query;
+        if (queryName != null) {
+            query = persistenceManager.newNamedQuery(cls, queryName);
+        } else {
+            query = persistenceManager.newQuery(cls, filter);
+            query.declareParameters(parameters);
+        }
+        final FetchPlan fetchPlan = query.getFetchPlan();
+        for (final String fetchGroup : fetchGroups) {
+            fetchPlan.addGroup(fetchGroup);
+        }
+        if (fetchSize != 0) {
+            fetchPlan.setFetchSize(fetchSize);
+        }
+        if (maxFetchDepth != 0) {
+            fetchPlan.setMaxFetchDepth(maxFetchDepth);
+        }
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return cls.getName() + (queryName != null ? "#" + queryName : " where " + filter);
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence.queries;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.PersistenceManagerFactory;
+import javax.jdo.Query;
+
+import com.google.common.collect.Maps;
+
+import org.apache.log4j.Logger;
+
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.spec.feature.OneToOneAssociation;
+import org.apache.isis.objectstore.jdo.datanucleus.metamodel.JdoPropertyUtils;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.query.JdoNamedQuery;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.query.JdoQueryFacet;
+
+/**
+ * The {@link JdoQueryTemplate}s of the queries submitted to a
+ * {@link PersistenceManagerFactory}, by specification and query name.
+ * 
+ * <p>
+ * Each template is compiled when first created, which leaves the compilation
+ * in the {@link PersistenceManagerFactory}'s query compilation cache for all
+ * of the queries created from it.
+ */
+public class JdoQueryTemplates {
+
+    private static final Logger LOG = Logger.getLogger(JdoQueryTemplates.class);
+
+    private final ConcurrentMap<String, JdoQueryTemplate> templateByKey = Maps.newConcurrentMap();
+
+    /**
+     * The template for the named query (or for the special
+     * <tt>&lt;class&gt;#pk</tt> query, to find by primary key), created and
+     * compiled using the provided {@link PersistenceManager} if required.
+     */
+    public JdoQueryTemplate templateFor(final ObjectSpecification objectSpec, final String queryName, final PersistenceManager persistenceManager) {
+        final String key = objectSpec.getFullIdentifier() + "|" + queryName;
+        final JdoQueryTemplate template = templateByKey.get(key);
+        if (template != null) {
+            return template;
+        }
+        final JdoQueryTemplate newTemplate = newTemplateFor(objectSpec, queryName);
+        compile(newTemplate, persistenceManager);
+        final JdoQueryTemplate existing = templateByKey.putIfAbsent(key, newTemplate);
+        return existing != null ? existing : newTemplate;
+    }
+
+    public static boolean isPrimaryKeyQuery(final ObjectSpecification objectSpec, final String queryName) {
+        return (objectSpec.getFullIdentifier() + "#pk").equals(queryName);
+    }
+
+    private static JdoQueryTemplate newTemplateFor(final ObjectSpecification objectSpec, final String queryName) {
+        final Class<?> cls = objectSpec.getCorrespondingClass();
+        if (isPrimaryKeyQuery(objectSpec, queryName)) {
+            if(!JdoPropertyUtils.hasPrimaryKeyProperty(objectSpec)) {
+                throw new UnsupportedOperationException("cannot search by primary key for DataStore-assigned entities");
+            }
+            final OneToOneAssociation pkOtoa = JdoPropertyUtils.getPrimaryKeyPropertyFor(objectSpec);
+            return JdoQueryTemplate.forPrimaryKey(cls, pkOtoa.getId(), pkOtoa.getSpecification().getCorrespondingClass());
+        }
+        return JdoQueryTemplate.forNamedQuery(cls, queryName, namedQueryFor(objectSpec, queryName));
+    }
+
+    private static JdoNamedQuery namedQueryFor(final ObjectSpecification objectSpec, final String queryName) {
+        final JdoQueryFacet facet = objectSpec.getFacet(JdoQueryFacet.class);
+        if (facet == null) {
+            return null;
+        }
+        for (final JdoNamedQuery namedQuery : facet.getNamedQueries()) {
+            if (namedQuery.getName().equals(queryName)) {
+                return namedQuery;
+            }
+        }
+        return null;
+    }
+
+    private static void compile(final JdoQueryTemplate template, final PersistenceManager persistenceManager) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("compiling query template: " + template);
+        }
+        final Query query = template.newQuery(persistenceManager);
+        try {
+            query.compile();
+        } finally {
+            query.closeAll();
+        }
+    }
+
+    public int size() {
+        return templateByKey.size();
+    }
+
+}
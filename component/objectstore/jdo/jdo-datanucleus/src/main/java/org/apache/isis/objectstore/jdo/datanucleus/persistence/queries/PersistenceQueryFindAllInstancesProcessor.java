@@ -18,6 +18,7 @@
  */
 package org.apache.isis.objectstore.jdo.datanucleus.persistence.queries;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.jdo.PersistenceManager;
@@ -25,6 +26,7 @@
 
 import org.apache.log4j.Logger;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindAllInstances;
@@ -39,7 +41,19 @@ public PersistenceQueryFindAllInstancesProcessor(final PersistenceManager persis
     }
 
     public List<ObjectAdapter> process(final PersistenceQueryFindAllInstances persistenceQuery) {
+        final Query query = newQuery(persistenceQuery);
+        final List<?> pojos = (List<?>) query.execute();
+        return loadAdapters(persistenceQuery.getSpecification(), pojos);
+    }
+
+    @Override
+    public QueryCursor<ObjectAdapter> stream(final PersistenceQueryFindAllInstances persistenceQuery, final int fetchSize) {
+        final Query query = newQuery(persistenceQuery);
+        applyFetchSize(query, fetchSize);
+        return streamAdapters(query, (Collection<?>) query.execute());
+    }
 
+    private Query newQuery(final PersistenceQueryFindAllInstances persistenceQuery) {
         final ObjectSpecification specification = persistenceQuery.getSpecification();
         if (LOG.isDebugEnabled()) {
             LOG.debug("getInstances: class=" + specification.getFullIdentifier());
@@ -47,9 +61,8 @@ public List<ObjectAdapter> process(final PersistenceQueryFindAllInstances persis
         
         Class<?> cls = specification.getCorrespondingClass();
         final Query query = getPersistenceManager().newQuery(cls);
-        
-        final List<?> pojos = (List<?>) query.execute();
-        return loadAdapters(specification, pojos);
+        applyRange(query, persistenceQuery.getStart(), persistenceQuery.getCount());
+        return query;
     }
 }
 
@@ -18,6 +18,7 @@
  */
 package org.apache.isis.objectstore.jdo.datanucleus.persistence.queries;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -27,20 +28,26 @@
 
 import com.google.common.collect.Maps;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.services.container.query.QueryCardinality;
 import org.apache.isis.core.metamodel.spec.ObjectAdapterUtils;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
-import org.apache.isis.core.metamodel.spec.feature.OneToOneAssociation;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindUsingApplibQueryDefault;
-import org.apache.isis.objectstore.jdo.datanucleus.DataNucleusObjectStore;
-import org.apache.isis.objectstore.jdo.datanucleus.metamodel.JdoPropertyUtils;
 import org.apache.isis.objectstore.jdo.datanucleus.persistence.FrameworkSynchronizer;
 
+/**
+ * Queries are created from {@link JdoQueryTemplates templates}, shared by all
+ * persistence managers of the factory, with the arguments passed as
+ * parameters.
+ */
 public class PersistenceQueryFindUsingApplibQueryProcessor extends PersistenceQueryProcessorAbstract<PersistenceQueryFindUsingApplibQueryDefault> {
     
-    public PersistenceQueryFindUsingApplibQueryProcessor(final PersistenceManager persistenceManager, final FrameworkSynchronizer frameworkSynchronizer) {
+    private final JdoQueryTemplates queryTemplates;
+
+    public PersistenceQueryFindUsingApplibQueryProcessor(final PersistenceManager persistenceManager, final FrameworkSynchronizer frameworkSynchronizer, final JdoQueryTemplates queryTemplates) {
         super(persistenceManager, frameworkSynchronizer);
+        this.queryTemplates = queryTemplates;
     }
 
     public List<ObjectAdapter> process(final PersistenceQueryFindUsingApplibQueryDefault persistenceQuery) {
@@ -49,36 +56,47 @@ public List<ObjectAdapter> process(final PersistenceQueryFindUsingApplibQueryDef
         final QueryCardinality cardinality = persistenceQuery.getCardinality();
         final ObjectSpecification objectSpec = persistenceQuery.getSpecification();
         
-        final List<?> results;
-        if((objectSpec.getFullIdentifier() + "#pk").equals(queryName)) {
-            // special case handling
-            final Class<?> cls = objectSpec.getCorrespondingClass();
-            if(!JdoPropertyUtils.hasPrimaryKeyProperty(objectSpec)) {
-                throw new UnsupportedOperationException("cannot search by primary key for DataStore-assigned entities");
-            }
-            final OneToOneAssociation pkOtoa = JdoPropertyUtils.getPrimaryKeyPropertyFor(objectSpec);
-            String pkOtoaId = pkOtoa.getId();
-            final String filter = pkOtoaId + "==" + map.get(pkOtoaId);
-            final Query jdoQuery = getPersistenceManager().newQuery(cls, filter);
-            results = (List<?>) jdoQuery.execute();
-        } else {
-            results = getResults(objectSpec, queryName, map, cardinality);
-        }
-        
+        final List<?> results = getResults(objectSpec, queryName, map, cardinality, persistenceQuery.getStart(), persistenceQuery.getCount());
         return loadAdapters(objectSpec, results);
     }
 
-    private List<?> getResults(ObjectSpecification objectSpec, final String queryName, final Map<String, Object> argumentsByParameterName, final QueryCardinality cardinality) {
+    /**
+     * Only queries for any number of instances are streamed; the others
+     * (retrieving at most one instance) are processed as a whole.
+     */
+    @Override
+    public QueryCursor<ObjectAdapter> stream(final PersistenceQueryFindUsingApplibQueryDefault persistenceQuery, final int fetchSize) {
+        if (persistenceQuery.getCardinality() != QueryCardinality.MULTIPLE) {
+            return super.stream(persistenceQuery, fetchSize);
+        }
+        final Map<String, Object> map = unwrap(persistenceQuery.getArgumentsAdaptersByParameterName());
+        final Query jdoQuery = newQuery(persistenceQuery.getSpecification(), persistenceQuery.getQueryName());
+        applyRange(jdoQuery, persistenceQuery.getStart(), persistenceQuery.getCount());
+        applyFetchSize(jdoQuery, fetchSize);
+        return streamAdapters(jdoQuery, (Collection<?>) jdoQuery.executeWithMap(map));
+    }
+
+    /**
+     * Only the requested range is retrieved; for a single result, only the
+     * first instance in that range is retrieved.
+     */
+    private List<?> getResults(ObjectSpecification objectSpec, final String queryName, final Map<String, Object> argumentsByParameterName, final QueryCardinality cardinality, final long start, final long count) {
         
-        final PersistenceManager persistenceManager = getJdoObjectStore().getPersistenceManager();
-        final Class<?> cls = objectSpec.getCorrespondingClass();
-        final Query jdoQuery = persistenceManager.newNamedQuery(cls, queryName);
+        final Query jdoQuery = newQuery(objectSpec, queryName);
         
-        final List<?> results = (List<?>) jdoQuery.executeWithMap(argumentsByParameterName);
         if (cardinality == QueryCardinality.MULTIPLE) {
-            return results;
+            applyRange(jdoQuery, start, count);
+            return (List<?>) jdoQuery.executeWithMap(argumentsByParameterName);
         }
-        return results.isEmpty()?Collections.emptyList():results.subList(0, 1);
+        jdoQuery.setRange(start, start + 1);
+        jdoQuery.setUnique(true);
+        final Object result = jdoQuery.executeWithMap(argumentsByParameterName);
+        return result == null ? Collections.emptyList() : Collections.singletonList(result);
+    }
+
+    private Query newQuery(final ObjectSpecification objectSpec, final String queryName) {
+        final PersistenceManager persistenceManager = getPersistenceManager();
+        return queryTemplates.templateFor(objectSpec, queryName, persistenceManager).newQuery(persistenceManager);
     }
 
     private static Map<String, Object> unwrap(final Map<String, ObjectAdapter> argumentAdaptersByParameterName) {
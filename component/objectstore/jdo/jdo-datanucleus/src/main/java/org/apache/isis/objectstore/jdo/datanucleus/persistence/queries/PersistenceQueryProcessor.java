@@ -20,11 +20,19 @@
 
 import java.util.List;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.runtime.system.persistence.PersistenceQuery;
 
 public interface PersistenceQueryProcessor<T extends PersistenceQuery> {
 	List<ObjectAdapter> process(T query);
+
+	/**
+	 * As {@link #process(PersistenceQuery)}, but retrieving the results from
+	 * the datastore <tt>fetchSize</tt> at a time, and adapting each only as
+	 * the cursor reaches it.
+	 */
+	QueryCursor<ObjectAdapter> stream(T query, int fetchSize);
 }
 
 // Copyright (c) Naked Objects Group Ltd.
@@ -18,20 +18,25 @@
  */
 package org.apache.isis.objectstore.jdo.datanucleus.persistence.queries;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.jdo.PersistenceManager;
 import javax.jdo.PersistenceManagerFactory;
+import javax.jdo.Query;
 import javax.jdo.listener.InstanceLifecycleEvent;
 import javax.jdo.metadata.TypeMetadata;
 import javax.jdo.spi.PersistenceCapable;
 
 import com.google.common.collect.Lists;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.ensure.Assert;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.adapter.mgr.AdapterManager;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.runtime.persistence.query.QueryCursorIterating;
 import org.apache.isis.core.runtime.system.context.IsisContext;
 import org.apache.isis.core.runtime.system.persistence.AdapterManagerSpi;
 import org.apache.isis.core.runtime.system.persistence.PersistenceQuery;
@@ -55,6 +60,14 @@ protected PersistenceQueryProcessorAbstract(final PersistenceManager persistence
     protected PersistenceManager getPersistenceManager() {
         return persistenceManager;
     }
+
+    /**
+     * Unless overridden, the results are {@link #process(PersistenceQuery)
+     * processed} as a whole, and then iterated over.
+     */
+    public QueryCursor<ObjectAdapter> stream(final T query, final int fetchSize) {
+        return new QueryCursorIterating<ObjectAdapter>(process(query));
+    }
     
     
     // /////////////////////////////////////////////////////////////
@@ -69,6 +82,21 @@ protected TypeMetadata getTypeMetadata(final String classFullName) {
         return getPersistenceManagerFactory().getMetadata(classFullName);
     }
     
+    /**
+     * Restricts the query to the requested range (if any), so that only that
+     * page of instances is retrieved from the datastore.
+     * 
+     * <p>
+     * A <tt>count</tt> of zero means all instances from the <tt>start</tt>, as
+     * it does for object stores that match instances in memory.
+     */
+    protected static void applyRange(final Query query, final long start, final long count) {
+        if (start == 0 && count == 0) {
+            return;
+        }
+        query.setRange(start, count == 0 ? Long.MAX_VALUE : start + count);
+    }
+
     /**
      * Traversing the provided list causes (or should cause) the
      * {@link IsisLifecycleListener#postLoad(InstanceLifecycleEvent) {
@@ -78,16 +106,68 @@ protected List<ObjectAdapter> loadAdapters(
             final ObjectSpecification specification, final List<?> pojos) {
         final List<ObjectAdapter> adapters = Lists.newArrayList();
         for (final Object pojo : pojos) {
-        	// ought not to be necessary, however for some queries it seems that the 
-        	// lifecycle listener is not called
-        	frameworkSynchronizer.postLoadProcessingFor((PersistenceCapable) pojo, CalledFrom.OS_QUERY);
-            ObjectAdapter adapter = getAdapterManager().getAdapterFor(pojo);
-            Assert.assertNotNull(adapter);
-            adapters.add(adapter);
+            adapters.add(loadAdapter(pojo));
         }
         return adapters;
     }
 
+    private ObjectAdapter loadAdapter(final Object pojo) {
+        // ought not to be necessary, however for some queries it seems that the 
+        // lifecycle listener is not called
+        frameworkSynchronizer.postLoadProcessingFor((PersistenceCapable) pojo, CalledFrom.OS_QUERY);
+        final ObjectAdapter adapter = getAdapterManager().getAdapterFor(pojo);
+        Assert.assertNotNull(adapter);
+        return adapter;
+    }
+
+    /**
+     * Has the datastore return the results of the query <tt>fetchSize</tt> at
+     * a time, rather than all at once (a <tt>fetchSize</tt> of zero leaving
+     * the default).
+     */
+    protected static void applyFetchSize(final Query query, final int fetchSize) {
+        if (fetchSize > 0) {
+            query.getFetchPlan().setFetchSize(fetchSize);
+        }
+    }
+
+    /**
+     * A cursor over the results of the (executed) query, each pojo only being
+     * adapted as the cursor reaches it; closing the cursor closes the results.
+     */
+    protected QueryCursor<ObjectAdapter> streamAdapters(final Query query, final Collection<?> pojos) {
+        final Iterator<?> iterator = pojos.iterator();
+        return new QueryCursor<ObjectAdapter>() {
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                return !closed && iterator.hasNext();
+            }
+
+            @Override
+            public ObjectAdapter next() {
+                if (closed) {
+                    throw new IllegalStateException("Cursor has been closed");
+                }
+                return loadAdapter(iterator.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    query.close(pojos);
+                }
+            }
+        };
+    }
+
     // /////////////////////////////////////////////////////////////
     // Dependencies (from context)
     // /////////////////////////////////////////////////////////////
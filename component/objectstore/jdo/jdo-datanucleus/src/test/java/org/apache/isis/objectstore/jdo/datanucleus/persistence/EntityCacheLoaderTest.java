@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.spi.PersistenceCapable;
+
+import com.google.common.collect.Sets;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.datanucleus.cache.Level2Cache;
+
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class EntityCacheLoaderTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_ONLY);
+
+    @Mock
+    private Level2Cache mockLevel2Cache;
+    @Mock
+    private PersistenceManager mockPersistenceManager;
+    @Mock
+    private PersistenceCapable mockPojo;
+
+    private final Object jdoObjectId = "1";
+    private final Object dnObjectId = "1[OID]Country";
+
+    private Class<?> cls;
+    private EntityCache entityCache;
+    private EntityCacheLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        cls = mockPojo.getClass();
+        entityCache = new EntityCache(mockLevel2Cache, Sets.newHashSet(cls.getName()));
+        loader = new EntityCacheLoader(entityCache, mockPersistenceManager);
+    }
+
+    @Test
+    public void cachedEntityTakenFromCacheAndNotRefreshed() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockPersistenceManager).newObjectIdInstance(cls, jdoObjectId);
+                will(returnValue(dnObjectId));
+                oneOf(mockLevel2Cache).containsOid(dnObjectId);
+                will(returnValue(true));
+                oneOf(mockPersistenceManager).getObjectById(dnObjectId, false);
+                will(returnValue(mockPojo));
+                never(mockPersistenceManager).refresh(with(any(Object.class)));
+            }
+        });
+
+        assertThat(loader.load(cls, jdoObjectId), is(sameInstance((Object) mockPojo)));
+        loader.refresh(mockPojo);
+
+        assertThat(entityCache.getHits(), is(1L));
+        assertThat(entityCache.getMisses(), is(0L));
+    }
+
+    @Test
+    public void entityNotCachedLoadedAndRefreshedAsUsual() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockPersistenceManager).newObjectIdInstance(cls, jdoObjectId);
+                will(returnValue(dnObjectId));
+                oneOf(mockLevel2Cache).containsOid(dnObjectId);
+                will(returnValue(false));
+                oneOf(mockPersistenceManager).getObjectById(dnObjectId, true);
+                will(returnValue(mockPojo));
+                oneOf(mockPersistenceManager).refresh(mockPojo);
+            }
+        });
+
+        loader.load(cls, jdoObjectId);
+        loader.refresh(mockPojo);
+
+        assertThat(entityCache.getHits(), is(0L));
+        assertThat(entityCache.getMisses(), is(1L));
+    }
+
+    @Test
+    public void entityNotLoadedLookedUpWhenRefreshed() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockPersistenceManager).getObjectId(mockPojo);
+                will(returnValue(dnObjectId));
+                oneOf(mockLevel2Cache).containsOid(dnObjectId);
+                will(returnValue(true));
+                never(mockPersistenceManager).refresh(with(any(Object.class)));
+            }
+        });
+
+        loader.refresh(mockPojo);
+
+        assertThat(entityCache.getHits(), is(1L));
+    }
+
+    @Test
+    public void entityLookedUpAgainOnceCleared() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockPersistenceManager).newObjectIdInstance(cls, jdoObjectId);
+                will(returnValue(dnObjectId));
+                allowing(mockPersistenceManager).getObjectId(mockPojo);
+                will(returnValue(dnObjectId));
+                exactly(2).of(mockLevel2Cache).containsOid(dnObjectId);
+                will(returnValue(true));
+                oneOf(mockPersistenceManager).getObjectById(dnObjectId, false);
+                will(returnValue(mockPojo));
+            }
+        });
+
+        loader.load(cls, jdoObjectId);
+        loader.clear();
+        loader.refresh(mockPojo);
+
+        assertThat(entityCache.getHits(), is(2L));
+    }
+
+    @Test
+    public void entityNotCacheableLoadedAndRefreshedAsUsual() throws Exception {
+        entityCache = new EntityCache(mockLevel2Cache, Collections.<String> emptySet());
+        loader = new EntityCacheLoader(entityCache, mockPersistenceManager);
+        context.checking(new Expectations() {
+            {
+                oneOf(mockPersistenceManager).getObjectById(cls, jdoObjectId);
+                will(returnValue(mockPojo));
+                oneOf(mockPersistenceManager).refresh(mockPojo);
+                never(mockLevel2Cache);
+            }
+        });
+
+        loader.load(cls, jdoObjectId);
+        loader.refresh(mockPojo);
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.jdo.spi.PersistenceCapable;
+
+import com.google.common.collect.Sets;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.datanucleus.cache.Level2Cache;
+
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class EntityCacheTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_ONLY);
+
+    @Mock
+    private Level2Cache mockLevel2Cache;
+    @Mock
+    private PersistenceCapable mockPojo;
+
+    private final Object jdoObjectId = "1[OID]Country";
+
+    private EntityCache entityCache;
+
+    @Before
+    public void setUp() throws Exception {
+        final Set<String> cacheableClassNames = Sets.newHashSet(mockPojo.getClass().getName());
+        entityCache = new EntityCache(mockLevel2Cache, cacheableClassNames);
+    }
+
+    @Test
+    public void countsHitsAndMisses() throws Exception {
+        context.checking(new Expectations() {
+            {
+                oneOf(mockLevel2Cache).containsOid(jdoObjectId);
+                will(returnValue(true));
+                oneOf(mockLevel2Cache).containsOid(jdoObjectId);
+                will(returnValue(false));
+            }
+        });
+
+        assertThat(entityCache.contains(jdoObjectId), is(true));
+        assertThat(entityCache.contains(jdoObjectId), is(false));
+
+        assertThat(entityCache.getHits(), is(1L));
+        assertThat(entityCache.getMisses(), is(1L));
+    }
+
+    @Test
+    public void evictsCacheableEntities() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockPojo).jdoGetObjectId();
+                will(returnValue(jdoObjectId));
+                oneOf(mockLevel2Cache).evict(jdoObjectId);
+            }
+        });
+
+        assertThat(entityCache.isCacheable(mockPojo.getClass()), is(true));
+        entityCache.evict(mockPojo);
+
+        assertThat(entityCache.getEvictions(), is(1L));
+    }
+
+    @Test
+    public void ignoresEntitiesNotCacheable() throws Exception {
+        entityCache = new EntityCache(mockLevel2Cache, Collections.<String>emptySet());
+        context.checking(new Expectations() {
+            {
+                never(mockLevel2Cache).evict(with(any(Object.class)));
+            }
+        });
+
+        assertThat(entityCache.isEnabled(), is(false));
+        assertThat(entityCache.isCacheable(mockPojo.getClass()), is(false));
+        entityCache.evict(mockPojo);
+
+        assertThat(entityCache.getEvictions(), is(0L));
+    }
+
+}
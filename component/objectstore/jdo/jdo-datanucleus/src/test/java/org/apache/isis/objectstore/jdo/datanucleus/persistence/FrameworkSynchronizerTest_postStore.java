@@ -0,0 +1,148 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import javax.jdo.spi.PersistenceCapable;
+
+import com.google.common.collect.Sets;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.datanucleus.cache.Level2Cache;
+
+import org.apache.isis.core.commons.authentication.AuthenticationSession;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.ResolveState;
+import org.apache.isis.core.metamodel.adapter.mgr.AdapterManager;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.facets.object.callbacks.UpdatedCallbackFacet;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+import org.apache.isis.objectstore.jdo.datanucleus.persistence.FrameworkSynchronizer.CalledFrom;
+
+public class FrameworkSynchronizerTest_postStore {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_ONLY);
+
+    @Mock
+    private Level2Cache mockLevel2Cache;
+    @Mock
+    private AuthenticationSession mockAuthenticationSession;
+    @Mock
+    private AdapterManager mockAdapterManager;
+    @Mock
+    private ObjectAdapter mockAdapter;
+    @Mock
+    private ObjectSpecification mockSpecification;
+    @Mock
+    private RootOid mockOid;
+    @Mock
+    private PersistenceCapable mockPojo;
+
+    private final Object jdoObjectId = "1[OID]Country";
+
+    @Before
+    public void setUp() throws Exception {
+        Logger.getRootLogger().setLevel(Level.OFF);
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockAdapterManager).getAdapterFor(mockPojo);
+                will(returnValue(mockAdapter));
+
+                allowing(mockPojo).jdoIsPersistent();
+                will(returnValue(true));
+                allowing(mockPojo).jdoGetObjectId();
+                will(returnValue(jdoObjectId));
+                allowing(mockPojo).jdoGetVersion();
+                will(returnValue(null));
+
+                allowing(mockAdapter).getOid();
+                will(returnValue(mockOid));
+                allowing(mockOid).isTransient();
+                will(returnValue(false));
+                allowing(mockAdapter).getResolveState();
+                will(returnValue(ResolveState.RESOLVED));
+                allowing(mockAdapter).getSpecification();
+                will(returnValue(mockSpecification));
+                allowing(mockAdapter).setVersion(null);
+
+                allowing(mockSpecification).clearDirty(mockAdapter);
+                allowing(mockSpecification).getFacet(UpdatedCallbackFacet.class);
+                will(returnValue(null));
+            }
+        });
+    }
+
+    @Test
+    public void evictsCacheableEntity() throws Exception {
+        final EntityCache entityCache = new EntityCache(mockLevel2Cache, Sets.newHashSet(mockPojo.getClass().getName()));
+        context.checking(new Expectations() {
+            {
+                oneOf(mockLevel2Cache).evict(jdoObjectId);
+            }
+        });
+
+        synchronizerWith(entityCache).postStoreProcessingFor(mockPojo, CalledFrom.EVENT_STORE);
+
+        assertThat(entityCache.getEvictions(), is(1L));
+    }
+
+    @Test
+    public void doesNotEvictEntityNotCacheable() throws Exception {
+        final EntityCache entityCache = new EntityCache(mockLevel2Cache, Collections.<String> emptySet());
+        context.checking(new Expectations() {
+            {
+                never(mockLevel2Cache).evict(with(any(Object.class)));
+            }
+        });
+
+        synchronizerWith(entityCache).postStoreProcessingFor(mockPojo, CalledFrom.EVENT_STORE);
+
+        assertThat(entityCache.getEvictions(), is(0L));
+    }
+
+    private FrameworkSynchronizer synchronizerWith(final EntityCache entityCache) {
+        return new FrameworkSynchronizer(entityCache) {
+            @Override
+            protected AdapterManager getAdapterManager() {
+                return mockAdapterManager;
+            }
+
+            @Override
+            protected AuthenticationSession getAuthenticationSession() {
+                return mockAuthenticationSession;
+            }
+        };
+    }
+
+}
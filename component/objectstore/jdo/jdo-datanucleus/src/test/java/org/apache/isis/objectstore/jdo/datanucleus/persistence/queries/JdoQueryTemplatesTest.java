@@ -0,0 +1,160 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.persistence.queries;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.jdo.FetchPlan;
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.filter.Filter;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
+import org.apache.isis.core.metamodel.spec.feature.OneToOneAssociation;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.persistencecapable.JdoPersistenceCapableFacet;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.query.JdoNamedQuery;
+import org.apache.isis.objectstore.jdo.metamodel.facets.object.query.JdoQueryFacet;
+
+public class JdoQueryTemplatesTest {
+
+    public static class Customer {
+    }
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_ONLY);
+
+    @Mock
+    private ObjectSpecification mockSpec;
+    @Mock
+    private JdoQueryFacet mockQueryFacet;
+    @Mock
+    private PersistenceManager mockPersistenceManager;
+    @Mock
+    private Query mockQuery;
+    @Mock
+    private FetchPlan mockFetchPlan;
+
+    private JdoQueryTemplates templates;
+
+    @Before
+    public void setUp() throws Exception {
+        templates = new JdoQueryTemplates();
+        context.checking(new Expectations() {
+            {
+                allowing(mockSpec).getFullIdentifier();
+                will(returnValue(Customer.class.getName()));
+                allowing(mockSpec).getCorrespondingClass();
+                will(returnValue(Customer.class));
+                allowing(mockQuery).getFetchPlan();
+                will(returnValue(mockFetchPlan));
+            }
+        });
+    }
+
+    @Test
+    public void namedQueryCompiledOnceAndTemplateReused() throws Exception {
+        namedQueries(new JdoNamedQuery("findByName", "SELECT FROM Customer WHERE name == :name", mockSpec));
+        context.checking(new Expectations() {
+            {
+                oneOf(mockPersistenceManager).newNamedQuery(Customer.class, "findByName");
+                will(returnValue(mockQuery));
+                oneOf(mockQuery).compile();
+                oneOf(mockQuery).closeAll();
+            }
+        });
+
+        final JdoQueryTemplate template = templates.templateFor(mockSpec, "findByName", mockPersistenceManager);
+        assertThat(templates.templateFor(mockSpec, "findByName", mockPersistenceManager), is(sameInstance(template)));
+        assertThat(templates.size(), is(1));
+    }
+
+    @Test
+    public void fetchPlanOfNamedQueryApplied() throws Exception {
+        namedQueries(new JdoNamedQuery("findByName", "SELECT FROM Customer WHERE name == :name", Arrays.asList("list", "address"), 50, 2, mockSpec));
+        context.checking(new Expectations() {
+            {
+                exactly(2).of(mockPersistenceManager).newNamedQuery(Customer.class, "findByName");
+                will(returnValue(mockQuery));
+                exactly(2).of(mockFetchPlan).addGroup("list");
+                exactly(2).of(mockFetchPlan).addGroup("address");
+                exactly(2).of(mockFetchPlan).setFetchSize(50);
+                exactly(2).of(mockFetchPlan).setMaxFetchDepth(2);
+                oneOf(mockQuery).compile();
+                oneOf(mockQuery).closeAll();
+            }
+        });
+
+        final JdoQueryTemplate template = templates.templateFor(mockSpec, "findByName", mockPersistenceManager);
+        assertThat(template.newQuery(mockPersistenceManager), is(mockQuery));
+    }
+
+    @Test
+    public void primaryKeyPassedAsDeclaredParameter() throws Exception {
+        final OneToOneAssociation mockPkProperty = context.mock(OneToOneAssociation.class);
+        final ObjectSpecification mockPkSpec = context.mock(ObjectSpecification.class, "pkSpec");
+        context.checking(new Expectations() {
+            {
+                allowing(mockSpec).containsFacet(JdoPersistenceCapableFacet.class);
+                will(returnValue(true));
+                allowing(mockSpec).getAssociations(with(any(Filter.class)));
+                will(returnValue(Collections.<ObjectAssociation>singletonList(mockPkProperty)));
+                allowing(mockPkProperty).getId();
+                will(returnValue("id"));
+                allowing(mockPkProperty).getSpecification();
+                will(returnValue(mockPkSpec));
+                allowing(mockPkSpec).getCorrespondingClass();
+                will(returnValue(long.class));
+
+                oneOf(mockPersistenceManager).newQuery(Customer.class, "this.id == id");
+                will(returnValue(mockQuery));
+                oneOf(mockQuery).declareParameters("long id");
+                oneOf(mockQuery).compile();
+                oneOf(mockQuery).closeAll();
+            }
+        });
+
+        templates.templateFor(mockSpec, Customer.class.getName() + "#pk", mockPersistenceManager);
+    }
+
+    private void namedQueries(final JdoNamedQuery... namedQueries) {
+        context.checking(new Expectations() {
+            {
+                allowing(mockSpec).getFacet(JdoQueryFacet.class);
+                will(returnValue(mockQueryFacet));
+                allowing(mockQueryFacet).getNamedQueries();
+                will(returnValue(Arrays.asList(namedQueries)));
+            }
+        });
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.scenarios.scalar;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.tck.dom.scalars.PrimitiveValuedEntity;
+import org.apache.isis.core.tck.dom.scalars.PrimitiveValuedEntityRepository;
+import org.apache.isis.objectstore.jdo.datanucleus.DataNucleusObjectStore;
+import org.apache.isis.objectstore.jdo.datanucleus.Utils;
+
+public class Persistence_allInstances_paged {
+
+    private PrimitiveValuedEntityRepository repo = new PrimitiveValuedEntityRepository();
+    
+    @Rule
+    public IsisSystemWithFixtures iswf = Utils.systemBuilder()
+        .with(Utils.listenerToDeleteFrom("PRIMITIVEVALUEDENTITY"))
+        .withServices(repo)
+        .build();
+
+    @Before
+    public void setUp() throws Exception {
+        iswf.beginTran();
+        for (int i = 1; i <= 5; i++) {
+            repo.newEntity().setId(i);
+        }
+        iswf.commitTran();
+    }
+
+    @Test
+    public void firstPage() throws Exception {
+        iswf.beginTran();
+        final List<PrimitiveValuedEntity> list = getContainer().allInstances(PrimitiveValuedEntity.class, 0, 2);
+        assertThat(list.size(), is(2));
+        iswf.commitTran();
+    }
+
+    @Test
+    public void lastPage() throws Exception {
+        iswf.beginTran();
+        final List<PrimitiveValuedEntity> list = getContainer().allInstances(PrimitiveValuedEntity.class, 4, 2);
+        assertThat(list.size(), is(1));
+        iswf.commitTran();
+    }
+
+    @Test
+    public void fromStart() throws Exception {
+        iswf.beginTran();
+        final List<PrimitiveValuedEntity> all = getContainer().allInstances(PrimitiveValuedEntity.class);
+        final List<PrimitiveValuedEntity> list = getContainer().allInstances(PrimitiveValuedEntity.class, 2);
+        assertThat(list.size(), is(3));
+        assertThat(idsOf(list), is(idsOf(all.subList(2, 5))));
+        iswf.commitTran();
+    }
+
+    @Test
+    public void hasInstances() throws Exception {
+        iswf.beginTran();
+        final DataNucleusObjectStore objectStore = iswf.getObjectStore(DataNucleusObjectStore.class);
+        assertThat(objectStore.hasInstances(iswf.loadSpecification(PrimitiveValuedEntity.class)), is(true));
+        iswf.commitTran();
+    }
+
+    private static List<Integer> idsOf(final List<PrimitiveValuedEntity> entities) {
+        final List<Integer> ids = Lists.newArrayList();
+        for (final PrimitiveValuedEntity entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+
+    private static DomainObjectContainer getContainer() {
+        return IsisContext.getPersistenceSession().getServicesInjector().getContainer();
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.jdo.datanucleus.scenarios.scalar;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.applib.query.QueryCursor;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.tck.dom.scalars.PrimitiveValuedEntity;
+import org.apache.isis.core.tck.dom.scalars.PrimitiveValuedEntityRepository;
+import org.apache.isis.objectstore.jdo.datanucleus.Utils;
+
+public class Persistence_streamInstances {
+
+    private PrimitiveValuedEntityRepository repo = new PrimitiveValuedEntityRepository();
+    
+    @Rule
+    public IsisSystemWithFixtures iswf = Utils.systemBuilder()
+        .with(Utils.listenerToDeleteFrom("PRIMITIVEVALUEDENTITY"))
+        .withServices(repo)
+        .build();
+
+    @Before
+    public void setUp() throws Exception {
+        iswf.beginTran();
+        for (int i = 1; i <= 5; i++) {
+            repo.newEntity().setId(i);
+        }
+        iswf.commitTran();
+    }
+
+    @Test
+    public void all() throws Exception {
+        iswf.bounceSystem();
+        
+        iswf.beginTran();
+        final QueryCursor<PrimitiveValuedEntity> cursor = getContainer().streamInstances(PrimitiveValuedEntity.class, 2);
+        int count = 0;
+        while (cursor.hasNext()) {
+            cursor.next();
+            count++;
+        }
+        cursor.close();
+        assertThat(count, is(5));
+        iswf.commitTran();
+    }
+
+    @Test
+    public void closedEarly() throws Exception {
+        iswf.bounceSystem();
+        
+        iswf.beginTran();
+        final QueryCursor<PrimitiveValuedEntity> cursor = getContainer().streamInstances(PrimitiveValuedEntity.class, 2);
+        assertThat(cursor.hasNext(), is(true));
+        cursor.next();
+        cursor.close();
+        assertThat(cursor.hasNext(), is(false));
+        iswf.commitTran();
+    }
+
+    private static DomainObjectContainer getContainer() {
+        return IsisContext.getPersistenceSession().getServicesInjector().getContainer();
+    }
+
+}
@@ -22,6 +22,11 @@
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jdo.annotations.FetchPlan;
 import javax.jdo.annotations.Query;
 
 import org.apache.isis.core.commons.ensure.Ensure;
@@ -31,28 +36,82 @@
  * Value object that represents the information of a
  * {@link javax.jdo.annotations.Query}.
  * 
+ * <p>
+ * The {@link Query#fetchPlan() fetch plan} of the query, if any, is resolved
+ * against the {@link FetchPlan}s declared on the same class; if there is no
+ * such fetch plan, then the name is taken to be that of a single fetch group.
+ * 
  * @see {@link JdoQueryFacet}.
  */
 public final class JdoNamedQuery {
 
     private final String name;
     private final String query;
+    private final List<String> fetchGroups;
+    private final int fetchSize;
+    private final int maxFetchDepth;
     private final ObjectSpecification objSpec;
 
     public JdoNamedQuery(final String name, final String query,
             final ObjectSpecification noSpec) {
+        this(name, query, Collections.<String>emptyList(), 0, 0, noSpec);
+    }
+
+    public JdoNamedQuery(final String name, final String query,
+            final List<String> fetchGroups, final int fetchSize, final int maxFetchDepth,
+            final ObjectSpecification noSpec) {
         Ensure.ensureThatArg(name, is(not(nullValue())));
         Ensure.ensureThatArg(query, is(not(nullValue())));
+        Ensure.ensureThatArg(fetchGroups, is(not(nullValue())));
         Ensure.ensureThatArg(noSpec, is(not(nullValue())));
 
         this.name = name;
         this.query = query;
+        this.fetchGroups = Collections.unmodifiableList(fetchGroups);
+        this.fetchSize = fetchSize;
+        this.maxFetchDepth = maxFetchDepth;
         this.objSpec = noSpec;
     }
 
     public JdoNamedQuery(final Query jdoNamedQuery,
             final ObjectSpecification objSpec) {
-        this(jdoNamedQuery.name(), jdoNamedQuery.value(), objSpec);
+        this(jdoNamedQuery, new FetchPlan[0], objSpec);
+    }
+
+    public JdoNamedQuery(final Query jdoNamedQuery, final FetchPlan[] fetchPlans,
+            final ObjectSpecification objSpec) {
+        this(jdoNamedQuery, fetchPlanNamed(jdoNamedQuery.fetchPlan(), fetchPlans), objSpec);
+    }
+
+    private JdoNamedQuery(final Query jdoNamedQuery, final FetchPlan fetchPlan,
+            final ObjectSpecification objSpec) {
+        this(jdoNamedQuery.name(), jdoNamedQuery.value(),
+                fetchGroupsFor(jdoNamedQuery.fetchPlan(), fetchPlan), 
+                fetchPlan != null? fetchPlan.fetchSize(): 0, 
+                fetchPlan != null? fetchPlan.maxFetchDepth(): 0, 
+                objSpec);
+    }
+
+    private static List<String> fetchGroupsFor(final String fetchPlanName, final FetchPlan fetchPlan) {
+        if (fetchPlan != null) {
+            return Arrays.asList(fetchPlan.fetchGroups());
+        }
+        if (fetchPlanName == null || fetchPlanName.length() == 0) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(fetchPlanName);
+    }
+
+    private static FetchPlan fetchPlanNamed(final String fetchPlanName, final FetchPlan[] fetchPlans) {
+        if (fetchPlanName == null || fetchPlanName.length() == 0) {
+            return null;
+        }
+        for (final FetchPlan fetchPlan : fetchPlans) {
+            if (fetchPlan.name().equals(fetchPlanName)) {
+                return fetchPlan;
+            }
+        }
+        return null;
     }
 
     public String getName() {
@@ -63,6 +122,30 @@ public String getQuery() {
         return query;
     }
 
+    /**
+     * The fetch groups to load (in addition to the default fetch group), so
+     * that the query retrieves everything required of its results in one go.
+     */
+    public List<String> getFetchGroups() {
+        return fetchGroups;
+    }
+
+    /**
+     * The number of results to retrieve at a time, or <tt>0</tt> for the
+     * default.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * How far to follow references when loading the fetch groups, or
+     * <tt>0</tt> for the default.
+     */
+    public int getMaxFetchDepth() {
+        return maxFetchDepth;
+    }
+
     public ObjectSpecification getObjectSpecification() {
         return objSpec;
     }
@@ -18,6 +18,7 @@
  */
 package org.apache.isis.objectstore.jdo.metamodel.facets.object.query;
 
+import javax.jdo.annotations.FetchPlan;
 import javax.jdo.annotations.Query;
 
 import org.apache.isis.core.metamodel.facetapi.FacetHolder;
@@ -27,9 +28,9 @@ public class JdoQueriesFacetAnnotation extends JdoQueryFacetAbstract
         implements JdoQueryFacet {
 
     public JdoQueriesFacetAnnotation(final Query[] jdoNamedQueries,
-            final FacetHolder holder) {
+            final FetchPlan[] fetchPlans, final FacetHolder holder) {
         super(holder);
-        add(jdoNamedQueries);
+        add(fetchPlans, jdoNamedQueries);
     }
 
 
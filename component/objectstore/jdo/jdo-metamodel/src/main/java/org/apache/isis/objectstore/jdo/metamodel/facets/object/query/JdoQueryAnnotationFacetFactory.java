@@ -18,6 +18,8 @@
  */
 package org.apache.isis.objectstore.jdo.metamodel.facets.object.query;
 
+import javax.jdo.annotations.FetchPlan;
+import javax.jdo.annotations.FetchPlans;
 import javax.jdo.annotations.Queries;
 import javax.jdo.annotations.Query;
 
@@ -42,14 +44,26 @@ public void process(ProcessClassContext processClassContext) {
         
         if (namedQueriesAnnotation != null) {
             FacetUtil.addFacet(new JdoQueriesFacetAnnotation(
-                    namedQueriesAnnotation.value(), facetHolder));
+                    namedQueriesAnnotation.value(), fetchPlansOf(cls), facetHolder));
             return;
         }
 
         final Query namedQueryAnnotation = Annotations.getAnnotation(cls, Query.class);
         if (namedQueryAnnotation != null) {
             FacetUtil.addFacet(new JdoQueryFacetAnnotation(
-                    namedQueryAnnotation, facetHolder));
+                    namedQueryAnnotation, fetchPlansOf(cls), facetHolder));
         }
     }
+
+    private static FetchPlan[] fetchPlansOf(final Class<?> cls) {
+        final FetchPlans fetchPlansAnnotation = Annotations.getAnnotation(cls, FetchPlans.class);
+        if (fetchPlansAnnotation != null) {
+            return fetchPlansAnnotation.value();
+        }
+        final FetchPlan fetchPlanAnnotation = Annotations.getAnnotation(cls, FetchPlan.class);
+        if (fetchPlanAnnotation != null) {
+            return new FetchPlan[] { fetchPlanAnnotation };
+        }
+        return new FetchPlan[0];
+    }
 }
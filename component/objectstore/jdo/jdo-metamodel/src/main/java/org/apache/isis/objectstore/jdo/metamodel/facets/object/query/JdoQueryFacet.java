@@ -45,10 +45,17 @@
  * {@link JdoNamedQuery#getQuery()}
  * property of JDO Object Store's own
  * {@link JdoNamedQuery} value object</li>
+ * <li>{@link javax.jdo.annotations.Query#language()} ->
+ * {@link JdoNamedQuery#getLanguage()}</li>
+ * <li>{@link javax.jdo.annotations.Query#fetchPlan()} ->
+ * {@link JdoNamedQuery#getFetchGroups()} (and the fetch size and maximum fetch
+ * depth), from the {@link javax.jdo.annotations.FetchPlan} of that name
+ * declared on the class</li>
  * </ul>
  * 
  * <p>
- * Optional attributes of the {@link Query} annotation are not currently mapped.
+ * The other optional attributes of the {@link Query} annotation are not
+ * currently mapped.
  */
 public interface JdoQueryFacet extends Facet {
 
@@ -22,6 +22,7 @@
 import java.util.Collections;
 import java.util.List;
 
+import javax.jdo.annotations.FetchPlan;
 import javax.jdo.annotations.Query;
 
 import org.apache.isis.core.metamodel.facetapi.Facet;
@@ -43,10 +44,15 @@ public JdoQueryFacetAbstract(final FacetHolder holder) {
         super(JdoQueryFacetAbstract.type(), holder, Derivation.NOT_DERIVED);
     }
 
-    protected void add(final Query... jdoNamedQueries) {
+    /**
+     * @param fetchPlans
+     *            the fetch plans declared on the class, which the queries'
+     *            own fetch plans are resolved against.
+     */
+    protected void add(final FetchPlan[] fetchPlans, final Query... jdoNamedQueries) {
         final ObjectSpecification objSpec = (ObjectSpecification) getFacetHolder();
         for (final Query jdoNamedQuery : jdoNamedQueries) {
-            namedQueries.add(new JdoNamedQuery(jdoNamedQuery, objSpec));
+            namedQueries.add(new JdoNamedQuery(jdoNamedQuery, fetchPlans, objSpec));
         }
     }
 
@@ -18,6 +18,7 @@
  */
 package org.apache.isis.objectstore.jdo.metamodel.facets.object.query;
 
+import javax.jdo.annotations.FetchPlan;
 import javax.jdo.annotations.Query;
 
 import org.apache.isis.core.metamodel.facetapi.FacetHolder;
@@ -27,9 +28,9 @@ public class JdoQueryFacetAnnotation extends JdoQueryFacetAbstract
         implements JdoQueryFacet {
 
     public JdoQueryFacetAnnotation(final Query jdoNamedQuery,
-            final FacetHolder holder) {
+            final FetchPlan[] fetchPlans, final FacetHolder holder) {
         super(holder);
-        add(jdoNamedQuery);
+        add(fetchPlans, jdoNamedQuery);
     }
 
 
@@ -64,7 +64,7 @@ public class NoSqlObjectStore implements ObjectStoreSpi {
     
     private final NoSqlDataDatabase database;
     private final VersionCreator versionCreator;
-    private final ObjectReader objectReader = new ObjectReader();
+    private final ObjectReader objectReader;
     private final OidGenerator oidGenerator;
     private final DataEncryption wrtingDataEncrypter;
     private final Map<String, DataEncryption> availableDataEncrypters;
@@ -72,6 +72,7 @@ public class NoSqlObjectStore implements ObjectStoreSpi {
 
     public NoSqlObjectStore(final NoSqlDataDatabase db, final OidGenerator oidGenerator, final VersionCreator versionCreator, final DataEncryption writingDataEncrypter, final Map<String, DataEncryption> availableDataEncrypters) {
         this.database = db;
+        this.objectReader = new ObjectReader(db);
         this.oidGenerator = oidGenerator;
         this.versionCreator = versionCreator;
         this.wrtingDataEncrypter = writingDataEncrypter;
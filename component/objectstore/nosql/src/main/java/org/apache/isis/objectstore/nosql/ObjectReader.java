@@ -19,6 +19,7 @@
 
 package org.apache.isis.objectstore.nosql;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +33,7 @@
 import org.apache.isis.core.metamodel.adapter.version.Version;
 import org.apache.isis.core.metamodel.facets.collections.modify.CollectionFacet;
 import org.apache.isis.core.metamodel.facets.object.encodeable.EncodableFacet;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
 import org.apache.isis.core.metamodel.spec.SpecificationLoaderSpi;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociationContainer;
@@ -39,6 +41,7 @@
 import org.apache.isis.core.metamodel.spec.feature.OneToOneAssociation;
 import org.apache.isis.core.runtime.system.context.IsisContext;
 import org.apache.isis.core.runtime.system.persistence.Persistor;
+import org.apache.isis.objectstore.nosql.db.NoSqlDataDatabase;
 import org.apache.isis.objectstore.nosql.db.StateReader;
 import org.apache.isis.objectstore.nosql.encryption.DataEncryption;
 import org.apache.isis.objectstore.nosql.keys.KeyCreatorDefault;
@@ -49,7 +52,28 @@ public class ObjectReader {
 
     private static final Logger LOG = Logger.getLogger(ObjectReader.class);
     
+    /**
+     * The most collection elements read ahead after loading an object.
+     */
+    private static final int MAX_PREFETCH = 1000;
+
     private final KeyCreatorDefault keyCreator = new KeyCreatorDefault();
+    private final NoSqlDataDatabase database;
+
+    public ObjectReader() {
+        this(null);
+    }
+
+    /**
+     * @param database
+     *            if not <tt>null</tt>, the elements of the (referenced)
+     *            collections of each object loaded are read ahead from the
+     *            database in a single request, rather than later one at a
+     *            time as each is resolved.
+     */
+    public ObjectReader(final NoSqlDataDatabase database) {
+        this.database = database;
+    }
 
     public ObjectAdapter load(final StateReader reader, final VersionCreator versionCreator, final Map<String, DataEncryption> dataEncrypters) {
         
@@ -74,17 +98,51 @@ public ObjectAdapter load(final StateReader reader, final VersionCreator version
             
             // TODO move lock to common method
             // object.setOptimisticLock(version);
-            loadState(reader, versionCreator, dataEncrypters, adapter);
+            final List<ObjectAdapter> unresolvedElements = newElementsList();
+            loadState(reader, versionCreator, dataEncrypters, adapter, unresolvedElements);
+            prefetch(unresolvedElements, versionCreator, dataEncrypters);
         }
 
         return adapter;
     }
 
     public void update(final StateReader reader, final VersionCreator versionCreator, final Map<String, DataEncryption> dataEncrypters, final ObjectAdapter object) {
-        loadState(reader, versionCreator, dataEncrypters, object);
+        final List<ObjectAdapter> unresolvedElements = newElementsList();
+        loadState(reader, versionCreator, dataEncrypters, object, unresolvedElements);
+        prefetch(unresolvedElements, versionCreator, dataEncrypters);
     }
 
-    private void loadState(final StateReader reader, final VersionCreator versionCreator, final Map<String, DataEncryption> dataEncrypters, final ObjectAdapter object) {
+    private List<ObjectAdapter> newElementsList() {
+        return database == null ? null : new ArrayList<ObjectAdapter>();
+    }
+
+    /**
+     * Loads the state of those collection elements that are still unresolved,
+     * reading them from the database in one request. Only the elements
+     * themselves are read, not the elements of their own collections.
+     */
+    private void prefetch(final List<ObjectAdapter> unresolvedElements, final VersionCreator versionCreator, final Map<String, DataEncryption> dataEncrypters) {
+        if (unresolvedElements == null || unresolvedElements.isEmpty()) {
+            return;
+        }
+        final List<String> keys = new ArrayList<String>();
+        final List<ObjectSpecId> objectSpecIds = new ArrayList<ObjectSpecId>();
+        for (final ObjectAdapter element : unresolvedElements) {
+            final RootOid oid = (RootOid) element.getOid();
+            keys.add(keyCreator.getIdentifierForPersistentRoot(oid));
+            objectSpecIds.add(oid.getObjectSpecId());
+        }
+        final List<StateReader> readers = database.getInstances(keys, objectSpecIds);
+        for (int i = 0; i < readers.size(); i++) {
+            final ObjectAdapter element = unresolvedElements.get(i);
+            final StateReader reader = readers.get(i);
+            if (reader != null && element.getResolveState().isGhost()) {
+                loadState(reader, versionCreator, dataEncrypters, element, null);
+            }
+        }
+    }
+
+    private void loadState(final StateReader reader, final VersionCreator versionCreator, final Map<String, DataEncryption> dataEncrypters, final ObjectAdapter object, final List<ObjectAdapter> unresolvedElements) {
         final ResolveState resolveState = ResolveState.RESOLVING;
         object.changeState(resolveState);
         Version version = null;
@@ -95,12 +153,12 @@ private void loadState(final StateReader reader, final VersionCreator versionCre
             version = versionCreator.version(versionString, user, time);
         }
         final String encryptionType = reader.readEncrytionType();
-        readFields(reader, object, dataEncrypters.get(encryptionType));
+        readFields(reader, object, dataEncrypters.get(encryptionType), unresolvedElements);
         object.setVersion(version);
         object.changeState(resolveState.getEndState());
     }
 
-    private void readFields(final StateReader reader, final ObjectAdapter object, final DataEncryption dataEncrypter) {
+    private void readFields(final StateReader reader, final ObjectAdapter object, final DataEncryption dataEncrypter, final List<ObjectAdapter> unresolvedElements) {
         final ObjectAssociationContainer specification = object.getSpecification();
         final List<ObjectAssociation> associations = specification.getAssociations();
         for (final ObjectAssociation association : associations) {
@@ -108,18 +166,18 @@ private void readFields(final StateReader reader, final ObjectAdapter object, fi
                 continue;
             }
             if (association.isOneToManyAssociation()) {
-                readCollection(reader, dataEncrypter, (OneToManyAssociation) association, object);
+                readCollection(reader, dataEncrypter, (OneToManyAssociation) association, object, unresolvedElements);
             } else if (association.getSpecification().isValue()) {
                 readValue(reader, dataEncrypter, (OneToOneAssociation) association, object);
             } else if (association.getSpecification().isParented()) {
-                readAggregate(reader, dataEncrypter, (OneToOneAssociation) association, object);
+                readAggregate(reader, dataEncrypter, (OneToOneAssociation) association, object, unresolvedElements);
             } else {
                 readReference(reader, (OneToOneAssociation) association, object);
             }
         }
     }
 
-    private void readAggregate(final StateReader reader, final DataEncryption dataEncrypter, final OneToOneAssociation association, final ObjectAdapter parentAdapter) {
+    private void readAggregate(final StateReader reader, final DataEncryption dataEncrypter, final OneToOneAssociation association, final ObjectAdapter parentAdapter, final List<ObjectAdapter> unresolvedElements) {
         final String id = association.getId();
         final StateReader aggregateReader = reader.readAggregate(id);
         
@@ -127,7 +185,7 @@ private void readAggregate(final StateReader reader, final DataEncryption dataEn
         if (aggregateReader != null) {
             final String oidStr = aggregateReader.readOid();
             final AggregatedOid aggregatedOid = getOidMarshaller().unmarshal(oidStr, AggregatedOid.class);
-            fieldObject = restoreAggregatedObject(aggregateReader, aggregatedOid, dataEncrypter);
+            fieldObject = restoreAggregatedObject(aggregateReader, aggregatedOid, dataEncrypter, unresolvedElements);
         } else {
             fieldObject = null;
         }
@@ -135,11 +193,11 @@ private void readAggregate(final StateReader reader, final DataEncryption dataEn
         association.initAssociation(parentAdapter, fieldObject);
     }
 
-    private ObjectAdapter restoreAggregatedObject(final StateReader aggregateReader, final AggregatedOid aggregatedOid, final DataEncryption dataEncrypter) {
+    private ObjectAdapter restoreAggregatedObject(final StateReader aggregateReader, final AggregatedOid aggregatedOid, final DataEncryption dataEncrypter, final List<ObjectAdapter> unresolvedElements) {
         final ObjectAdapter fieldObject = getAdapter(aggregatedOid);
         final ResolveState resolveState = ResolveState.RESOLVING;
         fieldObject.changeState(resolveState);
-        readFields(aggregateReader, fieldObject, dataEncrypter);
+        readFields(aggregateReader, fieldObject, dataEncrypter, unresolvedElements);
         fieldObject.changeState(resolveState.getEndState());
 
         return fieldObject;
@@ -178,7 +236,7 @@ private void readReference(final StateReader reader, final OneToOneAssociation a
         }
     }
 
-    private void readCollection(final StateReader reader, final DataEncryption dataEncrypter, final OneToManyAssociation association, final ObjectAdapter parentAdapter) {
+    private void readCollection(final StateReader reader, final DataEncryption dataEncrypter, final OneToManyAssociation association, final ObjectAdapter parentAdapter, final List<ObjectAdapter> unresolvedElements) {
         final ObjectAdapter collectionAdapter = association.get(parentAdapter);
         
         final CollectionFacet facet = collectionAdapter.getSpecification().getFacet(CollectionFacet.class);
@@ -192,7 +250,7 @@ private void readCollection(final StateReader reader, final DataEncryption dataE
                 final String oidStr = elementReader.readOid();
                 final AggregatedOid aggregatedOid = getOidMarshaller().unmarshal(oidStr, AggregatedOid.class);
                 
-                elementAdapters[i++] = restoreAggregatedObject(elementReader, aggregatedOid, dataEncrypter);
+                elementAdapters[i++] = restoreAggregatedObject(elementReader, aggregatedOid, dataEncrypter, unresolvedElements);
             }
             facet.init(collectionAdapter, elementAdapters);
         } else {
@@ -203,6 +261,7 @@ private void readCollection(final StateReader reader, final DataEncryption dataE
             } else {
                 final ObjectAdapter[] elements = restoreElements(referencesList);
                 facet.init(collectionAdapter, elements);
+                collectUnresolved(elements, unresolvedElements);
             }
         }
     }
@@ -221,6 +280,20 @@ private ObjectAdapter[] restoreElements(final String referencesList) {
         return elements;
     }
 
+    private static void collectUnresolved(final ObjectAdapter[] elements, final List<ObjectAdapter> unresolvedElements) {
+        if (unresolvedElements == null) {
+            return;
+        }
+        for (final ObjectAdapter element : elements) {
+            if (unresolvedElements.size() >= MAX_PREFETCH) {
+                return;
+            }
+            if (element.getResolveState().isGhost() && !unresolvedElements.contains(element)) {
+                unresolvedElements.add(element);
+            }
+        }
+    }
+
     protected ObjectAdapter getAdapter(final TypedOid oid) {
         return getAdapterManager().adapterFor(oid);
     }
@@ -38,6 +38,11 @@ public interface NoSqlDataDatabase {
 
     boolean hasInstances(ObjectSpecId objectSpecId);
     StateReader getInstance(String key, ObjectSpecId objectSpecId);
+    /**
+     * The instances for each of the keys, in the same order, with
+     * <tt>null</tt> for any not found.
+     */
+    List<StateReader> getInstances(List<String> keys, List<ObjectSpecId> objectSpecIds);
     Iterator<StateReader> instancesOf(ObjectSpecId objectSpecId);
     Iterator<StateReader> instancesOf(ObjectSpecId specId, ObjectAdapter pattern);
 
@@ -45,6 +45,11 @@ public class ClientConnection {
     private final BufferedReader reader;
     private String[] headers;
     private int header;
+    private int protocolVersion = 1;
+    private long lastUsed = System.currentTimeMillis();
+    private boolean reused;
+    private boolean responded;
+    private boolean closedByServer;
 
     public ClientConnection(final InputStream input, final OutputStream output) {
         outputStream = Util.trace(output, true);
@@ -65,6 +70,9 @@ public void close() {
     void logComplete() {
         LOG.debug("request complete: " + outputStream);
         LOG.debug("response complete: " + inputStream);
+        Util.resetTrace(outputStream);
+        Util.resetTrace(inputStream);
+        lastUsed = System.currentTimeMillis();
     }
 
     void logFailure() {
@@ -74,6 +82,7 @@ void logFailure() {
 
     public void request(final char command, final String request) {
         LOG.debug("request: " + command + request);
+        responded = false;
         write(command + request);
     }
 
@@ -83,9 +92,11 @@ public void validateRequest() {
         getReponseHeader();
         final String status = readNext();
         if (status.equals("error")) {
+            closedByServer = true;
             final String message = getResponseData();
             throw new RemotingException(message);
         } else if (status.equals("not-found")) {
+            closedByServer = true;
             final String message = getResponseData();
             throw new ObjectNotFoundException(message);
         } else if (status.equals("concurrency")) {
@@ -121,7 +132,12 @@ public void getReponseHeader() {
         try {
             final String response = reader.readLine();
             LOG.debug("response: " + response);
+            if (response == null) {
+                throw new RemotingException("stream ended while reading response header");
+            }
+            responded = true;
             headers = response.split(" ");
+            header = 0;
         } catch (final IOException e) {
             throw new NoSqlStoreException(e);
         }
@@ -160,6 +176,49 @@ public String getResponseData() {
         }
     }
 
+    /**
+     * The version of the protocol agreed with the server; 1 (a request per
+     * connection) unless {@link #setProtocolVersion(int) agreed} otherwise.
+     */
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    void setProtocolVersion(final int protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * Whether the server keeps the connection open for further requests; it
+     * closes it after responding with an error or not-found.
+     */
+    public boolean isKeptAlive() {
+        return protocolVersion >= 2 && !closedByServer;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void markReused() {
+        reused = true;
+    }
+
+    /**
+     * Whether the connection was idle in the pool before its current request,
+     * and so may have since been closed by the server.
+     */
+    boolean isReused() {
+        return reused;
+    }
+
+    /**
+     * Whether the server has started to respond to the current request.
+     */
+    boolean hasResponded() {
+        return responded;
+    }
+
     private String readNext() {
         if (header >= headers.length) {
             throw new RemotingException("attempting to reader header property (index) " + header + " when there are only " + headers.length);
@@ -0,0 +1,209 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.nosql.db.file;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.LinkedList;
+
+import org.apache.log4j.Logger;
+
+import org.apache.isis.objectstore.nosql.NoSqlStoreException;
+import org.apache.isis.objectstore.nosql.db.file.server.Util;
+
+/**
+ * The connections to the file server, kept open between requests so that each
+ * request need not connect afresh.
+ *
+ * <p>
+ * Each new connection first agrees the protocol version with the server.
+ * Servers from before version 2 reject that request, in which case every
+ * request is made over a connection of its own, as before.
+ *
+ * <p>
+ * The server closes connections left idle for longer than its read timeout,
+ * so idle connections are only reused within the (shorter) keep-alive time;
+ * should the server close one sooner, requests that can safely be repeated
+ * are retried on a {@link #acquireNew() new} connection.
+ */
+public class ClientConnectionPool {
+
+    private static final Logger LOG = Logger.getLogger(ClientConnectionPool.class);
+
+    private static final int UNKNOWN = 0;
+
+    private final String host;
+    private final int port;
+    private final int timeout;
+    private final int maxIdle;
+    private final long keepAliveTime;
+
+    /**
+     * Most recently used last.
+     */
+    private final LinkedList<ClientConnection> idle = new LinkedList<ClientConnection>();
+    private volatile int protocolVersion = UNKNOWN;
+    private long connected;
+    private long reused;
+
+    /**
+     * @param maxIdle
+     *            the maximum number of idle connections kept open.
+     * @param keepAliveTime
+     *            how long, in milliseconds, an idle connection is kept open.
+     */
+    public ClientConnectionPool(final String host, final int port, final int timeout, final int maxIdle, final long keepAliveTime) {
+        this.host = host;
+        this.port = port;
+        this.timeout = timeout;
+        this.maxIdle = maxIdle;
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    // ////////////////////////////////////////////////////////
+    // acquire, release, discard
+    // ////////////////////////////////////////////////////////
+
+    public ClientConnection acquire() {
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            while (!idle.isEmpty()) {
+                final ClientConnection connection = idle.removeLast();
+                if (now - connection.getLastUsed() < keepAliveTime) {
+                    reused++;
+                    connection.markReused();
+                    return connection;
+                }
+                connection.close();
+            }
+        }
+        return connect();
+    }
+
+    /**
+     * A new connection, rather than one of the idle ones; for retrying a
+     * request whose idle connection turned out to have been closed by the
+     * server.
+     */
+    public ClientConnection acquireNew() {
+        return connect();
+    }
+
+    /**
+     * Returns the connection once its request is complete, to be reused if the
+     * server keeps it alive.
+     */
+    public void release(final ClientConnection connection) {
+        connection.logComplete();
+        if (connection.isKeptAlive()) {
+            synchronized (this) {
+                closeExpired();
+                if (idle.size() < maxIdle) {
+                    idle.addLast(connection);
+                    return;
+                }
+            }
+        }
+        connection.close();
+    }
+
+    /**
+     * Closes the connection after its request failed, as its state is then
+     * unknown.
+     */
+    public void discard(final ClientConnection connection) {
+        connection.logFailure();
+        connection.close();
+    }
+
+    private void closeExpired() {
+        final long now = System.currentTimeMillis();
+        while (!idle.isEmpty() && now - idle.getFirst().getLastUsed() >= keepAliveTime) {
+            idle.removeFirst().close();
+        }
+    }
+
+    public synchronized void close() {
+        while (!idle.isEmpty()) {
+            idle.removeFirst().close();
+        }
+    }
+
+    // ////////////////////////////////////////////////////////
+    // connect
+    // ////////////////////////////////////////////////////////
+
+    /**
+     * The version of the protocol agreed with the server, connecting to it if
+     * not yet known.
+     */
+    public int getProtocolVersion() {
+        if (protocolVersion == UNKNOWN) {
+            release(acquire());
+        }
+        return protocolVersion;
+    }
+
+    private ClientConnection connect() {
+        ClientConnection connection = open();
+        if (protocolVersion == 1) {
+            return connection;
+        }
+        try {
+            connection.request('V', Integer.toString(Util.PROTOCOL_VERSION));
+            connection.validateRequest();
+            connection.setProtocolVersion((int) connection.getResponseAsLong());
+            connection.logComplete();
+        } catch (final RemotingException e) {
+            LOG.info("file server at " + host + ":" + port + " does not support protocol version " + Util.PROTOCOL_VERSION + "; using a connection per request");
+            connection.close();
+            connection = open();
+        }
+        protocolVersion = connection.getProtocolVersion();
+        return connection;
+    }
+
+    private ClientConnection open() {
+        try {
+            final Socket socket = new Socket(host, port);
+            socket.setSoTimeout(timeout);
+            socket.setTcpNoDelay(true);
+            synchronized (this) {
+                connected++;
+            }
+            return new ClientConnection(socket.getInputStream(), socket.getOutputStream());
+        } catch (final UnknownHostException e) {
+            throw new NoSqlStoreException("Unknow host " + host, e);
+        } catch (final IOException e) {
+            throw new NoSqlStoreException("Failed to connect to " + host + ":" + port, e);
+        }
+    }
+
+    // ////////////////////////////////////////////////////////
+    // debugging
+    // ////////////////////////////////////////////////////////
+
+    @Override
+    public synchronized String toString() {
+        return "connections to " + host + ":" + port + " (protocol version " + protocolVersion + "): " + connected + " opened, " + reused + " reused, " + idle.size() + " idle";
+    }
+
+}
@@ -19,9 +19,6 @@
 
 package org.apache.isis.objectstore.nosql.db.file;
 
-import java.io.IOException;
-import java.net.Socket;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -31,6 +28,7 @@
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.adapter.version.ConcurrencyException;
 import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.core.runtime.persistence.ObjectNotFoundException;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
 import org.apache.isis.objectstore.nosql.NoSqlCommandContext;
 import org.apache.isis.objectstore.nosql.NoSqlStoreException;
@@ -42,62 +40,135 @@ public class FileServerDb implements NoSqlDataDatabase {
 
     private static final Logger LOG = Logger.getLogger(FileServerDb.class);
 
-    private final String host;
-    private final int port;
+    private static final int DEFAULT_MAX_IDLE = 8;
+    private static final long DEFAULT_KEEP_ALIVE = 3000;
 
-    private final int timeout;
+    private final ClientConnectionPool connections;
 
     public FileServerDb(final String host, final int port, final int timeout) {
-        this.host = host;
-        this.port = port == 0 ? 9012 : port;
-        this.timeout = timeout;
+        this(host, port, timeout, DEFAULT_MAX_IDLE, DEFAULT_KEEP_ALIVE);
     }
 
-    // TODO pool connection and reuse
-    private ClientConnection getConnection() {
-        try {
-            final Socket socket;
-            socket = new Socket(host, port);
-            socket.setSoTimeout(timeout);
-            return new ClientConnection(socket.getInputStream(), socket.getOutputStream());
-        } catch (final UnknownHostException e) {
-            throw new NoSqlStoreException("Unknow host " + host, e);
-        } catch (final IOException e) {
-            throw new NoSqlStoreException("Failed to connect to " + host + ":" + port, e);
-        }
+    /**
+     * @param maxIdle
+     *            the maximum number of idle connections kept open to the
+     *            server.
+     * @param keepAlive
+     *            how long, in milliseconds, an idle connection is kept open;
+     *            should be less than the server's read timeout.
+     */
+    public FileServerDb(final String host, final int port, final int timeout, final int maxIdle, final long keepAlive) {
+        connections = new ClientConnectionPool(host, port == 0 ? 9012 : port, timeout, maxIdle, keepAlive);
+    }
 
+    private ClientConnection getConnection() {
+        return connections.acquire();
     }
 
-    // TODO pool connection and reuse
     private void returnConnection(final ClientConnection connection) {
-        connection.logComplete();
-        connection.close();
+        connections.release(connection);
     }
 
-    // TODO pool connection and reuse - probably need to replace the connection
     private void abortConnection(final ClientConnection connection) {
-        connection.logFailure();
-        connection.close();
+        connections.discard(connection);
+    }
+
+    /**
+     * A request that can safely be repeated, and so is made again on a new
+     * connection should the idle connection it was first made on turn out to
+     * have been closed by the server before responding.
+     */
+    private abstract class IdempotentRequest<T> {
+        private final String name;
+
+        public IdempotentRequest(final String name) {
+            this.name = name;
+        }
+
+        protected abstract T request(ClientConnection connection);
+
+        public T execute() {
+            ClientConnection connection = getConnection();
+            try {
+                T result;
+                try {
+                    result = request(connection);
+                } catch (final RuntimeException e) {
+                    if (!connection.isReused() || connection.hasResponded()) {
+                        throw e;
+                    }
+                    LOG.info("idle connection closed by server (" + e.getMessage() + "); retrying " + name);
+                    final ClientConnection newConnection = connections.acquireNew();
+                    abortConnection(connection);
+                    connection = newConnection;
+                    result = request(connection);
+                }
+                returnConnection(connection);
+                return result;
+            } catch (final ObjectNotFoundException e) {
+                // not an error, and the response is complete
+                returnConnection(connection);
+                throw e;
+            } catch (final RuntimeException e) {
+                LOG.error("aborting " + name, e);
+                abortConnection(connection);
+                throw e;
+            }
+        }
     }
 
     @Override
     public StateReader getInstance(final String key, final ObjectSpecId objectSpecId) {
-        final ClientConnection connection = getConnection();
-        String data;
-        try {
-            final String request = objectSpecId + " " + key;
-            connection.request('R', request);
-            connection.validateRequest();
-            data = connection.getResponseData();
-        } catch (final RuntimeException e) {
-            LOG.error("aborting getInstance", e);
-            abortConnection(connection);
-            throw e;
+        final String data = new IdempotentRequest<String>("getInstance") {
+            @Override
+            protected String request(final ClientConnection connection) {
+                connection.request('R', objectSpecId + " " + key);
+                connection.validateRequest();
+                return connection.getResponseData();
+            }
+        }.execute();
+        return new JsonStateReader(checkData(data));
+    }
+
+    /**
+     * Reads all the instances in a single request where the server supports
+     * it, otherwise reads each in turn.
+     */
+    @Override
+    public List<StateReader> getInstances(final List<String> keys, final List<ObjectSpecId> objectSpecIds) {
+        if (connections.getProtocolVersion() < 2) {
+            final List<StateReader> instances = new ArrayList<StateReader>();
+            for (int i = 0; i < keys.size(); i++) {
+                try {
+                    instances.add(getInstance(keys.get(i), objectSpecIds.get(i)));
+                } catch (final ObjectNotFoundException e) {
+                    instances.add(null);
+                }
+            }
+            return instances;
         }
-        data = checkData(data);
-        final JsonStateReader reader = new JsonStateReader(data);
-        returnConnection(connection);
-        return reader;
+
+        final List<String> data = new IdempotentRequest<List<String>>("getInstances") {
+            @Override
+            protected List<String> request(final ClientConnection connection) {
+                connection.request('M', Integer.toString(keys.size()));
+                for (int i = 0; i < keys.size(); i++) {
+                    connection.requestData(objectSpecIds.get(i) + " " + keys.get(i));
+                }
+                connection.validateRequest();
+                final List<String> responses = new ArrayList<String>();
+                for (int i = 0; i < keys.size(); i++) {
+                    responses.add(connection.getResponseData());
+                }
+                return responses;
+            }
+        }.execute();
+
+        final List<StateReader> instances = new ArrayList<StateReader>();
+        for (final String instance : data) {
+            instances.add(instance.length() == 0 ? null : new JsonStateReader(checkData(instance)));
+        }
+        return instances;
     }
 
     @Override
@@ -155,6 +226,7 @@ public void write(final List<PersistenceCommand> commands) {
             connection.validateRequest();
 
         } catch (final ConcurrencyException e) {
+            abortConnection(connection);
             throw e;
         } catch (final RuntimeException e) {
             LOG.error("aborting write, command: " + currentCommand, e);
@@ -239,19 +311,14 @@ public String getService(final ObjectSpecId objectSpecId) {
 
     @Override
     public boolean hasInstances(final ObjectSpecId objectSpecId) {
-        final ClientConnection connection = getConnection();
-        boolean hasInstances;
-        try {
-            connection.request('I', objectSpecId.asString());
-            connection.validateRequest();
-            hasInstances = connection.getResponseAsBoolean();
-        } catch (final RuntimeException e) {
-            LOG.error("aborting hasInstances", e);
-            abortConnection(connection);
-            throw e;
-        }
-        returnConnection(connection);
-        return hasInstances;
+        return new IdempotentRequest<Boolean>("hasInstances") {
+            @Override
+            protected Boolean request(final ClientConnection connection) {
+                connection.request('I', objectSpecId.asString());
+                connection.validateRequest();
+                return connection.getResponseAsBoolean();
+            }
+        }.execute();
     }
 
     public Iterator<StateReader> instancesOf(ObjectSpecId specId, ObjectAdapter pattern) {
@@ -33,6 +33,8 @@ public class FileServerPersistorMechanismInstaller extends NoSqlPersistorMechani
     private static final String DB_HOST = ROOT + "host";
     private static final String DB_PORT = ROOT + "port";
     private static final String DB_TIMEMOUT = ROOT + "timeout";
+    private static final String POOL_MAX_IDLE = ROOT + "pool.max-idle";
+    private static final String POOL_KEEP_ALIVE = ROOT + "pool.keep-alive";
 
     public FileServerPersistorMechanismInstaller() {
         super("fileserver");
@@ -44,7 +46,9 @@ protected NoSqlDataDatabase createNoSqlDatabase(final IsisConfiguration configur
         final String host = configuration.getString(DB_HOST, "localhost");
         final int port = configuration.getInteger(DB_PORT, 0);
         final int timeout = configuration.getInteger(DB_TIMEMOUT, 5000);
-        db = new FileServerDb(host, port, timeout);
+        final int maxIdle = configuration.getInteger(POOL_MAX_IDLE, 8);
+        final int keepAlive = configuration.getInteger(POOL_KEEP_ALIVE, 3000);
+        db = new FileServerDb(host, port, timeout, maxIdle, keepAlive);
         return db;
     }
 
@@ -0,0 +1,325 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Accepts connections to the file service and waits for requests on them
+ * using a single selector, handing each connection with a request to a
+ * bounded pool of workers to process.
+ *
+ * <p>
+ * A connection is processed in blocking mode by a single worker until its
+ * request (and any others already received on it) has been responded to, and
+ * is then returned to the selector if kept alive. Connections kept idle for
+ * longer than the read timeout are closed.
+ *
+ * <p>
+ * Once all the workers are busy, up to <tt>queueSize</tt> connections are
+ * queued for them; beyond that, connections are held back (not read from)
+ * and no more are accepted until the queue has room again, leaving clients
+ * waiting in the socket backlog.
+ */
+public class ConnectionDispatcher {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionDispatcher.class);
+    private static final long SELECT_TIMEOUT = 1000;
+
+    private static class Connection {
+        private final SocketChannel channel;
+        private ServerConnection pipe;
+        private long lastActive = System.currentTimeMillis();
+
+        Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        ServerConnection pipe() throws IOException {
+            if (pipe == null) {
+                final Socket socket = channel.socket();
+                pipe = new ServerConnection(socket.getInputStream(), socket.getOutputStream());
+            }
+            return pipe;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOG.warn("failure to close connection", e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return channel.socket().toString();
+        }
+    }
+
+    private final FileServerProcessor server;
+    private final int readTimeout;
+    private final ThreadPoolExecutor workers;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final SelectionKey acceptKey;
+    private final Queue<Connection> returned = new ConcurrentLinkedQueue<Connection>();
+    private final Queue<Connection> heldBack = new ConcurrentLinkedQueue<Connection>();
+    private volatile boolean running = true;
+    private volatile boolean quiescent;
+
+    /**
+     * @param threads
+     *            the number of workers processing requests.
+     * @param queueSize
+     *            the number of connections that can be waiting for a worker.
+     * @param readTimeout
+     *            how long, in milliseconds, to wait for the rest of a request,
+     *            or for the next request on a connection kept alive.
+     */
+    public ConnectionDispatcher(final FileServerProcessor server, final InetSocketAddress address, final int backlog, final int threads, final int queueSize, final int readTimeout) throws IOException {
+        this.server = server;
+        this.readTimeout = readTimeout;
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(address, backlog);
+        serverChannel.configureBlocking(false);
+        acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Dispatches requests until {@link #shutdown() shut down}.
+     */
+    public void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT);
+                final List<Connection> readable = new ArrayList<Connection>();
+                do {
+                    processSelected(readable);
+                    // also flushes the keys cancelled above, so that their
+                    // channels can be placed into blocking mode
+                } while (selector.selectNow() > 0);
+                heldBack.addAll(readable);
+                reregisterReturned();
+                dispatchHeldBack();
+                closeIdle();
+                acceptKey.interestOps(isAccepting() ? SelectionKey.OP_ACCEPT : 0);
+            }
+        } catch (final IOException e) {
+            LOG.error("networking problem", e);
+        } finally {
+            close();
+        }
+    }
+
+    private boolean isAccepting() {
+        return !quiescent && heldBack.isEmpty();
+    }
+
+    private void processSelected(final List<Connection> readable) throws IOException {
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            final SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                if (isAccepting()) {
+                    accept();
+                } else {
+                    key.interestOps(0);
+                }
+            } else if (key.isReadable()) {
+                key.cancel();
+                readable.add((Connection) key.attachment());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            LOG.debug("connection from " + channel.socket());
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setSoTimeout(readTimeout);
+            register(new Connection(channel));
+        }
+    }
+
+    private void register(final Connection connection) {
+        try {
+            connection.channel.register(selector, SelectionKey.OP_READ, connection);
+        } catch (final ClosedChannelException e) {
+            connection.close();
+        }
+    }
+
+    private void reregisterReturned() {
+        Connection connection;
+        while ((connection = returned.poll()) != null) {
+            try {
+                connection.channel.configureBlocking(false);
+                register(connection);
+            } catch (final IOException e) {
+                connection.close();
+            }
+        }
+    }
+
+    private void dispatchHeldBack() {
+        while (!quiescent && !heldBack.isEmpty()) {
+            final Connection connection = heldBack.peek();
+            try {
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        service(connection);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                // all workers busy and the queue full
+                return;
+            }
+            heldBack.poll();
+        }
+    }
+
+    private void closeIdle() {
+        final long idleSince = System.currentTimeMillis() - readTimeout;
+        for (final SelectionKey key : selector.keys()) {
+            final Object attachment = key.attachment();
+            if (key.isValid() && attachment instanceof Connection && ((Connection) attachment).lastActive < idleSince) {
+                LOG.debug("closing idle connection " + attachment);
+                key.cancel();
+                ((Connection) attachment).close();
+            }
+        }
+    }
+
+    /**
+     * Processes the requests received on the connection, then either returns
+     * it to the selector to await the next, or closes it.
+     */
+    private void service(final Connection connection) {
+        boolean keptOpen = false;
+        try {
+            connection.channel.configureBlocking(true);
+            final ServerConnection pipe = connection.pipe();
+            do {
+                keptOpen = server.process(pipe);
+                pipe.logComplete();
+            } while (keptOpen && pipe.hasPendingRequest());
+        } catch (final RuntimeException e) {
+            LOG.error("request failure", e);
+            keptOpen = false;
+        } catch (final IOException e) {
+            LOG.error("networking failure", e);
+            keptOpen = false;
+        }
+        if (keptOpen && running) {
+            connection.lastActive = System.currentTimeMillis();
+            returned.add(connection);
+            selector.wakeup();
+        } else {
+            connection.close();
+        }
+    }
+
+    // ////////////////////////////////////////////////////////
+    // control
+    // ////////////////////////////////////////////////////////
+
+    /**
+     * Stops accepting connections and processing requests, although requests
+     * already being processed are completed.
+     */
+    public void setQuiescent(final boolean quiescent) {
+        this.quiescent = quiescent;
+        selector.wakeup();
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void close() {
+        workers.shutdown();
+        for (final SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+        for (final Connection connection : heldBack) {
+            connection.close();
+        }
+        try {
+            selector.close();
+            serverChannel.close();
+        } catch (final IOException e) {
+            LOG.warn("failure to close service socket", e);
+        }
+    }
+
+    /**
+     * The number of connections waiting for a worker, and held back.
+     */
+    public String getStatus() {
+        return "workers: " + workers.getActiveCount() + " of " + workers.getMaximumPoolSize() + " busy, " + workers.getQueue().size() + " connections queued, " + heldBack.size() + " held back";
+    }
+
+}
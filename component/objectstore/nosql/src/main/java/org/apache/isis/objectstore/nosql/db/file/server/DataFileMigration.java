@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Moves the instances held in a data file each (as stored by the
+ * {@link DataFileStore}) into the segments of a {@link SegmentedDataStore},
+ * deleting the data files for each type once its instances have been written
+ * to disk. To be run while the server is stopped.
+ */
+class DataFileMigration {
+
+    private static final Logger LOG = Logger.getLogger(DataFileMigration.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final SegmentedDataStore store;
+
+    DataFileMigration(final SegmentedDataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Whether any data files remain to be migrated.
+     */
+    static boolean isRequired() {
+        for (final File directory : typeDirectories()) {
+            final File[] files = DataFileStore.listFiles(directory);
+            if (files != null && files.length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of instances migrated.
+     */
+    int migrate() throws IOException {
+        int total = 0;
+        for (final File directory : typeDirectories()) {
+            final File[] files = DataFileStore.listFiles(directory);
+            if (files != null && files.length > 0) {
+                total += migrate(directory.getName(), files);
+            }
+        }
+        return total;
+    }
+
+    private int migrate(final String type, final File[] files) throws IOException {
+        final List<File> migrated = new ArrayList<File>(files.length);
+        final List<FileContent> batch = new ArrayList<FileContent>(BATCH_SIZE);
+        for (final File file : files) {
+            final String fileName = file.getName();
+            final String id = fileName.substring(0, fileName.length() - ".data".length());
+            final DataFileReader reader;
+            try {
+                reader = new DataFileReader(type, id);
+            } catch (final FileServerException e) {
+                LOG.warn("not migrating " + file + ": " + e.getMessage());
+                continue;
+            }
+            batch.add(new FileContent('I', id, null, reader.getVersion(), type, reader.getData()));
+            migrated.add(file);
+            if (batch.size() == BATCH_SIZE) {
+                store.write(batch);
+                batch.clear();
+            }
+        }
+        store.write(batch);
+        store.force();
+
+        for (final File file : migrated) {
+            if (!file.delete()) {
+                LOG.warn("failed to delete migrated file " + file);
+            }
+        }
+        LOG.info("migrated " + migrated.size() + " instances of " + type);
+        return migrated.size();
+    }
+
+    private static List<File> typeDirectories() {
+        final List<File> directories = new ArrayList<File>();
+        final File[] files = Util.dataDirectory().listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (file.isDirectory()) {
+                    directories.add(file);
+                }
+            }
+        }
+        return directories;
+    }
+}
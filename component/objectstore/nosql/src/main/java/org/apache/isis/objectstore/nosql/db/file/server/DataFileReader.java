@@ -19,20 +19,23 @@
 
 package org.apache.isis.objectstore.nosql.db.file.server;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-
-import org.apache.log4j.Logger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
+/**
+ * Reads the data file for an object, which is read in its entirety through a
+ * {@link FileChannel} as it is opened.
+ */
 public class DataFileReader {
-    private static final Logger LOG = Logger.getLogger(DataFileReader.class);
+    private static final Charset UTF_8 = Charset.forName("utf-8");
 
-    private final BufferedReader reader;
     private final String id;
     private final String version;
+    private final String data;
 
     /**
      * Opens the file for the specified id. The top line contains: type id
@@ -40,9 +43,10 @@ public class DataFileReader {
      */
     public DataFileReader(final String type, final String id) throws IOException {
         final File file = Util.dataFile(type, id);
-        reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "utf-8"));
-        final String line = reader.readLine();
-        if (line == null || line.length() == 0) {
+        final String content = read(file);
+        final int endOfHeader = content.indexOf('\n');
+        final String line = stripReturn(endOfHeader == -1 ? content : content.substring(0, endOfHeader));
+        if (line.length() == 0) {
             throw new FileServerException("No data in file: " + file.getAbsolutePath());
         }
         final String[] split = line.split(" ");
@@ -51,18 +55,45 @@ public DataFileReader(final String type, final String id) throws IOException {
             throw new FileServerException("Id in file (" + this.id + ") not the same as the file name: " + file.getAbsolutePath());
         }
         version = split[2];
+        data = endOfHeader == -1 ? "" : normalizeLines(content.substring(endOfHeader + 1));
     }
 
-    public void close() {
-        if (reader != null) {
-            try {
-                reader.close();
-            } catch (final IOException e) {
-                LOG.error("Failed to close reader " + reader, e);
+    private static String read(final File file) throws IOException {
+        final FileInputStream input = new FileInputStream(file);
+        try {
+            final FileChannel channel = input.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
             }
+            buffer.flip();
+            return UTF_8.decode(buffer).toString();
+        } finally {
+            input.close();
         }
     }
 
+    private static String stripReturn(final String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    /**
+     * Terminates each line with a newline, as when read line by line.
+     */
+    private static String normalizeLines(final String data) {
+        if (data.length() == 0) {
+            return data;
+        }
+        final String lines = data.indexOf('\r') == -1 ? data : data.replace("\r\n", "\n").replace('\r', '\n');
+        return lines.endsWith("\n") ? lines : lines + "\n";
+    }
+
+    /**
+     * The file has already been read and closed, so there is nothing to
+     * release.
+     */
+    public void close() {
+    }
+
     public String getId() {
         return id;
     }
@@ -72,16 +103,6 @@ public String getVersion() {
     }
 
     public String getData() {
-        try {
-            final StringBuffer buffer = new StringBuffer();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                buffer.append(line);
-                buffer.append("\n");
-            }
-            return buffer.toString();
-        } catch (final IOException e) {
-            throw new FileServerException("Failed to read data for " + id, e);
-        }
+        return data;
     }
 }
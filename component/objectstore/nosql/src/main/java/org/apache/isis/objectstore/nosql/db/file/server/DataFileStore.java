@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores each instance in a file of its own, in a directory for its type.
+ */
+public class DataFileStore implements DataStore {
+
+    private static final String EXTENSION = ".data";
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InstanceData read(final String type, final String id) throws IOException {
+        try {
+            final DataFileReader reader = new DataFileReader(type, id);
+            reader.close();
+            return new InstanceData(reader.getId(), reader.getVersion(), reader.getData());
+        } catch (final FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void write(final List<FileContent> contents) throws IOException {
+        final DataFileWriter writer = new DataFileWriter(contents);
+        writer.writeData();
+        writer.close();
+    }
+
+    @Override
+    public List<String> list(final String type) {
+        final File[] files = listFiles(Util.directory(type));
+        if (files == null) {
+            return null;
+        }
+        final List<String> ids = new ArrayList<String>(files.length);
+        for (final File file : files) {
+            final String fileName = file.getName();
+            ids.add(fileName.substring(0, fileName.length() - EXTENSION.length()));
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean hasInstances(final String type) {
+        final File[] files = listFiles(Util.directory(type));
+        return files != null && files.length > 0;
+    }
+
+    @Override
+    public boolean isPopulated() {
+        return Util.isPopulated();
+    }
+
+    static File[] listFiles(final File directory) {
+        return directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File pathname) {
+                return pathname.getName().endsWith(EXTENSION);
+            }
+        });
+    }
+
+    @Override
+    public String getStatus() {
+        return "storage: a data file per instance";
+    }
+}
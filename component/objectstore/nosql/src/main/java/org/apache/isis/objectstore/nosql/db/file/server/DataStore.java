@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the file server keeps the current state of each instance, as written
+ * (once logged) by each transaction.
+ */
+public interface DataStore {
+
+    /**
+     * Prepares the store for use, doing nothing if already open.
+     */
+    void open();
+
+    void close();
+
+    /**
+     * The stored instance, or <tt>null</tt> if there is no such instance.
+     */
+    InstanceData read(String type, String id) throws IOException;
+
+    /**
+     * Inserts, updates or deletes each of the instances in turn.
+     */
+    void write(List<FileContent> contents) throws IOException;
+
+    /**
+     * The ids of the stored instances of the type, or <tt>null</tt> if none
+     * have ever been stored.
+     */
+    List<String> list(String type);
+
+    boolean hasInstances(String type);
+
+    boolean isPopulated();
+
+    String getStatus();
+}
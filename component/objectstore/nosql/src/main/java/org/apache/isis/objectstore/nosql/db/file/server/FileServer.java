@@ -19,9 +19,9 @@
 
 package org.apache.isis.objectstore.nosql.db.file.server;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
@@ -35,8 +35,10 @@
 import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.net.ConnectException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
@@ -71,14 +73,20 @@ public class FileServer {
     private static final int DEFAULT_CONTROL_PORT = 9101;
     private static final int DEFAULT_SYNC_PORT = 9102;
     private static final int BACKLOG = 0;
+    private static final int DEFAULT_WORKERS = 8;
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    private static final int DEFAULT_COMPACTION_PERIOD = 60;
     private static final int INIT = 1;
-    private static final int RECOVERY_LOG = 2;
+    private static final int LOG_BATCH = 3;
+    private static final long SYNC_WAIT = 1000;
 
     public static void main(final String[] args) throws IOException, ParseException {
 
         final Options options = new Options();
         options.addOption("h", "help", false, "Show this help");
-        options.addOption("m", "mode", true, "mode: normal | secondary | recovery | archive");
+        options.addOption("m", "mode", true, "mode: normal | secondary | recovery | archive | migrate");
 
         final CommandLineParser parser = new BasicParser();
         final CommandLine cmd = parser.parse(options, args);
@@ -97,6 +105,9 @@ public static void main(final String[] args) throws IOException, ParseException
         } else if ("archive".equals(mode)) {
             final FileServer fileServer = new FileServer();
             fileServer.startArchive(argList);
+        } else if ("migrate".equals(mode)) {
+            final FileServer fileServer = new FileServer();
+            fileServer.startMigration();
         } else if ("secondary".equals(mode)) {
             final FileServer fileServer = new FileServer();
             fileServer.startSecondary();
@@ -116,9 +127,10 @@ private static void printHelp(final Options options) {
     private FileServerProcessor server;
     private CompositeConfiguration config;
 
+    private volatile ConnectionDispatcher dispatcher;
+
     private boolean awaitConnections = true;
     private boolean isQuiescent = false;
-    private long requests;
 
     public FileServer() {
         PropertyConfigurator.configure("config/logging.properties");
@@ -134,7 +146,9 @@ public FileServer() {
             final String archive = config.getString("fileserver.archive");
 
             Util.setDirectory(data, services, logs, archive);
-            server = new FileServerProcessor();
+            final LogWriter.Durability durability = LogWriter.Durability.valueOf(config.getString("fileserver.log.durability", "flush").toUpperCase());
+            final long maxLogDelay = config.getLong("fileserver.log.max-delay", 0);
+            server = new FileServerProcessor(createStore(), durability, maxLogDelay);
         } catch (final ConfigurationException e) {
             LOG.error("configuration failure", e);
             System.out.println(e.getMessage());
@@ -142,7 +156,33 @@ public FileServer() {
         }
     }
 
+    private DataStore createStore() throws ConfigurationException {
+        final String storage = config.getString("fileserver.storage", "files");
+        if ("segments".equals(storage)) {
+            final long segmentSize = config.getLong("fileserver.segment.size", DEFAULT_SEGMENT_SIZE);
+            final double compactionThreshold = config.getDouble("fileserver.segment.compaction-threshold", DEFAULT_COMPACTION_THRESHOLD);
+            final int compactionPeriod = config.getInt("fileserver.segment.compaction-period", DEFAULT_COMPACTION_PERIOD);
+            return new SegmentedDataStore(segmentSize, compactionThreshold, compactionPeriod * 1000L);
+        } else if ("files".equals(storage)) {
+            return new DataFileStore();
+        } else {
+            throw new ConfigurationException("Unknown storage " + storage + ", expected files or segments");
+        }
+    }
+
+    /**
+     * Exits if the instances are to be stored in segments but data files
+     * remain that have not yet been migrated to them.
+     */
+    private void checkMigrated() {
+        if (server.getStore() instanceof SegmentedDataStore && DataFileMigration.isRequired()) {
+            LOG.error("data files found in " + Util.dataDirectory().getAbsolutePath() + "; run in migrate mode to move them into segments");
+            System.exit(0);
+        }
+    }
+
     private void startNormal() {
+        checkMigrated();
         new Thread("control") {
             @Override
             public void run() {
@@ -177,17 +217,16 @@ public void run() {
     private void startService() {
         final String serviceHost = config.getString("fileserver.host", DEFAULT_HOST);
         final int servicePort = config.getInt("fileserver.port", DEFAULT_SERVICE_PORT);
-        final int connectionTimeout = config.getInt("fileserver.connection.timeout", 5000);
         final int readTimeout = config.getInt("fileserver.read.timeout", 5000);
+        final int workers = config.getInt("fileserver.workers", DEFAULT_WORKERS);
+        final int queueSize = config.getInt("fileserver.queue-size", DEFAULT_QUEUE_SIZE);
 
-        ServerSocket socket = null;
         try {
             LOG.debug("setting up service socket on " + serviceHost + ":" + servicePort);
             final InetAddress address = InetAddress.getByName(serviceHost);
-            socket = new ServerSocket(servicePort, BACKLOG, address);
-            socket.setSoTimeout(connectionTimeout);
-            LOG.info("file service listenting on " + socket.getInetAddress().getHostAddress() + " port " + socket.getLocalPort());
-            LOG.debug("file service listenting on " + socket);
+            dispatcher = new ConnectionDispatcher(server, new InetSocketAddress(address, servicePort), BACKLOG, workers, queueSize, readTimeout);
+            dispatcher.setQuiescent(isQuiescent);
+            LOG.info("file service listenting on " + address.getHostAddress() + " port " + dispatcher.getLocalPort() + " with " + workers + " workers");
             final LogRange logFileRange = Util.logFileRange();
             if (!logFileRange.noLogFile()) {
                 final long lastRecoveryFile = logFileRange.getLast();
@@ -206,50 +245,7 @@ private void startService() {
             LOG.error("start failure", e);
             System.exit(0);
         }
-        do {
-            try {
-                while (isQuiescent) {
-                    try {
-                        Thread.sleep(300);
-                    } catch (final InterruptedException ignore) {
-                    }
-                }
-                final Socket connection = socket.accept();
-                LOG.debug("connection from " + connection);
-                connection.setSoTimeout(readTimeout);
-                serviceConnection(connection, readTimeout);
-            } catch (final SocketTimeoutException expected) {
-            } catch (final IOException e) {
-                LOG.error("networking problem", e);
-            }
-        } while (awaitConnections);
-    }
-
-    private void serviceConnection(final Socket connection, final int readTimeout) {
-        try {
-            final InputStream input = connection.getInputStream();
-            final OutputStream output = connection.getOutputStream();
-            final ServerConnection pipe = new ServerConnection(input, output);
-            requests++;
-            server.process(pipe);
-            pipe.logComplete();
-        } catch (final NoSqlStoreException e) {
-            if (e.getCause() instanceof SocketTimeoutException) {
-                LOG.error("read timed out after " + (readTimeout / 1000.0) + " seconds", e);
-            } else {
-                LOG.error("file server failure", e);
-            }
-        } catch (final IOException e) {
-            LOG.error("networking failure", e);
-        } catch (final RuntimeException e) {
-            LOG.error("request failure", e);
-        } finally {
-            try {
-                connection.close();
-            } catch (final IOException e) {
-                LOG.warn("failure to close connection", e);
-            }
-        }
+        dispatcher.run();
     }
 
     private void startSyncing() {
@@ -275,37 +271,31 @@ private void startSyncing() {
                 LOG.info("sync connected to " + socket.getInetAddress().getHostAddress() + " port " + socket.getLocalPort());
 
                 final CRC32 crc32 = new CRC32();
-                final DataOutput output = new DataOutputStream(new CheckedOutputStream(socket.getOutputStream(), crc32));
+                final DataOutputStream output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(socket.getOutputStream()), crc32));
                 final DataInput input = new DataInputStream(socket.getInputStream());
                 output.writeByte(INIT);
+                output.flush();
                 long logId = input.readLong();
-                do {
-                    final long nextLogId = logId + 1;
-                    final File file = Util.logFile(nextLogId);
-                    if (file.exists() && server.getLogger().isWritten(nextLogId)) {
-                        logId++;
-
-                        output.writeByte(RECOVERY_LOG);
-                        crc32.reset();
-                        output.writeLong(logId);
-
-                        LOG.info("sending recovery file: " + file.getName());
-                        final BufferedInputStream fileInput = new BufferedInputStream(new FileInputStream(file));
-
-                        final byte[] buffer = new byte[8092];
-                        int read;
-                        while ((read = fileInput.read(buffer)) > 0) {
-                            output.writeInt(read);
-                            output.write(buffer, 0, read);
-                        }
-                        output.writeInt(0);
-
-                        output.writeLong(crc32.getValue());
-                    }
+                long shipped = input.readLong();
+                LogWriter logger;
+                while ((logger = server.getLogger()) == null) {
+                    // not yet started up
                     try {
                         Thread.sleep(300);
                     } catch (final InterruptedException ignore) {
                     }
+                }
+                do {
+                    final long written = logger.writtenLength(logId);
+                    if (written > shipped) {
+                        shipBatch(output, crc32, logId, shipped, written);
+                        shipped = written;
+                    } else if (logger.isWritten(logId)) {
+                        logId++;
+                        shipped = 0;
+                    } else {
+                        logger.awaitWritten(logId, shipped, SYNC_WAIT);
+                    }
 
                     while (isQuiescent) {
                         try {
@@ -387,10 +377,16 @@ private void controlConnection(final Socket connection) {
                     awaitConnections = false;
                     print.println("Server shutdown initiated...");
                     print.flush();
+                    if (dispatcher != null) {
+                        dispatcher.shutdown();
+                    }
                     server.shutdown();
                     break;
                 } else if ("quiesce".equals(line)) {
                     isQuiescent = true;
+                    if (dispatcher != null) {
+                        dispatcher.setQuiescent(true);
+                    }
                     final String message = "Placing server in a quiescent state";
                     LOG.info(message);
                     print.println(message);
@@ -399,6 +395,9 @@ private void controlConnection(final Socket connection) {
                 } else if ("resume".equals(line)) {
                     if (isQuiescent) {
                         isQuiescent = false;
+                        if (dispatcher != null) {
+                            dispatcher.setQuiescent(false);
+                        }
                         final String message = "Resuming from a quiescent state";
                         LOG.info(message);
                         print.println(message);
@@ -412,7 +411,13 @@ private void controlConnection(final Socket connection) {
                     print.flush();
                     break;
                 } else if ("status".equals(line)) {
-                    print.println("requests: " + requests);
+                    for (final String metric : server.getMetrics().report()) {
+                        print.println(metric);
+                    }
+                    if (dispatcher != null) {
+                        print.println(dispatcher.getStatus());
+                    }
+                    print.println(server.getStore().getStatus());
                     print.println("quiescent: " + isQuiescent);
                     print.print("> ");
                     print.flush();
@@ -464,15 +469,35 @@ private void startRecovery(final List<String> list) {
             System.exit(0);
         }
 
+        checkMigrated();
         Util.ensureDirectoryExists();
         for (long id = startId; id <= endId; id++) {
             final File file = Util.logFile(id);
             LOG.info("recovering data from " + file.getName());
             recover(file);
         }
+        server.getStore().close();
         LOG.info("recovery complete");
     }
 
+    private void startMigration() {
+        if (!(server.getStore() instanceof SegmentedDataStore)) {
+            System.err.println("Storage must be set to segments (fileserver.storage) to migrate the data files");
+            System.exit(0);
+        }
+        LOG.info("starting migration of data files to segments");
+        final SegmentedDataStore store = (SegmentedDataStore) server.getStore();
+        store.open();
+        try {
+            final int migrated = new DataFileMigration(store).migrate();
+            LOG.info("migration complete: " + migrated + " instances moved into segments");
+        } catch (final IOException e) {
+            LOG.error("migration failed", e);
+        } finally {
+            store.close();
+        }
+    }
+
     private void startArchive(final List<String> list) {
         LOG.info("starting archiving");
         final LogRange logFileRange = Util.logFileRange();
@@ -504,10 +529,38 @@ private void startArchive(final List<String> list) {
 
     }
 
+    /**
+     * Sends the part of the log file from the specified position that has been
+     * written since last sent, being one or more whole batches of
+     * transactions.
+     */
+    private void shipBatch(final DataOutputStream output, final CRC32 crc32, final long logId, final long from, final long to) throws IOException {
+        final int length = (int) (to - from);
+        final byte[] batch = new byte[length];
+        final RandomAccessFile file = new RandomAccessFile(Util.logFile(logId), "r");
+        try {
+            file.seek(from);
+            file.readFully(batch);
+        } finally {
+            file.close();
+        }
+
+        LOG.debug("sending " + length + " bytes of recovery file " + logId);
+        output.writeByte(LOG_BATCH);
+        crc32.reset();
+        output.writeLong(logId);
+        output.writeLong(from);
+        output.writeInt(length);
+        output.write(batch);
+        output.writeLong(crc32.getValue());
+        output.flush();
+    }
+
     private void startSecondary() {
         final String serviceHost = config.getString("fileserver.sync-host", DEFAULT_HOST);
         final int servicePort = config.getInt("fileserver.sync-port", DEFAULT_SYNC_PORT);
 
+        checkMigrated();
         Util.ensureDirectoryExists();
         ServerSocket socket = null;
         try {
@@ -541,36 +594,41 @@ private void syncConnection(final Socket connection, final int readTimeout) {
                 return;
             }
 
+            // the position in the log reached so far
             final LogRange logFileRange = Util.logFileRange();
-            final long lastId = logFileRange.noLogFile() ? -1 : logFileRange.getLast();
+            final long lastId = logFileRange.noLogFile() ? 0 : logFileRange.getLast();
+            final File lastFile = Util.logFile(lastId);
             output.writeLong(lastId);
+            output.writeLong(lastFile.exists() ? lastFile.length() : 0);
             do {
-                if (input.readByte() != RECOVERY_LOG) {
+                if (input.readByte() != LOG_BATCH) {
                     return;
                 }
                 crc32.reset();
                 final long logId = input.readLong();
-                final File file = Util.tmpLogFile(logId);
-                LOG.info("syncing recovery file: " + file.getName());
-                final BufferedOutputStream fileOutput = new BufferedOutputStream(new FileOutputStream(file));
-
-                final byte[] buffer = new byte[8092];
-                int length;
-                while ((length = input.readInt()) > 0) {
-                    input.readFully(buffer, 0, length);
-                    fileOutput.write(buffer, 0, length);
-                }
-                fileOutput.close();
+                final long position = input.readLong();
+                final byte[] batch = new byte[input.readInt()];
+                input.readFully(batch);
 
                 final long calculatedChecksum = crc32.getValue();
                 final long sentChecksum = input.readLong();
+                final File file = Util.logFile(logId);
                 if (calculatedChecksum != sentChecksum) {
                     throw new NoSqlStoreException("Checksum didn't match during download of " + file.getName());
                 }
+                final long length = file.exists() ? file.length() : 0;
+                if (length != position) {
+                    throw new NoSqlStoreException("Batch for " + file.getName() + " starts at " + position + " but have " + length + " bytes");
+                }
 
-                recover(file);
-                final File renameTo = Util.logFile(logId);
-                file.renameTo(renameTo);
+                LOG.debug("syncing " + batch.length + " bytes of recovery file: " + file.getName());
+                final FileOutputStream fileOutput = new FileOutputStream(file, true);
+                try {
+                    fileOutput.write(batch);
+                } finally {
+                    fileOutput.close();
+                }
+                recover(new ByteArrayInputStream(batch));
             } while (true);
         } catch (final NoSqlStoreException e) {
             LOG.error("file server failure", e);
@@ -590,9 +648,20 @@ private void syncConnection(final Socket connection, final int readTimeout) {
     }
 
     private void recover(final File file) {
+        try {
+            recover(new FileInputStream(file));
+        } catch (final IOException e) {
+            throw new NoSqlStoreException(e);
+        }
+    }
+
+    /**
+     * Applies each of the transactions read from the log.
+     */
+    private void recover(final InputStream log) {
         LineNumberReader reader = null;
         try {
-            reader = new LineNumberReader(new InputStreamReader(new FileInputStream(file), Util.ENCODING));
+            reader = new LineNumberReader(new InputStreamReader(log, Util.ENCODING));
 
             while (true) {
                 final String line = reader.readLine();
@@ -619,12 +688,11 @@ private void recover(final File file) {
 
     private void readTransaction(final LineNumberReader reader) throws IOException {
         final ArrayList<FileContent> files = new ArrayList<FileContent>();
-        final DataFileWriter content = new DataFileWriter(files);
         String header;
         while ((header = reader.readLine()) != null) {
             if (header.startsWith("#transaction ended")) {
                 LOG.debug("transaction read in (ending " + reader.getLineNumber() + ")");
-                content.writeData();
+                server.recoverWrites(files);
                 reader.readLine();
                 return;
             }
@@ -21,7 +21,6 @@
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -41,11 +40,35 @@ public class FileServerProcessor {
 
     private boolean acceptNewRequests = true;
     private LockManager locks;
-    private LogWriter logger;
+    private volatile LogWriter logger;
+    private final RequestMetrics metrics = new RequestMetrics();
+    private final LogWriter.Durability durability;
+    private final long maxLogDelay;
+    private final DataStore store;
+
+    public FileServerProcessor() {
+        this(LogWriter.Durability.FLUSH, 0);
+    }
+
+    public FileServerProcessor(final LogWriter.Durability durability, final long maxLogDelay) {
+        this(new DataFileStore(), durability, maxLogDelay);
+    }
+
+    /**
+     * @param maxLogDelay
+     *            the longest, in milliseconds, that a write waits for others
+     *            to be logged along with it.
+     */
+    public FileServerProcessor(final DataStore store, final LogWriter.Durability durability, final long maxLogDelay) {
+        this.store = store;
+        this.durability = durability;
+        this.maxLogDelay = maxLogDelay;
+    }
 
     public void startup() {
         Util.ensureDirectoryExists();
-        logger = new LogWriter();
+        store.open();
+        logger = new LogWriter(durability, maxLogDelay);
         logger.startup();
         locks = new LockManager();
     }
@@ -54,18 +77,57 @@ public void shutdown() {
         acceptNewRequests = false;
         locks.waitUntilAllRealeased();
         logger.shutdown();
+        store.close();
+    }
+
+    DataStore getStore() {
+        return store;
+    }
+
+    /**
+     * Applies writes recovered from the log, opening the store if not already
+     * open.
+     */
+    void recoverWrites(final List<FileContent> files) throws IOException {
+        store.open();
+        store.write(files);
     }
 
     LogWriter getLogger() {
         return logger;
     }
 
-    public void process(final ServerConnection connection) {
+    RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Processes the next request on the connection, closing the connection
+     * afterwards unless it is being {@link ServerConnection#keepAlive() kept
+     * alive}.
+     * 
+     * @return whether the connection has been kept open for another request.
+     */
+    public boolean process(final ServerConnection connection) {
+        boolean keepOpen = false;
+        final long start = System.nanoTime();
+        char command = 0;
+        boolean failed = false;
         try {
             if (acceptNewRequests) {
-                connection.readCommand();
-                final char command = connection.getCommand();
+                if (!connection.readCommand()) {
+                    return false;
+                }
+                command = connection.getCommand();
                 switch (command) {
+                case 'V':
+                    version(connection);
+                    break;
+
+                case 'M':
+                    readMany(connection);
+                    break;
+
                 case 'L':
                     list(connection);
                     break;
@@ -102,16 +164,36 @@ public void process(final ServerConnection connection) {
                     LOG.warn("Unrecognised command " + command);
                     connection.error("Unrecognised command " + command);
                 }
+                keepOpen = connection.isKeepAlive();
             } else {
                 connection.abort();
             }
         } catch (final Exception e) {
             LOG.error("Request failed", e);
+            failed = true;
             connection.error("Remote exception thrown:\n" + e.getMessage(), e);
 
         } finally {
-            connection.close();
+            if (!keepOpen) {
+                connection.close();
+            }
+            if (command != 0) {
+                metrics.record(command, System.nanoTime() - start, failed);
+            }
         }
+        return keepOpen;
+    }
+
+    /**
+     * Agrees the version of the protocol to use, being the lower of the
+     * client's and {@link Util#PROTOCOL_VERSION this server's}, and keeps the
+     * connection alive for further requests.
+     */
+    private void version(final ServerConnection connection) {
+        connection.endCommand();
+        final int clientVersion = connection.getRequestAsInt();
+        connection.keepAlive();
+        connection.response(Math.min(clientVersion, Util.PROTOCOL_VERSION));
     }
 
     private void list(final ServerConnection connection) {
@@ -123,14 +205,14 @@ private void list(final ServerConnection connection) {
                 limit = Integer.MAX_VALUE;
             }
 
-            final File[] listFiles = listFiles(type);
-            if (listFiles != null) {
+            final List<String> ids = store.list(type);
+            if (ids != null) {
                 connection.ok();
-                for (final File file : listFiles) {
-                    final String fileName = file.getName();
-                    final String id = fileName.substring(0, fileName.length() - 5);
-                    final DataFileReader reader = findInstance(type, id, connection);
-                    readInstance(reader, connection);
+                for (final String id : ids) {
+                    final InstanceData instance = findInstance(type, id, connection);
+                    if (instance != null) {
+                        readInstance(instance, connection);
+                    }
                     locks.release(id, getTransactionId());
                     if (limit-- < 0) {
                         break;
@@ -139,6 +221,7 @@ private void list(final ServerConnection connection) {
                 connection.endBlock();
             } else {
                 connection.response("");
+                connection.endBlock();
             }
 
         } catch (final IOException e) {
@@ -146,16 +229,6 @@ private void list(final ServerConnection connection) {
         }
     }
 
-    private File[] listFiles(final String type) {
-        final File[] listFiles = Util.directory(type).listFiles(new FileFilter() {
-            @Override
-            public boolean accept(final File pathname) {
-                return pathname.getName().endsWith(".data");
-            }
-        });
-        return listFiles;
-    }
-
     private void read(final ServerConnection connection) {
         String type = null;
         String id = null;
@@ -163,12 +236,12 @@ private void read(final ServerConnection connection) {
             connection.endCommand();
             type = connection.getRequest();
             id = connection.getRequest();
-            final DataFileReader reader = findInstance(type, id, connection);
-            if (reader == null) {
+            final InstanceData instance = findInstance(type, id, connection);
+            if (instance == null) {
                 connection.notFound(Util.FILE_NOT_FOUND + " for " + type + "/" + id);
             } else {
                 connection.ok();
-                readInstance(reader, connection);
+                readInstance(instance, connection);
             }
         } catch (final IOException e) {
             throw new NoSqlStoreException(Util.READ_ERROR + " for " + type + "/" + id, e);
@@ -178,21 +251,48 @@ private void read(final ServerConnection connection) {
 
     }
 
-    private DataFileReader findInstance(final String type, final String id, final ServerConnection connection) throws IOException {
+    /**
+     * Reads each of the instances listed, one <tt>type id</tt> per line,
+     * responding with a block of data for each in turn (an empty block if not
+     * found).
+     */
+    private void readMany(final ServerConnection connection) {
+        final String[] requests = connection.getData().split("\n");
+        connection.ok();
+        for (final String request : requests) {
+            if (request.length() == 0) {
+                continue;
+            }
+            final String[] typeAndId = request.split(" ");
+            final String type = typeAndId[0];
+            final String id = typeAndId[1];
+            try {
+                final InstanceData instance = findInstance(type, id, connection);
+                if (instance == null) {
+                    connection.responseData("");
+                } else {
+                    readInstance(instance, connection);
+                }
+            } catch (final IOException e) {
+                throw new NoSqlStoreException(Util.READ_ERROR + " for " + type + "/" + id, e);
+            } finally {
+                locks.release(id, getTransactionId());
+            }
+        }
+    }
+
+    private InstanceData findInstance(final String type, final String id, final ServerConnection connection) throws IOException {
         LOG.debug("reading file " + id);
         locks.acquireRead(id, getTransactionId());
-        try {
-            return new DataFileReader(type, id);
-        } catch (final FileNotFoundException e) {
-            LOG.error(Util.FILE_NOT_FOUND + " for " + type + "/" + id, e);
-            return null;
+        final InstanceData instance = store.read(type, id);
+        if (instance == null) {
+            LOG.error(Util.FILE_NOT_FOUND + " for " + type + "/" + id);
         }
+        return instance;
     }
 
-    private void readInstance(final DataFileReader reader, final ServerConnection connection) {
-        final String data = reader.getData();
-        reader.close();
-        connection.responseData(data);
+    private void readInstance(final InstanceData instance, final ServerConnection connection) {
+        connection.responseData(instance.getData());
     }
 
     private void write(final ServerConnection connection) {
@@ -202,8 +302,7 @@ private void write(final ServerConnection connection) {
             final String error = acquireLocks(files);
             if (error == null) {
                 logger.logWrites(files);
-                final DataFileWriter content = new DataFileWriter(files);
-                content.writeData();
+                store.write(files);
                 connection.ok();
             } else {
                 connection.error(error);
@@ -242,14 +341,14 @@ private String acquireLocks(final List<FileContent> list) throws IOException {
                 return item.type + " being changed by another user, please try again\n" + item.data;
             }
             if (Util.shouldFileExist(item.command)) {
-                final DataFileReader dataReader = new DataFileReader(item.type, item.id);
-                final String version = dataReader.getVersion();
+                final InstanceData instance = store.read(item.type, item.id);
+                if (instance == null) {
+                    throw new FileServerException(Util.FILE_NOT_FOUND + " for " + item.type + "/" + item.id);
+                }
+                final String version = instance.getVersion();
                 if (!version.equals(item.currentVersion)) {
-                    // String data = dataReader.getData();
-                    dataReader.close();
                     return "mismatch between FileContent version (" + item.currentVersion + ") and DataReader version (" + version + ")";
                 }
-                dataReader.close();
             }
         }
         return null;
@@ -270,7 +369,7 @@ private void status(final ServerConnection connection) throws IOException {
         connection.endCommand();
         final String request = connection.getRequest();
         if (request.equals("contains-data")) {
-            connection.response(Util.isPopulated());
+            connection.response(store.isPopulated());
 
         } else {
             connection.error("Unrecognised command " + request);
@@ -307,7 +406,7 @@ private String readServiceFile(final File file) {
         }
     }
 
-    private void saveService(final ServerConnection connection) throws IOException {
+    private synchronized void saveService(final ServerConnection connection) throws IOException {
         connection.endCommand();
         final String name = connection.getRequest();
         final String key = connection.getRequest();
@@ -335,9 +434,7 @@ void saveService(final String key, final String name) throws FileNotFoundExcepti
         }
     }
 
-    private void nextSerialBatch(final ServerConnection connection) throws IOException {
-        // TODO lock file first
-
+    private synchronized void nextSerialBatch(final ServerConnection connection) throws IOException {
         connection.endCommand();
         final String name = connection.getRequest();
         final int batchSize = connection.getRequestAsInt();
@@ -359,8 +456,6 @@ private void nextSerialBatch(final ServerConnection connection) throws IOExcepti
 
         saveNextBatch(file, newBatchAt);
 
-        // TODO remove lock
-
         connection.response(nextId);
     }
 
@@ -377,9 +472,7 @@ public void saveNextBatch(final String name, final long nextBatch) throws IOExce
     private void hasInstances(final ServerConnection connection) throws IOException {
         connection.endCommand();
         final String type = connection.getRequest();
-        final File[] listFiles = listFiles(type);
-        final boolean hasInstances = listFiles != null && listFiles.length > 0;
-        connection.response(hasInstances);
+        connection.response(store.hasInstances(type));
     }
 
 }
@@ -19,91 +19,251 @@
 
 package org.apache.isis.objectstore.nosql.db.file.server;
 
-import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.log4j.Logger;
+
 import org.apache.isis.objectstore.nosql.NoSqlStoreException;
 
+/**
+ * Writes each transaction to the recovery log before it is applied.
+ *
+ * <p>
+ * Transactions are appended to a shared batch, which a single flusher thread
+ * writes to the log file as a whole, so concurrent transactions are committed
+ * together (waiting up to the maximum batching delay for others to join the
+ * batch). Depending on the {@link Durability durability}, each transaction
+ * then waits until its batch has been written, or also forced to disk.
+ */
 public class LogWriter {
 
-    private DataOutputStream writer;
+    private static final Logger LOG = Logger.getLogger(LogWriter.class);
+
+    public static enum Durability {
+        /**
+         * Transactions do not wait for the log to be written.
+         */
+        NONE,
+        /**
+         * Transactions wait until their batch has been written to the log
+         * file (but not necessarily to disk).
+         */
+        FLUSH,
+        /**
+         * Transactions wait until their batch has been forced to disk.
+         */
+        FSYNC
+    }
+
+    private final Durability durability;
+    private final long maxDelay;
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    private long batchStarted;
+    private long batchesAppended;
+    private long batchesWritten;
+    private NoSqlStoreException failure;
     private boolean startNewFile = false;
     private long nextLogIdToWrite;
+    private long writtenLength;
+    private boolean running;
+
+    // used by the flusher thread only, once started
+    private FileOutputStream writer;
+    private Thread flusher;
+
+    public LogWriter() {
+        this(Durability.FLUSH, 0);
+    }
+
+    /**
+     * @param maxDelay
+     *            the longest, in milliseconds, that a batch is held open for
+     *            further transactions to join it.
+     */
+    public LogWriter(final Durability durability, final long maxDelay) {
+        this.durability = durability;
+        this.maxDelay = maxDelay;
+    }
 
     public void startNewFile() {
-        // don't start new file if old one is empty
-        final File file = Util.logFile(nextLogIdToWrite);
-        if (file.exists() && file.length() > 0) {
-            startNewFile = true;
+        synchronized (lock) {
+            // don't start new file if old one is empty
+            final File file = Util.logFile(nextLogIdToWrite);
+            if (file.exists() && file.length() > 0) {
+                startNewFile = true;
+                lock.notifyAll();
+            }
         }
     }
 
-    public synchronized void logNextSerialBatch(final String name, final long newBatchAt) {
-        startNewFileIfNeeded();
+    public void logNextSerialBatch(final String name, final long newBatchAt) {
         try {
-            writer.write(("#transaction started - " + new Date().toString() + "\n").getBytes());
-            writer.write('B');
-            writer.write(name.getBytes(Util.ENCODING));
-            writer.write(' ');
-            writer.write(Long.toString(newBatchAt).getBytes(Util.ENCODING));
-            writer.write('\n');
-            writer.write('\n');
-            writer.write("#transaction ended\n\n".getBytes());
-            writer.flush();
+            final ByteArrayOutputStream entry = startTransaction();
+            entry.write('B');
+            entry.write(name.getBytes(Util.ENCODING));
+            entry.write(' ');
+            entry.write(Long.toString(newBatchAt).getBytes(Util.ENCODING));
+            entry.write('\n');
+            entry.write('\n');
+            commit(entry);
         } catch (final IOException e) {
             throw new NoSqlStoreException("Failed to write serial number data to log file", e);
         }
 
     }
 
-    public synchronized void logServiceEntry(final String key, final String name) {
-        startNewFileIfNeeded();
+    public void logServiceEntry(final String key, final String name) {
         try {
-            writer.write(("#transaction started - " + new Date().toString() + "\n").getBytes());
-            writer.write('S');
-            writer.write(key.getBytes(Util.ENCODING));
-            writer.write(' ');
-            writer.write(name.getBytes(Util.ENCODING));
-            writer.write('\n');
-            writer.write('\n');
-            writer.write("#transaction ended\n\n".getBytes());
-            writer.flush();
+            final ByteArrayOutputStream entry = startTransaction();
+            entry.write('S');
+            entry.write(key.getBytes(Util.ENCODING));
+            entry.write(' ');
+            entry.write(name.getBytes(Util.ENCODING));
+            entry.write('\n');
+            entry.write('\n');
+            commit(entry);
         } catch (final IOException e) {
             throw new NoSqlStoreException("Failed to write service entry data to log file", e);
         }
     }
 
-    public synchronized void logWrites(final List<FileContent> items) {
-        startNewFileIfNeeded();
+    public void logWrites(final List<FileContent> items) {
         try {
-            writer.write(("#transaction started - " + new Date().toString() + "\n").getBytes());
+            final ByteArrayOutputStream entry = startTransaction();
             for (final FileContent content : items) {
-                writer.write(content.command);
-                content.write(writer);
-                writer.write('\n');
+                entry.write(content.command);
+                content.write(entry);
+                entry.write('\n');
             }
-            writer.write("#transaction ended\n\n".getBytes());
-            writer.flush();
+            commit(entry);
         } catch (final IOException e) {
             throw new NoSqlStoreException("Failed to write data to log file", e);
         }
     }
 
-    private void startNewFileIfNeeded() {
-        if (startNewFile) {
-            close();
-            openNewFile();
-            startNewFile = false;
+    private ByteArrayOutputStream startTransaction() throws IOException {
+        final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        entry.write(("#transaction started - " + new Date().toString() + "\n").getBytes());
+        return entry;
+    }
+
+    /**
+     * Adds the transaction to the current batch and, unless not concerned
+     * with durability, waits for the batch to be written.
+     */
+    private void commit(final ByteArrayOutputStream entry) throws IOException {
+        entry.write("#transaction ended\n\n".getBytes());
+        synchronized (lock) {
+            if (!running) {
+                throw new NoSqlStoreException("Log writer not running");
+            }
+            if (batch.size() == 0) {
+                batchStarted = System.currentTimeMillis();
+                lock.notifyAll();
+            }
+            entry.writeTo(batch);
+            final long batchNumber = batchesAppended + 1;
+            if (durability == Durability.NONE) {
+                return;
+            }
+            while (batchesWritten < batchNumber && failure == null) {
+                try {
+                    lock.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new NoSqlStoreException("Interrupted while waiting for log to be written");
+                }
+            }
+            if (batchesWritten < batchNumber) {
+                throw failure;
+            }
         }
     }
 
-    private void openNewFile() {
-        nextLogIdToWrite++;
-        final File file = Util.logFile(nextLogIdToWrite);
+    // ////////////////////////////////////////////////////////
+    // flusher
+    // ////////////////////////////////////////////////////////
+
+    private void flushBatches() {
+        while (true) {
+            final byte[] data;
+            final long batchNumber;
+            final boolean newFile;
+            synchronized (lock) {
+                while (running && batch.size() == 0 && !startNewFile) {
+                    waitOn(0);
+                }
+                long delay;
+                while (running && batch.size() > 0 && (delay = batchStarted + maxDelay - System.currentTimeMillis()) > 0) {
+                    waitOn(delay);
+                }
+                if (!running && batch.size() == 0) {
+                    return;
+                }
+                data = batch.toByteArray();
+                batch = new ByteArrayOutputStream();
+                batchNumber = ++batchesAppended;
+                newFile = startNewFile;
+            }
+
+            try {
+                if (newFile) {
+                    rollFile();
+                }
+                if (data.length > 0) {
+                    writer.write(data);
+                    if (durability == Durability.FSYNC) {
+                        writer.getChannel().force(false);
+                    }
+                }
+                synchronized (lock) {
+                    if (newFile) {
+                        startNewFile = false;
+                        nextLogIdToWrite++;
+                        writtenLength = 0;
+                    }
+                    writtenLength += data.length;
+                    batchesWritten = batchNumber;
+                    lock.notifyAll();
+                }
+            } catch (final IOException e) {
+                LOG.error("failed to write to log file", e);
+                synchronized (lock) {
+                    failure = new NoSqlStoreException("Failed to write data to log file", e);
+                    running = false;
+                    lock.notifyAll();
+                }
+                return;
+            } catch (final RuntimeException e) {
+                LOG.error("failed to write to log file", e);
+                synchronized (lock) {
+                    failure = e instanceof NoSqlStoreException ? (NoSqlStoreException) e : new NoSqlStoreException(e);
+                    running = false;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private void waitOn(final long timeout) {
+        try {
+            lock.wait(timeout);
+        } catch (final InterruptedException ignore) {
+        }
+    }
+
+    private void rollFile() {
+        close();
+        final File file = Util.logFile(nextLogIdToWrite + 1);
         if (file.exists()) {
             throw new NoSqlStoreException("Log file already exists");
         }
@@ -112,25 +272,58 @@ private void openNewFile() {
 
     private void openFile(final File file) {
         try {
-            writer = new DataOutputStream(new FileOutputStream(file));
-            startNewFile = false;
+            writer = new FileOutputStream(file, true);
         } catch (final IOException e) {
             throw new NoSqlStoreException("Failed to open log file", e);
         }
     }
 
+    // ////////////////////////////////////////////////////////
+    // startup, shutdown
+    // ////////////////////////////////////////////////////////
+
     public void startup() {
-        nextLogIdToWrite = Util.logFileRange().getLast();
-        startNewFile();
-        if (!startNewFile) {
+        synchronized (lock) {
+            nextLogIdToWrite = Util.logFileRange().getLast();
             final File file = Util.logFile(nextLogIdToWrite);
-            openFile(file);
-        } else {
-            openNewFile();
+            if (file.exists() && file.length() > 0) {
+                nextLogIdToWrite++;
+                final File newFile = Util.logFile(nextLogIdToWrite);
+                if (newFile.exists()) {
+                    throw new NoSqlStoreException("Log file already exists");
+                }
+                openFile(newFile);
+            } else {
+                openFile(file);
+            }
+            writtenLength = 0;
+            startNewFile = false;
+            failure = null;
+            running = true;
         }
+        flusher = new Thread("log-flusher") {
+            @Override
+            public void run() {
+                flushBatches();
+            }
+        };
+        flusher.setDaemon(true);
+        flusher.start();
     }
 
+    /**
+     * Writes out any transactions still to be written, then closes the log.
+     */
     public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         close();
     }
 
@@ -142,8 +335,56 @@ private void close() {
         }
     }
 
-    public synchronized boolean isWritten(final long logId) {
-        startNewFileIfNeeded();
-        return logId < nextLogIdToWrite;
+    // ////////////////////////////////////////////////////////
+    // progress, for syncing
+    // ////////////////////////////////////////////////////////
+
+    /**
+     * The number of batches of transactions written to the log.
+     */
+    public long getBatchesWritten() {
+        synchronized (lock) {
+            return batchesWritten;
+        }
+    }
+
+    /**
+     * Whether the log file is complete, no more being written to it.
+     */
+    public boolean isWritten(final long logId) {
+        synchronized (lock) {
+            return logId < nextLogIdToWrite;
+        }
+    }
+
+    /**
+     * The length of the specified log file that has been written, being whole
+     * batches of transactions.
+     */
+    public long writtenLength(final long logId) {
+        synchronized (lock) {
+            if (logId < nextLogIdToWrite) {
+                return Util.logFile(logId).length();
+            } else if (logId == nextLogIdToWrite) {
+                return writtenLength;
+            } else {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Waits, for no longer than the specified time, until more than the
+     * specified length of the log file has been written or the file is
+     * complete.
+     */
+    public void awaitWritten(final long logId, final long length, final long timeout) {
+        final long until = System.currentTimeMillis() + timeout;
+        synchronized (lock) {
+            long remaining;
+            while (running && logId == nextLogIdToWrite && writtenLength <= length && (remaining = until - System.currentTimeMillis()) > 0) {
+                waitOn(remaining);
+            }
+        }
     }
 }
@@ -0,0 +1,134 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The number of requests processed and the time each took, from which the
+ * throughput and latency are reported.
+ *
+ * <p>
+ * Latencies are counted in buckets by powers of two microseconds, so the
+ * percentiles reported are upper bounds.
+ */
+public class RequestMetrics {
+
+    private static final int BUCKETS = 40;
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+
+    private final long started = System.nanoTime();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+    private final AtomicLongArray commands = new AtomicLongArray(128);
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+
+    private long lastReported = started;
+    private long requestsLastReported;
+
+    /**
+     * Records a request, taking the specified time (in nanoseconds) to read,
+     * process and respond to.
+     */
+    public void record(final char command, final long nanos, final boolean failed) {
+        requests.incrementAndGet();
+        if (failed) {
+            failures.incrementAndGet();
+        }
+        if (command < commands.length()) {
+            commands.incrementAndGet(command);
+        }
+        totalTime.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxTime.get()) && !maxTime.compareAndSet(max, nanos)) {
+        }
+        latencies.incrementAndGet(bucket(nanos));
+    }
+
+    private static int bucket(final long nanos) {
+        final long micros = nanos / 1000;
+        final int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * The lines of a report on the throughput since the server started and
+     * since the previous report, and the latency of the requests.
+     */
+    public synchronized List<String> report() {
+        final long now = System.nanoTime();
+        final long count = requests.get();
+        final List<String> lines = new ArrayList<String>();
+
+        lines.add("requests: " + count + " (" + failures.get() + " failed)");
+        lines.add("throughput: " + rate(count, now - started) + " requests/s overall, " + rate(count - requestsLastReported, now - lastReported) + " requests/s since last report");
+        if (count > 0) {
+            final StringBuilder latency = new StringBuilder("latency: mean " + micros(totalTime.get() / count));
+            for (final double percentile : PERCENTILES) {
+                latency.append(", " + (int) percentile + "% < " + percentile(count, percentile));
+            }
+            latency.append(", max " + micros(maxTime.get()));
+            lines.add(latency.toString());
+
+            final StringBuilder byCommand = new StringBuilder("by command:");
+            for (char command = 0; command < commands.length(); command++) {
+                final long commandCount = commands.get(command);
+                if (commandCount > 0) {
+                    byCommand.append(" " + command + "=" + commandCount);
+                }
+            }
+            lines.add(byCommand.toString());
+        }
+
+        lastReported = now;
+        requestsLastReported = count;
+        return lines;
+    }
+
+    private String percentile(final long count, final double percentile) {
+        final long target = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += latencies.get(bucket);
+            if (seen >= target) {
+                return bucket == BUCKETS - 1 ? "-" : micros((1L << bucket) * 1000);
+            }
+        }
+        return "-";
+    }
+
+    private static String rate(final long count, final long nanos) {
+        return nanos == 0 ? "0" : String.format("%.1f", count * 1000000000.0 / nanos);
+    }
+
+    private static String micros(final long nanos) {
+        return (nanos / 1000) + "us";
+    }
+
+}
@@ -0,0 +1,629 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import org.apache.isis.objectstore.nosql.NoSqlStoreException;
+
+/**
+ * Stores the instances of each type as records appended to a series of
+ * segment files in the directory for that type, rather than a file per
+ * instance, with an index, held in memory, of where the latest record for
+ * each instance is.
+ *
+ * <p>
+ * Each record holds the id, version and data of an instance, or marks its
+ * deletion, and is checked by a CRC so that a record left incomplete by a
+ * crash is discarded when the segment is next opened (the recovery log then
+ * being replayed). Once a segment grows beyond the segment size it is sealed
+ * and memory-mapped for reading, and a new segment started; the active
+ * segment is read from directly.
+ *
+ * <p>
+ * As records are superseded the sealed segments hold more and more garbage.
+ * In the background, each sealed segment where the proportion of garbage
+ * exceeds the compaction threshold has its live records copied to the active
+ * segment and is then deleted.
+ */
+public class SegmentedDataStore implements DataStore {
+
+    private static final Logger LOG = Logger.getLogger(SegmentedDataStore.class);
+
+    private static final String EXTENSION = ".segment";
+    private static final byte DELETE = 0;
+    private static final byte PUT = 1;
+    /**
+     * The length of the body of the record, and its CRC.
+     */
+    private static final int HEADER = 8;
+
+    private static class Record {
+        byte kind;
+        String id;
+        String version;
+        String data;
+    }
+
+    private static class Location {
+        final Segment segment;
+        final long offset;
+        final int length;
+
+        Location(final Segment segment, final long offset, final int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class Segment {
+        private final long number;
+        private final File file;
+        private final FileChannel channel;
+        private volatile MappedByteBuffer map;
+        // guarded by the type's segments
+        private long length;
+        private long garbage;
+
+        Segment(final long number, final File file) throws IOException {
+            this.number = number;
+            this.file = file;
+            channel = new RandomAccessFile(file, "rw").getChannel();
+        }
+
+        long append(final ByteBuffer record) throws IOException {
+            final long offset = length;
+            while (record.hasRemaining()) {
+                length += channel.write(record, length);
+            }
+            return offset;
+        }
+
+        ByteBuffer read(final long offset, final int recordLength) throws IOException {
+            final MappedByteBuffer map = this.map;
+            if (map != null) {
+                return slice(map, offset, recordLength);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(recordLength);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) == -1) {
+                    throw new EOFException("Record at " + offset + " beyond end of " + file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        /**
+         * No more records will be appended to a sealed segment, so it is
+         * forced to disk and can be mapped in its entirety.
+         */
+        void seal() throws IOException {
+            channel.force(false);
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+
+        void delete() {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOG.warn("failed to close segment " + file, e);
+            }
+            if (!file.delete()) {
+                LOG.warn("failed to delete compacted segment " + file);
+            }
+        }
+
+        void close() throws IOException {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /**
+     * The segments and index for the instances of one type.
+     */
+    private class TypeSegments {
+        private final String type;
+        private final ConcurrentMap<String, Location> index = new ConcurrentHashMap<String, Location>();
+        /**
+         * Oldest first, the last being the active segment. Guarded by this.
+         */
+        private final List<Segment> segments = new ArrayList<Segment>();
+
+        TypeSegments(final String type) {
+            this.type = type;
+        }
+
+        synchronized void load(final File[] files) throws IOException {
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(final File file1, final File file2) {
+                    final long number1 = segmentNumber(file1);
+                    final long number2 = segmentNumber(file2);
+                    return number1 < number2 ? -1 : (number1 == number2 ? 0 : 1);
+                }
+            });
+            for (final File file : files) {
+                final Segment segment = new Segment(segmentNumber(file), file);
+                segments.add(segment);
+                load(segment);
+            }
+            for (int i = 0; i < segments.size() - 1; i++) {
+                segments.get(i).seal();
+            }
+        }
+
+        private void load(final Segment segment) throws IOException {
+            final long size = segment.channel.size();
+            final MappedByteBuffer map = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int position = 0;
+            while (position + HEADER <= size) {
+                final int bodyLength = map.getInt(position);
+                if (bodyLength <= 0 || position + HEADER + bodyLength > size) {
+                    break;
+                }
+                final Record record = decode(slice(map, position, HEADER + bodyLength), false);
+                if (record == null) {
+                    break;
+                }
+                indexRecord(record.kind, record.id, new Location(segment, position, HEADER + bodyLength));
+                position += HEADER + bodyLength;
+            }
+            segment.length = position;
+            if (position < size) {
+                LOG.warn("discarding incomplete record at " + position + " of " + segment.file);
+                segment.channel.truncate(position);
+            }
+        }
+
+        InstanceData read(final String id) throws IOException {
+            final Location location = index.get(id);
+            if (location == null) {
+                return null;
+            }
+            final Record record = decode(location.segment.read(location.offset, location.length), true);
+            if (record == null) {
+                throw new FileServerException("Corrupt record for " + type + "/" + id + " in " + location.segment.file);
+            }
+            return new InstanceData(record.id, record.version, record.data);
+        }
+
+        synchronized void append(final byte kind, final String id, final String version, final String data) throws IOException {
+            append(kind, id, encode(kind, id, version, data));
+        }
+
+        private void append(final byte kind, final String id, final ByteBuffer record) throws IOException {
+            final int length = record.remaining();
+            final Segment segment = activeSegment(length);
+            final long offset = segment.append(record);
+            indexRecord(kind, id, new Location(segment, offset, length));
+        }
+
+        private void indexRecord(final byte kind, final String id, final Location location) {
+            final Location previous = kind == PUT ? index.put(id, location) : index.remove(id);
+            if (previous != null) {
+                previous.segment.garbage += previous.length;
+            }
+        }
+
+        private Segment activeSegment(final int recordLength) throws IOException {
+            final Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (active != null && (active.length == 0 || active.length + recordLength <= segmentSize)) {
+                return active;
+            }
+            if (active != null) {
+                active.seal();
+            }
+            final long number = active == null ? 0 : active.number + 1;
+            final File directory = Util.directory(type);
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            final Segment segment = new Segment(number, segmentFile(type, number));
+            segments.add(segment);
+            return segment;
+        }
+
+        List<String> ids() {
+            return new ArrayList<String>(index.keySet());
+        }
+
+        void compact() throws IOException {
+            final List<Segment> candidates = new ArrayList<Segment>();
+            synchronized (this) {
+                for (int i = 0; i < segments.size() - 1; i++) {
+                    final Segment segment = segments.get(i);
+                    if (segment.garbage >= segment.length * compactionThreshold) {
+                        candidates.add(segment);
+                    }
+                }
+            }
+            for (final Segment segment : candidates) {
+                compact(segment);
+            }
+        }
+
+        /**
+         * Copies the live records from the sealed segment to the active one,
+         * and then deletes it. Deletions are copied too, unless no earlier
+         * segment remains that could hold a record for the deleted instance.
+         */
+        private void compact(final Segment segment) throws IOException {
+            LOG.debug("compacting " + segment.file + ": " + segment.garbage + " of " + segment.length + " bytes garbage");
+            final long length = segment.length;
+            long position = 0;
+            while (position < length) {
+                final int recordLength = HEADER + segment.map.getInt((int) position);
+                final ByteBuffer record = slice(segment.map, position, recordLength);
+                final Record header = decode(record.duplicate(), false);
+                if (header == null) {
+                    throw new FileServerException("Corrupt record at " + position + " of " + segment.file);
+                }
+                synchronized (this) {
+                    if (header.kind == PUT) {
+                        final Location live = index.get(header.id);
+                        if (live != null && live.segment == segment && live.offset == position) {
+                            append(PUT, header.id, record);
+                        }
+                    } else if (!index.containsKey(header.id) && segments.get(0) != segment) {
+                        append(DELETE, header.id, record);
+                    }
+                }
+                position += recordLength;
+            }
+            synchronized (this) {
+                // the copies must be on disk before the originals are deleted
+                segments.get(segments.size() - 1).channel.force(false);
+                segments.remove(segment);
+            }
+            segment.delete();
+        }
+
+        synchronized void force() throws IOException {
+            if (!segments.isEmpty()) {
+                segments.get(segments.size() - 1).channel.force(false);
+            }
+        }
+
+        synchronized void close() throws IOException {
+            for (final Segment segment : segments) {
+                segment.close();
+            }
+            segments.clear();
+            index.clear();
+        }
+
+        synchronized long[] sizes() {
+            final long[] sizes = new long[3];
+            sizes[0] = segments.size();
+            for (final Segment segment : segments) {
+                sizes[1] += segment.length;
+                sizes[2] += segment.garbage;
+            }
+            return sizes;
+        }
+    }
+
+    private final long segmentSize;
+    private final double compactionThreshold;
+    private final long compactionPeriod;
+    private final ConcurrentMap<String, TypeSegments> types = new ConcurrentHashMap<String, TypeSegments>();
+    private boolean open;
+    private volatile boolean running;
+    private Thread compactor;
+
+    /**
+     * @param segmentSize
+     *            the size, in bytes, beyond which a segment is sealed and a new
+     *            one started.
+     * @param compactionThreshold
+     *            the proportion of a sealed segment that must be garbage for
+     *            it to be compacted.
+     * @param compactionPeriod
+     *            how often, in milliseconds, the segments are checked for
+     *            compaction; none is done if zero.
+     */
+    public SegmentedDataStore(final long segmentSize, final double compactionThreshold, final long compactionPeriod) {
+        this.segmentSize = Math.min(segmentSize, Integer.MAX_VALUE);
+        this.compactionThreshold = compactionThreshold;
+        this.compactionPeriod = compactionPeriod;
+    }
+
+    // ////////////////////////////////////////////////////////
+    // open, close
+    // ////////////////////////////////////////////////////////
+
+    /**
+     * Loads the index for each type from its segments.
+     */
+    @Override
+    public synchronized void open() {
+        if (open) {
+            return;
+        }
+        final File[] directories = Util.dataDirectory().listFiles();
+        if (directories != null) {
+            for (final File directory : directories) {
+                final File[] files = directory.listFiles(new FileFilter() {
+                    @Override
+                    public boolean accept(final File pathname) {
+                        return pathname.getName().endsWith(EXTENSION);
+                    }
+                });
+                if (files != null && files.length > 0) {
+                    final TypeSegments segments = new TypeSegments(directory.getName());
+                    try {
+                        segments.load(files);
+                    } catch (final IOException e) {
+                        throw new NoSqlStoreException("Failed to load segments for " + directory.getName(), e);
+                    }
+                    types.put(directory.getName(), segments);
+                    LOG.info("loaded " + segments.index.size() + " instances of " + directory.getName() + " from " + files.length + " segments");
+                }
+            }
+        }
+        open = true;
+        if (compactionPeriod > 0) {
+            running = true;
+            compactor = new Thread("segment-compactor") {
+                @Override
+                public void run() {
+                    compactPeriodically();
+                }
+            };
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+    }
+
+    private void compactPeriodically() {
+        while (running) {
+            try {
+                Thread.sleep(compactionPeriod);
+            } catch (final InterruptedException e) {
+                continue;
+            }
+            if (running) {
+                try {
+                    compact();
+                } catch (final RuntimeException e) {
+                    LOG.error("compaction failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compacts the segments, of each type, that have become mostly garbage.
+     */
+    public void compact() {
+        for (final TypeSegments segments : types.values()) {
+            try {
+                segments.compact();
+            } catch (final IOException e) {
+                throw new NoSqlStoreException("Failed to compact segments for " + segments.type, e);
+            }
+        }
+    }
+
+    /**
+     * Forces the records written so far to disk.
+     */
+    public void force() {
+        for (final TypeSegments segments : types.values()) {
+            try {
+                segments.force();
+            } catch (final IOException e) {
+                throw new NoSqlStoreException("Failed to force segments for " + segments.type, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        final Thread compactor;
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+            running = false;
+            compactor = this.compactor;
+            this.compactor = null;
+        }
+        if (compactor != null) {
+            compactor.interrupt();
+            try {
+                compactor.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (final TypeSegments segments : types.values()) {
+            try {
+                segments.close();
+            } catch (final IOException e) {
+                LOG.error("failed to close segments for " + segments.type, e);
+            }
+        }
+        types.clear();
+    }
+
+    // ////////////////////////////////////////////////////////
+    // read, write
+    // ////////////////////////////////////////////////////////
+
+    @Override
+    public InstanceData read(final String type, final String id) throws IOException {
+        final TypeSegments segments = types.get(type);
+        return segments == null ? null : segments.read(id);
+    }
+
+    @Override
+    public void write(final List<FileContent> contents) throws IOException {
+        for (final FileContent content : contents) {
+            final TypeSegments segments = segmentsFor(content.type);
+            if (Util.isDelete(content.command)) {
+                segments.append(DELETE, content.id, "", "");
+            } else {
+                segments.append(PUT, content.id, content.newVersion, content.data);
+            }
+        }
+    }
+
+    private TypeSegments segmentsFor(final String type) {
+        final TypeSegments segments = types.get(type);
+        if (segments != null) {
+            return segments;
+        }
+        final TypeSegments created = new TypeSegments(type);
+        final TypeSegments existing = types.putIfAbsent(type, created);
+        return existing == null ? created : existing;
+    }
+
+    @Override
+    public List<String> list(final String type) {
+        final TypeSegments segments = types.get(type);
+        return segments == null ? null : segments.ids();
+    }
+
+    @Override
+    public boolean hasInstances(final String type) {
+        final TypeSegments segments = types.get(type);
+        return segments != null && !segments.index.isEmpty();
+    }
+
+    @Override
+    public boolean isPopulated() {
+        for (final TypeSegments segments : types.values()) {
+            if (!segments.index.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getStatus() {
+        long instances = 0;
+        long segmentCount = 0;
+        long bytes = 0;
+        long garbage = 0;
+        for (final TypeSegments segments : types.values()) {
+            instances += segments.index.size();
+            final long[] sizes = segments.sizes();
+            segmentCount += sizes[0];
+            bytes += sizes[1];
+            garbage += sizes[2];
+        }
+        return "storage: " + instances + " instances of " + types.size() + " types in " + segmentCount + " segments, " + bytes + " bytes (" + garbage + " garbage)";
+    }
+
+    // ////////////////////////////////////////////////////////
+    // records
+    // ////////////////////////////////////////////////////////
+
+    private static ByteBuffer encode(final byte kind, final String id, final String version, final String data) {
+        final byte[] idBytes = id.getBytes(Util.ENCODING);
+        final byte[] versionBytes = version.getBytes(Util.ENCODING);
+        final byte[] dataBytes = data.getBytes(Util.ENCODING);
+        final int bodyLength = 1 + 2 + idBytes.length + 2 + versionBytes.length + dataBytes.length;
+        final ByteBuffer record = ByteBuffer.allocate(HEADER + bodyLength);
+        record.putInt(bodyLength);
+        record.putInt(0);
+        record.put(kind);
+        record.putShort((short) idBytes.length);
+        record.put(idBytes);
+        record.putShort((short) versionBytes.length);
+        record.put(versionBytes);
+        record.put(dataBytes);
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER, bodyLength);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Decodes the record, returning null if its CRC shows it is incomplete or
+     * corrupt.
+     */
+    private static Record decode(final ByteBuffer buffer, final boolean withData) {
+        final int bodyLength = buffer.getInt();
+        final int expectedCrc = buffer.getInt();
+        final byte[] body = new byte[bodyLength];
+        buffer.get(body);
+        final CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        final ByteBuffer fields = ByteBuffer.wrap(body);
+        final Record record = new Record();
+        record.kind = fields.get();
+        record.id = readString(fields, fields.getShort() & 0xffff);
+        record.version = readString(fields, fields.getShort() & 0xffff);
+        if (withData) {
+            record.data = readString(fields, fields.remaining());
+        }
+        return record;
+    }
+
+    private static String readString(final ByteBuffer buffer, final int length) {
+        final String string = new String(buffer.array(), buffer.position(), length, Util.ENCODING);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final long offset, final int length) {
+        final ByteBuffer view = buffer.duplicate();
+        view.limit((int) offset + length);
+        view.position((int) offset);
+        return view.slice();
+    }
+
+    private static File segmentFile(final String type, final long number) {
+        return new File(Util.directory(type), number + EXTENSION);
+    }
+
+    private static long segmentNumber(final File file) {
+        final String name = file.getName();
+        return Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+    }
+}
@@ -26,6 +26,7 @@
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.net.SocketTimeoutException;
 
 import org.apache.log4j.Logger;
 
@@ -43,6 +44,7 @@ public class ServerConnection {
     private int header;
     private String[] headers;
     private char command;
+    private boolean keepAlive;
 
     public ServerConnection(final InputStream input, final OutputStream output) {
         outputStream = Util.trace(output, true);
@@ -51,8 +53,60 @@ public ServerConnection(final InputStream input, final OutputStream output) {
         this.writer = new PrintWriter(new OutputStreamWriter(outputStream, Util.ENCODING));
     }
 
-    public void readCommand() {
+    /**
+     * Reads the header of the next request.
+     * 
+     * @return <tt>false</tt> if, instead of sending another request, the client
+     *         closed a connection that was being {@link #keepAlive() kept
+     *         alive} (or left it idle until it timed out).
+     */
+    public boolean readCommand() {
+        if (keepAlive && !awaitRequest()) {
+            return false;
+        }
         readHeaders();
+        return true;
+    }
+
+    private boolean awaitRequest() {
+        try {
+            reader.mark(1);
+            if (reader.read() == -1) {
+                return false;
+            }
+            reader.reset();
+            return true;
+        } catch (final SocketTimeoutException e) {
+            LOG.debug("closing idle connection");
+            return false;
+        } catch (final IOException e) {
+            logFailure();
+            throw new NoSqlStoreException(e);
+        }
+    }
+
+    /**
+     * Keeps the connection open for further requests, once this one has been
+     * responded to (unless with an error).
+     */
+    public void keepAlive() {
+        keepAlive = true;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Whether (part of) the next request has already been received, so can be
+     * read without waiting.
+     */
+    public boolean hasPendingRequest() {
+        try {
+            return reader.ready();
+        } catch (final IOException e) {
+            return false;
+        }
     }
 
     private void logFailure() {
@@ -63,6 +117,8 @@ private void logFailure() {
     public void logComplete() {
         LOG.debug("(complete " + inputStream + ")");
         LOG.debug("(complete " + outputStream + ")");
+        Util.resetTrace(inputStream);
+        Util.resetTrace(outputStream);
     }
 
     boolean readHeaders() {
@@ -160,7 +216,12 @@ public String getData() {
      * 
      * }
      */
+    /**
+     * As the message is not terminated by a blank line, the connection is then
+     * closed rather than kept alive.
+     */
     public void notFound(final String message) {
+        keepAlive = false;
         writer.print("not-found");
         writer.print('\n');
         writer.print(message);
@@ -168,7 +229,12 @@ public void notFound(final String message) {
         writer.flush();
     }
 
+    /**
+     * As the message is not terminated by a blank line, the connection is then
+     * closed rather than kept alive.
+     */
     public void error(final String message) {
+        keepAlive = false;
         writer.print("error");
         writer.print('\n');
         writer.print(message);
@@ -232,6 +298,7 @@ public void close() {
 
     public void endBlock() {
         writer.print('\n');
+        writer.flush();
     }
 
 }
@@ -41,6 +41,12 @@ public class Util {
     private static final String LOGS_ARCHIVE_DIRECTORY = "archive";
     public static final String ABORT = "abort";
     public static final String OK = "ok";
+    /**
+     * Version 1 handles one request per connection; version 2 adds the
+     * <tt>V</tt> request, after which the connection is kept open for further
+     * requests, and the <tt>M</tt> request, to read many instances at once.
+     */
+    public static final int PROTOCOL_VERSION = 2;
     public static final String READ_ERROR = "Read error";
     public static final String FILE_NOT_FOUND = "File not found";
     private static final int NEWLINE = '\n';
@@ -146,6 +152,10 @@ public static byte[] xxreadData(final InputStream input) throws IOException {
         return buf;
     }
 
+    static File dataDirectory() {
+        return dataDirectory;
+    }
+
     static File directory(final String type) {
         return new File(dataDirectory, type);
     }
@@ -209,111 +219,131 @@ public static boolean shouldFileExist(final char command) {
     }
 
     public static InputStream trace(final InputStream inputStream, final boolean isOn) {
-        return !isOn ? inputStream : new InputStream() {
-            StringBuffer log = new StringBuffer();
+        return !isOn ? inputStream : new TraceInputStream(inputStream);
+    }
 
-            @Override
-            public int read() throws IOException {
-                final int b = inputStream.read();
-                log(b);
-                return b;
-            }
+    public static OutputStream trace(final OutputStream outputStream, final boolean isOn) {
+        return !isOn ? outputStream : new TraceOutputStream(outputStream);
+    }
 
-            private void log(final int b) {
-                log.append(b < 32 ? ("<" + b + ">" + (char) b) : (char) b);
-                // System.out.print(b < 32 ? ("<" + b + ">" + (char) b) : (char)
-                // b);
-            }
+    /**
+     * Discards what has been traced so far on the stream (if it is being
+     * traced), as when a connection is kept open for another request.
+     */
+    public static void resetTrace(final Object stream) {
+        if (stream instanceof TraceInputStream) {
+            ((TraceInputStream) stream).log.setLength(0);
+        } else if (stream instanceof TraceOutputStream) {
+            ((TraceOutputStream) stream).log.setLength(0);
+        }
+    }
 
-            @Override
-            public int read(final byte[] b) throws IOException {
-                final int read = inputStream.read(b);
-                for (int i = 0; i < read; i++) {
-                    log(b[i]);
-                }
-                return read;
-            }
+    private static void log(final StringBuffer log, final int b) {
+        log.append(b < 32 ? ("<" + b + ">" + (char) b) : (char) b);
+        // System.out.print(b < 32 ? ("<" + b + ">" + (char) b) : (char)
+        // b);
+    }
 
-            @Override
-            public int read(final byte[] b, final int off, final int len) throws IOException {
-                final int read = inputStream.read(b, off, len);
-                for (int i = 0; i < read; i++) {
-                    log(b[off + i]);
-                }
-                return read;
-            }
+    private static class TraceInputStream extends InputStream {
+        private final InputStream inputStream;
+        private final StringBuffer log = new StringBuffer();
 
-            @Override
-            public int available() throws IOException {
-                return inputStream.available();
-            }
+        public TraceInputStream(final InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
 
-            @Override
-            public long skip(final long n) throws IOException {
-                return inputStream.skip(n);
-            }
+        @Override
+        public int read() throws IOException {
+            final int b = inputStream.read();
+            log(log, b);
+            return b;
+        }
 
-            @Override
-            public void close() throws IOException {
-                // LOG.debug("in - " + log.toString());
-                inputStream.close();
+        @Override
+        public int read(final byte[] b) throws IOException {
+            final int read = inputStream.read(b);
+            for (int i = 0; i < read; i++) {
+                log(log, b[i]);
             }
+            return read;
+        }
 
-            @Override
-            public String toString() {
-                return "in#" + Long.toHexString(hashCode()) + " " + log;
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int read = inputStream.read(b, off, len);
+            for (int i = 0; i < read; i++) {
+                log(log, b[off + i]);
             }
-        };
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inputStream.available();
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            return inputStream.skip(n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // LOG.debug("in - " + log.toString());
+            inputStream.close();
+        }
+
+        @Override
+        public String toString() {
+            return "in#" + Long.toHexString(hashCode()) + " " + log;
+        }
     }
 
-    public static OutputStream trace(final OutputStream outputStream, final boolean isOn) {
-        return !isOn ? outputStream : new OutputStream() {
-            StringBuffer log = new StringBuffer();
+    private static class TraceOutputStream extends OutputStream {
+        private final OutputStream outputStream;
+        private final StringBuffer log = new StringBuffer();
 
-            @Override
-            public void write(final int b) throws IOException {
-                log(b);
-                outputStream.write(b);
-            }
+        public TraceOutputStream(final OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
 
-            private void log(final int b) {
-                log.append(b < 32 ? ("<" + b + ">" + (char) b) : (char) b);
-                // System.out.print(b < 32 ? ("<" + b + ">" + (char) b) : (char)
-                // b);
-            }
+        @Override
+        public void write(final int b) throws IOException {
+            log(log, b);
+            outputStream.write(b);
+        }
 
-            @Override
-            public void write(final byte[] b) throws IOException {
-                for (final byte element : b) {
-                    log(element);
-                }
-                outputStream.write(b);
+        @Override
+        public void write(final byte[] b) throws IOException {
+            for (final byte element : b) {
+                log(log, element);
             }
+            outputStream.write(b);
+        }
 
-            @Override
-            public void write(final byte[] b, final int off, final int len) throws IOException {
-                for (int i = 0; i < len; i++) {
-                    log(b[off + i]);
-                }
-                outputStream.write(b, off, len);
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            for (int i = 0; i < len; i++) {
+                log(log, b[off + i]);
             }
+            outputStream.write(b, off, len);
+        }
 
-            @Override
-            public void flush() throws IOException {
-                outputStream.flush();
-            }
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
 
-            @Override
-            public void close() throws IOException {
-                // LOG.debug("out - " + log.toString());
-                outputStream.close();
-            }
+        @Override
+        public void close() throws IOException {
+            // LOG.debug("out - " + log.toString());
+            outputStream.close();
+        }
 
-            @Override
-            public String toString() {
-                return "out#" + Long.toHexString(hashCode()) + " " + log;
-            }
-        };
+        @Override
+        public String toString() {
+            return "out#" + Long.toHexString(hashCode()) + " " + log;
+        }
     }
 
     public static void closeSafely(final FileOutputStream output) {
@@ -20,12 +20,14 @@
 package org.apache.isis.objectstore.nosql.db.mongo;
 
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.spec.ObjectSpecId;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
+import org.apache.isis.core.runtime.persistence.ObjectNotFoundException;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
 import org.apache.isis.objectstore.nosql.NoSqlCommandContext;
 import org.apache.isis.objectstore.nosql.NoSqlStoreException;
@@ -216,6 +218,19 @@ public StateReader getInstance(final String key, final ObjectSpecId objectSpecId
         return new MongoStateReader(db, objectSpecId, key);
     }
 
+    @Override
+    public List<StateReader> getInstances(final List<String> keys, final List<ObjectSpecId> objectSpecIds) {
+        final List<StateReader> instances = new ArrayList<StateReader>();
+        for (int i = 0; i < keys.size(); i++) {
+            try {
+                instances.add(getInstance(keys.get(i), objectSpecIds.get(i)));
+            } catch (final ObjectNotFoundException e) {
+                instances.add(null);
+            }
+        }
+        return instances;
+    }
+
     //////////////////////////////////////////////////
     // write, delete
     //////////////////////////////////////////////////
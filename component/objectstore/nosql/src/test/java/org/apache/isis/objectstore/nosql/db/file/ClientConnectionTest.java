@@ -126,4 +126,31 @@ public void validateConcurrencyException() throws Exception {
         connection.validateRequest();
     }
 
+    @Test(expected = RemotingException.class)
+    public void validateResponseWhenConnectionClosed() throws Exception {
+        input = IoUtils.asUtf8ByteStream("");
+        connection = new ClientConnection(input, output);
+        connection.validateRequest();
+    }
+
+    @Test
+    public void keptAliveOnceLaterProtocolAgreed() throws Exception {
+        assertEquals(false, connection.isKeptAlive());
+        connection.setProtocolVersion(2);
+        assertEquals(true, connection.isKeptAlive());
+    }
+
+    @Test
+    public void notKeptAliveOnceObjectNotFound() throws Exception {
+        input = IoUtils.asUtf8ByteStream("not-found\nmessage about it\n");
+        connection = new ClientConnection(input, output);
+        connection.setProtocolVersion(2);
+        try {
+            connection.validateRequest();
+            fail();
+        } catch (final ObjectNotFoundException expected) {
+        }
+        assertEquals(false, connection.isKeptAlive());
+    }
+
 }
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.nosql.db.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.objectstore.nosql.db.file.server.Util;
+
+public class FileServerDbTest {
+
+    /**
+     * Just enough of a file server to agree the protocol version and answer
+     * <tt>I</tt> and <tt>N</tt> requests; it closes each connection after its
+     * first such request, as the real server does once its read timeout
+     * passes.
+     */
+    private static class ClosingServer extends Thread {
+        private final ServerSocket serverSocket;
+        private final AtomicInteger accepted = new AtomicInteger();
+
+        public ClosingServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Socket socket = serverSocket.accept();
+                    accepted.incrementAndGet();
+                    serve(socket);
+                }
+            } catch (final IOException e) {
+                // closed
+            }
+        }
+
+        private void serve(final Socket socket) throws IOException {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Util.ENCODING));
+            final PrintWriter writer = new PrintWriter(socket.getOutputStream());
+            try {
+                String request;
+                while ((request = reader.readLine()) != null) {
+                    reader.readLine();
+                    final char command = request.charAt(0);
+                    if (command == 'V') {
+                        writer.print("ok " + Util.PROTOCOL_VERSION + "\n");
+                        writer.flush();
+                    } else {
+                        writer.print(command == 'I' ? "ok true\n" : "ok 100\n");
+                        writer.flush();
+                        break;
+                    }
+                }
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    private ClosingServer server;
+    private FileServerDb db;
+
+    @Before
+    public void setUp() throws Exception {
+        Logger.getRootLogger().setLevel(Level.OFF);
+        server = new ClosingServer();
+        server.start();
+        db = new FileServerDb("localhost", server.serverSocket.getLocalPort(), 5000, 8, 60000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.serverSocket.close();
+        server.join();
+    }
+
+    @Test
+    public void idempotentRequestRetriedWhenIdleConnectionClosedByServer() throws Exception {
+        assertEquals(true, db.hasInstances(ObjectSpecId.of("org.domain.Class")));
+        assertEquals(1, server.accepted.get());
+
+        assertEquals(true, db.hasInstances(ObjectSpecId.of("org.domain.Class")));
+        assertEquals(2, server.accepted.get());
+    }
+
+    @Test
+    public void otherRequestsNotRetried() throws Exception {
+        assertEquals(true, db.hasInstances(ObjectSpecId.of("org.domain.Class")));
+
+        try {
+            db.nextSerialNumberBatch(ObjectSpecId.of("org.domain.Class"), 10);
+            fail();
+        } catch (final RuntimeException expected) {
+        }
+        assertEquals(1, server.accepted.get());
+    }
+
+}
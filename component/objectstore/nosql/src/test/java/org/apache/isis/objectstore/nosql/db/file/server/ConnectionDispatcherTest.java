@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionDispatcherTest {
+
+    private FileServerProcessor server;
+    private ConnectionDispatcher dispatcher;
+    private Thread thread;
+    private Socket socket;
+    private OutputStream output;
+    private BufferedReader input;
+
+    @Before
+    public void setUp() throws Exception {
+        Util.setDirectory("target/test", "services", "logs", "archive");
+        Util.ensureDirectoryExists();
+        server = new FileServerProcessor();
+        server.startup();
+
+        dispatcher = new ConnectionDispatcher(server, new InetSocketAddress("localhost", 0), 0, 2, 2, 5000);
+        thread = new Thread("service") {
+            @Override
+            public void run() {
+                dispatcher.run();
+            }
+        };
+        thread.start();
+
+        socket = new Socket("localhost", dispatcher.getLocalPort());
+        socket.setSoTimeout(5000);
+        output = socket.getOutputStream();
+        input = new BufferedReader(new InputStreamReader(socket.getInputStream(), Util.ENCODING));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        socket.close();
+        dispatcher.shutdown();
+        thread.join();
+        server.shutdown();
+    }
+
+    @Test
+    public void connectionClosedAfterRequest() throws Exception {
+        send("Iorg.domain.None\n\n");
+
+        assertThat(input.readLine(), is(equalTo("ok false")));
+        assertThat(input.readLine(), is(nullValue()));
+    }
+
+    @Test
+    public void keptAliveConnectionServesFurtherRequests() throws Exception {
+        send("V2\n\n");
+        assertThat(input.readLine(), is(equalTo("ok 2")));
+
+        send("Iorg.domain.None\n\n");
+        assertThat(input.readLine(), is(equalTo("ok false")));
+
+        send("Iorg.domain.None\n\n");
+        assertThat(input.readLine(), is(equalTo("ok false")));
+    }
+
+    @Test
+    public void requestsSentTogetherAreAllProcessed() throws Exception {
+        send("V2\n\nIorg.domain.None\n\nIorg.domain.None\n\n");
+
+        assertThat(input.readLine(), is(equalTo("ok 2")));
+        assertThat(input.readLine(), is(equalTo("ok false")));
+        assertThat(input.readLine(), is(equalTo("ok false")));
+    }
+
+    private void send(final String request) throws Exception {
+        output.write(request.getBytes(Util.ENCODING));
+        output.flush();
+    }
+
+}
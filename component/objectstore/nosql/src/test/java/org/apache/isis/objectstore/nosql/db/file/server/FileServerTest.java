@@ -280,4 +280,37 @@ public void hasInstances() throws Exception {
         assertThat(out.toString(), is(equalTo("ok true\n")));
     }
 
+    @Test
+    public void versionRequestKeepsConnectionOpen() throws Exception {
+        final ServerConnection connection = new ServerConnection(IoUtils.asUtf8ByteStream("V2\n\nIorg.domain.None\n\n"), out);
+
+        assertTrue(server.process(connection));
+        assertTrue(server.process(connection));
+        assertFalse(server.process(connection));
+
+        assertThat(out.toString(), is(equalTo("ok 2\nok false\n")));
+    }
+
+    @Test
+    public void versionAgreedIsLowerOfClientAndServer() throws Exception {
+        final ServerConnection connection = new ServerConnection(IoUtils.asUtf8ByteStream("V99\n\n"), out);
+        server.process(connection);
+
+        assertThat(out.toString(), is(equalTo("ok " + Util.PROTOCOL_VERSION + "\n")));
+    }
+
+    @Test
+    public void readManyGivesEmptyBlockForMissingInstance() throws Exception {
+        final File file1 = new File("target/test/org.domain.Class2", "2025.data");
+        final FileWriter fileWriter = new FileWriter(file1);
+        fileWriter.write("type 1025 1\n{data1}");
+        fileWriter.close();
+        new File("target/test/org.domain.Class2", "2099.data").delete();
+
+        final ServerConnection connection = new ServerConnection(IoUtils.asUtf8ByteStream("M2\norg.domain.Class2 2099\norg.domain.Class2 2025\n\n"), out);
+        server.process(connection);
+
+        assertThat(out.toString(), is(equalTo("ok\n\n{data1}\n\n")));
+    }
+
 }
@@ -27,6 +27,7 @@
 import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -110,4 +111,64 @@ public void logAddedToNewFileWhenRotated() throws Exception {
         logger.logWrites(items);
         assertTrue(logFile2.exists() && logFile1.length() > 0);
     }
+
+    @Test
+    public void concurrentTransactionsWrittenTogether() throws Exception {
+        restart(LogWriter.Durability.FSYNC, 500);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> writers = new ArrayList<Thread>();
+        for (int i = 0; i < 5; i++) {
+            final Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                    logger.logWrites(items);
+                }
+            };
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (final Thread writer : writers) {
+            writer.join();
+        }
+
+        assertTrue(logger.getBatchesWritten() < 5);
+        Assert.assertEquals(logFile1.length(), logger.writtenLength(0));
+    }
+
+    @Test
+    public void transactionsNotAwaitedWithoutDurability() throws Exception {
+        restart(LogWriter.Durability.NONE, 60000);
+        logger.logWrites(items);
+        Assert.assertEquals(0, logFile1.length());
+
+        logger.shutdown();
+        logger = null;
+        assertTrue(logFile1.length() > 0);
+    }
+
+    @Test
+    public void logFileCompleteOnceRotated() throws Exception {
+        logger.logWrites(items);
+        assertFalse(logger.isWritten(0));
+
+        logger.startNewFile();
+        logger.logWrites(items);
+
+        assertTrue(logger.isWritten(0));
+        Assert.assertEquals(logFile1.length(), logger.writtenLength(0));
+        Assert.assertEquals(logFile2.length(), logger.writtenLength(1));
+    }
+
+    private void restart(final LogWriter.Durability durability, final long maxDelay) {
+        logger.shutdown();
+        logFile1.delete();
+        logger = new LogWriter(durability, maxDelay);
+        logger.startup();
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+    private final RequestMetrics metrics = new RequestMetrics();
+
+    @Test
+    public void reportsRequestsByCommand() throws Exception {
+        metrics.record('R', 1000, false);
+        metrics.record('R', 1000, false);
+        metrics.record('W', 1000, true);
+
+        final List<String> report = metrics.report();
+
+        assertThat(report.get(0), is(equalTo("requests: 3 (1 failed)")));
+        assertThat(report.get(3), is(equalTo("by command: R=2 W=1")));
+    }
+
+    @Test
+    public void reportsLatencyPercentiles() throws Exception {
+        for (int i = 0; i < 99; i++) {
+            metrics.record('R', 3000, false);
+        }
+        metrics.record('R', 100000, false);
+
+        final String latency = metrics.report().get(2);
+
+        assertThat(latency, containsString("50% < 4us"));
+        assertThat(latency, containsString("99% < 4us"));
+        assertThat(latency, containsString("max 100us"));
+    }
+
+    @Test
+    public void noLatencyReportedWithoutRequests() throws Exception {
+        assertThat(metrics.report().size(), is(2));
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.isis.objectstore.nosql.db.file.server;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedDataStoreTest {
+
+    private static final String DIRECTORY = "target/test-segments";
+
+    private SegmentedDataStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        delete(new File(DIRECTORY));
+        Util.setDirectory(DIRECTORY, "services", "logs", "archive");
+        Util.ensureDirectoryExists();
+        store = new SegmentedDataStore(100, 0.5, 0);
+        store.open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    private static void delete(final File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (final File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Test
+    public void writtenInstanceRead() throws Exception {
+        write('I', "1", "1", "{data1}\n");
+
+        final InstanceData instance = store.read("type", "1");
+        assertThat(instance.getId(), is("1"));
+        assertThat(instance.getVersion(), is("1"));
+        assertThat(instance.getData(), is("{data1}\n"));
+    }
+
+    @Test
+    public void latestVersionRead() throws Exception {
+        write('I', "1", "1", "{data1}\n");
+        write('U', "1", "2", "{data2}\n");
+
+        assertThat(store.read("type", "1").getVersion(), is("2"));
+        assertThat(store.read("type", "1").getData(), is("{data2}\n"));
+    }
+
+    @Test
+    public void deletedInstanceNotFound() throws Exception {
+        write('I', "1", "1", "{data1}\n");
+        write('D', "1", "", "");
+
+        assertThat(store.read("type", "1"), is(nullValue()));
+        assertTrue(store.list("type").isEmpty());
+        assertFalse(store.hasInstances("type"));
+    }
+
+    @Test
+    public void unknownTypeHasNoInstances() throws Exception {
+        assertThat(store.read("other", "1"), is(nullValue()));
+        assertThat(store.list("other"), is(nullValue()));
+        assertFalse(store.isPopulated());
+    }
+
+    @Test
+    public void instancesListed() throws Exception {
+        write('I', "1", "1", "{data1}\n");
+        write('I', "2", "1", "{data2}\n");
+
+        final List<String> ids = store.list("type");
+        assertThat(ids.size(), is(2));
+        assertTrue(ids.contains("1"));
+        assertTrue(ids.contains("2"));
+        assertTrue(store.isPopulated());
+    }
+
+    @Test
+    public void instancesReadFromEachSegment() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            write('I', "" + i, "1", "{data" + i + "}\n");
+        }
+
+        assertTrue(segments().length > 1);
+        for (int i = 0; i < 10; i++) {
+            assertThat(store.read("type", "" + i).getData(), is("{data" + i + "}\n"));
+        }
+    }
+
+    @Test
+    public void instancesReloadedWhenReopened() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            write('I', "" + i, "1", "{data" + i + "}\n");
+        }
+        write('U', "3", "2", "{updated}\n");
+        write('D', "4", "", "");
+
+        reopen();
+
+        assertThat(store.list("type").size(), is(9));
+        assertThat(store.read("type", "3").getData(), is("{updated}\n"));
+        assertThat(store.read("type", "4"), is(nullValue()));
+    }
+
+    @Test
+    public void incompleteRecordDiscardedWhenReopened() throws Exception {
+        write('I', "1", "1", "{data1}\n");
+        store.close();
+        final File[] segments = segments();
+        final FileOutputStream output = new FileOutputStream(segments[segments.length - 1], true);
+        output.write(new byte[] { 0, 0, 0, 20, 1, 2 });
+        output.close();
+
+        store.open();
+        write('I', "2", "1", "{data2}\n");
+        reopen();
+
+        assertThat(store.read("type", "1").getData(), is("{data1}\n"));
+        assertThat(store.read("type", "2").getData(), is("{data2}\n"));
+    }
+
+    @Test
+    public void compactionDeletesSegmentsOfGarbage() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            write('I', "1", "" + i, "{data" + i + "}\n");
+        }
+        write('I', "2", "1", "{other}\n");
+        write('D', "2", "", "");
+        final int before = segments().length;
+
+        store.compact();
+
+        assertTrue(segments().length < before);
+        assertThat(store.read("type", "1").getData(), is("{data9}\n"));
+        reopen();
+        assertThat(store.read("type", "1").getVersion(), is("9"));
+        assertThat(store.read("type", "2"), is(nullValue()));
+        assertThat(store.list("type").size(), is(1));
+    }
+
+    @Test
+    public void compactionRetainsDeletionsWhileEarlierSegmentsRemain() throws Exception {
+        // first segment, mostly live so not compacted
+        write('I', "1", "1", "{keep this segment live!}\n");
+        write('I', "2", "1", "{data2}\n");
+        write('I', "3", "1", "{data3}\n");
+        // second segment, mostly garbage
+        write('D', "2", "", "");
+        write('I', "6", "1", "{data6}\n");
+        write('U', "6", "2", "{data6}\n");
+        write('U', "6", "3", "{data6}\n");
+        write('I', "7", "1", "{data7}\n");
+        final File first = new File(DIRECTORY + "/type", "0.segment");
+        final File second = new File(DIRECTORY + "/type", "1.segment");
+        assertTrue(second.exists());
+
+        store.compact();
+        reopen();
+
+        assertTrue(first.exists());
+        assertFalse(second.exists());
+        assertThat(store.read("type", "2"), is(nullValue()));
+        assertThat(store.read("type", "3").getVersion(), is("1"));
+        assertThat(store.read("type", "6").getVersion(), is("3"));
+    }
+
+    @Test
+    public void statusReportsInstances() throws Exception {
+        write('I', "1", "1", "{data1}\n");
+
+        assertThat(store.getStatus(), containsString("1 instances of 1 types in 1 segments"));
+    }
+
+    @Test
+    public void dataFilesMigrated() throws Exception {
+        store.close();
+        final File directory = new File(DIRECTORY, "type");
+        directory.mkdirs();
+        final File file = new File(directory, "1.data");
+        final FileWriter writer = new FileWriter(file);
+        writer.write("type 1 7\n{data1}");
+        writer.close();
+        assertTrue(DataFileMigration.isRequired());
+
+        store.open();
+        assertThat(new DataFileMigration(store).migrate(), is(1));
+        reopen();
+
+        assertFalse(file.exists());
+        assertFalse(DataFileMigration.isRequired());
+        assertThat(store.read("type", "1").getVersion(), is("7"));
+        assertThat(store.read("type", "1").getData(), is("{data1}\n"));
+    }
+
+    private void reopen() {
+        store.close();
+        store.open();
+    }
+
+    private File[] segments() {
+        return new File(DIRECTORY, "type").listFiles();
+    }
+
+    private void write(final char command, final String id, final String version, final String data) throws Exception {
+        final List<FileContent> contents = new ArrayList<FileContent>();
+        contents.add(new FileContent(command, id, null, version, "type", data));
+        store.write(contents);
+    }
+}
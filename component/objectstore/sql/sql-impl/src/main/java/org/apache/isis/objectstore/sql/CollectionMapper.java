@@ -19,6 +19,8 @@
 
 package org.apache.isis.objectstore.sql;
 
+import java.util.List;
+
 import org.apache.isis.core.commons.debug.DebugBuilder;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 
@@ -26,6 +28,12 @@ public interface CollectionMapper {
 
     public void loadInternalCollection(final DatabaseConnector connector, final ObjectAdapter parent);
 
+    /**
+     * Loads the collection of each of the parents, where possible using a
+     * single query for all of them rather than one per parent.
+     */
+    public void loadInternalCollections(final DatabaseConnector connector, final List<ObjectAdapter> parents);
+
     public void saveInternalCollection(final DatabaseConnector connector, final ObjectAdapter parent);
 
     void createTables(DatabaseConnector connection);
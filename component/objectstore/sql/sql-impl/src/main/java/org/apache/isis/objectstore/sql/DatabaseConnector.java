@@ -45,12 +45,45 @@ public interface DatabaseConnector {
 
     Results select(String sql);
 
+    /**
+     * As {@link #select(String)}, hinting that the results be fetched from the
+     * database the specified number of rows at a time (or, if 0, as the
+     * driver defaults to).
+     */
+    Results select(String sql, int fetchSize);
+
     /**
      * Updates the database using the specified sql statement, and returns the
      * number of rows affected.
      */
     int update(String sql);
 
+    /**
+     * Adds the specified sql statement, along with the current query values,
+     * to a batch of identical statements that is executed when it reaches the
+     * configured batch size, when a different statement is added or executed,
+     * or on {@link #executeBatch()} or {@link #commit()}.
+     * 
+     * <p>
+     * The callback (if any) is notified of the number of rows affected once
+     * the batch has been executed; if batching is disabled then the statement
+     * is executed (and the callback notified) immediately.
+     */
+    void addToBatch(String sql, UpdateCallback callback);
+
+    /**
+     * Executes any statements pending from
+     * {@link #addToBatch(String, UpdateCallback)}.
+     */
+    void executeBatch();
+
+    /**
+     * Whether the underlying connection is still usable; checked by the
+     * {@link DatabaseConnectorPool} before handing out a connector that has
+     * been idle for a while.
+     */
+    boolean isValid();
+
     void setUsed(boolean isUsed);
 
     boolean isUsed();
@@ -19,30 +19,123 @@
 
 package org.apache.isis.objectstore.sql;
 
-import java.util.Vector;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import org.apache.log4j.Logger;
 
 import org.apache.isis.core.commons.debug.DebugBuilder;
 
+/**
+ * A bounded pool of {@link DatabaseConnector}s.
+ *
+ * <p>
+ * The pool holds at least its minimum number of connectors, creating more on
+ * demand up to its maximum; once that many are in use {@link #acquire()}
+ * blocks until one is {@link #release(DatabaseConnector) released}, failing
+ * with a {@link SqlObjectStoreException} if none is released within the
+ * acquire timeout.
+ *
+ * <p>
+ * Idle connectors are handed out most recently used first. A connector that
+ * has been idle for a while is {@link DatabaseConnector#isValid() validated}
+ * before being handed out (and replaced if no longer valid), and connectors
+ * beyond the minimum that have been idle for longer than the idle timeout are
+ * closed.
+ */
 public class DatabaseConnectorPool {
     private static final Logger LOG = Logger.getLogger(DatabaseConnectorPool.class);
-    private static final int AVERAGE_POOL_SIZE = 5;
+
+    public static final String BASE = SqlObjectStore.BASE_NAME + ".pool.";
+    public static final String MINIMUM_SIZE_KEY = BASE + "minsize";
+    public static final String MAXIMUM_SIZE_KEY = BASE + "maxsize";
+    public static final String ACQUIRE_TIMEOUT_KEY = BASE + "timeout";
+    public static final String IDLE_TIMEOUT_KEY = BASE + "idletimeout";
+
+    public static final int DEFAULT_MINIMUM_SIZE = 1;
+    public static final int DEFAULT_MAXIMUM_SIZE = 20;
+    public static final int DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30000;
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Connectors idle for less than this are assumed to still be valid.
+     */
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 5000;
+
+    private static class IdleConnector {
+        private final DatabaseConnector connector;
+        private final long since;
+
+        private IdleConnector(final DatabaseConnector connector, final long since) {
+            this.connector = connector;
+            this.since = since;
+        }
+    }
 
     private final DatabaseConnectorFactory factory;
-    private final Vector<DatabaseConnector> connectorPool;
+    private final int minimumSize;
+    private final int maximumSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    /**
+     * Most recently released first.
+     */
+    private final LinkedList<IdleConnector> idle = Lists.newLinkedList();
+    /**
+     * The connectors either in use or idle, plus those being created.
+     */
+    private int size;
+    private final Set<DatabaseConnector> inUse = Sets.newHashSet();
+    /**
+     * Those in use when the pool was shut down.
+     */
+    private final Set<DatabaseConnector> closeOnRelease = Sets.newHashSet();
+
+    // metrics, all guarded by lock
+    private int peakActive;
+    private long acquired;
+    private long waits;
+    private long totalWaitNanos;
+    private long maximumWaitNanos;
+    private long timeouts;
+    private long created;
+    private long invalidated;
+    private long evicted;
 
     public DatabaseConnectorPool(final DatabaseConnectorFactory factory) {
-        this(factory, AVERAGE_POOL_SIZE);
+        this(factory, DEFAULT_MINIMUM_SIZE);
     }
 
     public DatabaseConnectorPool(final DatabaseConnectorFactory factory, final int size) {
+        this(factory, size, Math.max(size, DEFAULT_MAXIMUM_SIZE), DEFAULT_ACQUIRE_TIMEOUT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public DatabaseConnectorPool(final DatabaseConnectorFactory factory, final int minimumSize, final int maximumSize, final long acquireTimeoutMillis, final long idleTimeoutMillis) {
+        if (maximumSize < 1 || minimumSize > maximumSize) {
+            throw new IllegalArgumentException("Pool size must be between " + minimumSize + " and " + maximumSize + ", with a maximum of at least 1");
+        }
         this.factory = factory;
-        connectorPool = new Vector<DatabaseConnector>();
-        for (int i = 0; i < size; i++) {
-            newConnector();
+        this.minimumSize = Math.max(minimumSize, 0);
+        this.maximumSize = maximumSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+
+        for (int i = 0; i < this.minimumSize; i++) {
+            size++;
+            idle.addLast(new IdleConnector(newConnector(), System.currentTimeMillis()));
         }
-        LOG.info("Created an intial pool of " + size + " database connections");
+        LOG.info("Created an intial pool of " + this.minimumSize + " database connections (maximum " + maximumSize + ")");
 
         final DatabaseConnector connection = acquire();
         Sql.setMetaData(connection.getMetaData());
@@ -52,54 +145,291 @@ public DatabaseConnectorPool(final DatabaseConnectorFactory factory, final int s
     private DatabaseConnector newConnector() {
         final DatabaseConnector connector = factory.createConnector();
         connector.setConnectionPool(this);
-        connectorPool.addElement(connector);
+        lock.lock();
+        try {
+            created++;
+        } finally {
+            lock.unlock();
+        }
         return connector;
     }
 
+    /**
+     * Checks out a connector, waiting for one to be released if all are in
+     * use and the pool is at its maximum size.
+     *
+     * @throws SqlObjectStoreException
+     *             if none becomes available within the acquire timeout.
+     */
     public DatabaseConnector acquire() {
-        DatabaseConnector connector = findFreeConnector();
-        if (connector == null) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        final long start = System.nanoTime();
+        boolean waited = false;
+
+        while (true) {
+            final List<DatabaseConnector> toClose = Lists.newArrayList();
+            IdleConnector candidate = null;
+            boolean create = false;
+            try {
+                lock.lock();
+                try {
+                    while (candidate == null && !create) {
+                        evictIdle(System.currentTimeMillis(), toClose);
+                        if (!idle.isEmpty()) {
+                            // checked out while being validated, so that a shutdown closes it on release
+                            candidate = idle.removeFirst();
+                            inUse.add(candidate.connector);
+                        } else if (size < maximumSize) {
+                            size++;
+                            create = true;
+                        } else if (remainingNanos <= 0) {
+                            timeouts++;
+                            throw new SqlObjectStoreException("Timed out after " + acquireTimeoutMillis + "ms waiting for a database connection; all " + maximumSize + " are in use");
+                        } else {
+                            waited = true;
+                            try {
+                                remainingNanos = released.awaitNanos(remainingNanos);
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new SqlObjectStoreException("Interrupted waiting for a database connection", e);
+                            }
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                // evicted connectors are closed outside of the lock
+                closeAll(toClose);
+            }
+
+            final DatabaseConnector connector;
+            if (create) {
+                connector = createInUse();
+                LOG.info("Added an additional database connection (maximum " + maximumSize + ")");
+            } else if (System.currentTimeMillis() - candidate.since < VALIDATE_AFTER_IDLE_MILLIS || candidate.connector.isValid()) {
+                // validated outside of the lock, as it may involve a round trip to the database
+                connector = candidate.connector;
+            } else {
+                discardInvalid(candidate.connector);
+                continue;
+            }
+
+            lock.lock();
+            try {
+                connector.setUsed(true);
+                peakActive = Math.max(peakActive, activeCount());
+                acquired++;
+                if (waited) {
+                    final long waitNanos = System.nanoTime() - start;
+                    waits++;
+                    totalWaitNanos += waitNanos;
+                    maximumWaitNanos = Math.max(maximumWaitNanos, waitNanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+            LOG.debug("acquired connection " + connector);
+            return connector;
+        }
+    }
+
+    /**
+     * Creates a connector in place of the one already counted in the pool's
+     * size, marking it as in use.
+     */
+    private DatabaseConnector createInUse() {
+        final DatabaseConnector connector;
+        try {
             connector = newConnector();
-            connector.setUsed(true);
-            LOG.info("Added an additional database connection; now contains " + connectorPool.size() + " connections");
+        } catch (final RuntimeException e) {
+            lock.lock();
+            try {
+                size--;
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        lock.lock();
+        try {
+            inUse.add(connector);
+        } finally {
+            lock.unlock();
         }
-        LOG.debug("acquired connection " + connector);
         return connector;
     }
 
-    private DatabaseConnector findFreeConnector() {
-        for (int i = 0, no = connectorPool.size(); i < no; i++) {
-            final DatabaseConnector connector = connectorPool.elementAt(i);
-            if (!connector.isUsed()) {
-                connector.setUsed(true);
-                return connector;
-            }
+    /**
+     * Removes a connector that failed validation from the pool, so that
+     * another can be created in its place, and closes it.
+     */
+    private void discardInvalid(final DatabaseConnector connector) {
+        lock.lock();
+        try {
+            inUse.remove(connector);
+            closeOnRelease.remove(connector);
+            invalidated++;
+            size--;
+            released.signal();
+        } finally {
+            lock.unlock();
         }
-        return null;
+        closeQuietly(connector);
     }
 
     public void release(final DatabaseConnector connector) {
-        connector.setUsed(false);
+        boolean close = false;
+        lock.lock();
+        try {
+            if (!inUse.remove(connector)) {
+                LOG.warn("connection released more than once: " + connector);
+                return;
+            }
+            connector.setUsed(false);
+            if (closeOnRelease.remove(connector)) {
+                size--;
+                close = true;
+            } else {
+                idle.addFirst(new IdleConnector(connector, System.currentTimeMillis()));
+                released.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (close) {
+            closeQuietly(connector);
+        }
         LOG.debug("released connection " + connector);
     }
 
+    /**
+     * Removes (into the supplied list, to be closed once the lock is released)
+     * the connectors beyond the minimum that have been idle for too long; the
+     * least recently used are at the end of the idle list.
+     */
+    private void evictIdle(final long now, final List<DatabaseConnector> toClose) {
+        while (size > minimumSize && !idle.isEmpty() && now - idle.getLast().since > idleTimeoutMillis) {
+            toClose.add(idle.removeLast().connector);
+            size--;
+            evicted++;
+        }
+    }
+
+    /**
+     * Closes any connectors that have been idle for longer than the idle
+     * timeout, so long as the pool keeps its minimum size.
+     */
+    public void evictIdle() {
+        final List<DatabaseConnector> toClose = Lists.newArrayList();
+        lock.lock();
+        try {
+            evictIdle(System.currentTimeMillis(), toClose);
+        } finally {
+            lock.unlock();
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Closes the idle connectors; those still in use are closed as they are
+     * released. The pool can still be used afterwards, creating new
+     * connectors as required.
+     */
     public void shutdown() {
-        for (int i = 0, no = connectorPool.size(); i < no; i++) {
-            final DatabaseConnector connector = connectorPool.elementAt(i);
-            try {
-                connector.close();
-            } catch (final SqlObjectStoreException e) {
-                LOG.error("Failed to release connectuion", e);
+        final List<DatabaseConnector> toClose = Lists.newArrayList();
+        lock.lock();
+        try {
+            closeOnRelease.addAll(inUse);
+            for (final IdleConnector idleConnector : idle) {
+                toClose.add(idleConnector.connector);
             }
+            size -= idle.size();
+            idle.clear();
+        } finally {
+            lock.unlock();
+        }
+        closeAll(toClose);
+    }
+
+    private static void closeAll(final List<DatabaseConnector> connectors) {
+        for (final DatabaseConnector connector : connectors) {
+            closeQuietly(connector);
+        }
+    }
+
+    private static void closeQuietly(final DatabaseConnector connector) {
+        try {
+            connector.close();
+        } catch (final SqlObjectStoreException e) {
+            LOG.error("Failed to release connectuion", e);
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // metrics
+    // //////////////////////////////////////////////////////////////
+
+    private int activeCount() {
+        return inUse.size();
+    }
+
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return activeCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPeakActiveCount() {
+        lock.lock();
+        try {
+            return peakActive;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTimeoutCount() {
+        lock.lock();
+        try {
+            return timeouts;
+        } finally {
+            lock.unlock();
         }
-        connectorPool.removeAllElements();
     }
 
     public void debug(final DebugBuilder debug) {
+        lock.lock();
+        try {
+            debug.appendln("Pool size", size + " (minimum " + minimumSize + ", maximum " + maximumSize + ")");
+            debug.appendln("Active connections", activeCount() + " (peak " + peakActive + ")");
+            debug.appendln("Idle connections", idle.size());
+            debug.appendln("Acquired", acquired);
+            debug.appendln("Waited", waits + " (total " + TimeUnit.NANOSECONDS.toMillis(totalWaitNanos) + "ms, maximum " + TimeUnit.NANOSECONDS.toMillis(maximumWaitNanos) + "ms)");
+            debug.appendln("Timed out", timeouts + " (after " + acquireTimeoutMillis + "ms)");
+            debug.appendln("Created", created);
+            debug.appendln("Invalidated", invalidated);
+            debug.appendln("Evicted", evicted + " (idle for " + idleTimeoutMillis + "ms)");
+        } finally {
+            lock.unlock();
+        }
+
         final DatabaseConnector connection = acquire();
         connection.debug(debug);
         release(connection);
-
     }
 
     public SqlMetaData getMetaData() {
@@ -21,10 +21,12 @@
 
 import java.util.Vector;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.adapter.oid.TypedOid;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryBuiltIn;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByPattern;
 
 public interface ObjectMapping {
@@ -38,6 +40,14 @@ public interface ObjectMapping {
 
     Vector<ObjectAdapter> getInstances(DatabaseConnector connector, ObjectSpecification spec, PersistenceQueryFindByPattern query);
 
+    /**
+     * The instances (of the specification itself, not its subclasses) matching
+     * the query, read from the database and adapted the specified number at a
+     * time as the cursor is iterated over. The connector is used until the
+     * cursor is closed.
+     */
+    QueryCursor<ObjectAdapter> streamInstances(DatabaseConnector connector, ObjectSpecification spec, PersistenceQueryBuiltIn query, int fetchSize);
+
     ObjectAdapter getObject(DatabaseConnector connector, TypedOid typedOid);
 
     boolean hasInstances(DatabaseConnector connector, ObjectSpecification cls);
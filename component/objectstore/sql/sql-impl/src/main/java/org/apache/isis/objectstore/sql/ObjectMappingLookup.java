@@ -86,9 +86,15 @@ public void add(final ObjectSpecification specification, final ObjectMapping map
         LOG.debug("add mapper " + mapper + " for " + specification);
         if (connection == null) {
             connection = connectionPool.acquire();
+            try {
+                mapper.startup(connection, this);
+            } finally {
+                connectionPool.release(connection);
+            }
+        } else {
+            // the caller's connection, so not for us to release
+            mapper.startup(connection, this);
         }
-        mapper.startup(connection, this);
-        connectionPool.release(connection);
         mappings.put(specification, mapper);
     }
 
@@ -19,13 +19,16 @@
 
 package org.apache.isis.objectstore.sql;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
 import com.google.common.collect.Lists;
 
 import org.apache.log4j.Logger;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.debug.DebugBuilder;
 import org.apache.isis.core.commons.debug.DebugString;
 import org.apache.isis.core.commons.ensure.IsisAssertException;
@@ -47,17 +50,19 @@
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommandContext;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.SaveObjectCommand;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryBuiltIn;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryBuiltInAbstract;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindAllInstances;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByPattern;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByTitle;
 import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.persistence.ObjectStoreStreaming;
 import org.apache.isis.core.runtime.system.persistence.PersistenceQuery;
 import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
 import org.apache.isis.core.runtime.system.transaction.MessageBroker;
 import org.apache.isis.core.runtime.system.transaction.UpdateNotifier;
 
-public final class SqlObjectStore implements ObjectStoreSpi {
+public final class SqlObjectStore implements ObjectStoreSpi, ObjectStoreStreaming {
 
     private static final String TABLE_NAME = "isis_admin_services";
     // private static final String ID_COLUMN = "id";
@@ -75,7 +80,12 @@ public String name() {
 
     @Override
     public void open() {
-        Sql.setMetaData(connectionPool.acquire().getMetaData());
+        final DatabaseConnector metaDataConnector = connectionPool.acquire();
+        try {
+            Sql.setMetaData(metaDataConnector.getMetaData());
+        } finally {
+            connectionPool.release(metaDataConnector);
+        }
 
         if (!isInitialized) {
             Defaults.initialise(BASE_NAME, IsisContext.getConfiguration());
@@ -90,25 +100,29 @@ public void open() {
         objectMappingLookup.init();
 
         final DatabaseConnector connector = connectionPool.acquire();
-        final String tableIdentifier = Sql.tableIdentifier(TABLE_NAME);
-        isInitialized = connector.hasColumn(tableIdentifier, Defaults.getPkIdLabel());
-        if (!isInitialized) {
-            if (connector.hasTable(tableIdentifier)) {
+        try {
+            final String tableIdentifier = Sql.tableIdentifier(TABLE_NAME);
+            isInitialized = connector.hasColumn(tableIdentifier, Defaults.getPkIdLabel());
+            if (!isInitialized) {
+                if (connector.hasTable(tableIdentifier)) {
+                    final StringBuffer sql = new StringBuffer();
+                    sql.append("drop table ");
+                    sql.append(tableIdentifier);
+                    connector.update(sql.toString());
+                }
                 final StringBuffer sql = new StringBuffer();
-                sql.append("drop table ");
+                sql.append("create table ");
                 sql.append(tableIdentifier);
+                sql.append(" (");
+                sql.append(Defaults.getPkIdLabel());
+                sql.append(" int, ");
+                sql.append(Defaults.getIdColumn());
+                sql.append(" varchar(255)");
+                sql.append(")");
                 connector.update(sql.toString());
             }
-            final StringBuffer sql = new StringBuffer();
-            sql.append("create table ");
-            sql.append(tableIdentifier);
-            sql.append(" (");
-            sql.append(Defaults.getPkIdLabel());
-            sql.append(" int, ");
-            sql.append(Defaults.getIdColumn());
-            sql.append(" varchar(255)");
-            sql.append(")");
-            connector.update(sql.toString());
+        } finally {
+            connectionPool.release(connector);
         }
     }
 
@@ -229,18 +243,15 @@ public void execute(final PersistenceCommandContext context) {
                 final DatabaseConnector connection = ((SqlExecutionContext) context).getConnection();
                 LOG.debug("  save object " + adapter.toString());
 
-                try {
-                    final ObjectSpecification adapterSpec = adapter.getSpecification();
-                    if (!adapterSpec.isParented()) {
-                        saveRootAdapter(adapter, connection);
-                    } else if (adapterSpec.isParentedOrFreeCollection()) {
-                        saveParentedCollectionAdapter(adapter, connection);
-                    } else {
-                        throw new NotYetImplementedException("cannot yet persist aggregated objects: "
-                            + adapter.toString());
-                    }
-                } finally {
-                    connectionPool.release(connection);
+                // the connector is released by execute(), once any batched statements have been executed
+                final ObjectSpecification adapterSpec = adapter.getSpecification();
+                if (!adapterSpec.isParented()) {
+                    saveRootAdapter(adapter, connection);
+                } else if (adapterSpec.isParentedOrFreeCollection()) {
+                    saveParentedCollectionAdapter(adapter, connection);
+                } else {
+                    throw new NotYetImplementedException("cannot yet persist aggregated objects: "
+                        + adapter.toString());
                 }
             }
 
@@ -307,9 +318,11 @@ public void execute(final List<PersistenceCommand> commands) {
         final SqlExecutionContext context =
             new SqlExecutionContext(connector, transactionManager, messageBroker, updateNotifier);
         try {
+            // consecutive commands on the same table are sent to the database as a single batch
             for (final PersistenceCommand command : commands) {
                 command.execute(context);
             }
+            connector.executeBatch();
             connector.commit();
         } catch (final IsisException e) {
             LOG.warn("Failure during execution", e);
@@ -337,6 +350,89 @@ public List<ObjectAdapter> loadInstancesAndAdapt(final PersistenceQuery query) {
         }
     }
 
+    /**
+     * Reads the instances of each specification (as for
+     * {@link #loadInstancesAndAdapt(PersistenceQuery)}) in turn, the fetch size
+     * at a time, using a single connection held until the cursor is closed.
+     */
+    @Override
+    public QueryCursor<ObjectAdapter> streamInstancesAndAdapt(final PersistenceQuery query, final int fetchSize) {
+        final List<ObjectSpecification> specs = Lists.newArrayList();
+        if (query instanceof PersistenceQueryFindByTitle) {
+            specs.add(query.getSpecification());
+        } else if (query instanceof PersistenceQueryFindAllInstances || query instanceof PersistenceQueryFindByPattern) {
+            addConcreteSpecs(query.getSpecification(), specs);
+        } else {
+            throw new SqlObjectStoreException("Query type not supported: " + query);
+        }
+        final PersistenceQueryBuiltIn builtIn = (PersistenceQueryBuiltIn) query;
+        final DatabaseConnector connector = connectionPool.acquire();
+
+        return new QueryCursor<ObjectAdapter>() {
+            private final Iterator<ObjectSpecification> remainingSpecs = specs.iterator();
+            private QueryCursor<ObjectAdapter> instances;
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                while (!closed) {
+                    if (instances != null) {
+                        if (instances.hasNext()) {
+                            return true;
+                        }
+                        instances.close();
+                        instances = null;
+                    }
+                    if (!remainingSpecs.hasNext()) {
+                        close();
+                        break;
+                    }
+                    final ObjectSpecification spec = remainingSpecs.next();
+                    final ObjectMapping mapper = objectMappingLookup.getMapping(spec, connector);
+                    instances = mapper.streamInstances(connector, spec, builtIn, fetchSize);
+                }
+                return false;
+            }
+
+            @Override
+            public ObjectAdapter next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return instances.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (instances != null) {
+                    instances.close();
+                    instances = null;
+                }
+                connectionPool.release(connector);
+            }
+        };
+    }
+
+    private static void addConcreteSpecs(final ObjectSpecification spec, final List<ObjectSpecification> specs) {
+        if (!spec.isAbstract()) {
+            specs.add(spec);
+        }
+        if (spec.hasSubclasses()) {
+            for (final ObjectSpecification subclassSpec : spec.subclasses()) {
+                addConcreteSpecs(subclassSpec, specs);
+            }
+        }
+    }
+
     private List<ObjectAdapter> findByPattern(final PersistenceQueryFindByPattern query, final long startIndex, final long rowCount) {
         final ObjectSpecification specification = query.getSpecification();// query.getPattern().getSpecification();//
                                                                            // getSpecification();
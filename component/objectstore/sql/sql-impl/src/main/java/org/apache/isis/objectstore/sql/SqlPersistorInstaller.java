@@ -74,7 +74,11 @@ public SqlObjectStore getObjectStore() {
     @Override
     public IdentifierGenerator createIdentifierGenerator(final IsisConfiguration configuration) {
         final DatabaseConnectorFactory connectorFactory = new JdbcConnectorFactory();
-        connectionPool = new DatabaseConnectorPool(connectorFactory, 1);
+        final int minimumSize = configuration.getInteger(DatabaseConnectorPool.MINIMUM_SIZE_KEY, DatabaseConnectorPool.DEFAULT_MINIMUM_SIZE);
+        final int maximumSize = configuration.getInteger(DatabaseConnectorPool.MAXIMUM_SIZE_KEY, Math.max(minimumSize, DatabaseConnectorPool.DEFAULT_MAXIMUM_SIZE));
+        final int acquireTimeout = configuration.getInteger(DatabaseConnectorPool.ACQUIRE_TIMEOUT_KEY, DatabaseConnectorPool.DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+        final int idleTimeout = configuration.getInteger(DatabaseConnectorPool.IDLE_TIMEOUT_KEY, DatabaseConnectorPool.DEFAULT_IDLE_TIMEOUT_MILLIS);
+        connectionPool = new DatabaseConnectorPool(connectorFactory, minimumSize, maximumSize, acquireTimeout, idleTimeout);
 
         return new SqlIdentifierGenerator(connectionPool);
     }
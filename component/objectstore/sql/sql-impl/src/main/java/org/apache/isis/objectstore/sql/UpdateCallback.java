@@ -0,0 +1,36 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.sql;
+
+/**
+ * Notified of the outcome of a statement added to a batch by
+ * {@link DatabaseConnector#addToBatch(String, UpdateCallback)}, once the batch
+ * has been executed.
+ */
+public interface UpdateCallback {
+
+    /**
+     * @param updateCount
+     *            the number of rows affected, or a negative number (eg
+     *            {@link java.sql.Statement#SUCCESS_NO_INFO}) if the statement
+     *            succeeded but the driver does not report the number of rows.
+     */
+    void updated(int updateCount);
+}
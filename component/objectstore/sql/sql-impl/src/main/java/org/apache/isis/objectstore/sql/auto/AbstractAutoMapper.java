@@ -57,6 +57,11 @@ public abstract class AbstractAutoMapper extends AbstractMapper {
 
     protected CollectionMapper collectionMappers[];
     protected String collectionMapperFields[];
+    /**
+     * Whether to batch-fetch each collection when loading many instances;
+     * <tt>null</tt> if not configured, in which case the query decides.
+     */
+    protected Boolean collectionBatchFetch[];
     protected boolean dbCreatesId;
 
     protected ObjectSpecification specification;
@@ -152,6 +157,7 @@ private void setupFullMapping(final FieldMappingLookup lookup, final ObjectMappi
         final ObjectAssociation[] oneToManyProperties = new ObjectAssociation[collectionFieldCount];
         collectionMappers = new CollectionMapper[collectionFieldCount];
         collectionMapperFields = new String[collectionFieldCount];
+        collectionBatchFetch = new Boolean[collectionFieldCount];
         final IsisConfiguration subset = getConfiguration().createSubset(parameterBase + ".mapper.");
 
         for (int i = 0, simpleFieldNo = 0, collectionFieldNo = 0; i < fields.size(); i++) {
@@ -215,6 +221,8 @@ private void setupFullMapping(final FieldMappingLookup lookup, final ObjectMappi
 
                     collectionMappers[collectionFieldNo] = collectionMapper;
                     collectionMapperFields[collectionFieldNo] = field.getId();
+                    final String batchFetch = subset.getString(field.getId() + ".batch-fetch");
+                    collectionBatchFetch[collectionFieldNo] = batchFetch == null ? null : Boolean.valueOf(batchFetch);
 
                 } else if (type.equals("fk-table")) {
                     final String property = parameterBase + field.getId() + ".element-type";
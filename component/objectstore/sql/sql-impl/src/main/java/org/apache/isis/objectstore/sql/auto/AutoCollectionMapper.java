@@ -121,6 +121,13 @@ public void loadInternalCollection(final DatabaseConnector connector, final Obje
         }
     }
 
+    @Override
+    public void loadInternalCollections(final DatabaseConnector connector, final List<ObjectAdapter> parents) {
+        for (final ObjectAdapter parent : parents) {
+            loadInternalCollection(connector, parent);
+        }
+    }
+
     @Override
     public boolean needsTables(final DatabaseConnector connector) {
         return !connector.hasTable(tableName);
@@ -20,12 +20,17 @@
 package org.apache.isis.objectstore.sql.auto;
 
 import java.lang.reflect.Method;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
+import com.google.common.collect.Lists;
+
 import org.apache.log4j.Logger;
 
 import org.apache.isis.applib.Identifier;
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.debug.DebugBuilder;
 import org.apache.isis.core.commons.debug.DebuggableWithTitle;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
@@ -42,7 +47,10 @@
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
 import org.apache.isis.core.runtime.persistence.ObjectNotFoundException;
 import org.apache.isis.core.runtime.persistence.PersistorUtil;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryBuiltIn;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindAllInstances;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByPattern;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByTitle;
 import org.apache.isis.core.runtime.system.context.IsisContext;
 import org.apache.isis.objectstore.sql.CollectionMapper;
 import org.apache.isis.objectstore.sql.DatabaseConnector;
@@ -55,17 +63,27 @@
 import org.apache.isis.objectstore.sql.Sql;
 import org.apache.isis.objectstore.sql.SqlObjectStoreException;
 import org.apache.isis.objectstore.sql.TitleMapping;
+import org.apache.isis.objectstore.sql.UpdateCallback;
 import org.apache.isis.objectstore.sql.VersionMapping;
 import org.apache.isis.objectstore.sql.mapping.FieldMapping;
 
 public class AutoMapper extends AbstractAutoMapper implements ObjectMapping, DebuggableWithTitle {
 
     private static final Logger LOG = Logger.getLogger(AutoMapper.class);
+    private static final int DEFAULT_FETCH_SIZE = 100;
     private final IdMapping idMapping;
     private final VersionMapping versionMapping;
     private final TitleMapping titleMapping;
     private final boolean useVersioning;
 
+    // the fixed leading part of each statement, precomputed on startup
+    private String selectSql;
+    private String resolveSql;
+    private String countSql;
+    private String insertSql;
+    private String updateSql;
+    private String deleteSql;
+
     public AutoMapper(final String className, final String parameterBase, final FieldMappingLookup lookup, final ObjectMappingLookup objectMapperLookup) {
         super(className, parameterBase, lookup, objectMapperLookup);
         idMapping = lookup.createIdMapping();
@@ -116,19 +134,7 @@ public void createObject(final DatabaseConnector connector, final ObjectAdapter
         final int versionSequence = 1;
         final Version version = createVersion(versionSequence);
 
-        final StringBuffer sql = new StringBuffer();
-        sql.append("insert into " + table + " (");
-        idMapping.appendColumnNames(sql);
-        sql.append(", ");
-        final String columnList = columnList(fieldMappingByField);
-        if (columnList.length() > 0) {
-            sql.append(columnList);
-            sql.append(", ");
-        }
-        titleMapping.appendColumnNames(sql);
-        sql.append(", ");
-        sql.append(versionMapping.insertColumns());
-        sql.append(") values (");
+        final StringBuffer sql = new StringBuffer(insertSql);
         idMapping.appendInsertValues(connector, sql, object);
         sql.append(", ");
         sql.append(values(connector, object));
@@ -137,7 +143,7 @@ public void createObject(final DatabaseConnector connector, final ObjectAdapter
         sql.append(versionMapping.insertValues(connector, version));
         sql.append(") ");
 
-        connector.insert(sql.toString());
+        connector.addToBatch(sql.toString(), null);
         object.setVersion(version);
 
         for (final CollectionMapper collectionMapper : collectionMappers) {
@@ -147,33 +153,48 @@ public void createObject(final DatabaseConnector connector, final ObjectAdapter
 
     @Override
     public void destroyObject(final DatabaseConnector connector, final ObjectAdapter adapter) {
-        final StringBuffer sql = new StringBuffer();
-        sql.append("delete from " + table + " WHERE ");
+        final StringBuffer sql = new StringBuffer(deleteSql);
         final RootOid oid = (RootOid) adapter.getOid();
         idMapping.appendWhereClause(connector, sql, oid);
         sql.append(" AND ");
         sql.append(versionMapping.whereClause(connector, adapter.getVersion()));
-        final int updateCount = connector.update(sql.toString());
-        if (updateCount == 0) {
-            LOG.info("concurrency conflict object " + this + "; no deletion performed");
-            throw new ConcurrencyException("", adapter.getOid());
-        }
+        connector.addToBatch(sql.toString(), new UpdateCallback() {
+            @Override
+            public void updated(final int updateCount) {
+                if (updateCount == 0) {
+                    LOG.info("concurrency conflict object " + AutoMapper.this + "; no deletion performed");
+                    throw new ConcurrencyException("", adapter.getOid());
+                }
+            }
+        });
     }
 
     @Override
     public Vector<ObjectAdapter> getInstances(final DatabaseConnector connector, final ObjectSpecification spec, 
             final long startIndex, final long rowCount) {
-        final StringBuffer sql = createSelectStatement();
         final Vector<ObjectAdapter> instances = new Vector<ObjectAdapter>();
-        loadInstancesToVector(connector, spec, completeSelectStatement(sql, startIndex, rowCount), instances);
+        // all instances, so likely to be many, whose collections are best batch-fetched
+        loadInstancesToVector(connector, spec, selectAllStatement(startIndex, rowCount), instances, true);
         return instances;
     }
 
+    private String selectAllStatement(final long startIndex, final long rowCount) {
+        return completeSelectStatement(createSelectStatement(), startIndex, rowCount);
+    }
+
     @Override
     public Vector<ObjectAdapter> getInstances(final DatabaseConnector connector, final ObjectSpecification spec, 
             final PersistenceQueryFindByPattern query) {
         final Vector<ObjectAdapter> instances = new Vector<ObjectAdapter>();
+        loadInstancesToVector(connector, spec, selectByPatternStatement(connector, spec, query), instances, false);
+        return instances;
+    }
 
+    /**
+     * Adds the values of the pattern to the connector's query values, as well
+     * as to the statement.
+     */
+    private String selectByPatternStatement(final DatabaseConnector connector, final ObjectSpecification spec, final PersistenceQueryFindByPattern query) {
         final StringBuffer sql = createSelectStatement();
         int initialLength = 0;
 
@@ -246,22 +267,41 @@ public Vector<ObjectAdapter> getInstances(final DatabaseConnector connector, fin
                 LOG.debug(e.getMessage());
             }
         }
-        // if (foundFields > 0) {
-        loadInstancesToVector(connector, spec, completeSelectStatement(sql, query.getStart(), query.getCount()), instances);
-        // }
-        return instances;
+        return completeSelectStatement(sql, query.getStart(), query.getCount());
     }
 
     @Override
     public Vector<ObjectAdapter> getInstances(final DatabaseConnector connector, final ObjectSpecification spec, 
             final String title, final long startIndex, final long rowCount) {
         final Vector<ObjectAdapter> instances = new Vector<ObjectAdapter>();
+        loadInstancesToVector(connector, spec, selectByTitleStatement(title, startIndex, rowCount), instances, false);
+        return instances;
+    }
 
+    private String selectByTitleStatement(final String title, final long startIndex, final long rowCount) {
         final StringBuffer sql = createSelectStatement();
         sql.append(" WHERE ");
         titleMapping.appendWhereClause(sql, title);
-        loadInstancesToVector(connector, spec, completeSelectStatement(sql, startIndex, rowCount), instances);
-        return instances;
+        return completeSelectStatement(sql, startIndex, rowCount);
+    }
+
+    @Override
+    public QueryCursor<ObjectAdapter> streamInstances(final DatabaseConnector connector, final ObjectSpecification spec, final PersistenceQueryBuiltIn query, final int fetchSize) {
+        final String selectStatement;
+        final boolean batchFetchByDefault;
+        if (query instanceof PersistenceQueryFindAllInstances) {
+            selectStatement = selectAllStatement(query.getStart(), query.getCount());
+            batchFetchByDefault = true;
+        } else if (query instanceof PersistenceQueryFindByTitle) {
+            selectStatement = selectByTitleStatement(((PersistenceQueryFindByTitle) query).getTitle(), query.getStart(), query.getCount());
+            batchFetchByDefault = false;
+        } else if (query instanceof PersistenceQueryFindByPattern) {
+            selectStatement = selectByPatternStatement(connector, spec, (PersistenceQueryFindByPattern) query);
+            batchFetchByDefault = false;
+        } else {
+            throw new SqlObjectStoreException("Query type not supported: " + query);
+        }
+        return new InstancesCursor(connector, spec, selectStatement, batchFetch(batchFetchByDefault), fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
     }
 
     @Override
@@ -271,33 +311,25 @@ public ObjectAdapter getObject(final DatabaseConnector connector, final TypedOid
         idMapping.appendWhereClause(connector, sql, (RootOid) typedOid);
         final Results rs = connector.select(completeSelectStatement(sql, 0, 0));
         final ObjectSpecification objectSpec = getSpecificationLoader().lookupBySpecId(typedOid.getObjectSpecId());
-        if (rs.next()) {
-            return loadMappedObject(connector, objectSpec, rs);
-        } else {
-            throw new ObjectNotFoundException("No object with with " + typedOid + " in table " + table);
+        try {
+            if (rs.next()) {
+                return loadMappedObject(connector, objectSpec, rs);
+            } else {
+                throw new ObjectNotFoundException("No object with with " + typedOid + " in table " + table);
+            }
+        } finally {
+            rs.close();
         }
     }
 
     @Override
     public boolean hasInstances(final DatabaseConnector connector, final ObjectSpecification cls) {
-        final String statement = "select count(*) from " + table;
-        final int instances = connector.count(statement);
+        final int instances = connector.count(countSql);
         return instances > 0;
     }
 
     private StringBuffer createSelectStatement() {
-        final StringBuffer sql = new StringBuffer();
-        sql.append("select ");
-        idMapping.appendColumnNames(sql);
-        sql.append(", ");
-        final String columnList = columnList(fieldMappingByField);
-        if (columnList.length() > 0) {
-            sql.append(columnList);
-            sql.append(", ");
-        }
-        sql.append(versionMapping.insertColumns());
-        sql.append(" from " + table);
-        return sql;
+        return new StringBuffer(selectSql);
     } /*
        * if (whereClause != null) { sql.append(" WHERE ");
        * sql.append(whereClause); } else if (whereClause != null) {
@@ -336,22 +368,23 @@ protected void loadFields(final ObjectAdapter adapter, final Results rs) {
         }
     }
 
-    // KAM
-    private void loadCollections(final DatabaseConnector connector, final ObjectAdapter instance) {
-
-        for (final CollectionMapper mapper : collectionMappers) {
-            mapper.loadInternalCollection(connector, instance);
-        }
-    }
-
-    private void loadInstancesToVector(final DatabaseConnector connector, final ObjectSpecification cls, final String selectStatment, final Vector<ObjectAdapter> instances) {
+    /**
+     * @param batchFetchByDefault
+     *            whether those collections not explicitly configured (using
+     *            <tt>mapper.&lt;field&gt;.batch-fetch</tt>) are loaded for all
+     *            the instances together once they have been read, rather than
+     *            instance by instance.
+     */
+    private void loadInstancesToVector(final DatabaseConnector connector, final ObjectSpecification cls, final String selectStatment, final Vector<ObjectAdapter> instances, final boolean batchFetchByDefault) {
         LOG.debug("loading instances from SQL " + table);
 
+        final boolean[] batchFetch = batchFetch(batchFetchByDefault);
+        final List<ObjectAdapter> resolved = Lists.newArrayList();
         try {
             final Results rs = connector.select(selectStatment);
             final int maxInstances = Defaults.getMaxInstances();
             for (int count = 0; rs.next() && count < maxInstances; count++) {
-                final ObjectAdapter instance = loadMappedObject(connector, cls, rs);
+                final ObjectAdapter instance = loadMappedObject(connector, cls, rs, batchFetch, resolved);
                 LOG.debug("  instance  " + instance);
                 instances.addElement(instance);
             }
@@ -360,15 +393,139 @@ private void loadInstancesToVector(final DatabaseConnector connector, final Obje
             // Invalid SELECT means no object found.. don't worry about it,
             // here.
         }
+
+        loadBatchFetchedCollections(connector, batchFetch, resolved);
+    }
+
+    /**
+     * Whether each collection is batch-fetched, as configured or else by
+     * default.
+     */
+    private boolean[] batchFetch(final boolean batchFetchByDefault) {
+        final boolean[] batchFetch = new boolean[collectionMappers.length];
+        for (int i = 0; i < collectionMappers.length; i++) {
+            final Boolean configured = collectionBatchFetch[i];
+            batchFetch[i] = configured == null ? batchFetchByDefault : configured.booleanValue();
+        }
+        return batchFetch;
+    }
+
+    private void loadBatchFetchedCollections(final DatabaseConnector connector, final boolean[] batchFetch, final List<ObjectAdapter> resolved) {
+        if (!resolved.isEmpty()) {
+            for (int i = 0; i < collectionMappers.length; i++) {
+                if (batchFetch[i]) {
+                    collectionMappers[i].loadInternalCollections(connector, resolved);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the instances from the results a batch at a time, loading the
+     * batch-fetched collections of each batch together before any of its
+     * instances are returned.
+     */
+    private class InstancesCursor implements QueryCursor<ObjectAdapter> {
+
+        private final DatabaseConnector connector;
+        private final ObjectSpecification spec;
+        private final boolean[] batchFetch;
+        private final int batchSize;
+        private final LinkedList<ObjectAdapter> batch = Lists.newLinkedList();
+        private Results rs;
+        private int remaining = Defaults.getMaxInstances();
+
+        public InstancesCursor(final DatabaseConnector connector, final ObjectSpecification spec, final String selectStatement, final boolean[] batchFetch, final int batchSize) {
+            this.connector = connector;
+            this.spec = spec;
+            this.batchFetch = batchFetch;
+            this.batchSize = batchSize;
+            LOG.debug("streaming instances from SQL " + table);
+            try {
+                rs = connector.select(selectStatement, batchSize);
+            } catch (final SqlObjectStoreException e) {
+                // Invalid SELECT means no object found, as for
+                // loadInstancesToVector
+                rs = null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (batch.isEmpty()) {
+                readBatch();
+            }
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public ObjectAdapter next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.removeFirst();
+        }
+
+        private void readBatch() {
+            if (rs == null) {
+                return;
+            }
+            final List<ObjectAdapter> resolved = Lists.newArrayList();
+            while (batch.size() < batchSize) {
+                if (remaining == 0 || !rs.next()) {
+                    closeResults();
+                    break;
+                }
+                remaining--;
+                final ObjectAdapter instance = loadMappedObject(connector, spec, rs, batchFetch, resolved);
+                LOG.debug("  instance  " + instance);
+                batch.add(instance);
+            }
+            loadBatchFetchedCollections(connector, batchFetch, resolved);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closeResults();
+            batch.clear();
+        }
+
+        private void closeResults() {
+            if (rs != null) {
+                rs.close();
+                rs = null;
+            }
+        }
     }
 
     private ObjectAdapter loadMappedObject(final DatabaseConnector connector, final ObjectSpecification cls, final Results rs) {
+        return loadMappedObject(connector, cls, rs, new boolean[collectionMappers.length], null);
+    }
+
+    /**
+     * @param resolved
+     *            to which the adapter is added if resolved here, so that its
+     *            batch-fetched collections can be loaded later.
+     */
+    private ObjectAdapter loadMappedObject(final DatabaseConnector connector, final ObjectSpecification cls, final Results rs, final boolean[] batchFetch, final List<ObjectAdapter> resolved) {
         final Oid oid = idMapping.recreateOid(rs, specification);
         final ObjectAdapter adapter = getAdapter(cls, oid);
 
         if (adapter.canTransitionToResolving()) {
             loadFields(adapter, rs);
-            loadCollections(connector, adapter); // KAM
+            for (int i = 0; i < collectionMappers.length; i++) {
+                if (!batchFetch[i]) {
+                    collectionMappers[i].loadInternalCollection(connector, adapter); // KAM
+                }
+            }
+            if (resolved != null) {
+                resolved.add(adapter);
+            }
         }
         return adapter;
     }
@@ -376,12 +533,7 @@ private ObjectAdapter loadMappedObject(final DatabaseConnector connector, final
     @Override
     public void resolve(final DatabaseConnector connector, final ObjectAdapter object) {
         LOG.debug("loading data from SQL " + table + " for " + object);
-        final StringBuffer sql = new StringBuffer();
-        sql.append("select ");
-        sql.append(columnList(fieldMappingByField));
-        sql.append(",");
-        sql.append(versionMapping.appendColumnNames());
-        sql.append(" from " + table + " WHERE ");
+        final StringBuffer sql = new StringBuffer(resolveSql);
         final RootOid oid = (RootOid) object.getOid();
         idMapping.appendWhereClause(connector, sql, oid);
 
@@ -415,6 +567,55 @@ public void startup(final DatabaseConnector connector, final ObjectMappingLookup
         if (needsTables(connector)) {
             createTables(connector);
         }
+        prepareSqlTemplates();
+    }
+
+    /**
+     * The column lists, and so the leading part of each statement, are fixed
+     * once the field mappers have been set up, so are built only once rather
+     * than on every call.
+     */
+    private void prepareSqlTemplates() {
+        final String columnList = columnList(fieldMappingByField);
+
+        final StringBuffer select = new StringBuffer();
+        select.append("select ");
+        idMapping.appendColumnNames(select);
+        select.append(", ");
+        if (columnList.length() > 0) {
+            select.append(columnList);
+            select.append(", ");
+        }
+        select.append(versionMapping.insertColumns());
+        select.append(" from " + table);
+        selectSql = select.toString();
+
+        final StringBuffer resolve = new StringBuffer();
+        resolve.append("select ");
+        resolve.append(columnList);
+        resolve.append(",");
+        resolve.append(versionMapping.appendColumnNames());
+        resolve.append(" from " + table + " WHERE ");
+        resolveSql = resolve.toString();
+
+        countSql = "select count(*) from " + table;
+
+        final StringBuffer insert = new StringBuffer();
+        insert.append("insert into " + table + " (");
+        idMapping.appendColumnNames(insert);
+        insert.append(", ");
+        if (columnList.length() > 0) {
+            insert.append(columnList);
+            insert.append(", ");
+        }
+        titleMapping.appendColumnNames(insert);
+        insert.append(", ");
+        insert.append(versionMapping.insertColumns());
+        insert.append(") values (");
+        insertSql = insert.toString();
+
+        updateSql = "UPDATE " + table + " SET ";
+        deleteSql = "delete from " + table + " WHERE ";
     }
 
     @Override
@@ -427,8 +628,7 @@ public void save(final DatabaseConnector connector, final ObjectAdapter adapter)
             nextSequence = version.getSequence();
         }
 
-        final StringBuffer sql = new StringBuffer();
-        sql.append("UPDATE " + table + " SET ");
+        final StringBuffer sql = new StringBuffer(updateSql);
         for (final FieldMapping mapping : fieldMappingByField.values()) {
             mapping.appendUpdateValues(connector, sql, adapter);
             sql.append(", ");
@@ -444,13 +644,17 @@ public void save(final DatabaseConnector connector, final ObjectAdapter adapter)
             sql.append(versionMapping.whereClause(connector, adapter.getVersion()));
         }
 
-        final int updateCount = connector.update(sql.toString());
-        if (updateCount == 0) {
-            LOG.info("concurrency conflict object " + this + "; no update performed");
-            throw new ConcurrencyException("", adapter.getOid());
-        } else {
-            adapter.setVersion(createVersion(nextSequence));
-        }
+        connector.addToBatch(sql.toString(), new UpdateCallback() {
+            @Override
+            public void updated(final int updateCount) {
+                if (updateCount == 0) {
+                    LOG.info("concurrency conflict object " + AutoMapper.this + "; no update performed");
+                    throw new ConcurrencyException("", adapter.getOid());
+                } else {
+                    adapter.setVersion(createVersion(nextSequence));
+                }
+            }
+        });
 
         // TODO update collections - change only when needed rather than
         // reinserting from scratch
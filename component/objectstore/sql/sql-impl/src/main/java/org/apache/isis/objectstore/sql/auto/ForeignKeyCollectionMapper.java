@@ -24,6 +24,10 @@
 import java.util.List;
 import java.util.Map;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 import org.apache.log4j.Logger;
 
 import org.apache.isis.core.commons.debug.DebugBuilder;
@@ -55,6 +59,13 @@
  */
 public class ForeignKeyCollectionMapper extends AbstractAutoMapper implements CollectionMapper {
     private static final Logger LOG = Logger.getLogger(ForeignKeyCollectionMapper.class);
+
+    /**
+     * The maximum number of parents whose collections are loaded by a single
+     * <tt>IN (...)</tt> query.
+     */
+    protected static final int BATCH_FETCH_SIZE = 100;
+
     private final ObjectAssociation field;
     private final IdMapping idMapping;
     private final VersionMapping versionMapping;
@@ -227,6 +238,135 @@ public void loadInternalCollection(final DatabaseConnector connector, final Obje
         }
     }
 
+    /**
+     * Loads the collections of the parents a page at a time, each page with
+     * a single query selecting the elements whose foreign key is
+     * <tt>IN</tt> the page's parents.
+     */
+    @Override
+    public void loadInternalCollections(final DatabaseConnector connector, final List<ObjectAdapter> parents) {
+        if (!supportsBatchFetch()) {
+            for (final ObjectAdapter parent : parents) {
+                loadInternalCollection(connector, parent);
+            }
+            return;
+        }
+
+        final List<ObjectAdapter> toLoad = Lists.newArrayList();
+        for (final ObjectAdapter parent : Sets.newLinkedHashSet(parents)) {
+            if (field.get(parent).canTransitionToResolving()) {
+                toLoad.add(parent);
+            }
+        }
+        for (int start = 0; start < toLoad.size(); start += BATCH_FETCH_SIZE) {
+            final List<ObjectAdapter> page = toLoad.subList(start, Math.min(start + BATCH_FETCH_SIZE, toLoad.size()));
+            if (page.size() == 1) {
+                loadInternalCollection(connector, page.get(0));
+            } else {
+                loadInternalCollectionsForPage(connector, page);
+            }
+        }
+    }
+
+    private void loadInternalCollectionsForPage(final DatabaseConnector connector, final List<ObjectAdapter> parents) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("loading internal collection " + field + " for " + parents.size() + " parents");
+        }
+        final Map<String, ObjectAdapter> parentByKey = Maps.newHashMap();
+        final Map<String, List<ObjectAdapter>> elementsByKey = Maps.newLinkedHashMap();
+        for (final ObjectAdapter parent : parents) {
+            final String key = ((RootOid) parent.getOid()).getIdentifier();
+            parentByKey.put(key, parent);
+            elementsByKey.put(key, new ArrayList<ObjectAdapter>());
+        }
+
+        final List<ObjectAdapter> collectionAdapters = Lists.newArrayList();
+        try {
+            for (final ObjectAdapter parent : parents) {
+                final ObjectAdapter collectionAdapter = field.get(parent);
+                PersistorUtil.startResolving(collectionAdapter);
+                collectionAdapters.add(collectionAdapter);
+            }
+
+            final StringBuffer sql = new StringBuffer();
+            sql.append("select ");
+            getIdMapping().appendColumnNames(sql);
+            sql.append(", ");
+            final String columnList = columnList(fieldMappingByField);
+            if (columnList.length() > 0) {
+                sql.append(columnList);
+                sql.append(", ");
+            }
+            sql.append(versionMapping.appendColumnNames());
+            sql.append(", ");
+            foreignKeyMapping.appendColumnNames(sql);
+            sql.append(" from ");
+            sql.append(table);
+            sql.append(" where ");
+            foreignKeyMapping.appendColumnNames(sql);
+            sql.append(" IN (");
+            int count = 0;
+            for (final String key : parentByKey.keySet()) {
+                if (count++ > 0) {
+                    sql.append(",");
+                }
+                sql.append("?");
+                connector.addToQueryValues(key);
+            }
+            sql.append(")");
+
+            final Results rs = connector.select(sql.toString());
+            while (rs.next()) {
+                final RootOid parentOid = (RootOid) foreignKeyMapping.recreateOid(rs, specification);
+                final List<ObjectAdapter> elements = elementsByKey.get(parentOid.getIdentifier());
+                if (elements == null) {
+                    continue;
+                }
+                final Oid oid = getIdMapping().recreateOid(rs, specification);
+                final ObjectAdapter element = getAdapter(specification, oid);
+                loadFields(element, rs, fieldMappingByField);
+                LOG.debug("  element  " + element.getOid());
+                elements.add(element);
+            }
+            rs.close();
+
+            for (int i = 0; i < parents.size(); i++) {
+                final ObjectAdapter collectionAdapter = collectionAdapters.get(i);
+                final List<ObjectAdapter> list = elementsByKey.get(((RootOid) parents.get(i).getOid()).getIdentifier());
+                final CollectionFacet collectionFacet =
+                    collectionAdapter.getSpecification().getFacet(CollectionFacet.class);
+                collectionFacet.init(collectionAdapter, list.toArray(new ObjectAdapter[list.size()]));
+            }
+        } finally {
+            for (final ObjectAdapter collectionAdapter : collectionAdapters) {
+                PersistorUtil.toEndState(collectionAdapter);
+            }
+        }
+
+        // as per loadInternalCollection, elements that are themselves parents
+        // have their collections loaded too; as a batch, level by level
+        final List<ObjectAdapter> children = Lists.newArrayList();
+        for (final ObjectAdapter parent : parents) {
+            for (final ObjectAdapter element : elementsByKey.get(((RootOid) parent.getOid()).getIdentifier())) {
+                if (element.getSpecification().isOfType(parent.getSpecification())) {
+                    children.add(element);
+                }
+            }
+        }
+        if (!children.isEmpty()) {
+            loadInternalCollections(connector, children);
+        }
+    }
+
+    /**
+     * Whether the collections of many parents can be loaded with a single
+     * query; overridden to return <tt>false</tt> by those mappers whose
+     * elements are spread over several tables.
+     */
+    protected boolean supportsBatchFetch() {
+        return true;
+    }
+
     protected void loadCollectionIntoList(final DatabaseConnector connector, final ObjectAdapter parent,
         final String table, final ObjectSpecification specification, final IdMappingAbstract idMappingAbstract,
         final Map<ObjectAssociation, FieldMapping> fieldMappingByField, final VersionMapping versionMapping,
@@ -191,6 +191,11 @@ public IdMappingAbstract getIdMapping() {
         return polyIdMapper;
     }
 
+    @Override
+    protected boolean supportsBatchFetch() {
+        return false;
+    }
+
     @Override
     protected void loadCollectionIntoList(final DatabaseConnector connector, final ObjectAdapter parent,
         final String table, final ObjectSpecification specification, final IdMappingAbstract idMappingAbstract,
@@ -183,6 +183,11 @@ public void remove() {
         }
     }
 
+    @Override
+    protected boolean supportsBatchFetch() {
+        return false;
+    }
+
     @Override
     protected void loadCollectionIntoList(final DatabaseConnector connector, final ObjectAdapter parent, final String table, final ObjectSpecification specification, final IdMappingAbstract idMappingAbstract, final Map<ObjectAssociation, FieldMapping> fieldMappingByField, final VersionMapping versionMapping,
             final List<ObjectAdapter> superList) {
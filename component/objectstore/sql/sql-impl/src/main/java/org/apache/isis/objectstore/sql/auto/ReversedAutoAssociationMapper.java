@@ -131,6 +131,13 @@ public void loadInternalCollection(final DatabaseConnector connector, final Obje
 
     }
 
+    @Override
+    public void loadInternalCollections(final DatabaseConnector connector, final List<ObjectAdapter> parents) {
+        for (final ObjectAdapter parent : parents) {
+            loadInternalCollection(connector, parent);
+        }
+    }
+
     protected void loadFields(final ObjectAdapter object, final Results rs) {
         try {
             PersistorUtil.startResolving(object);
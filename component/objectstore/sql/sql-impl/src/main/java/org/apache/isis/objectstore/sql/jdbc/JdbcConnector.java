@@ -26,9 +26,12 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.common.collect.Lists;
+
 import org.apache.log4j.Logger;
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDate;
@@ -41,11 +44,35 @@
 import org.apache.isis.objectstore.sql.SqlMetaData;
 import org.apache.isis.objectstore.sql.SqlObjectStore;
 import org.apache.isis.objectstore.sql.SqlObjectStoreException;
+import org.apache.isis.objectstore.sql.UpdateCallback;
 
 public class JdbcConnector extends AbstractDatabaseConnector {
     private static final Logger LOG = Logger.getLogger(JdbcConnector.class);
+
+    /**
+     * The number of statements executed in a single JDBC batch; a value of 1 or
+     * less disables batching. Configured using
+     * <tt>isis.persistor.sql.jdbc.batchsize</tt>.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * The number of prepared statements cached (by sql text); a value of 0
+     * disables caching. Configured using
+     * <tt>isis.persistor.sql.jdbc.statementcache</tt>.
+     */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 100;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
     private Connection connection;
     private final String baseName;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private PreparedStatementCache statementCache = new PreparedStatementCache(DEFAULT_STATEMENT_CACHE_SIZE);
+
+    private PreparedStatement batchStatement;
+    private String batchSql;
+    private final List<UpdateCallback> batchCallbacks = Lists.newArrayList();
 
     public JdbcConnector() {
         baseName = SqlObjectStore.BASE_NAME;
@@ -57,6 +84,8 @@ public JdbcConnector(final String propertyBase) {
 
     @Override
     public void close() {
+        discardBatch();
+        statementCache.clear();
         try {
             if (connection != null) {
                 LOG.info("close");
@@ -69,16 +98,37 @@ public void close() {
         }
     }
 
+    @Override
+    public boolean isValid() {
+        if (connection == null) {
+            return false;
+        }
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (final SQLException e) {
+            return false;
+        } catch (final AbstractMethodError e) {
+            // pre-JDBC 4 driver
+            try {
+                return !connection.isClosed();
+            } catch (final SQLException e2) {
+                return false;
+            }
+        }
+    }
+
     @Override
     public int count(final String sql) {
+        executeBatch();
         LOG.debug("SQL: " + sql);
         PreparedStatement statement;
         try {
-            statement = connection.prepareStatement(sql);
+            statement = prepareStatement(sql);
             final ResultSet result = statement.executeQuery();
             result.next();
             final int count = result.getInt(1);
-            statement.close();
+            result.close();
+            closeIfNotCached(sql, statement);
             return count;
         } catch (final SQLException e) {
             throw new SqlObjectStoreException("Failed count", e);
@@ -99,6 +149,8 @@ public void open() {
             final String url = params.getString(BASE + "connection");
             final String user = params.getString(BASE + "user");
             final String password = params.getString(BASE + "password");
+            batchSize = params.getInteger(BASE + "batchsize", DEFAULT_BATCH_SIZE);
+            statementCache = new PreparedStatementCache(params.getInteger(BASE + "statementcache", DEFAULT_STATEMENT_CACHE_SIZE));
 
             if (connection != null) {
                 throw new SqlObjectStoreException("Connection already established");
@@ -177,12 +229,29 @@ private static Connection getConnection(final String url, final String user, fin
 
     @Override
     public Results select(final String sql) {
+        return select(sql, 0);
+    }
+
+    @Override
+    public Results select(final String sql, final int fetchSize) {
+        executeBatch();
         LOG.debug("SQL: " + sql);
         PreparedStatement statement;
         try {
-            statement = connection.prepareStatement(sql);
+            statement = prepareStatement(sql);
             addPreparedValues(statement);
-            return new JdbcResults(statement.executeQuery());
+            final ResultSet results;
+            if (fetchSize > 0) {
+                // the statement may be cached, so is restored for its next use
+                final int previousFetchSize = statement.getFetchSize();
+                statement.setFetchSize(fetchSize);
+                results = statement.executeQuery();
+                statement.setFetchSize(previousFetchSize);
+            } else {
+                results = statement.executeQuery();
+            }
+            statementCache.executed(sql, statement, results);
+            return new JdbcResults(results);
         } catch (final SQLException e) {
             throw new SqlObjectStoreException(e);
         } finally {
@@ -195,13 +264,14 @@ public int update(final String sql) {
         if (sql.length() == 0) {
             return 0;
         }
+        executeBatch();
         LOG.debug("SQL: " + sql);
         PreparedStatement statement;
         try {
-            statement = connection.prepareStatement(sql);
+            statement = prepareStatement(sql);
             addPreparedValues(statement);
             final int updateCount = statement.executeUpdate();
-            statement.close();
+            closeIfNotCached(sql, statement);
             return updateCount;
         } catch (final SQLException e) {
             LOG.error("failed to execute " + sql, e);
@@ -211,6 +281,99 @@ public int update(final String sql) {
         }
     }
 
+    @Override
+    public void addToBatch(final String sql, final UpdateCallback callback) {
+        if (batchSize <= 1) {
+            final int updateCount = update(sql);
+            if (callback != null) {
+                callback.updated(updateCount);
+            }
+            return;
+        }
+        if (!sql.equals(batchSql)) {
+            executeBatch();
+        }
+        try {
+            if (batchStatement == null) {
+                LOG.debug("SQL (batched): " + sql);
+                batchStatement = prepareStatement(sql);
+                batchSql = sql;
+            }
+            addPreparedValues(batchStatement);
+            batchStatement.addBatch();
+            batchCallbacks.add(callback);
+        } catch (final SQLException e) {
+            LOG.error("failed to add to batch " + sql, e);
+            discardBatch();
+            throw new SqlObjectStoreException("SQL error: " + e.toString(), e);
+        } finally {
+            clearPreparedValues();
+        }
+        if (batchCallbacks.size() >= batchSize) {
+            executeBatch();
+        }
+    }
+
+    @Override
+    public void executeBatch() {
+        if (batchStatement == null) {
+            return;
+        }
+        final List<UpdateCallback> callbacks = Lists.newArrayList(batchCallbacks);
+        final String sql = batchSql;
+        final int[] updateCounts;
+        try {
+            LOG.debug("executing batch of " + callbacks.size() + ": " + sql);
+            updateCounts = batchStatement.executeBatch();
+        } catch (final SQLException e) {
+            LOG.error("failed to execute batch " + sql, e);
+            throw new SqlObjectStoreException("SQL error: " + e.toString(), e);
+        } finally {
+            discardBatch();
+        }
+        // notify only once the batch is cleared down, since a callback may throw
+        for (int i = 0; i < callbacks.size(); i++) {
+            final UpdateCallback callback = callbacks.get(i);
+            if (callback != null) {
+                callback.updated(i < updateCounts.length ? updateCounts[i] : Statement.SUCCESS_NO_INFO);
+            }
+        }
+    }
+
+    private void discardBatch() {
+        if (batchStatement != null) {
+            try {
+                if (statementCache.isCached(batchSql, batchStatement)) {
+                    batchStatement.clearBatch();
+                } else {
+                    batchStatement.close();
+                }
+            } catch (final SQLException e) {
+                LOG.warn("failed to close batch statement", e);
+            }
+        }
+        batchStatement = null;
+        batchSql = null;
+        batchCallbacks.clear();
+    }
+
+    private PreparedStatement prepareStatement(final String sql) throws SQLException {
+        final PreparedStatement cachedStatement = statementCache.get(sql);
+        if (cachedStatement != null) {
+            cachedStatement.clearParameters();
+            return cachedStatement;
+        }
+        final PreparedStatement statement = connection.prepareStatement(sql);
+        statementCache.put(sql, statement);
+        return statement;
+    }
+
+    private void closeIfNotCached(final String sql, final PreparedStatement statement) throws SQLException {
+        if (!statementCache.isCached(sql, statement)) {
+            statement.close();
+        }
+    }
+
     private void clearPreparedValues() {
         queryValues.clear();
     }
@@ -290,14 +453,15 @@ public void insert(final String sql) {
 
     @Override
     public void insert(final String sql, final Object oid) {
+        executeBatch();
         LOG.debug("SQL: " + sql);
         PreparedStatement statement;
         try {
-            statement = connection.prepareStatement(sql);
+            statement = prepareStatement(sql);
             statement.executeUpdate();
             /*
              * require 3.0 ResultSet rs = statement.getGeneratedKeys(); if(rs.next()) { int id = rs.getInt(1); }
-             */statement.close();
+             */closeIfNotCached(sql, statement);
         } catch (final SQLException e) {
             throw new SqlObjectStoreException("SQL error", e);
         }
@@ -310,6 +474,7 @@ public Connection getConnection() {
     @Override
     public void commit() {
         try {
+            executeBatch();
             LOG.debug("commit");
             connection.commit();
             connection.setAutoCommit(true);
@@ -333,6 +498,7 @@ public void begin() {
     @Override
     public void rollback() {
         try {
+            discardBatch();
             LOG.debug("rollback");
             connection.rollback();
             connection.setAutoCommit(true);
@@ -374,6 +540,8 @@ public void debug(final DebugBuilder debug) {
             debug.appendln("Upper case quoted", metaData.storesUpperCaseQuotedIdentifiers());
             debug.appendln("Max table name length", metaData.getMaxTableNameLength());
             debug.appendln("Max column name length", metaData.getMaxColumnNameLength());
+            debug.appendln("Batch size", batchSize);
+            statementCache.debugData(debug);
 
         } catch (final SQLException e) {
             throw new SqlObjectStoreException("Metadata error", e);
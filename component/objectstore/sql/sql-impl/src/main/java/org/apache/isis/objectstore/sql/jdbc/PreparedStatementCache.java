@@ -0,0 +1,218 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.sql.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+
+import org.apache.log4j.Logger;
+
+import org.apache.isis.core.commons.debug.DebugBuilder;
+
+/**
+ * A least-recently-used cache of the {@link PreparedStatement}s of a single
+ * {@link JdbcConnector}, keyed by their sql text.
+ * 
+ * <p>
+ * A cached statement whose last {@link ResultSet} is still open is not handed
+ * out again (since re-executing it would close those results); the connector
+ * prepares an uncached statement instead. Likewise such a statement is not
+ * closed when evicted, but only once its results have been closed (or the
+ * cache is cleared).
+ * 
+ * <p>
+ * Not thread-safe, any more than the connector (and its connection) is.
+ */
+class PreparedStatementCache {
+
+    private static final Logger LOG = Logger.getLogger(PreparedStatementCache.class);
+
+    private static class Entry {
+        private final PreparedStatement statement;
+        private ResultSet results;
+
+        private Entry(final PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final int maximumSize;
+    private final Map<String, Entry> entryBySql;
+    /**
+     * Evicted entries whose results were still open at the time, and so whose
+     * statements are yet to be closed.
+     */
+    private final List<Entry> evictedBusy = Lists.newArrayList();
+
+    private long hits;
+    private long misses;
+    private long busy;
+    private long evictions;
+
+    PreparedStatementCache(final int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.entryBySql = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() <= PreparedStatementCache.this.maximumSize) {
+                    return false;
+                }
+                evictions++;
+                final Entry entry = eldest.getValue();
+                // closing the statement would also close any results still being read
+                if (isOpen(entry.results)) {
+                    evictedBusy.add(entry);
+                } else {
+                    close(entry.statement);
+                }
+                return true;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maximumSize > 0;
+    }
+
+    /**
+     * The cached statement for this sql, or <tt>null</tt> if none is cached or
+     * if it is still in use.
+     */
+    public PreparedStatement get(final String sql) {
+        closeEvictedIdle();
+        final Entry entry = entryBySql.get(sql);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isOpen(entry.results)) {
+            busy++;
+            return null;
+        }
+        hits++;
+        entry.results = null;
+        return entry.statement;
+    }
+
+    /**
+     * Caches the statement (if there is no statement cached for this sql
+     * already, and the cache is enabled).
+     * 
+     * @return whether the statement was cached.
+     */
+    public boolean put(final String sql, final PreparedStatement statement) {
+        closeEvictedIdle();
+        if (!isEnabled() || entryBySql.containsKey(sql)) {
+            return false;
+        }
+        entryBySql.put(sql, new Entry(statement));
+        return true;
+    }
+
+    /**
+     * Records the results of executing a cached statement, so that it is not
+     * reused until they have been closed.
+     */
+    public void executed(final String sql, final PreparedStatement statement, final ResultSet results) {
+        final Entry entry = entryBySql.get(sql);
+        if (entry != null && entry.statement == statement) {
+            entry.results = results;
+        }
+    }
+
+    public boolean isCached(final String sql, final PreparedStatement statement) {
+        final Entry entry = entryBySql.get(sql);
+        return entry != null && entry.statement == statement;
+    }
+
+    public void clear() {
+        for (final Entry entry : entryBySql.values()) {
+            close(entry.statement);
+        }
+        entryBySql.clear();
+        for (final Entry entry : evictedBusy) {
+            close(entry.statement);
+        }
+        evictedBusy.clear();
+    }
+
+    private void closeEvictedIdle() {
+        if (evictedBusy.isEmpty()) {
+            return;
+        }
+        final Iterator<Entry> iterator = evictedBusy.iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (!isOpen(entry.results)) {
+                close(entry.statement);
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean isOpen(final ResultSet results) {
+        if (results == null) {
+            return false;
+        }
+        try {
+            return !results.isClosed();
+        } catch (final SQLException e) {
+            return true;
+        } catch (final AbstractMethodError e) {
+            // pre-JDBC 4 driver, so cannot tell
+            return true;
+        }
+    }
+
+    private static void close(final PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (final SQLException e) {
+            LOG.warn("failed to close statement", e);
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // debugging
+    // //////////////////////////////////////////////////////////////
+
+    public double getHitRatio() {
+        final long requests = hits + misses + busy;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    public void debugData(final DebugBuilder debug) {
+        debug.appendln("Statement cache size", entryBySql.size() + " of " + maximumSize);
+        debug.appendln("Statement cache hits", hits);
+        debug.appendln("Statement cache misses", misses);
+        debug.appendln("Statement cache busy", busy);
+        debug.appendln("Statement cache evictions", evictions);
+        debug.appendln("Statement cache evicted but busy", evictedBusy.size());
+        debug.appendln("Statement cache hit ratio", getHitRatio());
+    }
+}
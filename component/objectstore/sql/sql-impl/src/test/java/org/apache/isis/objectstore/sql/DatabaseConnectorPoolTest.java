@@ -0,0 +1,188 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.sql;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DatabaseConnectorPoolTest {
+
+    private final List<DatabaseConnector> created = Lists.newCopyOnWriteArrayList();
+
+    private final DatabaseConnectorFactory factory = new DatabaseConnectorFactory() {
+        @Override
+        public DatabaseConnector createConnector() {
+            final DatabaseConnector connector = mock(DatabaseConnector.class);
+            when(connector.isValid()).thenReturn(true);
+            created.add(connector);
+            return connector;
+        }
+    };
+
+    private DatabaseConnectorPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        Logger.getRootLogger().setLevel(Level.OFF);
+    }
+
+    @Test
+    public void createsMinimumSizeUpFront() throws Exception {
+        pool = new DatabaseConnectorPool(factory, 3, 5, 100, 60000);
+
+        assertThat(created.size(), is(3));
+        assertThat(pool.getIdleCount(), is(3));
+        assertThat(pool.getActiveCount(), is(0));
+    }
+
+    @Test
+    public void reusesMostRecentlyReleased() throws Exception {
+        pool = new DatabaseConnectorPool(factory, 2, 2, 100, 60000);
+
+        final DatabaseConnector first = pool.acquire();
+        final DatabaseConnector second = pool.acquire();
+        assertThat(first, is(not(sameInstance(second))));
+        pool.release(first);
+
+        assertThat(pool.acquire(), is(sameInstance(first)));
+    }
+
+    @Test
+    public void growsOnDemandUpToMaximumThenTimesOut() throws Exception {
+        pool = new DatabaseConnectorPool(factory, 1, 2, 50, 60000);
+
+        pool.acquire();
+        pool.acquire();
+        assertThat(created.size(), is(2));
+        try {
+            pool.acquire();
+            fail();
+        } catch (final SqlObjectStoreException expected) {
+        }
+        assertThat(pool.getTimeoutCount(), is(1L));
+        assertThat(created.size(), is(2));
+    }
+
+    @Test
+    public void releasingTwiceDoesNotHandOutConnectorTwice() throws Exception {
+        pool = new DatabaseConnectorPool(factory, 1, 2, 50, 60000);
+
+        final DatabaseConnector connector = pool.acquire();
+        pool.release(connector);
+        pool.release(connector);
+
+        assertThat(pool.acquire(), is(sameInstance(connector)));
+        assertThat(pool.acquire(), is(not(sameInstance(connector))));
+    }
+
+    @Test
+    public void evictsConnectorsIdleBeyondMinimum() throws Exception {
+        pool = new DatabaseConnectorPool(factory, 1, 3, 50, 1);
+
+        final DatabaseConnector first = pool.acquire();
+        final DatabaseConnector second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        Thread.sleep(10);
+
+        pool.evictIdle();
+
+        assertThat(pool.getIdleCount(), is(1));
+        verify(first).close();
+        verify(second, never()).close();
+    }
+
+    @Test
+    public void shutdownClosesConnectorsInUseWhenReleased() throws Exception {
+        pool = new DatabaseConnectorPool(factory, 2, 2, 50, 60000);
+        final DatabaseConnector inUse = pool.acquire();
+
+        pool.shutdown();
+        verify(inUse, never()).close();
+
+        pool.release(inUse);
+        verify(inUse).close();
+        assertThat(pool.getIdleCount(), is(0));
+    }
+
+    @Test
+    public void concurrentAcquireNeverSharesConnector() throws Exception {
+        final int maximumSize = 4;
+        final int threads = 16;
+        final int iterations = 500;
+        pool = new DatabaseConnectorPool(factory, 1, maximumSize, 10000, 60000);
+
+        final ConcurrentMap<DatabaseConnector, Thread> holders = new ConcurrentHashMap<DatabaseConnector, Thread>();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            final DatabaseConnector connector = pool.acquire();
+                            if (holders.putIfAbsent(connector, this) != null) {
+                                failures.incrementAndGet();
+                            }
+                            Thread.yield();
+                            holders.remove(connector);
+                            pool.release(connector);
+                        }
+                    } catch (final Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+
+        assertThat(failures.get(), is(0));
+        assertThat(created.size(), is(lessThanOrEqualTo(maximumSize)));
+        assertThat(pool.getPeakActiveCount(), is(lessThanOrEqualTo(maximumSize)));
+        assertThat(pool.getActiveCount(), is(0));
+        assertThat(pool.getTimeoutCount(), is(0L));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.sql.jdbc;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PreparedStatementCacheTest {
+
+    private PreparedStatementCache cache;
+    private PreparedStatement statement1;
+    private PreparedStatement statement2;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new PreparedStatementCache(1);
+        statement1 = mock(PreparedStatement.class);
+        statement2 = mock(PreparedStatement.class);
+    }
+
+    @Test
+    public void returnsCachedStatement() throws Exception {
+        assertThat(cache.get("select 1"), is(nullValue()));
+        cache.put("select 1", statement1);
+
+        assertThat(cache.get("select 1"), is(sameInstance(statement1)));
+        assertThat(cache.getHitRatio(), is(0.5));
+    }
+
+    @Test
+    public void doesNotReturnStatementWhileItsResultsAreOpen() throws Exception {
+        final ResultSet results = mock(ResultSet.class);
+        cache.put("select 1", statement1);
+        cache.executed("select 1", statement1, results);
+
+        when(results.isClosed()).thenReturn(false);
+        assertThat(cache.get("select 1"), is(nullValue()));
+
+        when(results.isClosed()).thenReturn(true);
+        assertThat(cache.get("select 1"), is(sameInstance(statement1)));
+    }
+
+    @Test
+    public void evictsAndClosesLeastRecentlyUsed() throws Exception {
+        cache.put("select 1", statement1);
+        cache.put("select 2", statement2);
+
+        assertThat(cache.isCached("select 1", statement1), is(false));
+        assertThat(cache.isCached("select 2", statement2), is(true));
+        verify(statement1).close();
+        verify(statement2, never()).close();
+    }
+
+    @Test
+    public void closesEvictedStatementOnlyOnceItsResultsAreClosed() throws Exception {
+        final ResultSet results = mock(ResultSet.class);
+        when(results.isClosed()).thenReturn(false);
+        cache.put("select 1", statement1);
+        cache.executed("select 1", statement1, results);
+        cache.put("select 2", statement2);
+
+        assertThat(cache.isCached("select 1", statement1), is(false));
+        verify(statement1, never()).close();
+
+        when(results.isClosed()).thenReturn(true);
+        cache.get("select 2");
+        verify(statement1).close();
+    }
+
+    @Test
+    public void clearClosesEvictedStatementsWithOpenResults() throws Exception {
+        final ResultSet results = mock(ResultSet.class);
+        when(results.isClosed()).thenReturn(false);
+        cache.put("select 1", statement1);
+        cache.executed("select 1", statement1, results);
+        cache.put("select 2", statement2);
+        cache.clear();
+
+        verify(statement1).close();
+        verify(statement2).close();
+    }
+
+    @Test
+    public void doesNotCacheWhenDisabled() throws Exception {
+        cache = new PreparedStatementCache(0);
+
+        assertThat(cache.put("select 1", statement1), is(false));
+        assertThat(cache.get("select 1"), is(nullValue()));
+    }
+
+    @Test
+    public void clearClosesAllStatements() throws Exception {
+        cache.put("select 1", statement1);
+        cache.clear();
+
+        verify(statement1).close();
+        assertThat(cache.isCached("select 1", statement1), is(false));
+    }
+}
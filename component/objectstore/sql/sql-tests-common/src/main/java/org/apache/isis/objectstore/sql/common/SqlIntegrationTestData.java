@@ -617,11 +617,6 @@ private void testFindByMatchEntity() {
 
         final List<SimpleClass> classes = factory.allSimpleClassesThatMatch(simpleClassMatch);
 
-        // TODO: Why is this hack required?
-        if (!getProperties().getProperty("isis.persistor").equals("in-memory")) {
-            assertEquals(Data.stringList1.size(), classes.size());
-        } else {
-            assertEquals(Data.stringList1.size() + 2, classes.size());
-        }
+        assertEquals(Data.stringList1.size(), classes.size());
     }
 }
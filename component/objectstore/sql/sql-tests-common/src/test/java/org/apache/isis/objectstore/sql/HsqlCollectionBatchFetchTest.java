@@ -0,0 +1,304 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.sql;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.value.Color;
+import org.apache.isis.applib.value.Date;
+import org.apache.isis.applib.value.DateTime;
+import org.apache.isis.applib.value.Image;
+import org.apache.isis.applib.value.Money;
+import org.apache.isis.applib.value.Password;
+import org.apache.isis.applib.value.Percentage;
+import org.apache.isis.applib.value.Time;
+import org.apache.isis.applib.value.TimeStamp;
+import org.apache.isis.core.commons.config.IsisConfigurationDefault;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures.Fixtures.Initialization;
+import org.apache.isis.core.tck.dom.poly.SelfReferencingEntity;
+import org.apache.isis.core.tck.dom.sqlos.SqlDomainObjectRepository;
+import org.apache.isis.core.tck.dom.sqlos.data.SimpleClass;
+import org.apache.isis.core.tck.dom.sqlos.data.SqlDataClass;
+import org.apache.isis.core.unittestsupport.files.Files;
+import org.apache.isis.core.unittestsupport.files.Files.Recursion;
+import org.apache.isis.objectstore.sql.auto.ForeignKeyCollectionMapper;
+
+public class HsqlCollectionBatchFetchTest {
+
+    private static final String MAPPER = SqlObjectStore.BASE_NAME + ".automapper.default.mapper.";
+    private static final String[] ROOTS = { "A", "B", "C" };
+    private static final Pattern BATCH = Pattern.compile("loading internal collection .*id=(\\w+),.* for (\\d+) parents");
+
+    /**
+     * Records the size of each batch fetch, per collection, as logged by
+     * {@link ForeignKeyCollectionMapper}.
+     */
+    private static class BatchFetchAppender extends AppenderSkeleton {
+        private final List<String> batches = Lists.newArrayList();
+
+        @Override
+        protected void append(final LoggingEvent event) {
+            final Matcher matcher = BATCH.matcher(event.getRenderedMessage());
+            if (matcher.matches()) {
+                batches.add(matcher.group(1) + ":" + matcher.group(2));
+            }
+        }
+
+        List<Integer> batchSizesFor(final String fieldId) {
+            final List<Integer> sizes = Lists.newArrayList();
+            for (final String batch : batches) {
+                if (batch.startsWith(fieldId + ":")) {
+                    sizes.add(Integer.valueOf(batch.substring(fieldId.length() + 1)));
+                }
+            }
+            return sizes;
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final Logger mapperLogger = Logger.getLogger(ForeignKeyCollectionMapper.class);
+    private final BatchFetchAppender appender = new BatchFetchAppender();
+
+    private IsisSystemWithFixtures system;
+    private SqlDomainObjectRepository repository;
+
+    @Before
+    public void setUpLogging() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        mapperLogger.setLevel(Level.DEBUG);
+        mapperLogger.setAdditivity(false);
+        mapperLogger.addAppender(appender);
+    }
+
+    @After
+    public void tearDownSystem() throws Exception {
+        mapperLogger.removeAppender(appender);
+        mapperLogger.setAdditivity(true);
+        mapperLogger.setLevel(null);
+        if (system != null) {
+            system.tearDownSystem();
+        }
+    }
+
+    private void setUpSystem(final String database, final Properties overrides) throws Exception {
+        Files.deleteFilesWithPrefix("hsql-db", "batchfetch-" + database, Recursion.DONT_RECURSE);
+
+        final Properties properties = new Properties();
+        properties.load(new FileInputStream("src/test/config/hsql.properties"));
+        properties.setProperty(SqlObjectStore.BASE_NAME + ".jdbc.connection", "jdbc:hsqldb:file:hsql-db/batchfetch-" + database);
+        properties.setProperty(SqlObjectStore.BASE_NAME + ".default.maxinstances", "" + Integer.MAX_VALUE);
+        properties.putAll(overrides);
+
+        final IsisConfigurationDefault configuration = new IsisConfigurationDefault();
+        configuration.add(properties);
+
+        repository = new SqlDomainObjectRepository();
+        system = IsisSystemWithFixtures.builder().with(configuration).withServices(repository)
+                .with(Initialization.NO_INIT).with(new SqlPersistorInstaller()).build();
+        system.setUpSystem();
+    }
+
+    @Test
+    public void eachParentHasJustItsOwnElements() throws Exception {
+        setUpSystem("parents", new Properties());
+        final int numberOfParents = 105;
+        createParents(numberOfParents);
+        system.bounceSystem();
+
+        system.beginTran();
+        final List<SqlDataClass> parents = repository.allDataClasses();
+        assertThat(parents.size(), is(numberOfParents));
+        for (final SqlDataClass parent : parents) {
+            final int i = Integer.parseInt(parent.getString().substring("parent ".length()));
+            assertThat(parent.getString(), stringsOf(parent.getSimpleClasses1()), is(expectedElementsOf(i)));
+        }
+        system.commitTran();
+
+        // in pages of at most 100, rather than one query per parent
+        assertThat(appender.batchSizesFor("simpleClasses1"), is((List<Integer>) Lists.newArrayList(100, 5)));
+    }
+
+    @Test
+    public void batchFetchCanBeTurnedOffForCollection() throws Exception {
+        final Properties overrides = new Properties();
+        overrides.setProperty(MAPPER + "simpleClasses1.batch-fetch", "false");
+        setUpSystem("override", overrides);
+        final int numberOfParents = 12;
+        createParents(numberOfParents);
+        system.bounceSystem();
+
+        system.beginTran();
+        final List<SqlDataClass> parents = repository.allDataClasses();
+        assertThat(parents.size(), is(numberOfParents));
+        for (final SqlDataClass parent : parents) {
+            final int i = Integer.parseInt(parent.getString().substring("parent ".length()));
+            assertThat(parent.getString(), stringsOf(parent.getSimpleClasses1()), is(expectedElementsOf(i)));
+        }
+        system.commitTran();
+
+        assertThat(appender.batchSizesFor("simpleClasses1"), is(Collections.<Integer> emptyList()));
+        assertThat(appender.batchSizesFor("simpleClasses2"), is((List<Integer>) Lists.newArrayList(numberOfParents)));
+    }
+
+    @Test
+    public void nestedChildrenOfSameTypeAreBatchFetchedLevelByLevel() throws Exception {
+        setUpSystem("nested", new Properties());
+
+        system.beginTran();
+        // roots first, so that they are the first page of instances
+        final List<SelfReferencingEntity> rootEntities = Lists.newArrayList();
+        for (final String root : ROOTS) {
+            rootEntities.add(newSelfReferencingEntity(root));
+        }
+        system.commitTran();
+
+        system.beginTran();
+        // children are saved before their parents, who hold the foreign keys
+        final List<SelfReferencingEntity> children = Lists.newArrayList();
+        for (final SelfReferencingEntity rootEntity : rootEntities) {
+            for (int i = 0; i < 2; i++) {
+                final SelfReferencingEntity child = repository.newPolySelfRefClass();
+                child.setString(rootEntity.getString() + "." + i);
+                for (int j = 0; j < 2; j++) {
+                    child.addToPolySelfRefClasses(newSelfReferencingEntity(child.getString() + "." + j));
+                }
+                repository.save(child);
+                children.add(child);
+            }
+        }
+        for (final SelfReferencingEntity child : children) {
+            rootEntities.get(Arrays.asList(ROOTS).indexOf(child.getString().substring(0, 1))).addToPolySelfRefClasses(child);
+        }
+        for (final SelfReferencingEntity rootEntity : rootEntities) {
+            repository.update(rootEntity);
+        }
+        system.commitTran();
+        system.bounceSystem();
+
+        system.beginTran();
+        final List<SelfReferencingEntity> roots = repository.somePolySelfRefClasses(0, ROOTS.length);
+        assertThat(stringsOf(roots), is((Set<String>) Sets.newHashSet(ROOTS)));
+        for (final SelfReferencingEntity root : roots) {
+            assertThat(root.getString(), stringsOf(root.getPolySelfRefClasses()), is(expectedChildrenOf(root.getString())));
+            for (final SelfReferencingEntity child : root.getPolySelfRefClasses()) {
+                assertThat(child.getString(), stringsOf(child.getPolySelfRefClasses()), is(expectedChildrenOf(child.getString())));
+                for (final SelfReferencingEntity grandchild : child.getPolySelfRefClasses()) {
+                    assertThat(grandchild.getString(), grandchild.getPolySelfRefClasses().size(), is(0));
+                }
+            }
+        }
+        system.commitTran();
+
+        assertThat(appender.batchSizesFor("polySelfRefClasses"), is((List<Integer>) Lists.newArrayList(3, 6, 12)));
+    }
+
+    private void createParents(final int numberOfParents) {
+        system.beginTran();
+        for (int i = 0; i < numberOfParents; i++) {
+            final SqlDataClass parent = repository.newDataClass();
+            parent.setString("parent " + i);
+            // not all value types can be persisted and reloaded as null
+            parent.setDate(new Date(2010, 3, 5));
+            parent.setSqlDate(new java.sql.Date(0));
+            parent.setDateTime(new DateTime(2010, 3, 5, 1, 23));
+            parent.setTimeStamp(new TimeStamp(0));
+            parent.setTime(new Time(14, 56));
+            parent.setColor(Color.WHITE);
+            parent.setPassword(new Password("password"));
+            parent.setPercentage(new Percentage(42));
+            parent.setMoney(new Money(i, "GBP"));
+            parent.setImage(new Image(new int[][] { { i } }));
+            for (final String string : expectedElementsOf(i)) {
+                final SimpleClass element = repository.newSimpleClass();
+                element.setString(string);
+                repository.save(element);
+                parent.addToSimpleClasses1(element);
+            }
+            repository.save(parent);
+        }
+        system.commitTran();
+    }
+
+    /**
+     * Between none and three elements, so that some collections are empty;
+     * but not the first, whose elements must be saved first to create their
+     * table.
+     */
+    private static Set<String> expectedElementsOf(final int parent) {
+        final Set<String> elements = Sets.newHashSet();
+        for (int j = 0; j < (parent + 1) % 4; j++) {
+            elements.add("element " + parent + "." + j);
+        }
+        return elements;
+    }
+
+    private static Set<String> expectedChildrenOf(final String parent) {
+        return Sets.newHashSet(parent + ".0", parent + ".1");
+    }
+
+    private SelfReferencingEntity newSelfReferencingEntity(final String string) {
+        final SelfReferencingEntity entity = repository.newPolySelfRefClass();
+        entity.setString(string);
+        repository.save(entity);
+        return entity;
+    }
+
+    private static Set<String> stringsOf(final List<?> elements) {
+        final Set<String> strings = Sets.newHashSet();
+        for (final Object element : elements) {
+            if (element instanceof SimpleClass) {
+                strings.add(((SimpleClass) element).getString());
+            } else {
+                strings.add(((SelfReferencingEntity) element).getString());
+            }
+        }
+        return strings;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.sql;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.FileInputStream;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.value.Color;
+import org.apache.isis.applib.value.Date;
+import org.apache.isis.applib.value.DateTime;
+import org.apache.isis.applib.value.Image;
+import org.apache.isis.applib.value.Money;
+import org.apache.isis.applib.value.Password;
+import org.apache.isis.applib.value.Percentage;
+import org.apache.isis.applib.value.Time;
+import org.apache.isis.applib.value.TimeStamp;
+import org.apache.isis.core.commons.config.IsisConfigurationDefault;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures.Fixtures.Initialization;
+import org.apache.isis.core.tck.dom.sqlos.SqlDomainObjectRepository;
+import org.apache.isis.core.tck.dom.sqlos.data.SimpleClass;
+import org.apache.isis.core.tck.dom.sqlos.data.SqlDataClass;
+import org.apache.isis.core.unittestsupport.files.Files;
+import org.apache.isis.core.unittestsupport.files.Files.Recursion;
+
+/**
+ * Measures the time taken to load all instances of a class along with one of
+ * their collections, against an embedded HyperSQL database, with the
+ * collection batch-fetched (the default) or loaded parent by parent as per the
+ * <tt>benchmark.batchfetch</tt> system property.
+ *
+ * <p>
+ * Run explicitly, eg <tt>mvn test -Dtest=HsqlCollectionLoadingBenchmark -Dbenchmark.objects=1000 -Dbenchmark.batchfetch=false</tt>.
+ */
+public class HsqlCollectionLoadingBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(HsqlCollectionLoadingBenchmark.class);
+
+    private static final String BATCH_FETCH = SqlObjectStore.BASE_NAME + ".automapper.default.mapper.simpleClasses1.batch-fetch";
+    private static final int ELEMENTS_PER_PARENT = 5;
+
+    private IsisSystemWithFixtures system;
+    private SqlDomainObjectRepository repository;
+
+    @Before
+    public void setUpSystem() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        LOG.setLevel(Level.INFO);
+        Files.deleteFilesWithPrefix("hsql-db", "benchmark", Recursion.DONT_RECURSE);
+
+        final Properties properties = new Properties();
+        properties.load(new FileInputStream("src/test/config/hsql.properties"));
+        properties.setProperty(SqlObjectStore.BASE_NAME + ".jdbc.connection", "jdbc:hsqldb:file:hsql-db/benchmark");
+        properties.setProperty(BATCH_FETCH, System.getProperty("benchmark.batchfetch", "true"));
+        properties.setProperty(SqlObjectStore.BASE_NAME + ".default.maxinstances", "" + Integer.MAX_VALUE);
+
+        final IsisConfigurationDefault configuration = new IsisConfigurationDefault();
+        configuration.add(properties);
+
+        repository = new SqlDomainObjectRepository();
+        system = IsisSystemWithFixtures.builder().with(configuration).withServices(repository)
+                .with(Initialization.NO_INIT).with(new SqlPersistorInstaller()).build();
+        system.setUpSystem();
+    }
+
+    @After
+    public void tearDownSystem() throws Exception {
+        system.tearDownSystem();
+    }
+
+    @Test
+    public void loadAllWithCollections() throws Exception {
+        final int numberOfObjects = Integer.getInteger("benchmark.objects", 500);
+
+        system.beginTran();
+        for (int i = 0; i < numberOfObjects; i++) {
+            final SqlDataClass parent = repository.newDataClass();
+            parent.setString("parent " + i);
+            // not all value types can be persisted and reloaded as null
+            parent.setDate(new Date(2010, 3, 5));
+            parent.setSqlDate(new java.sql.Date(0));
+            parent.setDateTime(new DateTime(2010, 3, 5, 1, 23));
+            parent.setTimeStamp(new TimeStamp(0));
+            parent.setTime(new Time(14, 56));
+            parent.setColor(Color.WHITE);
+            parent.setPassword(new Password("password"));
+            parent.setPercentage(new Percentage(42));
+            parent.setMoney(new Money(i, "GBP"));
+            parent.setImage(new Image(new int[][] { { i } }));
+            for (int j = 0; j < ELEMENTS_PER_PARENT; j++) {
+                final SimpleClass element = repository.newSimpleClass();
+                element.setString("element " + i + "." + j);
+                repository.save(element);
+                parent.addToSimpleClasses1(element);
+            }
+            repository.save(parent);
+        }
+        system.commitTran();
+        system.bounceSystem();
+
+        system.beginTran();
+        final long start = System.nanoTime();
+        final List<SqlDataClass> parents = repository.allDataClasses();
+        int elements = 0;
+        for (final SqlDataClass parent : parents) {
+            elements += parent.getSimpleClasses1().size();
+        }
+        final long loaded = System.nanoTime();
+        system.commitTran();
+
+        assertThat(parents.size(), is(numberOfObjects));
+        assertThat(elements, is(numberOfObjects * ELEMENTS_PER_PARENT));
+
+        LOG.info(String.format("%,d objects, %,d elements, batch fetch %s: load %,d ms",
+                numberOfObjects, elements, System.getProperty("benchmark.batchfetch", "true"),
+                (loaded - start) / 1000000));
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.objectstore.sql;
+
+import java.io.FileInputStream;
+import java.util.Properties;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.core.commons.config.IsisConfigurationDefault;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures.Fixtures.Initialization;
+import org.apache.isis.core.tck.dom.sqlos.SqlDomainObjectRepository;
+import org.apache.isis.core.tck.dom.sqlos.data.SimpleClass;
+import org.apache.isis.core.unittestsupport.files.Files;
+import org.apache.isis.core.unittestsupport.files.Files.Recursion;
+import org.apache.isis.objectstore.sql.jdbc.JdbcConnector;
+
+/**
+ * Measures the time taken to persist a large number of objects in a single
+ * transaction (as when loading fixtures) against an embedded HyperSQL
+ * database, with JDBC batching configured as per the
+ * <tt>isis.persistor.sql.jdbc.batchsize</tt> system property.
+ * 
+ * <p>
+ * Run explicitly, eg <tt>mvn test -pl sql-tests-served -Dtest=HsqlFixtureLoadingBenchmark -Dbenchmark.objects=100000 -Disis.persistor.sql.jdbc.batchsize=1</tt>.
+ */
+public class HsqlFixtureLoadingBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(HsqlFixtureLoadingBenchmark.class);
+
+    private static final String BATCH_SIZE = SqlObjectStore.BASE_NAME + ".jdbc.batchsize";
+
+    private IsisSystemWithFixtures system;
+    private SqlDomainObjectRepository repository;
+
+    @Before
+    public void setUpSystem() throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        LOG.setLevel(Level.INFO);
+        Files.deleteFilesWithPrefix("hsql-db", "benchmark", Recursion.DONT_RECURSE);
+
+        final Properties properties = new Properties();
+        properties.load(new FileInputStream("src/test/config/hsql.properties"));
+        properties.setProperty(BATCH_SIZE, System.getProperty(BATCH_SIZE, "" + JdbcConnector.DEFAULT_BATCH_SIZE));
+
+        final IsisConfigurationDefault configuration = new IsisConfigurationDefault();
+        configuration.add(properties);
+
+        repository = new SqlDomainObjectRepository();
+        system = IsisSystemWithFixtures.builder().with(configuration).withServices(repository)
+                .with(Initialization.NO_INIT).with(new SqlPersistorInstaller()).build();
+        system.setUpSystem();
+    }
+
+    @After
+    public void tearDownSystem() throws Exception {
+        system.tearDownSystem();
+    }
+
+    @Test
+    public void loadFixtures() throws Exception {
+        final int numberOfObjects = Integer.getInteger("benchmark.objects", 10000);
+
+        final long start = System.nanoTime();
+        system.beginTran();
+        for (int i = 0; i < numberOfObjects; i++) {
+            final SimpleClass simpleClass = repository.newSimpleClass();
+            simpleClass.setString("fixture " + i);
+            repository.save(simpleClass);
+        }
+        final long persisted = System.nanoTime();
+        system.commitTran();
+        final long committed = System.nanoTime();
+
+        LOG.info(String.format("%,d objects, batch size %s: persist %,d ms, commit %,d ms (%,d us/object)", 
+                numberOfObjects, System.getProperty(BATCH_SIZE, "" + JdbcConnector.DEFAULT_BATCH_SIZE), 
+                (persisted - start) / 1000000, (committed - persisted) / 1000000, (committed - start) / 1000 / numberOfObjects));
+    }
+
+}
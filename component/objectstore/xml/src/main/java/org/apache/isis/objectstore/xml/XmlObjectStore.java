@@ -86,7 +86,7 @@ public XmlObjectStore(final IsisConfiguration configuration) {
         final String charset = Utils.lookupCharset(configuration);
         final String directory = configuration.getString(XMLOS_DIR, "xml/objects");
         final XmlFile xmlFile = new XmlFile(charset, directory);
-        dataManager = new XmlDataManager(xmlFile);
+        dataManager = new XmlDataManager(xmlFile, Utils.lookupWriteThreads(configuration), Utils.lookupCache(configuration));
         serviceManager = new XmlServiceManager(xmlFile);
         serviceManager.loadServices();
     }
@@ -119,8 +119,13 @@ public void close() {
     // reset
     // /////////////////////////////////////////////////////////
 
+    /**
+     * For testing purposes; instances are read in again (eg having deleted
+     * the files).
+     */
     @Override
     public void reset() {
+        dataManager.reset();
     }
 
     // /////////////////////////////////////////////////////////
@@ -136,6 +141,7 @@ public boolean hasInstances(final ObjectSpecification cls) {
 
     @Override
     public void open() throws ObjectPersistenceException {
+        dataManager.open();
         isFixturesInstalled = dataManager.isFixturesInstalled();
     }
 
@@ -303,9 +309,19 @@ public DestroyObjectCommand createDestroyObjectCommand(final ObjectAdapter objec
     @Override
     public void execute(final List<PersistenceCommand> commands) {
         LOG.debug("start execution of transaction");
-        for (final PersistenceCommand command : commands) {
-            command.execute(null);
+        dataManager.startTransaction();
+        boolean executed = false;
+        try {
+            for (final PersistenceCommand command : commands) {
+                command.execute(null);
+            }
+            executed = true;
+        } finally {
+            if (!executed) {
+                dataManager.abortTransaction();
+            }
         }
+        dataManager.endTransaction();
         LOG.debug("end execution");
     }
 
@@ -25,8 +25,18 @@
 
 public interface DataManager {
 
+    /**
+     * Reads in the index of instances, if not already.
+     */
+    void open();
+
     void shutdown();
 
+    /**
+     * Discards the index of instances, to be read in again when next needed.
+     */
+    void reset();
+
     /**
      * Return data for all instances that match the pattern.
      */
@@ -51,6 +61,22 @@ public interface DataManager {
      */
     void save(Data data);
 
+    /**
+     * Holds back the changes made by this thread until the transaction ends.
+     */
+    void startTransaction();
+
+    /**
+     * Writes out the changes made since the transaction was started, all or
+     * nothing.
+     */
+    void endTransaction();
+
+    /**
+     * Discards the changes made since the transaction was started.
+     */
+    void abortTransaction();
+
     String getDebugData();
 
     boolean isFixturesInstalled();
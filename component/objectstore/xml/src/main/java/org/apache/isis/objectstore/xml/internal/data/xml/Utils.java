@@ -22,6 +22,8 @@
 import java.io.IOException;
 import java.io.Writer;
 
+import com.google.common.base.Strings;
+
 import org.apache.isis.core.commons.config.ConfigurationConstants;
 import org.apache.isis.core.commons.config.IsisConfiguration;
 
@@ -36,6 +38,34 @@ public static String lookupCharset(final IsisConfiguration configuration) {
         return configuration.getString(ENCODING_PROPERTY, DEFAULT_ENCODING);
     }
 
+    public static final String WRITE_THREADS_PROPERTY = ConfigurationConstants.ROOT + "xmlos.write-threads";
+    public static final int DEFAULT_WRITE_THREADS = 4;
+
+    /**
+     * The number of threads used to write out the files changed by a
+     * transaction; 1 to write them one at a time.
+     */
+    public static int lookupWriteThreads(final IsisConfiguration configuration) {
+        return configuration.getInteger(WRITE_THREADS_PROPERTY, DEFAULT_WRITE_THREADS);
+    }
+
+    public static final String CACHE_SIZE_PROPERTY = ConfigurationConstants.ROOT + "xmlos.cache.size";
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+    public static final String CACHE_EVICTION_PROPERTY = ConfigurationConstants.ROOT + "xmlos.cache.eviction";
+    public static final XmlDataCache.Eviction DEFAULT_CACHE_EVICTION = XmlDataCache.Eviction.LRU;
+
+    /**
+     * The cache of parsed data files, holding up to
+     * {@value #CACHE_SIZE_PROPERTY} entries (0 to cache nothing) and evicting
+     * according to {@value #CACHE_EVICTION_PROPERTY} (<tt>lru</tt> or
+     * <tt>fifo</tt>).
+     */
+    public static XmlDataCache lookupCache(final IsisConfiguration configuration) {
+        final int size = configuration.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+        final String eviction = configuration.getString(CACHE_EVICTION_PROPERTY);
+        return new XmlDataCache(size, Strings.isNullOrEmpty(eviction) ? DEFAULT_CACHE_EVICTION : XmlDataCache.Eviction.valueOf(eviction.toUpperCase()));
+    }
+
     public static String attribute(final String name, final String value) {
         return appendAttribute(new StringBuilder(), name, value).toString();
     }
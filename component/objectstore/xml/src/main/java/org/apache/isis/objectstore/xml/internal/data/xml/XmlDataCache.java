@@ -0,0 +1,175 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.xml.internal.data.xml;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.adapter.version.Version;
+import org.apache.isis.objectstore.xml.internal.data.Data;
+import org.apache.isis.objectstore.xml.internal.version.FileVersion;
+
+/**
+ * A bounded cache of the data parsed from each data file, so that loading an
+ * object (and in particular loading every instance of a specification to
+ * match a pattern) need not parse its file each time.
+ *
+ * <p>
+ * The data manager {@link #invalidate(RootOid) invalidates} an entry whenever
+ * it writes or deletes the file. As the file could also be changed by other
+ * means, each entry records the modification time and length of the file when
+ * it was read and is only used while they are unchanged; an entry is never
+ * replaced by data of an older {@link FileVersion version}.
+ *
+ * <p>
+ * The cached data is shared, so must not be changed by its users.
+ */
+public class XmlDataCache {
+
+    public static enum Eviction {
+        /**
+         * Evict the least recently used entry.
+         */
+        LRU,
+        /**
+         * Evict the entry that was added first.
+         */
+        FIFO
+    }
+
+    private static class Entry {
+        final Data data;
+        final long lastModified;
+        final long length;
+
+        Entry(final Data data, final long lastModified, final long length) {
+            this.data = data;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private final int size;
+    private final Eviction eviction;
+    private final Map<RootOid, Entry> entries;
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param size
+     *            the maximum number of entries; 0 to cache nothing.
+     */
+    public XmlDataCache(final int size, final Eviction eviction) {
+        this.size = size;
+        this.eviction = eviction;
+        this.entries = new LinkedHashMap<RootOid, Entry>(16, 0.75f, eviction == Eviction.LRU) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<RootOid, Entry> eldest) {
+                if (size() > XmlDataCache.this.size) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // ////////////////////////////////////////////////////////
+    // get, put
+    // ////////////////////////////////////////////////////////
+
+    /**
+     * The data read from the file, if cached and the file is unchanged since;
+     * <tt>null</tt> otherwise.
+     */
+    public synchronized Data get(final RootOid oid, final File file) {
+        final Entry entry = entries.get(oid);
+        if (entry != null && entry.lastModified == file.lastModified() && entry.length == file.length()) {
+            hits++;
+            return entry.data;
+        }
+        if (entry != null) {
+            entries.remove(oid);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * A ticket to pass to {@link #put(RootOid, Data, long, long, long)},
+     * taken (along with the file's modification time and length) before
+     * reading the file.
+     */
+    public synchronized long ticket() {
+        return invalidations;
+    }
+
+    /**
+     * Caches the data read from the file, unless an entry has been invalidated
+     * since the ticket was taken (in which case the data may already be out of
+     * date) or the cached data is of a later version.
+     */
+    public synchronized void put(final RootOid oid, final Data data, final long lastModified, final long length, final long ticket) {
+        if (size == 0 || data == null || ticket != invalidations) {
+            return;
+        }
+        final Entry existing = entries.get(oid);
+        if (existing != null && isLater(existing.data, data)) {
+            return;
+        }
+        entries.put(oid, new Entry(data, lastModified, length));
+    }
+
+    private static boolean isLater(final Data cached, final Data data) {
+        final Version cachedVersion = cached.getVersion();
+        final Version version = data.getVersion();
+        return cachedVersion != null && version != null && cachedVersion.getSequence() > version.getSequence();
+    }
+
+    // ////////////////////////////////////////////////////////
+    // invalidate, clear
+    // ////////////////////////////////////////////////////////
+
+    public synchronized void invalidate(final RootOid oid) {
+        invalidations++;
+        entries.remove(oid);
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+    }
+
+    // ////////////////////////////////////////////////////////
+    // debugging
+    // ////////////////////////////////////////////////////////
+
+    public synchronized String getDebugData() {
+        final long lookups = hits + misses;
+        return "Cache " + entries.size() + "/" + size + " entries (" + eviction + "), " + hits + " hits, " + misses + " misses" + (lookups == 0 ? "" : " (" + (hits * 100 / lookups) + "% hit rate)") + ", " + evictions + " evictions";
+    }
+
+}
@@ -21,9 +21,20 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
-import java.util.Vector;
-
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.apache.log4j.Logger;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -53,18 +64,54 @@
 import org.apache.isis.objectstore.xml.internal.version.FileVersion;
 
 public class XmlDataManager implements DataManager {
+    private static final Logger LOG = Logger.getLogger(XmlDataManager.class);
+
+    private static final String PREPARED_MANIFEST = "transaction.prepared";
+    private static final String COMMITTED_MANIFEST = "transaction.committed";
+
     private final XmlFile xmlFile;
+    private final XmlInstancesIndex instancesIndex;
+    private final XmlDataCache cache;
+    private final ThreadLocal<XmlTransaction> currentTransaction = new ThreadLocal<XmlTransaction>();
+    private final Object commitLock = new Object();
+    /**
+     * <tt>null</tt> if files are to be written one at a time.
+     */
+    private final ExecutorService writeExecutor;
 
     public XmlDataManager(final XmlFile xmlFile) {
+        this(xmlFile, Utils.DEFAULT_WRITE_THREADS, new XmlDataCache(Utils.DEFAULT_CACHE_SIZE, Utils.DEFAULT_CACHE_EVICTION));
+    }
+
+    public XmlDataManager(final XmlFile xmlFile, final int writeThreads, final XmlDataCache cache) {
         this.xmlFile = xmlFile;
+        this.instancesIndex = new XmlInstancesIndex(xmlFile);
+        this.cache = cache;
+        this.writeExecutor = writeThreads > 1 ? Executors.newFixedThreadPool(writeThreads, new ThreadFactoryBuilder().setNameFormat("xml-object-store-writer-%d").setDaemon(true).build()) : null;
     }
 
     // ////////////////////////////////////////////////////////
-    // shutdown
+    // open, shutdown
     // ////////////////////////////////////////////////////////
 
+    @Override
+    public void open() {
+        recover();
+        instancesIndex.load();
+    }
+
     @Override
     public void shutdown() {
+        if (writeExecutor != null) {
+            writeExecutor.shutdown();
+        }
+        instancesIndex.close();
+    }
+
+    @Override
+    public void reset() {
+        instancesIndex.unload();
+        cache.clear();
     }
 
     // ////////////////////////////////////////////////////////
@@ -146,25 +193,6 @@ private static Version fileVersionFrom(final Attributes attributes) {
     }
 
 
-    private class InstanceHandler extends DefaultHandler {
-        Vector<RootOid> instances = new Vector<RootOid>();
-
-        @Override
-        public void characters(final char[] arg0, final int arg1, final int arg2) throws SAXException {
-        }
-
-        @Override
-        public void startElement(final String ns, final String name, final String tagName, final Attributes attrs) throws SAXException {
-            if (tagName.equals("instance")) {
-                
-                final String oidStr = attrs.getValue("oid");
-                final RootOidDefault oid = RootOidDefault.deString(oidStr, getOidMarshaller());
-                
-                instances.addElement(oid);
-            }
-        }
-    }
-
     private class NumberHandler extends DefaultHandler {
         boolean captureValue = false;
         long value = 0;
@@ -211,16 +239,27 @@ public boolean isFixturesInstalled() {
     // loadData
     // ////////////////////////////////////////////////////////
 
+    /**
+     * The data is taken from the {@link XmlDataCache cache} if the file is
+     * unchanged since it was cached, and so must not be changed.
+     */
     @Override
     public Data loadData(final RootOid oid) {
+        final File file = xmlFile.getFile(filename(oid));
+        final Data cached = cache.get(oid, file);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long ticket = cache.ticket();
+        final long lastModified = file.lastModified();
+        final long length = file.length();
         final DataHandler handler = new DataHandler();
         xmlFile.parse(handler, filename(oid));
 
-        if (handler.object != null) {
-            return handler.object;
-        } else {
-            return handler.collection;
-        }
+        final Data data = handler.object != null ? handler.object : handler.collection;
+        cache.put(oid, data, lastModified, length, ticket);
+        return data;
     }
 
     // ////////////////////////////////////////////////////////
@@ -230,11 +269,7 @@ public Data loadData(final RootOid oid) {
     @Override
     public ObjectDataVector getInstances(final ObjectData pattern) {
         
-        final Vector<RootOid> instances = loadInstances(pattern.getSpecification(getSpecificationLoader()));
-
-        if (instances == null) {
-            return new ObjectDataVector();
-        }
+        final List<RootOid> instances = loadInstances(pattern.getSpecification(getSpecificationLoader()));
 
         final ObjectDataVector matches = new ObjectDataVector();
         for (final RootOid oid : instances) {
@@ -250,29 +285,39 @@ public ObjectDataVector getInstances(final ObjectData pattern) {
         return matches;
     }
 
+    /**
+     * If the pattern has no fields to match then counted from the instances
+     * index, without reading any instances.
+     */
     @Override
     public int numberOfInstances(final ObjectData pattern) {
-        return getInstances(pattern).size();
+        if (!Iterables.isEmpty(pattern.fields())) {
+            return getInstances(pattern).size();
+        }
+        return countInstances(pattern.getSpecification(getSpecificationLoader()));
     }
 
-    private Vector<RootOid> loadInstances(final ObjectSpecification noSpec) {
-        final InstanceHandler handler = new InstanceHandler();
-        parseSpecAndSubclasses(handler, noSpec);
-        return handler.instances;
+    private List<RootOid> loadInstances(final ObjectSpecification noSpec) {
+        final List<RootOid> instances = Lists.newArrayList();
+        loadSpecAndSubclasses(instances, noSpec);
+        return instances;
     }
 
-    private void parseSpecAndSubclasses(final InstanceHandler handler, final ObjectSpecification noSpec) {
-        parseIfNotAbstract(noSpec, handler);
+    private void loadSpecAndSubclasses(final List<RootOid> instances, final ObjectSpecification noSpec) {
+        if (!noSpec.isAbstract()) {
+            instances.addAll(instancesIndex.instances(noSpec.getFullIdentifier()));
+        }
         for (final ObjectSpecification subSpec : noSpec.subclasses()) {
-            parseSpecAndSubclasses(handler, subSpec);
+            loadSpecAndSubclasses(instances, subSpec);
         }
     }
 
-    private void parseIfNotAbstract(final ObjectSpecification noSpec, final InstanceHandler handler) {
-        if (noSpec.isAbstract()) {
-            return;
+    private int countInstances(final ObjectSpecification noSpec) {
+        int count = noSpec.isAbstract() ? 0 : instancesIndex.numberOfInstances(noSpec.getFullIdentifier());
+        for (final ObjectSpecification subSpec : noSpec.subclasses()) {
+            count += countInstances(subSpec);
         }
-        xmlFile.parse(handler, noSpec.getFullIdentifier());
+        return count;
     }
 
     /**
@@ -347,15 +392,17 @@ public final void insertObject(final ObjectData data) {
             throw new IllegalArgumentException("Oid must be non-null");
         }
 
-        writeInstanceToItsDataFile(data);
         final ObjectSpecification objSpec = data.getSpecification(getSpecificationLoader());
-        addReferenceToInstancesFile(data.getRootOid(), objSpec);
-    }
-
-    private void addReferenceToInstancesFile(final RootOid oid, final ObjectSpecification noSpec) {
-        final Vector<RootOid> instances = loadInstances(noSpec);
-        instances.addElement(oid);
-        writeInstanceFile(noSpec, instances);
+        final XmlTransaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.write(filename(data.getRootOid()), render(data));
+            transaction.changed(data.getRootOid());
+            transaction.add(objSpec.getFullIdentifier(), data.getRootOid());
+            return;
+        }
+        writeInstanceToItsDataFile(data);
+        cache.invalidate(data.getRootOid());
+        instancesIndex.add(objSpec.getFullIdentifier(), data.getRootOid());
     }
 
     // ////////////////////////////////////////////////////////
@@ -364,9 +411,17 @@ private void addReferenceToInstancesFile(final RootOid oid, final ObjectSpecific
 
     @Override
     public final void remove(final RootOid oid) throws ObjectNotFoundException, ObjectPersistenceException {
-        final Data data = loadData(oid);
-        removeReferenceFromInstancesFile(oid, data.getSpecification(getSpecificationLoader()));
+        final ObjectSpecification objSpec = getSpecificationLoader().lookupBySpecId(oid.getObjectSpecId());
+        final XmlTransaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.delete(filename(oid));
+            transaction.changed(oid);
+            transaction.remove(objSpec.getFullIdentifier(), oid);
+            return;
+        }
+        instancesIndex.remove(objSpec.getFullIdentifier(), oid);
         deleteData(oid);
+        cache.invalidate(oid);
     }
 
     /**
@@ -376,39 +431,6 @@ private void deleteData(final RootOid oid) {
         xmlFile.delete(filename(oid));
     }
 
-    private void removeReferenceFromInstancesFile(final RootOid oid, final ObjectSpecification noSpec) {
-        final Vector<RootOid> instances = loadInstances(noSpec);
-        instances.removeElement(oid);
-        writeInstanceFile(noSpec, instances);
-    }
-
-    // ////////////////////////////////////////////////////////
-    // helpers (used by both add & remove)
-    // ////////////////////////////////////////////////////////
-
-    private void writeInstanceFile(final ObjectSpecification noSpec, final Vector<RootOid> instances) {
-        writeInstanceFile(noSpec.getFullIdentifier(), instances);
-    }
-
-    private void writeInstanceFile(final String name, final Vector<RootOid> instances) {
-        xmlFile.writeXml(name, new ContentWriter() {
-            @Override
-            public void write(final Writer writer) throws IOException {
-                writer.write("<instances");
-                Utils.appendAttribute(writer, "name", name);
-                writer.append(">\n");
-
-                for (final RootOid elementAt : instances) {
-                    writer.append("  <instance");
-                    Utils.appendAttribute(writer, "oid", elementAt.enString(getOidMarshaller()));
-                    writer.append("/>\n");
-                }
-                writer.append("</instances>");
-                writer.flush();
-            }
-        });
-    }
-
     // ////////////////////////////////////////////////////////
     // save
     // ////////////////////////////////////////////////////////
@@ -418,11 +440,36 @@ public void write(final Writer writer) throws IOException {
      */
     @Override
     public final void save(final Data data) {
+        final XmlTransaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.write(filename(data.getRootOid()), render(data));
+            transaction.changed(data.getRootOid());
+            return;
+        }
         writeInstanceToItsDataFile(data);
+        cache.invalidate(data.getRootOid());
     }
 
     private void writeInstanceToItsDataFile(final Data data) {
-        xmlFile.writeXml(filename(data.getRootOid()), new ContentWriter() {
+        xmlFile.writeXml(filename(data.getRootOid()), contentWriterFor(data));
+    }
+
+    /**
+     * Renders the data now, while the session is still to hand, ready to be
+     * written by another thread.
+     */
+    private String render(final Data data) {
+        final StringWriter writer = new StringWriter();
+        try {
+            contentWriterFor(data).write(writer);
+        } catch (final IOException e) {
+            throw new IsisException(e);
+        }
+        return writer.toString();
+    }
+
+    private ContentWriter contentWriterFor(final Data data) {
+        return new ContentWriter() {
             @Override
             public void write(final Writer writer) throws IOException {
                 final boolean isObject = data instanceof ObjectData;
@@ -449,7 +496,7 @@ public void write(final Writer writer) throws IOException {
                 writer.flush();
             }
 
-        });
+        };
     }
 
     private void writeObject(final Data data, final Writer writer) throws IOException {
@@ -529,13 +576,178 @@ private static String filename(final RootOid oid) {
 
 
 
+    // ////////////////////////////////////////////////////////
+    // transactions
+    // ////////////////////////////////////////////////////////
+
+    @Override
+    public void startTransaction() {
+        currentTransaction.set(new XmlTransaction());
+    }
+
+    /**
+     * Writes out all the files changed by the transaction (in parallel, each
+     * first to one side) and then updates the index of instances once for each
+     * specification.
+     * 
+     * <p>
+     * The transaction's manifest is written before any file is changed and is
+     * renamed once they are all written to one side; that rename commits the
+     * transaction. Should the store be interrupted before then, the files
+     * written to one side are discarded when it is next {@link #open()
+     * opened}; if after, then the transaction is completed instead.
+     */
+    @Override
+    public void endTransaction() {
+        final XmlTransaction transaction = currentTransaction.get();
+        currentTransaction.remove();
+        if (transaction == null || transaction.isEmpty()) {
+            return;
+        }
+        synchronized (commitLock) {
+            final File prepared = new File(xmlFile.getDirectory(), PREPARED_MANIFEST);
+            try {
+                transaction.writeManifest(prepared, xmlFile.getCharset(), getOidMarshaller());
+            } catch (final IOException e) {
+                prepared.delete();
+                throw new ObjectPersistenceException("Problems writing transaction manifest", e);
+            }
+            boolean committed = false;
+            try {
+                prepareWrites(transaction);
+                committed = prepared.renameTo(new File(xmlFile.getDirectory(), COMMITTED_MANIFEST));
+                if (!committed) {
+                    throw new ObjectPersistenceException("Problems committing transaction manifest " + prepared);
+                }
+            } finally {
+                if (!committed) {
+                    discardWrites(transaction);
+                    prepared.delete();
+                }
+            }
+            complete(transaction);
+        }
+    }
+
+    @Override
+    public void abortTransaction() {
+        currentTransaction.remove();
+    }
+
+    private void prepareWrites(final XmlTransaction transaction) {
+        final List<Runnable> writes = Lists.newArrayList();
+        for (final Map.Entry<String, String> write : transaction.getWrites().entrySet()) {
+            writes.add(new Runnable() {
+                @Override
+                public void run() {
+                    xmlFile.prepareXml(write.getKey(), new ContentWriter() {
+                        @Override
+                        public void write(final Writer writer) throws IOException {
+                            writer.write(write.getValue());
+                        }
+                    });
+                }
+            });
+        }
+        runAll(writes);
+    }
+
+    private void discardWrites(final XmlTransaction transaction) {
+        for (final String fileName : transaction.getWrites().keySet()) {
+            xmlFile.discardXml(fileName);
+        }
+    }
+
+    /**
+     * Puts the files written to one side in place, deletes files, updates the
+     * index of instances and finally deletes the manifest; all of which can
+     * safely be repeated.
+     */
+    private void complete(final XmlTransaction transaction) {
+        final List<Runnable> changes = Lists.newArrayList();
+        for (final String fileName : transaction.getWrites().keySet()) {
+            changes.add(new Runnable() {
+                @Override
+                public void run() {
+                    xmlFile.commitXml(fileName);
+                }
+            });
+        }
+        for (final String fileName : transaction.getDeletes()) {
+            changes.add(new Runnable() {
+                @Override
+                public void run() {
+                    xmlFile.delete(fileName);
+                }
+            });
+        }
+        runAll(changes);
+        for (final RootOid oid : transaction.getChangedOids()) {
+            cache.invalidate(oid);
+        }
+        for (final Map.Entry<String, Map<RootOid, Boolean>> instanceChanges : transaction.getInstanceChanges().entrySet()) {
+            instancesIndex.update(instanceChanges.getKey(), instanceChanges.getValue());
+        }
+        new File(xmlFile.getDirectory(), COMMITTED_MANIFEST).delete();
+    }
+
+    private void runAll(final List<Runnable> tasks) {
+        if (writeExecutor == null || tasks.size() < 2) {
+            for (final Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        final List<Future<?>> futures = Lists.newArrayList();
+        for (final Runnable task : tasks) {
+            futures.add(writeExecutor.submit(task));
+        }
+        RuntimeException failure = null;
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new ObjectPersistenceException("Interrupted writing files", e);
+            } catch (final ExecutionException e) {
+                failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new ObjectPersistenceException(e.getCause());
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Completes or undoes the transaction that was in progress, if any, when
+     * the store was last stopped.
+     */
+    private void recover() {
+        synchronized (commitLock) {
+            final File committed = new File(xmlFile.getDirectory(), COMMITTED_MANIFEST);
+            final File prepared = new File(xmlFile.getDirectory(), PREPARED_MANIFEST);
+            try {
+                if (committed.exists()) {
+                    LOG.info("completing interrupted transaction");
+                    complete(XmlTransaction.readManifest(committed, xmlFile.getCharset(), getOidMarshaller()));
+                } else if (prepared.exists()) {
+                    LOG.info("discarding interrupted transaction");
+                    discardWrites(XmlTransaction.readManifest(prepared, xmlFile.getCharset(), getOidMarshaller()));
+                    prepared.delete();
+                }
+            } catch (final IOException e) {
+                throw new ObjectPersistenceException("Problems reading transaction manifest", e);
+            }
+        }
+    }
+
     // ////////////////////////////////////////////////////////
     // Debugging
     // ////////////////////////////////////////////////////////
 
     @Override
     public String getDebugData() {
-        return "Data directory " + xmlFile.getDirectory();
+        return "Data directory " + xmlFile.getDirectory() + "\n" + cache.getDebugData();
     }
 
     
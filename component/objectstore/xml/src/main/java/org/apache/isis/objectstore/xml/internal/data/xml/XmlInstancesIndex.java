@@ -0,0 +1,349 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.xml.internal.data.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import org.apache.log4j.Logger;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.isis.core.commons.exceptions.IsisException;
+import org.apache.isis.core.commons.xml.ContentWriter;
+import org.apache.isis.core.commons.xml.XmlFile;
+import org.apache.isis.core.metamodel.adapter.oid.OidMarshaller;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+
+/**
+ * The oids of the instances of each specification, held in memory and kept on
+ * disk as an instances file plus a journal of the instances added and removed
+ * since that file was written.
+ *
+ * <p>
+ * Adding or removing an instance just appends a line to the journal, rather
+ * than rewriting the instances file. Once a journal has grown to as many
+ * entries as there are instances (and at least {@link #COMPACTION_THRESHOLD}),
+ * the instances file is rewritten and the journal discarded.
+ *
+ * <p>
+ * The files are keyed by name, being the full identifier of the specification.
+ */
+public class XmlInstancesIndex {
+
+    private static final Logger LOG = Logger.getLogger(XmlInstancesIndex.class);
+
+    static final String JOURNAL_SUFFIX = ".journal";
+    static final int COMPACTION_THRESHOLD = 1000;
+
+    private static final char ADDED = '+';
+    private static final char REMOVED = '-';
+
+    private final XmlFile xmlFile;
+    private final Map<String, Set<RootOid>> instancesByName = Maps.newHashMap();
+    private final Map<String, Writer> journals = Maps.newHashMap();
+    private final Map<String, Integer> journalledCounts = Maps.newHashMap();
+    private boolean loaded;
+
+    public XmlInstancesIndex(final XmlFile xmlFile) {
+        this.xmlFile = xmlFile;
+    }
+
+    // ////////////////////////////////////////////////////////
+    // load
+    // ////////////////////////////////////////////////////////
+
+    /**
+     * Reads in the instances files and their journals, if not already done.
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        final Set<String> names = Sets.newTreeSet();
+        final File[] files = xmlFile.getDirectory().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.endsWith(".xml") || name.endsWith(JOURNAL_SUFFIX);
+            }
+        });
+        if (files != null) {
+            for (final File file : files) {
+                if (file.isFile()) {
+                    final String fileName = file.getName();
+                    names.add(fileName.substring(0, fileName.lastIndexOf('.')));
+                }
+            }
+        }
+        for (final String name : names) {
+            load(name);
+        }
+        loaded = true;
+    }
+
+    private void load(final String name) {
+        final InstanceHandler handler = new InstanceHandler();
+        xmlFile.parse(handler, name);
+        final File journalFile = journalFile(name);
+        if (!handler.isInstancesFile && !journalFile.exists()) {
+            // eg the oid or services file
+            return;
+        }
+        final Set<RootOid> instances = handler.instances;
+        instancesByName.put(name, instances);
+        if (journalFile.exists()) {
+            final String journal = read(journalFile);
+            journalledCounts.put(name, replay(journal, instances));
+            if (journal.length() > 0 && journal.charAt(journal.length() - 1) != '\n') {
+                LOG.warn("discarding incomplete entry at end of " + journalFile);
+                compact(name);
+            }
+        }
+    }
+
+    private String read(final File journalFile) {
+        try {
+            return Files.toString(journalFile, Charset.forName(xmlFile.getCharset()));
+        } catch (final IOException e) {
+            throw new IsisException("Error reading journal file " + journalFile, e);
+        }
+    }
+
+    /**
+     * Applies each complete entry of the journal to the instances.
+     * 
+     * @return the number of entries.
+     */
+    private static int replay(final String journal, final Set<RootOid> instances) {
+        int entries = 0;
+        int start = 0;
+        int end;
+        while ((end = journal.indexOf('\n', start)) >= 0) {
+            if (end > start) {
+                final RootOid oid = RootOidDefault.deString(journal.substring(start + 1, end), getOidMarshaller());
+                if (journal.charAt(start) == ADDED) {
+                    instances.add(oid);
+                } else {
+                    instances.remove(oid);
+                }
+                entries++;
+            }
+            start = end + 1;
+        }
+        return entries;
+    }
+
+    private class InstanceHandler extends DefaultHandler {
+        final Set<RootOid> instances = Sets.newLinkedHashSet();
+        boolean isInstancesFile;
+
+        @Override
+        public void startElement(final String ns, final String name, final String tagName, final Attributes attrs) throws SAXException {
+            if (tagName.equals("instances")) {
+                isInstancesFile = true;
+            } else if (tagName.equals("instance")) {
+                final String oidStr = attrs.getValue("oid");
+                final RootOidDefault oid = RootOidDefault.deString(oidStr, getOidMarshaller());
+                instances.add(oid);
+            }
+        }
+    }
+
+    // ////////////////////////////////////////////////////////
+    // instances, numberOfInstances
+    // ////////////////////////////////////////////////////////
+
+    public synchronized List<RootOid> instances(final String name) {
+        load();
+        final Set<RootOid> instances = instancesByName.get(name);
+        return instances == null ? Lists.<RootOid> newArrayList() : Lists.newArrayList(instances);
+    }
+
+    public synchronized int numberOfInstances(final String name) {
+        load();
+        final Set<RootOid> instances = instancesByName.get(name);
+        return instances == null ? 0 : instances.size();
+    }
+
+    // ////////////////////////////////////////////////////////
+    // add, remove, update
+    // ////////////////////////////////////////////////////////
+
+    public synchronized void add(final String name, final RootOid oid) {
+        update(name, Collections.singletonMap(oid, true));
+    }
+
+    public synchronized void remove(final String name, final RootOid oid) {
+        update(name, Collections.singletonMap(oid, false));
+    }
+
+    /**
+     * Adds (if mapped to <tt>true</tt>) or removes each of the instances, with
+     * a single write to the journal.
+     */
+    public synchronized void update(final String name, final Map<RootOid, Boolean> changes) {
+        load();
+        Set<RootOid> instances = instancesByName.get(name);
+        if (instances == null) {
+            instances = Sets.newLinkedHashSet();
+            instancesByName.put(name, instances);
+        }
+        final StringBuilder entries = new StringBuilder();
+        int count = 0;
+        for (final Map.Entry<RootOid, Boolean> change : changes.entrySet()) {
+            final RootOid oid = change.getKey();
+            final boolean added = change.getValue();
+            if (added ? instances.add(oid) : instances.remove(oid)) {
+                entries.append(added ? ADDED : REMOVED).append(oid.enString(getOidMarshaller())).append('\n');
+                count++;
+            }
+        }
+        if (count > 0) {
+            journal(name, entries, count);
+        }
+    }
+
+    private void journal(final String name, final CharSequence entries, final int count) {
+        try {
+            final Writer journal = journalFor(name);
+            journal.append(entries);
+            journal.flush();
+        } catch (final IOException e) {
+            throw new IsisException("Problems writing journal for " + name, e);
+        }
+
+        final Integer journalled = journalledCounts.get(name);
+        final int journalledCount = journalled == null ? count : journalled + count;
+        journalledCounts.put(name, journalledCount);
+        if (journalledCount >= COMPACTION_THRESHOLD && journalledCount >= instancesByName.get(name).size()) {
+            compact(name);
+        }
+    }
+
+    private Writer journalFor(final String name) throws IOException {
+        Writer journal = journals.get(name);
+        if (journal == null) {
+            journal = new OutputStreamWriter(new FileOutputStream(journalFile(name), true), xmlFile.getCharset());
+            journals.put(name, journal);
+        }
+        return journal;
+    }
+
+    private File journalFile(final String name) {
+        return new File(xmlFile.getDirectory(), name + JOURNAL_SUFFIX);
+    }
+
+    // ////////////////////////////////////////////////////////
+    // compact, close
+    // ////////////////////////////////////////////////////////
+
+    /**
+     * Rewrites the instances file and discards its journal.
+     *
+     * <p>
+     * The new file replaces the old one before the journal is deleted, so if
+     * interrupted the journal is simply replayed again (which is harmless, as
+     * replaying it against the instances it has already been applied to
+     * changes nothing).
+     */
+    synchronized void compact(final String name) {
+        final List<RootOid> instances = Lists.newArrayList(instancesByName.get(name));
+        xmlFile.replaceXml(name, new ContentWriter() {
+            @Override
+            public void write(final Writer writer) throws IOException {
+                writer.write("<instances");
+                Utils.appendAttribute(writer, "name", name);
+                writer.append(">\n");
+
+                for (final RootOid elementAt : instances) {
+                    writer.append("  <instance");
+                    Utils.appendAttribute(writer, "oid", elementAt.enString(getOidMarshaller()));
+                    writer.append("/>\n");
+                }
+                writer.append("</instances>");
+                writer.flush();
+            }
+        });
+        closeJournal(name);
+        journalFile(name).delete();
+        journalledCounts.remove(name);
+    }
+
+    /**
+     * Compacts every journal, so that the next {@link #load()} need only read
+     * the instances files.
+     */
+    public synchronized void close() {
+        for (final String name : Lists.newArrayList(journalledCounts.keySet())) {
+            compact(name);
+        }
+    }
+
+    /**
+     * Discards the index, without compacting, so that it is read in again
+     * when next used.
+     */
+    public synchronized void unload() {
+        for (final String name : Lists.newArrayList(journals.keySet())) {
+            closeJournal(name);
+        }
+        instancesByName.clear();
+        journalledCounts.clear();
+        loaded = false;
+    }
+
+    private void closeJournal(final String name) {
+        final Writer journal = journals.remove(name);
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (final IOException e) {
+            LOG.warn("failed to close journal for " + name, e);
+        }
+    }
+
+    // ////////////////////////////////////////////////////////
+    // dependencies (from context)
+    // ////////////////////////////////////////////////////////
+
+    protected static OidMarshaller getOidMarshaller() {
+        return IsisContext.getOidMarshaller();
+    }
+
+}
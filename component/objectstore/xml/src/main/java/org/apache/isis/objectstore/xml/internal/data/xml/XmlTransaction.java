@@ -0,0 +1,188 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.xml.internal.data.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import org.apache.isis.core.metamodel.adapter.oid.OidMarshaller;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+
+/**
+ * The changes made by the commands executed together, held back so that they
+ * can all be written at once.
+ *
+ * <p>
+ * Before any files are changed the transaction's manifest, listing the files
+ * to be written and deleted and the instances to be added and removed, is
+ * written out, so that an interrupted transaction can be completed (or
+ * undone) when the store is next opened.
+ */
+class XmlTransaction {
+
+    private static final char WRITE = 'W';
+    private static final char DELETE = 'D';
+    private static final char ADD = '+';
+    private static final char REMOVE = '-';
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * The content of each file to be written, by name; <tt>null</tt> if read
+     * back from a manifest.
+     */
+    private final Map<String, String> writes = Maps.newLinkedHashMap();
+    private final Set<String> deletes = Sets.newLinkedHashSet();
+    private final Map<String, Map<RootOid, Boolean>> instanceChanges = Maps.newLinkedHashMap();
+    /**
+     * Not recorded in the manifest, as nothing is cached when a transaction is
+     * recovered.
+     */
+    private final Set<RootOid> changedOids = Sets.newHashSet();
+
+    // ////////////////////////////////////////////////////////
+    // changes
+    // ////////////////////////////////////////////////////////
+
+    public void write(final String fileName, final String content) {
+        deletes.remove(fileName);
+        writes.put(fileName, content);
+    }
+
+    public void delete(final String fileName) {
+        writes.remove(fileName);
+        deletes.add(fileName);
+    }
+
+    /**
+     * Records that the data for the object is written or deleted, so that any
+     * copy cached can be discarded.
+     */
+    public void changed(final RootOid oid) {
+        changedOids.add(oid);
+    }
+
+    public void add(final String specName, final RootOid oid) {
+        instanceChangesFor(specName).put(oid, true);
+    }
+
+    public void remove(final String specName, final RootOid oid) {
+        instanceChangesFor(specName).put(oid, false);
+    }
+
+    private Map<RootOid, Boolean> instanceChangesFor(final String specName) {
+        Map<RootOid, Boolean> changes = instanceChanges.get(specName);
+        if (changes == null) {
+            changes = Maps.newLinkedHashMap();
+            instanceChanges.put(specName, changes);
+        }
+        return changes;
+    }
+
+    public boolean isEmpty() {
+        return writes.isEmpty() && deletes.isEmpty() && instanceChanges.isEmpty();
+    }
+
+    public Map<String, String> getWrites() {
+        return writes;
+    }
+
+    public Set<String> getDeletes() {
+        return deletes;
+    }
+
+    public Set<RootOid> getChangedOids() {
+        return changedOids;
+    }
+
+    /**
+     * The instances to be added (<tt>true</tt>) or removed, by the name of
+     * their specification.
+     */
+    public Map<String, Map<RootOid, Boolean>> getInstanceChanges() {
+        return instanceChanges;
+    }
+
+    // ////////////////////////////////////////////////////////
+    // manifest
+    // ////////////////////////////////////////////////////////
+
+    public void writeManifest(final File file, final String charset, final OidMarshaller oidMarshaller) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), charset);
+        try {
+            for (final String fileName : writes.keySet()) {
+                writer.append(WRITE).append(SEPARATOR).append(fileName).append('\n');
+            }
+            for (final String fileName : deletes) {
+                writer.append(DELETE).append(SEPARATOR).append(fileName).append('\n');
+            }
+            for (final Map.Entry<String, Map<RootOid, Boolean>> specChanges : instanceChanges.entrySet()) {
+                for (final Map.Entry<RootOid, Boolean> change : specChanges.getValue().entrySet()) {
+                    writer.append(change.getValue() ? ADD : REMOVE).append(SEPARATOR).append(specChanges.getKey());
+                    writer.append(SEPARATOR).append(change.getKey().enString(oidMarshaller)).append('\n');
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Reads back a manifest, ignoring any incomplete entry at its end.
+     */
+    public static XmlTransaction readManifest(final File file, final String charset, final OidMarshaller oidMarshaller) throws IOException {
+        final XmlTransaction transaction = new XmlTransaction();
+        final String manifest = Files.toString(file, Charset.forName(charset));
+        int start = 0;
+        int end;
+        while ((end = manifest.indexOf('\n', start)) >= 0) {
+            final String[] entry = manifest.substring(start, end).split("" + SEPARATOR);
+            switch (entry[0].charAt(0)) {
+            case WRITE:
+                transaction.write(entry[1], null);
+                break;
+            case DELETE:
+                transaction.delete(entry[1]);
+                break;
+            case ADD:
+                transaction.add(entry[1], RootOidDefault.deString(entry[2], oidMarshaller));
+                break;
+            case REMOVE:
+                transaction.remove(entry[1], RootOidDefault.deString(entry[2], oidMarshaller));
+                break;
+            default:
+                throw new IOException("Invalid entry in " + file + ": " + entry[0]);
+            }
+            start = end + 1;
+        }
+        return transaction;
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.xml;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.isis.core.commons.config.ConfigurationConstants;
+import org.apache.isis.core.commons.config.IsisConfigurationDefault;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures.Fixtures.Initialization;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.tck.dom.refs.SimpleEntity;
+import org.apache.isis.objectstore.xml.internal.data.xml.Utils;
+
+/**
+ * Measures the time taken to install a fixture of <tt>benchmark.objects</tt>
+ * objects, persisted in a single transaction, with the files written one at a
+ * time and then by <tt>benchmark.threads</tt> threads.
+ *
+ * <p>
+ * Run explicitly, eg <tt>mvn test -Dtest=XmlObjectStoreFixturesBenchmark -Dbenchmark.objects=10000 -Dbenchmark.threads=8</tt>.
+ */
+public class XmlObjectStoreFixturesBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(XmlObjectStoreFixturesBenchmark.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IsisSystemWithFixtures system;
+
+    @After
+    public void tearDown() throws Exception {
+        stopSystem();
+    }
+
+    @BeforeClass
+    public static void configureLogging() {
+        BasicConfigurator.configure();
+        Logger.getRootLogger().setLevel(Level.WARN);
+        LOG.setLevel(Level.INFO);
+    }
+
+    @Test
+    public void installFixtures() throws Exception {
+        final int numberOfObjects = Integer.getInteger("benchmark.objects", 10000);
+        final int threads = Integer.getInteger("benchmark.threads", Utils.DEFAULT_WRITE_THREADS);
+
+        final long serial = install(numberOfObjects, 1);
+        final long parallel = install(numberOfObjects, threads);
+
+        LOG.info(String.format("%,d objects: %,d ms writing serially, %,d ms with %d write threads",
+                numberOfObjects, serial / 1000000, parallel / 1000000, threads));
+    }
+
+    private long install(final int numberOfObjects, final int writeThreads) throws Exception {
+        final File directory = folder.newFolder("objects-" + writeThreads);
+        final IsisConfigurationDefault configuration = new IsisConfigurationDefault();
+        configuration.add(ConfigurationConstants.ROOT + "xmlos.dir", directory.getAbsolutePath());
+        configuration.add(Utils.WRITE_THREADS_PROPERTY, "" + writeThreads);
+        system = IsisSystemWithFixtures.builder().with(configuration).with(Initialization.NO_INIT).with(new XmlPersistenceMechanismInstaller()).build();
+        system.setUpSystem();
+
+        final long start = System.nanoTime();
+        system.beginTran();
+        for (int i = 0; i < numberOfObjects; i++) {
+            final SimpleEntity entity = system.container.newTransientInstance(SimpleEntity.class);
+            entity.setName("entity " + i);
+            entity.setSize(i);
+            system.persist(entity);
+        }
+        system.commitTran();
+        final long elapsed = System.nanoTime() - start;
+
+        final String[] written = new File(directory, "SMPL").list();
+        stopSystem();
+        assertThat(written == null ? 0 : written.length, is(numberOfObjects));
+        return elapsed;
+    }
+
+    private void stopSystem() throws Exception {
+        if (system != null) {
+            system.tearDownSystem();
+            IsisContext.shutdown();
+            IsisContext.testReset();
+            system = null;
+        }
+    }
+
+}
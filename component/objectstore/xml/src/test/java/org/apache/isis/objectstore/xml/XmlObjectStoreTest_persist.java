@@ -37,6 +37,8 @@ protected PersistenceMechanismInstaller createPersistenceMechanismInstaller() {
 
     protected void resetPersistenceStore() {
         Files.deleteFiles("xml/objects", Files.and(endsWithXml(), notServicesXml()), Recursion.DO_RECURSE);
+        Files.deleteFiles("xml/objects", ".journal", Recursion.DONT_RECURSE);
+        getStore().reset();
     }
 
     private static FilenameFilter notServicesXml() {
@@ -0,0 +1,165 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.xml.internal.data.xml;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.objectstore.xml.internal.data.Data;
+import org.apache.isis.objectstore.xml.internal.data.ObjectData;
+import org.apache.isis.objectstore.xml.internal.version.FileVersion;
+
+public class XmlDataCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private XmlDataCache cache;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new XmlDataCache(2, XmlDataCache.Eviction.LRU);
+        file = folder.newFile("1.xml");
+        write(file, "<data/>");
+    }
+
+    @Test
+    public void cachedDataReturnedWhileFileUnchanged() throws Exception {
+        final Data data = data(1, 10);
+        put(data, file);
+
+        assertThat(cache.get(oid(1), file), is(sameInstance(data)));
+        assertThat(cache.getDebugData(), containsString("1 hits, 0 misses"));
+    }
+
+    @Test
+    public void cachedDataDiscardedOnceFileChanged() throws Exception {
+        put(data(1, 10), file);
+
+        write(file, "<data>changed</data>");
+
+        assertThat(cache.get(oid(1), file), is(nullValue()));
+        assertThat(cache.getDebugData(), containsString("0 hits, 1 misses"));
+    }
+
+    @Test
+    public void invalidatedDataNotReturned() throws Exception {
+        put(data(1, 10), file);
+
+        cache.invalidate(oid(1));
+
+        assertThat(cache.get(oid(1), file), is(nullValue()));
+    }
+
+    @Test
+    public void dataReadBeforeInvalidationNotCached() throws Exception {
+        final long ticket = cache.ticket();
+        cache.invalidate(oid(1));
+        cache.put(oid(1), data(1, 10), file.lastModified(), file.length(), ticket);
+
+        assertThat(cache.get(oid(1), file), is(nullValue()));
+    }
+
+    @Test
+    public void olderVersionDoesNotReplaceNewer() throws Exception {
+        final Data newer = data(1, 20);
+        put(newer, file);
+        put(data(1, 10), file);
+
+        assertThat(cache.get(oid(1), file), is(sameInstance(newer)));
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() throws Exception {
+        final File file2 = file(2);
+        final File file3 = file(3);
+        put(data(1, 10), file);
+        put(data(2, 10), file2);
+        cache.get(oid(1), file);
+        put(data(3, 10), file3);
+
+        assertThat(cache.get(oid(1), file) != null, is(true));
+        assertThat(cache.get(oid(2), file2), is(nullValue()));
+        assertThat(cache.get(oid(3), file3) != null, is(true));
+    }
+
+    @Test
+    public void firstInEvicted() throws Exception {
+        cache = new XmlDataCache(2, XmlDataCache.Eviction.FIFO);
+        final File file2 = file(2);
+        final File file3 = file(3);
+        put(data(1, 10), file);
+        put(data(2, 10), file2);
+        cache.get(oid(1), file);
+        put(data(3, 10), file3);
+
+        assertThat(cache.get(oid(1), file), is(nullValue()));
+        assertThat(cache.get(oid(2), file2) != null, is(true));
+        assertThat(cache.get(oid(3), file3) != null, is(true));
+    }
+
+    @Test
+    public void nothingCachedWhenSizeZero() throws Exception {
+        cache = new XmlDataCache(0, XmlDataCache.Eviction.LRU);
+        put(data(1, 10), file);
+
+        assertThat(cache.get(oid(1), file), is(nullValue()));
+    }
+
+    private void put(final Data data, final File file) {
+        cache.put(data.getRootOid(), data, file.lastModified(), file.length(), cache.ticket());
+    }
+
+    private File file(final int id) throws Exception {
+        final File file = folder.newFile(id + ".xml");
+        write(file, "<data/>");
+        return file;
+    }
+
+    private static void write(final File file, final String content) throws Exception {
+        final FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+
+    private static Data data(final int id, final long time) {
+        return new ObjectData(oid(id), FileVersion.create("user", time));
+    }
+
+    private static RootOid oid(final int id) {
+        return RootOidDefault.create(ObjectSpecId.of("RLE"), "" + id);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.xml.internal.data.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.isis.core.commons.xml.XmlFile;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.tck.dom.xmlos.TeamDomainRepository;
+import org.apache.isis.objectstore.xml.XmlPersistenceMechanismInstaller;
+import org.apache.isis.objectstore.xml.internal.clock.DefaultClock;
+import org.apache.isis.objectstore.xml.internal.data.ObjectData;
+import org.apache.isis.objectstore.xml.internal.version.FileVersion;
+
+public class XmlDataManagerTest_transaction {
+
+    @Rule
+    public IsisSystemWithFixtures iswf = IsisSystemWithFixtures.builder()
+        .with(new XmlPersistenceMechanismInstaller())
+        .withServices(new TeamDomainRepository())
+        .build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String ROLES = "org.apache.isis.core.tck.dom.xmlos.Role";
+
+    private XmlFile xmlFile;
+    private XmlDataManager manager;
+    private ObjectData pattern;
+    private ObjectData data;
+
+    @Before
+    public void setUp() throws Exception {
+        FileVersion.setClock(new DefaultClock());
+
+        xmlFile = new XmlFile(Utils.DEFAULT_ENCODING, folder.getRoot().getPath());
+        manager = new XmlDataManager(xmlFile);
+
+        pattern = new ObjectData(RootOidDefault.create(ObjectSpecId.of("RLE"), "1"), FileVersion.create("user", 13));
+        data = new ObjectData(RootOidDefault.create(ObjectSpecId.of("RLE"), "99"), FileVersion.create("user", 13));
+        data.set("Name", "Harry");
+    }
+
+    @Test
+    public void changesWrittenOnlyOnceTransactionEnds() throws Exception {
+        manager.startTransaction();
+        manager.insertObject(data);
+
+        assertNull(manager.loadData(data.getRootOid()));
+        assertEquals(0, manager.numberOfInstances(pattern));
+
+        manager.endTransaction();
+
+        final ObjectData read = (ObjectData) manager.loadData(data.getRootOid());
+        assertEquals("Harry", read.get("Name"));
+        assertEquals(1, manager.numberOfInstances(pattern));
+        assertFalse(new File(folder.getRoot(), "transaction.committed").exists());
+    }
+
+    @Test
+    public void abortedTransactionWritesNothing() throws Exception {
+        manager.startTransaction();
+        manager.insertObject(data);
+        manager.abortTransaction();
+
+        assertNull(manager.loadData(data.getRootOid()));
+        assertEquals(0, manager.numberOfInstances(pattern));
+    }
+
+    @Test
+    public void removeInTransaction() throws Exception {
+        manager.insertObject(data);
+
+        manager.startTransaction();
+        manager.remove(data.getRootOid());
+        assertNotNull(manager.loadData(data.getRootOid()));
+        manager.endTransaction();
+
+        assertNull(manager.loadData(data.getRootOid()));
+        assertEquals(0, manager.numberOfInstances(pattern));
+    }
+
+    @Test
+    public void committedTransactionCompletedWhenOpened() throws Exception {
+        interruptTransaction("transaction.committed");
+
+        manager = new XmlDataManager(xmlFile);
+        manager.open();
+
+        final ObjectData read = (ObjectData) manager.loadData(data.getRootOid());
+        assertEquals("Harry", read.get("Name"));
+        assertEquals(1, manager.numberOfInstances(pattern));
+        assertFalse(new File(folder.getRoot(), "transaction.committed").exists());
+    }
+
+    @Test
+    public void preparedTransactionDiscardedWhenOpened() throws Exception {
+        interruptTransaction("transaction.prepared");
+
+        manager = new XmlDataManager(xmlFile);
+        manager.open();
+
+        assertNull(manager.loadData(data.getRootOid()));
+        assertEquals(0, manager.numberOfInstances(pattern));
+        assertFalse(new File(folder.getRoot(), "transaction.prepared").exists());
+        assertFalse(new File(dataFile().getPath() + ".tmp").exists());
+    }
+
+    /**
+     * Leaves things as they would be if the store was stopped with the data
+     * file written to one side and the named manifest in place.
+     */
+    private void interruptTransaction(final String manifest) throws Exception {
+        manager.insertObject(data);
+        manager.shutdown();
+        new File(folder.getRoot(), ROLES + ".xml").delete();
+        assertTrue(dataFile().renameTo(new File(dataFile().getPath() + ".tmp")));
+
+        final RootOid oid = data.getRootOid();
+        final XmlTransaction transaction = new XmlTransaction();
+        transaction.write(oid.getObjectSpecId() + File.separator + oid.getIdentifier(), null);
+        transaction.add(ROLES, oid);
+        transaction.writeManifest(new File(folder.getRoot(), manifest), Utils.DEFAULT_ENCODING, IsisContext.getOidMarshaller());
+    }
+
+    private File dataFile() {
+        return new File(folder.getRoot(), "RLE" + File.separator + "99.xml");
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.objectstore.xml.internal.data.xml;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.isis.core.commons.xml.ContentWriter;
+import org.apache.isis.core.commons.xml.XmlFile;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.objectstore.xml.XmlPersistenceMechanismInstaller;
+
+public class XmlInstancesIndexTest {
+
+    private static final String ROLES = "org.example.Role";
+
+    @Rule
+    public IsisSystemWithFixtures iswf = IsisSystemWithFixtures.builder().with(new XmlPersistenceMechanismInstaller()).build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private XmlFile xmlFile;
+    private XmlInstancesIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        xmlFile = new XmlFile(Utils.DEFAULT_ENCODING, folder.getRoot().getPath());
+        index = new XmlInstancesIndex(xmlFile);
+    }
+
+    @Test
+    public void addedAndRemovedInstancesAreReadBackFromJournal() throws Exception {
+        index.add(ROLES, oid(1));
+        index.add(ROLES, oid(2));
+        index.add(ROLES, oid(3));
+        index.remove(ROLES, oid(2));
+
+        assertThat(journal().exists(), is(true));
+        assertThat(reloaded().instances(ROLES), is(Arrays.asList(oid(1), oid(3))));
+    }
+
+    @Test
+    public void readsInstancesFileWrittenWithoutJournal() throws Exception {
+        xmlFile.writeXml(ROLES, new ContentWriter() {
+            @Override
+            public void write(final Writer writer) throws IOException {
+                writer.write("<instances name=\"" + ROLES + "\">\n");
+                writer.write("  <instance oid=\"RLE:1\"/>\n");
+                writer.write("  <instance oid=\"RLE:2\"/>\n");
+                writer.write("</instances>");
+            }
+        });
+
+        assertThat(index.numberOfInstances(ROLES), is(2));
+        index.add(ROLES, oid(3));
+
+        assertThat(reloaded().instances(ROLES), is(Arrays.asList(oid(1), oid(2), oid(3))));
+    }
+
+    @Test
+    public void compactsOnceJournalAsLongAsInstances() throws Exception {
+        for (int i = 0; i < XmlInstancesIndex.COMPACTION_THRESHOLD - 1; i++) {
+            index.add(ROLES, oid(i));
+        }
+        assertThat(journal().exists(), is(true));
+
+        index.add(ROLES, oid(XmlInstancesIndex.COMPACTION_THRESHOLD));
+
+        assertThat(journal().exists(), is(false));
+        assertThat(reloaded().numberOfInstances(ROLES), is(XmlInstancesIndex.COMPACTION_THRESHOLD));
+    }
+
+    @Test
+    public void discardsIncompleteEntryAtEndOfJournal() throws Exception {
+        index.add(ROLES, oid(1));
+        index.add(ROLES, oid(2));
+        index.unload();
+        final FileWriter writer = new FileWriter(journal(), true);
+        writer.write("+RLE:");
+        writer.close();
+
+        assertThat(index.instances(ROLES), is(Arrays.asList(oid(1), oid(2))));
+        assertThat(journal().exists(), is(false));
+
+        index.add(ROLES, oid(3));
+        assertThat(reloaded().numberOfInstances(ROLES), is(3));
+    }
+
+    @Test
+    public void closeCompactsJournals() throws Exception {
+        index.add(ROLES, oid(1));
+
+        index.close();
+
+        assertThat(journal().exists(), is(false));
+        assertThat(reloaded().instances(ROLES), is(Arrays.asList(oid(1))));
+    }
+
+    @Test
+    public void ignoresOtherFiles() throws Exception {
+        xmlFile.writeXml("oid", new ContentWriter() {
+            @Override
+            public void write(final Writer writer) throws IOException {
+                writer.write("<number>1f</number>");
+            }
+        });
+
+        assertThat(index.numberOfInstances("oid"), is(0));
+    }
+
+    private XmlInstancesIndex reloaded() {
+        index.unload();
+        return new XmlInstancesIndex(xmlFile);
+    }
+
+    private File journal() {
+        return new File(folder.getRoot(), ROLES + XmlInstancesIndex.JOURNAL_SUFFIX);
+    }
+
+    private static RootOid oid(final int id) {
+        return RootOidDefault.create(ObjectSpecId.of("RLE"), "" + id);
+    }
+
+}
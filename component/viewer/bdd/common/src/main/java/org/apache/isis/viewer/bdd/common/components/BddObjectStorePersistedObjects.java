@@ -29,7 +29,9 @@
 import org.apache.isis.core.metamodel.spec.ObjectSpecId;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 import org.apache.isis.core.objectstore.internal.ObjectStoreInstances;
+import org.apache.isis.core.objectstore.internal.ObjectStoreJournal;
 import org.apache.isis.core.objectstore.internal.ObjectStorePersistedObjects;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots;
 import org.apache.isis.core.runtime.system.persistence.IdentifierGeneratorDefault.Memento;
 
 /**
@@ -44,6 +46,7 @@
 public class BddObjectStorePersistedObjects implements ObjectStorePersistedObjects {
 
     private static final Map<ObjectSpecification, ObjectStoreInstances> cachedInstancesBySpecMap = Maps.newHashMap();
+    private static final ObjectStoreSnapshots snapshots = new ObjectStoreSnapshots();
 
     private final Map<ObjectSpecification, ObjectStoreInstances> operationalInstancesBySpecMap = Maps.newHashMap();
     private final Map<ObjectSpecId, Oid> serviceOidByIdMap = Maps.newHashMap();
@@ -87,6 +90,19 @@ public Iterable<ObjectStoreInstances> instances() {
         return Iterables.concat(BddObjectStorePersistedObjects.cachedInstancesBySpecMap.values(), operationalInstancesBySpecMap.values());
     }
 
+    @Override
+    public ObjectStoreSnapshots getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Not durable.
+     */
+    @Override
+    public ObjectStoreJournal getJournal() {
+        return null;
+    }
+
     @Override
     public ObjectStoreInstances instancesFor(final ObjectSpecification spec) {
         if (isCached(spec)) {
@@ -103,7 +119,7 @@ public ObjectStoreInstances instancesFor(final ObjectSpecification spec) {
     private ObjectStoreInstances getFromMap(final ObjectSpecification spec, final Map<ObjectSpecification, ObjectStoreInstances> map) {
         ObjectStoreInstances ins = map.get(spec);
         if (ins == null) {
-            ins = new ObjectStoreInstances(spec);
+            ins = new ObjectStoreInstances(spec, null, snapshots);
             map.put(spec, ins);
         }
         return ins;
@@ -24,6 +24,7 @@
 import org.apache.isis.applib.annotation.Aggregated;
 import org.apache.isis.applib.filter.Filter;
 import org.apache.isis.applib.query.Query;
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.applib.security.UserMemento;
 
 /**
@@ -355,6 +356,41 @@ public interface DomainObjectContainer {
      */
     <T> List<T> allMatches(Query<T> query);
 
+    /**
+     * Returns all the instances of the specified type (including subtypes) as
+     * a {@link QueryCursor cursor}, retrieving them from the object store in
+     * batches of (approximately) the specified size as they are iterated over.
+     * 
+     * <p>
+     * Intended for batch jobs processing more instances than can be held in
+     * memory at once: each instance is released by the framework once the
+     * cursor has moved past it (unless it has been changed in the current
+     * transaction), so instances should not be held onto beyond the
+     * iteration that returned them. The cursor must be
+     * {@link QueryCursor#close() closed} once finished with.
+     * 
+     * @param fetchSize the number of instances to retrieve at a time, or 0 for
+     *            the object store's default.
+     */
+    <T> QueryCursor<T> streamInstances(Class<T> ofType, int fetchSize);
+
+    /**
+     * Returns all the instances that match the given {@link Query} as a
+     * {@link QueryCursor cursor}, retrieving them from the object store in
+     * batches of (approximately) the specified size as they are iterated over.
+     * 
+     * <p>
+     * As for {@link #streamInstances(Class, int)}, instances are released once
+     * the cursor has moved past them, and the cursor must be
+     * {@link QueryCursor#close() closed} once finished with. Object stores
+     * that cannot stream results retrieve them all up front, as for
+     * {@link #allMatches(Query)}.
+     * 
+     * @param fetchSize the number of instances to retrieve at a time, or 0 for
+     *            the object store's default.
+     */
+    <T> QueryCursor<T> streamMatches(Query<T> query, int fetchSize);
+
     /**
      * Returns the first instance of the specified type (including subtypes)
      * that matches the supplied {@link Filter}, or <tt>null</tt> if none.
@@ -43,7 +43,8 @@
      * Base query based on Class type. 
      * 
      * @param type
-     * @param range optional start and count of the range of dataset. 0
+     * @param range optional start and count of the range of dataset. A count
+     *            of 0 (or none) means all from the start.
      */
     public QueryAbstract(final Class<T> type, final long ... range) {
         this.resultTypeName = type.getName();
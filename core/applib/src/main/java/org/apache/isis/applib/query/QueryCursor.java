@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.applib.query;
+
+import java.util.Iterator;
+
+import org.apache.isis.applib.DomainObjectContainer;
+
+/**
+ * The results of a {@link Query}, retrieved from the object store only as
+ * they are iterated over rather than all at once; see
+ * {@link DomainObjectContainer#streamMatches(Query, int)}.
+ * 
+ * <p>
+ * The cursor must be {@link #close() closed} once finished with, whether or not
+ * all the results have been iterated over, so that the underlying query (and
+ * any database resources it holds) can be released. It may only be used
+ * within the transaction in which it was obtained.
+ * 
+ * <p>
+ * Removing results is not supported.
+ */
+public interface QueryCursor<T> extends Iterator<T> {
+
+    /**
+     * Releases the underlying query; no further results can be obtained.
+     * 
+     * <p>
+     * Closing a cursor that is already closed has no effect.
+     */
+    void close();
+}
@@ -20,8 +20,9 @@
 package org.apache.isis.core.bytecode.cglib;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
 
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.Enhancer;
@@ -29,12 +30,9 @@
 import net.sf.cglib.proxy.MethodProxy;
 
 import org.apache.isis.core.commons.lang.ArrayUtils;
-import org.apache.isis.core.metamodel.facets.ImperativeFacetUtils;
-import org.apache.isis.core.metamodel.facets.ImperativeFacetUtils.ImperativeFacetFlags;
 import org.apache.isis.core.metamodel.spec.SpecificationLoaderSpi;
-import org.apache.isis.core.metamodel.spec.feature.ObjectMember;
 import org.apache.isis.core.metamodel.specloader.classsubstitutor.CglibEnhanced;
-import org.apache.isis.core.metamodel.specloader.specimpl.dflt.ObjectSpecificationDefault;
+import org.apache.isis.core.runtime.bytecode.InterceptionPlan.Interception;
 import org.apache.isis.core.runtime.bytecode.ObjectResolveAndObjectChangedEnhancerAbstract;
 import org.apache.isis.core.runtime.persistence.objectfactory.ObjectChanger;
 import org.apache.isis.core.runtime.persistence.objectfactory.ObjectResolver;
@@ -46,7 +44,7 @@ public class ObjectResolveAndObjectChangedEnhancer extends ObjectResolveAndObjec
     /**
      * Cache of Enhancers, lazy populated.
      */
-    private final Map<Class<?>, Enhancer> enhancerByClass = new HashMap<Class<?>, Enhancer>();
+    private final ConcurrentMap<Class<?>, Enhancer> enhancerByClass = Maps.newConcurrentMap();
 
     public ObjectResolveAndObjectChangedEnhancer(final ObjectResolver objectResolver, final ObjectChanger objectChanger, final SpecificationLoaderSpi specificationLoader) {
         super(objectResolver, objectChanger, specificationLoader);
@@ -61,23 +59,18 @@ protected void createCallback() {
             @Override
             public Object intercept(final Object proxied, final Method proxiedMethod, final Object[] args, final MethodProxy proxyMethod) throws Throwable {
 
-                final boolean ignore = proxiedMethod.getDeclaringClass().equals(Object.class);
-                ImperativeFacetFlags flags = null;
-
-                if (!ignore) {
-                    final ObjectSpecificationDefault targetObjSpec = getJavaSpecificationOfOwningClass(proxiedMethod);
-                    final ObjectMember member = targetObjSpec.getMember(proxiedMethod);
-
-                    flags = ImperativeFacetUtils.getImperativeFacetFlags(member, proxiedMethod);
+                final Interception interception = interceptionFor(proxiedMethod);
+                if (interception == null) {
+                    return proxyMethod.invokeSuper(proxied, args);
+                }
 
-                    if (flags.impliesResolve()) {
-                        objectResolver.resolve(proxied, member.getName());
-                    }
+                if (interception.impliesResolve()) {
+                    objectResolver.resolve(proxied, interception.getMemberName());
                 }
 
                 final Object proxiedReturn = proxyMethod.invokeSuper(proxied, args);
 
-                if (!ignore && flags.impliesObjectChanged()) {
+                if (interception.impliesObjectChanged()) {
                     objectChanger.objectChanged(proxied);
                 }
 
@@ -100,7 +93,10 @@ private Enhancer lookupOrCreateEnhancerFor(final Class<?> cls) {
             enhancer.setSuperclass(cls);
             enhancer.setInterfaces(ArrayUtils.combine(cls.getInterfaces(), new Class<?>[] { CglibEnhanced.class }));
             enhancer.setCallback(callback);
-            enhancerByClass.put(cls, enhancer);
+            final Enhancer existing = enhancerByClass.putIfAbsent(cls, enhancer);
+            if (existing != null) {
+                enhancer = existing;
+            }
         }
         return enhancer;
     }
@@ -0,0 +1,189 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.core.bytecode.cglib;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.isis.applib.filter.Filter;
+import org.apache.isis.core.bytecode.cglib.ClassEnhancerTest.ImperativeTestFacet;
+import org.apache.isis.core.metamodel.facetapi.Facet;
+import org.apache.isis.core.metamodel.spec.SpecificationLoaderSpi;
+import org.apache.isis.core.metamodel.spec.feature.ObjectMember;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstract.IntrospectionState;
+import org.apache.isis.core.metamodel.specloader.specimpl.dflt.ObjectSpecificationDefault;
+import org.apache.isis.core.runtime.persistence.objectfactory.ObjectChanger;
+import org.apache.isis.core.runtime.persistence.objectfactory.ObjectResolver;
+
+/**
+ * Measures the cost of calling the getter of an enhanced domain object, both
+ * one that is passed straight through and one that requires the object to be
+ * resolved (by a resolver that does nothing), against that of calling the
+ * getter of a plain pojo.
+ * 
+ * <p>
+ * Run explicitly, eg <tt>mvn test -Dtest=ObjectResolveAndObjectChangedEnhancerBenchmark</tt>.
+ */
+public class ObjectResolveAndObjectChangedEnhancerBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(ObjectResolveAndObjectChangedEnhancerBenchmark.class);
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int CALLS_PER_ITERATION = 1000000;
+
+    public static class PassedThrough {
+        private String name = "Fred";
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class Resolved {
+        private String name = "Fred";
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Mockery mockery = new JUnit4Mockery() {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    private int resolves;
+
+    private ObjectResolveAndObjectChangedEnhancer classEnhancer;
+
+    @BeforeClass
+    public static void configureLogging() {
+        BasicConfigurator.configure();
+        Logger.getRootLogger().setLevel(Level.OFF);
+        LOG.setLevel(Level.INFO);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final SpecificationLoaderSpi mockSpecificationLoader = mockery.mock(SpecificationLoaderSpi.class);
+        final ObjectSpecificationDefault mockPassedThroughSpec = mockery.mock(ObjectSpecificationDefault.class, "passedThroughSpec");
+        final ObjectSpecificationDefault mockResolvedSpec = mockery.mock(ObjectSpecificationDefault.class, "resolvedSpec");
+        final ObjectMember mockMember = mockery.mock(ObjectMember.class);
+        final ImperativeTestFacet mockFacet = mockery.mock(ImperativeTestFacet.class);
+        final Method resolvedGetter = Resolved.class.getMethod("getName");
+        final List<Facet> facets = Collections.<Facet> singletonList(mockFacet);
+
+        mockery.checking(new Expectations() {
+            {
+                allowing(mockSpecificationLoader).loadSpecification(PassedThrough.class);
+                will(returnValue(mockPassedThroughSpec));
+                allowing(mockSpecificationLoader).loadSpecification(Resolved.class);
+                will(returnValue(mockResolvedSpec));
+
+                allowing(mockPassedThroughSpec).getIntrospectionState();
+                will(returnValue(IntrospectionState.INTROSPECTED));
+                allowing(mockResolvedSpec).getIntrospectionState();
+                will(returnValue(IntrospectionState.INTROSPECTED));
+
+                allowing(mockPassedThroughSpec).getMember(with(any(Method.class)));
+                will(returnValue(null));
+                allowing(mockResolvedSpec).getMember(resolvedGetter);
+                will(returnValue(mockMember));
+
+                allowing(mockMember).getFacets(with(any(Filter.class)));
+                will(returnValue(facets));
+                allowing(mockMember).getName();
+                will(returnValue("name"));
+                allowing(mockFacet).getMethods();
+                will(returnValue(Collections.singletonList(resolvedGetter)));
+                allowing(mockFacet).impliesResolve();
+                will(returnValue(true));
+                allowing(mockFacet).impliesObjectChanged();
+                will(returnValue(false));
+            }
+        });
+
+        final ObjectResolver objectResolver = new ObjectResolver() {
+            @Override
+            public void resolve(final Object domainObject, final String propertyName) {
+                resolves++;
+            }
+        };
+        final ObjectChanger objectChanger = new ObjectChanger() {
+            @Override
+            public void objectChanged(final Object domainObject) {
+            }
+        };
+        classEnhancer = new ObjectResolveAndObjectChangedEnhancer(objectResolver, objectChanger, mockSpecificationLoader);
+    }
+
+    @Test
+    public void compare() throws Exception {
+        final double plainNanos = measure(new PassedThrough());
+        final double passedThroughNanos = measure(classEnhancer.newInstance(PassedThrough.class));
+        final double resolvedNanos = measure(classEnhancer.newInstance(Resolved.class));
+
+        LOG.info(String.format("getter: plain %.1f ns/call, enhanced passed through %.1f ns/call, enhanced resolving %.1f ns/call (%d resolves)", plainNanos, passedThroughNanos, resolvedNanos, resolves));
+    }
+
+    private double measure(final Object domainObject) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            calls(domainObject);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            calls(domainObject);
+        }
+        final long elapsed = System.nanoTime() - start;
+        return (double) elapsed / (MEASURED_ITERATIONS * CALLS_PER_ITERATION);
+    }
+
+    private static int calls(final Object domainObject) {
+        int length = 0;
+        if (domainObject instanceof Resolved) {
+            final Resolved resolved = (Resolved) domainObject;
+            for (int i = 0; i < CALLS_PER_ITERATION; i++) {
+                length += resolved.getName().length();
+            }
+        } else {
+            final PassedThrough passedThrough = (PassedThrough) domainObject;
+            for (int i = 0; i < CALLS_PER_ITERATION; i++) {
+                length += passedThrough.getName().length();
+            }
+        }
+        if (length != 4 * CALLS_PER_ITERATION) {
+            throw new IllegalStateException("unexpected getter results");
+        }
+        return length;
+    }
+}
@@ -20,6 +20,9 @@
 package org.apache.isis.core.bytecode.javassist;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
 
 import javassist.util.proxy.MethodFilter;
 import javassist.util.proxy.MethodHandler;
@@ -28,11 +31,8 @@
 
 import org.apache.isis.core.commons.exceptions.IsisException;
 import org.apache.isis.core.commons.lang.ArrayUtils;
-import org.apache.isis.core.metamodel.facets.ImperativeFacetUtils;
-import org.apache.isis.core.metamodel.facets.ImperativeFacetUtils.ImperativeFacetFlags;
 import org.apache.isis.core.metamodel.spec.SpecificationLoaderSpi;
-import org.apache.isis.core.metamodel.spec.feature.ObjectMember;
-import org.apache.isis.core.metamodel.specloader.specimpl.dflt.ObjectSpecificationDefault;
+import org.apache.isis.core.runtime.bytecode.InterceptionPlan.Interception;
 import org.apache.isis.core.runtime.bytecode.ObjectResolveAndObjectChangedEnhancerAbstract;
 import org.apache.isis.core.runtime.persistence.objectfactory.ObjectChanger;
 import org.apache.isis.core.runtime.persistence.objectfactory.ObjectResolver;
@@ -41,6 +41,11 @@ public class ObjectResolveAndObjectChangedEnhancer extends ObjectResolveAndObjec
 
     private MethodHandler methodHandler;
 
+    /**
+     * Cache of proxy classes, lazy populated.
+     */
+    private final ConcurrentMap<Class<?>, Class<?>> proxyClassByClass = Maps.newConcurrentMap();
+
     public ObjectResolveAndObjectChangedEnhancer(final ObjectResolver objectResolver, final ObjectChanger objectChanger, final SpecificationLoaderSpi specificationLoader) {
         super(objectResolver, objectChanger, specificationLoader);
 
@@ -53,18 +58,14 @@ protected void createCallback() {
             @Override
             public Object invoke(final Object proxied, final Method proxyMethod, final Method proxiedMethod, final Object[] args) throws Throwable {
 
-                final boolean ignore = proxyMethod.getDeclaringClass().equals(Object.class);
-                ImperativeFacetFlags flags = null;
-
-                if (!ignore) {
-                    final ObjectSpecificationDefault targetObjSpec = getJavaSpecificationOfOwningClass(proxiedMethod);
-
-                    final ObjectMember member = targetObjSpec.getMember(proxiedMethod);
-                    flags = ImperativeFacetUtils.getImperativeFacetFlags(member, proxiedMethod);
+                // the plan is of the domain class's (overridden) method, rather than the proxy's
+                final Interception interception = interceptionFor(proxyMethod);
+                if (interception == null) {
+                    return proxiedMethod.invoke(proxied, args);
+                }
 
-                    if (flags.impliesResolve()) {
-                        objectResolver.resolve(proxied, member.getName());
-                    }
+                if (interception.impliesResolve()) {
+                    objectResolver.resolve(proxied, interception.getMemberName());
                 }
 
                 final Object proxiedReturn = proxiedMethod.invoke(proxied, args); // execute
@@ -72,7 +73,7 @@ public Object invoke(final Object proxied, final Method proxyMethod, final Metho
                                                                                   // original
                                                                                   // method.
 
-                if (!ignore && flags.impliesObjectChanged()) {
+                if (interception.impliesObjectChanged()) {
                     objectChanger.objectChanged(proxied);
                 }
 
@@ -84,6 +85,33 @@ public Object invoke(final Object proxied, final Method proxyMethod, final Metho
     @SuppressWarnings("unchecked")
     public <T> T newInstance(final Class<T> cls) {
 
+        final Class<T> proxySubclass = (Class<T>) lookupOrCreateProxyClassFor(cls);
+        try {
+            final T newInstance = proxySubclass.newInstance();
+            final ProxyObject proxyObject = (ProxyObject) newInstance;
+            proxyObject.setHandler(methodHandler);
+
+            return newInstance;
+        } catch (final InstantiationException e) {
+            throw new IsisException(e);
+        } catch (final IllegalAccessException e) {
+            throw new IsisException(e);
+        }
+    }
+
+    private Class<?> lookupOrCreateProxyClassFor(final Class<?> cls) {
+        Class<?> proxyClass = proxyClassByClass.get(cls);
+        if (proxyClass == null) {
+            proxyClass = createProxyClassFor(cls);
+            final Class<?> existing = proxyClassByClass.putIfAbsent(cls, proxyClass);
+            if (existing != null) {
+                proxyClass = existing;
+            }
+        }
+        return proxyClass;
+    }
+
+    private static Class<?> createProxyClassFor(final Class<?> cls) {
         final ProxyFactory proxyFactory = new ProxyFactory();
         proxyFactory.setSuperclass(cls);
         proxyFactory.setInterfaces(ArrayUtils.combine(cls.getInterfaces(), new Class<?>[] { JavassistEnhanced.class }));
@@ -96,18 +124,7 @@ public boolean isHandled(final Method m) {
             }
         });
 
-        final Class<T> proxySubclass = proxyFactory.createClass();
-        try {
-            final T newInstance = proxySubclass.newInstance();
-            final ProxyObject proxyObject = (ProxyObject) newInstance;
-            proxyObject.setHandler(methodHandler);
-
-            return newInstance;
-        } catch (final InstantiationException e) {
-            throw new IsisException(e);
-        } catch (final IllegalAccessException e) {
-            throw new IsisException(e);
-        }
+        return proxyFactory.createClass();
     }
 
 }
@@ -0,0 +1,180 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.isis.core.commons.config.IsisConfigurationDefault;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures.Fixtures.Initialization;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.objectstore.internal.ObjectStoreJournal;
+import org.apache.isis.core.objectstore.internal.ObjectStoreLog;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.tck.dom.refs.SimpleEntity;
+
+/**
+ * Measures the time taken to restart a journalled in-memory object store
+ * holding <tt>benchmark.objects</tt> objects, and the latency of commits
+ * written to the journal's log by <tt>benchmark.threads</tt> concurrent
+ * committers (each waiting for its commit to be forced to disk, unless
+ * <tt>benchmark.force</tt> is false).
+ *
+ * <p>
+ * Run explicitly, eg <tt>mvn test -Dtest=InMemoryObjectStoreJournalBenchmark -Dbenchmark.objects=1000000 -Dbenchmark.threads=16</tt>.
+ */
+public class InMemoryObjectStoreJournalBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(InMemoryObjectStoreJournalBenchmark.class);
+
+    private static final int OBJECTS_PER_TRANSACTION = 1000;
+    private static final int COMMITS_PER_THREAD = 500;
+    private static final int RECORD_SIZE = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IsisConfigurationDefault configuration;
+    private IsisSystemWithFixtures system;
+
+    @BeforeClass
+    public static void configureLogging() {
+        BasicConfigurator.configure();
+        Logger.getRootLogger().setLevel(Level.OFF);
+        LOG.setLevel(Level.INFO);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new IsisConfigurationDefault();
+        configuration.add(ObjectStoreJournal.DIRECTORY_KEY, folder.getRoot().getAbsolutePath());
+        configuration.add(ObjectStoreJournal.FORCE_KEY, System.getProperty("benchmark.force", "true"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (system != null) {
+            system.tearDownSystem();
+            IsisContext.shutdown();
+            IsisContext.testReset();
+        }
+    }
+
+    @Test
+    public void restart() throws Exception {
+        final int numberOfObjects = Integer.getInteger("benchmark.objects", 100000);
+
+        startSystem();
+        RootOid last = null;
+        for (int i = 0; i < numberOfObjects; i += OBJECTS_PER_TRANSACTION) {
+            system.beginTran();
+            for (int j = i; j < Math.min(i + OBJECTS_PER_TRANSACTION, numberOfObjects); j++) {
+                final SimpleEntity entity = system.container.newTransientInstance(SimpleEntity.class);
+                entity.setName("entity " + j);
+                entity.setSize(j);
+                last = (RootOid) system.persist(entity).getOid();
+            }
+            system.commitTran();
+        }
+        final long shutdownStart = System.nanoTime();
+        system.tearDownSystem();
+        IsisContext.shutdown();
+        IsisContext.testReset();
+        final long shutdown = System.nanoTime();
+
+        final long restartStart = System.nanoTime();
+        startSystem();
+        final long restarted = System.nanoTime();
+
+        system.beginTran();
+        final SimpleEntity entity = (SimpleEntity) system.reload(last).getObject();
+        system.commitTran();
+        assertThat(entity.getSize(), is(numberOfObjects - 1));
+
+        LOG.info(String.format("%,d objects: shutdown (with checkpoint) %,d ms, restart %,d ms",
+                numberOfObjects, (shutdown - shutdownStart) / 1000000, (restarted - restartStart) / 1000000));
+    }
+
+    @Test
+    public void commitLatency() throws Exception {
+        final int threads = Integer.getInteger("benchmark.threads", 8);
+        final boolean force = Boolean.valueOf(System.getProperty("benchmark.force", "true"));
+
+        final ObjectStoreLog log = new ObjectStoreLog(new File(folder.getRoot(), "log"), force);
+        log.replay(0, null);
+        log.open();
+
+        final long[] latencies = new long[threads * COMMITS_PER_THREAD];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        final byte[] record = new byte[RECORD_SIZE];
+                        for (int j = 0; j < COMMITS_PER_THREAD; j++) {
+                            final long commitStart = System.nanoTime();
+                            log.sync(log.append(record));
+                            latencies[thread * COMMITS_PER_THREAD + j] = System.nanoTime() - commitStart;
+                        }
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        final long started = System.nanoTime();
+        start.countDown();
+        done.await();
+        final long finished = System.nanoTime();
+        log.close();
+
+        Arrays.sort(latencies);
+        LOG.info(String.format("%d threads, force %s: %,d commits/s, %,d writes; latency median %,d us, 99th percentile %,d us",
+                threads, force, latencies.length * 1000000000L / (finished - started), log.getSyncCount(),
+                latencies[latencies.length / 2] / 1000, latencies[latencies.length * 99 / 100] / 1000));
+    }
+
+    private void startSystem() throws Exception {
+        system = IsisSystemWithFixtures.builder().with(configuration).with(Initialization.NO_INIT).with(new InMemoryPersistenceMechanismInstaller()).build();
+        system.setUpSystem();
+    }
+
+}
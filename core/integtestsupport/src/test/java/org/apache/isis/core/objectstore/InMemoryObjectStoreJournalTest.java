@@ -0,0 +1,175 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.isis.core.commons.config.IsisConfigurationDefault;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures.Fixtures.Initialization;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.objectstore.internal.ObjectStoreJournal;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.tck.dom.refs.ParentEntity;
+import org.apache.isis.core.tck.dom.refs.ReferencingEntity;
+import org.apache.isis.core.tck.dom.refs.SimpleEntity;
+
+public class InMemoryObjectStoreJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IsisConfigurationDefault configuration;
+    private IsisSystemWithFixtures iswf;
+
+    private RootOid smplOid;
+    private RootOid prntOid;
+    private RootOid rfcgOid;
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new IsisConfigurationDefault();
+        configuration.add(ObjectStoreJournal.DIRECTORY_KEY, folder.getRoot().getAbsolutePath());
+        startSystem();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        stopSystem(true);
+    }
+
+    @Test
+    public void recoversFromCheckpointAfterShutdown() throws Exception {
+        persistGraph();
+
+        stopSystem(true);
+        startSystem();
+
+        assertGraphRecovered();
+    }
+
+    @Test
+    public void recoversFromLogAfterCrash() throws Exception {
+        persistGraph();
+
+        stopSystem(false);
+        startSystem();
+
+        assertGraphRecovered();
+    }
+
+    @Test
+    public void recoversDestroyedObjectsAsDestroyed() throws Exception {
+        persistGraph();
+        iswf.beginTran();
+        final ReferencingEntity rfcg = (ReferencingEntity) iswf.reload(rfcgOid).getObject();
+        iswf.destroy(rfcg);
+        iswf.commitTran();
+
+        stopSystem(false);
+        startSystem();
+
+        iswf.beginTran();
+        assertThat(iswf.getPersistor().hasInstances(iswf.loadSpecification(ReferencingEntity.class)), is(false));
+        iswf.commitTran();
+    }
+
+    @Test
+    public void newObjectsDoNotReuseRecoveredIdentifiers() throws Exception {
+        persistGraph();
+
+        stopSystem(false);
+        startSystem();
+
+        iswf.beginTran();
+        final SimpleEntity smpl = iswf.container.newTransientInstance(SimpleEntity.class);
+        smpl.setName("Bob");
+        final RootOid oid = (RootOid) iswf.persist(smpl).getOid();
+        iswf.commitTran();
+
+        assertThat(oid.getIdentifier(), is(not(smplOid.getIdentifier())));
+    }
+
+    private void persistGraph() {
+        iswf.beginTran();
+        final SimpleEntity smpl = iswf.container.newTransientInstance(SimpleEntity.class);
+        smpl.setName("Fred");
+        iswf.persist(smpl);
+
+        final ParentEntity prnt = iswf.container.newTransientInstance(ParentEntity.class);
+        prnt.setName("Mary");
+        prnt.getHomogeneousCollection().add(smpl);
+        iswf.persist(prnt);
+
+        final ReferencingEntity rfcg = iswf.container.newTransientInstance(ReferencingEntity.class);
+        rfcg.setReference(smpl);
+        iswf.persist(rfcg);
+        iswf.commitTran();
+
+        smplOid = (RootOid) iswf.adapterFor(smpl).getOid();
+        prntOid = (RootOid) iswf.adapterFor(prnt).getOid();
+        rfcgOid = (RootOid) iswf.adapterFor(rfcg).getOid();
+    }
+
+    private void assertGraphRecovered() {
+        iswf.beginTran();
+        final SimpleEntity smpl = (SimpleEntity) iswf.reload(smplOid).getObject();
+        final ParentEntity prnt = (ParentEntity) iswf.reload(prntOid).getObject();
+        final ReferencingEntity rfcg = (ReferencingEntity) iswf.reload(rfcgOid).getObject();
+
+        assertThat(smpl.getName(), is("Fred"));
+        assertThat(prnt.getName(), is("Mary"));
+        assertThat(prnt.getHomogeneousCollection().size(), is(1));
+        assertThat(prnt.getHomogeneousCollection().get(0), is(sameInstance(smpl)));
+        assertThat(rfcg.getReference(), is(sameInstance(smpl)));
+        iswf.commitTran();
+    }
+
+    private void startSystem() throws Exception {
+        iswf = IsisSystemWithFixtures.builder().with(configuration).with(Initialization.NO_INIT).with(new InMemoryPersistenceMechanismInstaller()).build();
+        iswf.setUpSystem();
+    }
+
+    /**
+     * Without a clean shutdown the journal is neither checkpointed nor closed,
+     * as if the process had died.
+     */
+    private void stopSystem(final boolean shutdown) throws Exception {
+        if (iswf == null) {
+            return;
+        }
+        iswf.tearDownSystem();
+        if (shutdown) {
+            IsisContext.shutdown();
+        }
+        IsisContext.testReset();
+        iswf = null;
+    }
+
+}
@@ -85,6 +85,9 @@ public void whenOpenForFirstTimeThenCreatesPersistedObjects() throws Exception {
 
                 one(mockInMemoryPersistenceSessionFactory).createPersistedObjects();
                 will(returnValue(mockObjectStorePersistedObjects));
+
+                allowing(mockObjectStorePersistedObjects).getJournal();
+                will(returnValue(null));
             }
         });
         objectStore.open();
@@ -150,6 +150,24 @@ public void getInstances_findRange() throws Exception {
         assertEquals(((SimpleEntity)epv4Adapter.getObject()).getName(), ((SimpleEntity)retrievedAdapter.getObject()).getName());
         assertEquals(epv4Adapter.getOid(), retrievedAdapter.getOid());
     }
+
+    @Test
+    public void getInstances_findFromStart() throws Exception {
+        // given
+        iswf.persist(iswf.fixtures.smpl1); // 0
+        iswf.persist(iswf.fixtures.smpl2); // 1
+        iswf.persist(iswf.fixtures.smpl3); // 2 <- this one
+        iswf.persist(iswf.fixtures.smpl4); // 3 <- this one
+        iswf.bounceSystem();
+
+        // when
+        final List<ObjectAdapter> retrievedAdapters = getStore().loadInstancesAndAdapt(new PersistenceQueryFindAllInstances(epvSpecification, 2));
+
+        // then
+        assertEquals(2, retrievedAdapters.size());
+        assertEquals(iswf.fixtures.smpl3.getName(), ((SimpleEntity)retrievedAdapters.get(0).getObject()).getName());
+        assertEquals(iswf.fixtures.smpl4.getName(), ((SimpleEntity)retrievedAdapters.get(1).getObject()).getName());
+    }
     
     
     @Test
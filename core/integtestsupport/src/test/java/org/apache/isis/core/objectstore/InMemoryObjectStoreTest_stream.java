@@ -0,0 +1,263 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.core.objectstore;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.annotation.Title;
+import org.apache.isis.applib.query.QueryCursor;
+import org.apache.isis.core.integtestsupport.IsisSystemWithFixtures;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindAllInstances;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByTitle;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.persistence.AdapterManagerSpi;
+import org.apache.isis.core.runtime.system.persistence.PersistenceSession;
+import org.apache.isis.core.tck.dom.refs.SimpleEntity;
+
+public class InMemoryObjectStoreTest_stream {
+
+    /**
+     * Tells the framework of changes only by way of its dirty flag.
+     */
+    public static class DirtiableEntity {
+
+        private String name;
+
+        @Title
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        private boolean dirty;
+
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        public void markDirty() {
+            dirty = true;
+        }
+
+        public void clearDirty() {
+            dirty = false;
+        }
+    }
+
+    @Rule
+    public IsisSystemWithFixtures iswf = IsisSystemWithFixtures.builder().build();
+
+    protected ObjectSpecification epvSpecification;
+
+    protected InMemoryObjectStore getStore() {
+        return (InMemoryObjectStore) IsisContext.getPersistenceSession().getObjectStore();
+    }
+
+    protected PersistenceSession getPersistenceSession() {
+        return IsisContext.getPersistenceSession();
+    }
+
+    @Before
+    public void setUpFixtures() throws Exception {
+        epvSpecification = iswf.loadSpecification(SimpleEntity.class);
+
+        iswf.persist(iswf.fixtures.smpl1);
+        iswf.persist(iswf.fixtures.smpl2);
+        iswf.persist(iswf.fixtures.smpl3);
+        iswf.persist(iswf.fixtures.smpl4);
+        iswf.bounceSystem();
+        iswf.beginTran();
+    }
+
+    @Test
+    public void findAll() throws Exception {
+        final QueryCursor<ObjectAdapter> cursor = getStore().streamInstancesAndAdapt(new PersistenceQueryFindAllInstances(epvSpecification), 0);
+        final List<String> names = namesOf(cursor);
+        
+        assertEquals(Lists.newArrayList(name(iswf.fixtures.smpl1), name(iswf.fixtures.smpl2), name(iswf.fixtures.smpl3), name(iswf.fixtures.smpl4)), names);
+        iswf.commitTran();
+    }
+
+    @Test
+    public void findRange() throws Exception {
+        final QueryCursor<ObjectAdapter> cursor = getStore().streamInstancesAndAdapt(new PersistenceQueryFindAllInstances(epvSpecification, 2, 2), 0);
+        final List<String> names = namesOf(cursor);
+
+        assertEquals(Lists.newArrayList(name(iswf.fixtures.smpl3), name(iswf.fixtures.smpl4)), names);
+        iswf.commitTran();
+    }
+
+    @Test
+    public void findFromStart() throws Exception {
+        final QueryCursor<ObjectAdapter> cursor = getStore().streamInstancesAndAdapt(new PersistenceQueryFindAllInstances(epvSpecification, 2), 0);
+        final List<String> names = namesOf(cursor);
+
+        assertEquals(Lists.newArrayList(name(iswf.fixtures.smpl3), name(iswf.fixtures.smpl4)), names);
+        iswf.commitTran();
+    }
+
+    @Test
+    public void findByTitle() throws Exception {
+        final String title = iswf.adapterFor(iswf.fixtures.smpl2).titleString();
+        final QueryCursor<ObjectAdapter> cursor = getStore().streamInstancesAndAdapt(new PersistenceQueryFindByTitle(epvSpecification, title), 0);
+        final List<String> names = namesOf(cursor);
+
+        assertEquals(Lists.newArrayList(name(iswf.fixtures.smpl2)), names);
+        iswf.commitTran();
+    }
+
+    @Test
+    public void consumedAdaptersAreReleased() throws Exception {
+        unmapInstancesOf(epvSpecification);
+        final QueryCursor<ObjectAdapter> cursor = getPersistenceSession().streamInstances(new PersistenceQueryFindAllInstances(epvSpecification), 0);
+
+        final ObjectAdapter first = cursor.next();
+        final Oid oid = first.getOid();
+        assertThat(getPersistenceSession().getAdapterManager().getAdapterFor(oid), is(sameInstance(first)));
+
+        cursor.next();
+        assertThat(getPersistenceSession().getAdapterManager().getAdapterFor(oid), is(nullValue()));
+
+        cursor.close();
+        iswf.commitTran();
+    }
+
+    @Test
+    public void adaptersAlreadyMappedAreNotReleased() throws Exception {
+        unmapInstancesOf(epvSpecification);
+        final QueryCursor<ObjectAdapter> loading = getStore().streamInstancesAndAdapt(new PersistenceQueryFindAllInstances(epvSpecification), 0);
+        final ObjectAdapter loaded = loading.next();
+        loading.close();
+
+        final QueryCursor<ObjectAdapter> cursor = getPersistenceSession().streamInstances(new PersistenceQueryFindAllInstances(epvSpecification), 0);
+        assertThat(cursor.next(), is(sameInstance(loaded)));
+        final ObjectAdapter second = cursor.next();
+        cursor.next();
+        cursor.close();
+
+        assertThat(getPersistenceSession().getAdapterManager().getAdapterFor(loaded.getOid()), is(sameInstance(loaded)));
+        assertThat(getPersistenceSession().getAdapterManager().getAdapterFor(second.getOid()), is(nullValue()));
+        iswf.commitTran();
+    }
+
+    @Test
+    public void changedAdaptersAreNotReleased() throws Exception {
+        unmapInstancesOf(epvSpecification);
+        final QueryCursor<ObjectAdapter> cursor = getPersistenceSession().streamInstances(new PersistenceQueryFindAllInstances(epvSpecification), 0);
+
+        final ObjectAdapter first = cursor.next();
+        getPersistenceSession().objectChanged(first);
+        cursor.next();
+        cursor.close();
+
+        assertThat(getPersistenceSession().getAdapterManager().getAdapterFor(first.getOid()), is(sameInstance(first)));
+        iswf.commitTran();
+    }
+
+    @Test
+    public void dirtiedAdaptersAreSavedBeforeBeingReleased() throws Exception {
+        iswf.commitTran();
+        persistDirtiableEntity("one");
+        persistDirtiableEntity("two");
+        iswf.bounceSystem();
+        iswf.beginTran();
+
+        final ObjectSpecification specification = iswf.loadSpecification(DirtiableEntity.class);
+        unmapInstancesOf(specification);
+        QueryCursor<ObjectAdapter> cursor = getPersistenceSession().streamInstances(new PersistenceQueryFindAllInstances(specification), 0);
+        try {
+            while (cursor.hasNext()) {
+                final DirtiableEntity entity = (DirtiableEntity) cursor.next().getObject();
+                entity.setName(entity.getName() + " changed");
+                entity.markDirty();
+            }
+        } finally {
+            cursor.close();
+        }
+        iswf.commitTran();
+
+        // within the same session, as the next would adapt (and so notice) any still-dirty objects
+        iswf.beginTran();
+        cursor = getStore().streamInstancesAndAdapt(new PersistenceQueryFindAllInstances(specification), 0);
+        try {
+            while (cursor.hasNext()) {
+                final ObjectAdapter adapter = cursor.next();
+                assertThat(((DirtiableEntity) adapter.getObject()).getName().endsWith(" changed"), is(true));
+                assertThat(adapter.getVersion().getSequence(), is(2L));
+            }
+        } finally {
+            cursor.close();
+        }
+        iswf.commitTran();
+    }
+
+    /**
+     * The in-memory object store maps every instance as the session opens,
+     * whereas other object stores map them only as they are loaded.
+     */
+    private void unmapInstancesOf(final ObjectSpecification specification) {
+        final AdapterManagerSpi adapterManager = (AdapterManagerSpi) getPersistenceSession().getAdapterManager();
+        for (final ObjectAdapter adapter : Lists.newArrayList(adapterManager)) {
+            if (adapter.getSpecification() == specification) {
+                adapterManager.removeAdapter(adapter);
+            }
+        }
+    }
+
+    private void persistDirtiableEntity(final String name) {
+        final DirtiableEntity entity = iswf.container.newTransientInstance(DirtiableEntity.class);
+        entity.setName(name);
+        iswf.persist(entity);
+    }
+
+    private static List<String> namesOf(final QueryCursor<ObjectAdapter> cursor) {
+        final List<String> names = Lists.newArrayList();
+        try {
+            while (cursor.hasNext()) {
+                names.add(((SimpleEntity) cursor.next().getObject()).getName());
+            }
+        } finally {
+            cursor.close();
+        }
+        return names;
+    }
+
+    private static String name(final SimpleEntity entity) {
+        return entity.getName();
+    }
+
+}
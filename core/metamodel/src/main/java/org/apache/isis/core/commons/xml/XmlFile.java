@@ -85,16 +85,75 @@ public File getDirectory() {
         return directory;
     }
 
+    public File getFile(final String name) {
+        return file(name);
+    }
+
     private File file(final String fileName) {
         return new File(directory, fileName + ".xml");
     }
 
+    public String getCharset() {
+        return charset;
+    }
+
     public void writeXml(final String name, final ContentWriter writer) {
+        final File file = file(name);
+        createDirectoryIfRequired(file);
+        write(file, writer);
+    }
+
+    /**
+     * As {@link #writeXml(String, ContentWriter)}, but writing to a temporary
+     * file that then replaces the existing one, so that the file is never left
+     * only partly written.
+     */
+    public void replaceXml(final String name, final ContentWriter writer) {
+        prepareXml(name, writer);
+        commitXml(name);
+    }
+
+    /**
+     * Writes the file to one side, to be {@link #commitXml(String) committed}
+     * or {@link #discardXml(String) discarded} later.
+     */
+    public void prepareXml(final String name, final ContentWriter writer) {
+        final File file = file(name);
+        createDirectoryIfRequired(file);
+        write(temporaryFile(file), writer);
+    }
+
+    /**
+     * Replaces the file with the one {@link #prepareXml(String, ContentWriter)
+     * prepared}, if it has not been already.
+     */
+    public void commitXml(final String name) {
+        final File file = file(name);
+        final File temporaryFile = temporaryFile(file);
+        if (!temporaryFile.exists()) {
+            return;
+        }
+        if (!temporaryFile.renameTo(file)) {
+            // some platforms won't rename over an existing file
+            file.delete();
+            if (!temporaryFile.renameTo(file)) {
+                throw new IsisException("Problems replacing data file " + file);
+            }
+        }
+    }
+
+    public void discardXml(final String name) {
+        temporaryFile(file(name)).delete();
+    }
+
+    private static File temporaryFile(final File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    private void write(final File file, final ContentWriter writer) {
         OutputStreamWriter pw;
 
         try {
-            final File file = file(name);
-            createDirectoryIfRequired(file);
             pw = new OutputStreamWriter(new FileOutputStream(file), charset);
             pw.write("<?xml version=\"1.0\" encoding=\"" + charset + "\" ?>\n");
             pw.write("\n");
@@ -19,6 +19,7 @@
 import java.util.List;
 
 import org.apache.isis.applib.query.Query;
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.components.Injectable;
 
 public interface QuerySubmitter extends Injectable {
@@ -40,4 +41,12 @@ public interface QuerySubmitter extends Injectable {
      */
     public <T> ObjectAdapter firstMatchingQuery(Query<T> query);
 
+    /**
+     * Provided by <tt>PersistenceSession</tt> when used by framework.
+     * 
+     * <p>
+     * Called by <tt>DomainObjectContainerDefault</tt>.
+     */
+    public <T> QueryCursor<ObjectAdapter> streamMatchingQuery(Query<T> query, int fetchSize);
+
 }
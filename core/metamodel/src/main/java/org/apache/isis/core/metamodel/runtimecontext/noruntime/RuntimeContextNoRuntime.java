@@ -24,6 +24,7 @@
 
 import org.apache.isis.applib.profiles.Localization;
 import org.apache.isis.applib.query.Query;
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.applib.services.bookmark.Bookmark;
 import org.apache.isis.core.commons.authentication.AuthenticationSession;
 import org.apache.isis.core.commons.authentication.AuthenticationSessionProvider;
@@ -263,6 +264,11 @@ public <T> ObjectAdapter firstMatchingQuery(final Query<T> query) {
             public <T> List<ObjectAdapter> allMatchingQuery(final Query<T> query) {
                 throw new UnsupportedOperationException("Not supported by this implementation of RuntimeContext");
             }
+
+            @Override
+            public <T> QueryCursor<ObjectAdapter> streamMatchingQuery(final Query<T> query, final int fetchSize) {
+                throw new UnsupportedOperationException("Not supported by this implementation of RuntimeContext");
+            }
         };
     }
 
@@ -27,6 +27,7 @@
 import org.apache.isis.applib.RepositoryException;
 import org.apache.isis.applib.filter.Filter;
 import org.apache.isis.applib.query.Query;
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.applib.query.QueryFindAllInstances;
 import org.apache.isis.applib.security.RoleMemento;
 import org.apache.isis.applib.security.UserMemento;
@@ -357,6 +358,43 @@ public <T> List<T> allMatches(final Query<T> query) {
         return AdapterUtils.unwrap(allMatching);
     }
 
+    // //////////////////////////////////////////////////////////////////
+    // streamInstances, streamMatches
+    // //////////////////////////////////////////////////////////////////
+
+    @Override
+    public <T> QueryCursor<T> streamInstances(final Class<T> type, final int fetchSize) {
+        return streamMatches(new QueryFindAllInstances<T>(type), fetchSize);
+    }
+
+    @Override
+    public <T> QueryCursor<T> streamMatches(final Query<T> query, final int fetchSize) {
+        flush(); // auto-flush any pending changes
+        final QueryCursor<ObjectAdapter> adapters = getQuerySubmitter().streamMatchingQuery(query, fetchSize);
+        return new QueryCursor<T>() {
+            @Override
+            public boolean hasNext() {
+                return adapters.hasNext();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                return (T) AdapterUtils.unwrap(adapters.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                adapters.close();
+            }
+        };
+    }
+
     // //////////////////////////////////////////////////////////////////
     // firstMatch
     // //////////////////////////////////////////////////////////////////
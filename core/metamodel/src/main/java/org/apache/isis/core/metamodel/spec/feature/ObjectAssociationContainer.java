@@ -56,6 +56,9 @@ public interface ObjectAssociationContainer {
     /**
      * All {@link ObjectAssociation association}s that represent
      * {@link OneToOneAssociation properties}.
+     * 
+     * <p>
+     * The returned list may be shared, and should not be modified.
      */
     List<OneToOneAssociation> getProperties();
 
@@ -63,7 +66,8 @@ public interface ObjectAssociationContainer {
      * All {@link ObjectAssociation association}s that represents
      * {@link OneToManyAssociation collections}.
      * 
-     * @return
+     * <p>
+     * The returned list may be shared, and should not be modified.
      */
     List<OneToManyAssociation> getCollections();
 
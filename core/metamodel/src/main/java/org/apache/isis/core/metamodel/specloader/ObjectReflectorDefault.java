@@ -29,6 +29,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -180,6 +182,22 @@ public final class ObjectReflectorDefault implements SpecificationLoaderSpi, App
      */
     private final SpecificationCacheDefault cache = new SpecificationCacheDefault();
 
+    /**
+     * Serializes the creation and introspection of specifications not yet in
+     * the {@link #cache}.
+     * 
+     * <p>
+     * A single (reentrant) lock rather than one per class, because
+     * introspecting one class loads the specifications of the classes it
+     * references, which in turn may refer back; with a lock per class two
+     * threads loading either end of such a cycle would deadlock.
+     */
+    private final ReentrantLock introspectionLock = new ReentrantLock();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong introspectionLockContentions = new AtomicLong();
+
 
     // /////////////////////////////////////////////////////////////
     // Constructor
@@ -373,9 +391,24 @@ private ObjectSpecification loadSpecificationForSubstitutedClass(final Class<?>
         final String typeName = type.getName();
 
         final SpecificationCacheDefault specificationCache = getCache();
-        synchronized (specificationCache) {
+
+        // fast path, without locking, for specifications already fully introspected
+        final ObjectSpecification cachedSpec = specificationCache.get(typeName);
+        if (cachedSpec != null && isIntrospected(cachedSpec)) {
+            cacheHits.incrementAndGet();
+            return cachedSpec;
+        }
+
+        cacheMisses.incrementAndGet();
+        if (!introspectionLock.tryLock()) {
+            introspectionLockContentions.incrementAndGet();
+            introspectionLock.lock();
+        }
+        try {
             final ObjectSpecification spec = specificationCache.get(typeName);
             if (spec != null) {
+                // either loaded by another thread while we waited, or is being
+                // introspected further up this thread's own call stack
                 return spec;
             }
             final ObjectSpecification specification = createSpecification(type);
@@ -390,7 +423,16 @@ private ObjectSpecification loadSpecificationForSubstitutedClass(final Class<?>
             introspectIfRequired(specification);
 
             return specification;
+        } finally {
+            introspectionLock.unlock();
+        }
+    }
+
+    private static boolean isIntrospected(final ObjectSpecification spec) {
+        if (!(spec instanceof ObjectSpecificationAbstract)) {
+            return true;
         }
+        return ((ObjectSpecificationAbstract) spec).getIntrospectionState() == IntrospectionState.INTROSPECTED;
     }
 
     /**
@@ -543,6 +585,12 @@ public void debugData(final DebugBuilder debug) {
         facetDecoratorSet.debugData(debug);
         debug.appendln();
 
+        debug.appendTitle("Specification cache");
+        debug.appendln("hits", cacheHits.get());
+        debug.appendln("misses", cacheMisses.get());
+        debug.appendln("introspection lock contentions", introspectionLockContentions.get());
+        debug.appendln();
+
         debug.appendTitle("Specifications");
         final List<ObjectSpecification> specs = Lists.newArrayList(allSpecifications());
         Collections.sort(specs, ObjectSpecification.COMPARATOR_SHORT_IDENTIFIER_IGNORE_CASE);
@@ -22,6 +22,7 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.Maps;
 
@@ -29,10 +30,17 @@
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 import org.apache.isis.core.metamodel.specloader.validator.MetaModelValidator;
 
+/**
+ * Safe for concurrent use; lookups never block.
+ * 
+ * <p>
+ * Serializing the loading (and introspection) of specifications is the
+ * responsibility of the caller, see {@link ObjectReflectorDefault}.
+ */
 class SpecificationCacheDefault {
     
-    private final Map<String, ObjectSpecification> specByClassName = Maps.newHashMap();
-    private Map<ObjectSpecId, ObjectSpecification> specById;
+    private final ConcurrentMap<String, ObjectSpecification> specByClassName = Maps.newConcurrentMap();
+    private volatile Map<ObjectSpecId, ObjectSpecification> specById;
 
     public ObjectSpecification get(final String className) {
         return specByClassName.get(className);
@@ -51,6 +59,7 @@ public Collection<ObjectSpecification> allSpecifications() {
     }
 
     public ObjectSpecification getByObjectType(ObjectSpecId objectSpecID) {
+        final Map<ObjectSpecId, ObjectSpecification> specById = this.specById;
         if (specById == null) {
             throw new IllegalStateException("SpecificationCache by object type has not yet been initialized");
         }
@@ -61,8 +70,9 @@ public ObjectSpecification getByObjectType(ObjectSpecId objectSpecID) {
      * Populated as a result of running {@link MetaModelValidator#validate() validation} after all specs have been loaded. 
      */
     void setCacheBySpecId(Map<ObjectSpecId, ObjectSpecification> specById) {
-        this.specById = Maps.newHashMap();
-        this.specById.putAll(specById);
+        final Map<ObjectSpecId, ObjectSpecification> copy = Maps.newHashMap();
+        copy.putAll(specById);
+        this.specById = Collections.unmodifiableMap(copy);
     }
 
 }
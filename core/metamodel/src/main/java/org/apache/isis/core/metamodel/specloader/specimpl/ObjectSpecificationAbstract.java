@@ -19,14 +19,16 @@
 
 package org.apache.isis.core.metamodel.specloader.specimpl;
 
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import org.apache.log4j.Logger;
 
@@ -47,6 +49,7 @@
 import org.apache.isis.core.metamodel.deployment.DeploymentCategory;
 import org.apache.isis.core.metamodel.facetapi.Facet;
 import org.apache.isis.core.metamodel.facetapi.FacetHolderImpl;
+import org.apache.isis.core.metamodel.facetapi.MultiTypedFacet;
 import org.apache.isis.core.metamodel.facetapi.FeatureType;
 import org.apache.isis.core.metamodel.facets.collections.modify.CollectionFacet;
 import org.apache.isis.core.metamodel.facets.describedas.DescribedAsFacet;
@@ -86,7 +89,6 @@
 import org.apache.isis.core.metamodel.spec.feature.ObjectActionParameter;
 import org.apache.isis.core.metamodel.spec.feature.ObjectActions;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
-import org.apache.isis.core.metamodel.spec.feature.ObjectAssociationFilters;
 import org.apache.isis.core.metamodel.spec.feature.OneToManyAssociation;
 import org.apache.isis.core.metamodel.spec.feature.OneToOneAssociation;
 import org.apache.isis.core.metamodel.specloader.specimpl.objectlist.ObjectSpecificationForFreeStandingList;
@@ -125,6 +127,23 @@ public List<ObjectSpecification> toList() {
     private final List<ObjectSpecification> interfaces = Lists.newArrayList();
     private final SubclassList subclasses = new SubclassList();
 
+    /**
+     * Derived from {@link #associations} whenever they are
+     * {@link #updateAssociations(List) updated}, so that lookups by id and
+     * the {@link #getProperties() properties} and {@link #getCollections()
+     * collections} need not be recomputed on every call.
+     */
+    private Map<String, ObjectAssociation> associationsById = Collections.emptyMap();
+    private List<OneToOneAssociation> properties = Collections.emptyList();
+    private List<OneToManyAssociation> collections = Collections.emptyList();
+
+    /**
+     * Derived from {@link #objectActions} whenever they are
+     * {@link #updateObjectActions(List) updated}: the (non-contributed) actions
+     * of each type, with any {@link ObjectActionSet}s flattened.
+     */
+    private Map<ActionType, List<ObjectAction>> flattenedActionsByType = Collections.emptyMap();
+
     /**
      * Lazily populated.
      */
@@ -149,7 +168,11 @@ public List<ObjectSpecification> toList() {
     private TitleFacet titleFacet;
     private IconFacet iconFacet;
 
-    private IntrospectionState introspected = IntrospectionState.NOT_INTROSPECTED;
+    /**
+     * Volatile so that <tt>ObjectReflectorDefault</tt> can read it without
+     * holding its introspection lock.
+     */
+    private volatile IntrospectionState introspected = IntrospectionState.NOT_INTROSPECTED;
 
     // //////////////////////////////////////////////////////////////////////
     // Constructor
@@ -320,6 +343,23 @@ protected void updateAssociations(final List<ObjectAssociation> associations) {
         }
         this.associations.clear();
         this.associations.addAll(associations);
+
+        final Map<String, ObjectAssociation> associationsById = Maps.newHashMap();
+        final List<OneToOneAssociation> properties = Lists.newArrayList();
+        final List<OneToManyAssociation> collections = Lists.newArrayList();
+        for (final ObjectAssociation association : associations) {
+            if (!associationsById.containsKey(association.getId())) {
+                associationsById.put(association.getId(), association);
+            }
+            if (association.isOneToOneAssociation()) {
+                properties.add((OneToOneAssociation) association);
+            } else if (association.isOneToManyAssociation()) {
+                collections.add((OneToManyAssociation) association);
+            }
+        }
+        this.associationsById = Collections.unmodifiableMap(associationsById);
+        this.properties = Collections.unmodifiableList(properties);
+        this.collections = Collections.unmodifiableList(collections);
     }
 
     /**
@@ -332,6 +372,14 @@ protected void updateObjectActions(final List<ObjectAction> objectActions) {
         }
         this.objectActions.clear();
         this.objectActions.addAll(objectActions);
+
+        final List<ObjectAction> flattenedActions = ObjectActions.flattenedActions(objectActions);
+        final Map<ActionType, List<ObjectAction>> flattenedActionsByType = Maps.newEnumMap(ActionType.class);
+        for (final ActionType type : ActionType.values()) {
+            final List<ObjectAction> actionsOfType = Lists.newArrayList(Iterables.filter(flattenedActions, Filters.asPredicate(ObjectActionFilters.filterOfType(type))));
+            flattenedActionsByType.put(type, Collections.unmodifiableList(actionsOfType));
+        }
+        this.flattenedActionsByType = flattenedActionsByType;
     }
 
     // //////////////////////////////////////////////////////////////////////
@@ -519,8 +567,153 @@ public void markDirty(final ObjectAdapter object) {
     // Facet Handling
     // //////////////////////////////////////////////////////////////////////
 
+    /**
+     * The effective facet of every facet type held anywhere in this
+     * specification's type hierarchy, as resolved by
+     * {@link #resolveFacet(Class)}.
+     * 
+     * <p>
+     * Built by {@link #freezeFacets()} on the first lookup once the whole
+     * hierarchy has been introspected, thereafter never modified (only
+     * discarded, if the facets of this specification or of one of its
+     * supertypes change). Types absent from the map have no facet.
+     */
+    private volatile Map<Class<? extends Facet>, Facet> frozenFacets;
+
+    /**
+     * Incremented by every {@link #thawFacets() thaw}, so that a freeze that
+     * raced with a change to the facets does not publish its (stale) map.
+     * 
+     * <p>
+     * Only changed, and {@link #frozenFacets} only published, while holding
+     * {@link #frozenFacetsLock}.
+     */
+    private volatile long facetModifications;
+    private final Object frozenFacetsLock = new Object();
+
     @Override
+    @SuppressWarnings("unchecked")
     public <Q extends Facet> Q getFacet(final Class<Q> facetType) {
+        Map<Class<? extends Facet>, Facet> facets = frozenFacets;
+        if (facets == null) {
+            facets = freezeFacets();
+            if (facets == null) {
+                return resolveFacet(facetType);
+            }
+        }
+        return (Q) facets.get(facetType);
+    }
+
+    /**
+     * Resolves the effective facet for every facet type in the hierarchy, so
+     * that subsequent {@link #getFacet(Class) lookups} are a single map read
+     * rather than a walk of the interfaces and superclasses.
+     * 
+     * <p>
+     * Returns <tt>null</tt> (and freezes nothing) if this or any supertype is
+     * still being introspected, or if the facets were modified while the map
+     * was being built.
+     */
+    private Map<Class<? extends Facet>, Facet> freezeFacets() {
+        if (!isHierarchyIntrospected(this)) {
+            return null;
+        }
+        final long modifications = facetModifications;
+        final Set<Class<? extends Facet>> facetTypes = Sets.newHashSet();
+        collectFacetTypes(this, facetTypes);
+
+        final Map<Class<? extends Facet>, Facet> facets = new IdentityHashMap<Class<? extends Facet>, Facet>(facetTypes.size() * 2);
+        for (final Class<? extends Facet> facetType : facetTypes) {
+            final Facet facet = resolveFacet(facetType);
+            if (facet != null) {
+                facets.put(facetType, facet);
+            }
+        }
+        synchronized (frozenFacetsLock) {
+            if (facetModifications != modifications) {
+                return null;
+            }
+            frozenFacets = facets;
+        }
+        return facets;
+    }
+
+    private static boolean isHierarchyIntrospected(final ObjectSpecification spec) {
+        if (!(spec instanceof ObjectSpecificationAbstract)) {
+            // can't know if its facets might change
+            return false;
+        }
+        if (((ObjectSpecificationAbstract) spec).getIntrospectionState() != IntrospectionState.INTROSPECTED) {
+            return false;
+        }
+        for (final ObjectSpecification interfaceSpec : spec.interfaces()) {
+            if (interfaceSpec != null && !isHierarchyIntrospected(interfaceSpec)) {
+                return false;
+            }
+        }
+        final ObjectSpecification superSpec = spec.superclass();
+        return superSpec == null || isHierarchyIntrospected(superSpec);
+    }
+
+    private static void collectFacetTypes(final ObjectSpecification spec, final Set<Class<? extends Facet>> facetTypes) {
+        Collections.addAll(facetTypes, spec.getFacetTypes());
+        for (final ObjectSpecification interfaceSpec : spec.interfaces()) {
+            if (interfaceSpec != null) {
+                collectFacetTypes(interfaceSpec, facetTypes);
+            }
+        }
+        final ObjectSpecification superSpec = spec.superclass();
+        if (superSpec != null) {
+            collectFacetTypes(superSpec, facetTypes);
+        }
+    }
+
+    /**
+     * Discards the {@link #frozenFacets} of this specification and of all its
+     * subclasses (which may have inherited the changed facets).
+     */
+    private void thawFacets() {
+        synchronized (frozenFacetsLock) {
+            facetModifications++;
+            frozenFacets = null;
+        }
+        for (final ObjectSpecification subclass : subclasses()) {
+            if (subclass instanceof ObjectSpecificationAbstract) {
+                ((ObjectSpecificationAbstract) subclass).thawFacets();
+            }
+        }
+    }
+
+    @Override
+    public void addFacet(final Facet facet) {
+        super.addFacet(facet);
+        thawFacets();
+    }
+
+    @Override
+    public void addFacet(final MultiTypedFacet facet) {
+        super.addFacet(facet);
+        thawFacets();
+    }
+
+    @Override
+    public void removeFacet(final Facet facet) {
+        super.removeFacet(facet);
+        thawFacets();
+    }
+
+    @Override
+    public void removeFacet(final Class<? extends Facet> facetType) {
+        super.removeFacet(facetType);
+        thawFacets();
+    }
+
+    /**
+     * Searches this specification, then its interfaces, then its superclass
+     * for the facet of the specified type, preferring any that is not a
+     * {@link Facet#isNoop() no-op}.
+     */
+    private <Q extends Facet> Q resolveFacet(final Class<Q> facetType) {
         final Q facet = super.getFacet(facetType);
         Q noopFacet = null;
         if (isNotANoopFacet(facet)) {
@@ -636,18 +829,14 @@ public List<ObjectAssociation> getAssociations() {
      * simply returns <tt>null</tt>.
      * 
      * <p>
-     * TODO put fields into hash.
-     * 
-     * <p>
      * TODO: could this be made final? (ie does the framework ever call this
      * method for an {@link ObjectSpecificationForFreeStandingList})
      */
     @Override
     public ObjectAssociation getAssociation(final String id) {
-        for (final ObjectAssociation objectAssociation : getAssociations()) {
-            if (objectAssociation.getId().equals(id)) {
-                return objectAssociation;
-            }
+        final ObjectAssociation objectAssociation = associationsById.get(id);
+        if (objectAssociation != null) {
+            return objectAssociation;
         }
         throw new ObjectSpecificationException("No association called '" + id + "' in '" + getSingularName() + "'");
     }
@@ -666,24 +855,20 @@ public List<ObjectAssociation> getAssociations(final Filter<ObjectAssociation> f
         return selectedFields;
     }
 
+    /**
+     * Returns a shared, unmodifiable list.
+     */
     @Override
-    @SuppressWarnings("unchecked")
     public List<OneToOneAssociation> getProperties() {
-        final List<OneToOneAssociation> list = new ArrayList<OneToOneAssociation>();
-        @SuppressWarnings("rawtypes")
-        final List associationList = getAssociations(ObjectAssociationFilters.PROPERTIES);
-        list.addAll(associationList);
-        return list;
+        return properties;
     }
 
+    /**
+     * Returns a shared, unmodifiable list.
+     */
     @Override
-    @SuppressWarnings("unchecked")
     public List<OneToManyAssociation> getCollections() {
-        final List<OneToManyAssociation> list = Lists.newArrayList();
-        @SuppressWarnings("rawtypes")
-        final List associationList = getAssociations(ObjectAssociationFilters.COLLECTIONS);
-        list.addAll(associationList);
-        return list;
+        return collections;
     }
 
     // //////////////////////////////////////////////////////////////////////
@@ -729,14 +914,16 @@ private List<ObjectAction> addActions(final ActionType type, final Contributed c
         if (!isService() && contributed.isIncluded()) {
             actionListToAppendTo.addAll(getContributedActions(type, filter));
         }
-        actionListToAppendTo.addAll(getFlattenedActions(objectActions, type, filter));
+        actionListToAppendTo.addAll(getFlattenedActions(type, filter));
         return actionListToAppendTo;
     }
 
-    @SuppressWarnings("unchecked")
-    private static List<ObjectAction> getFlattenedActions(final List<ObjectAction> objectActions, final ActionType type, final Filter<ObjectAction> filter) {
-        final List<ObjectAction> actions = ObjectActions.flattenedActions(objectActions);
-        return Lists.newArrayList(Iterables.filter(actions, Filters.asPredicate(Filters.and(ObjectActionFilters.filterOfType(type), filter))));
+    private List<ObjectAction> getFlattenedActions(final ActionType type, final Filter<ObjectAction> filter) {
+        final List<ObjectAction> actions = flattenedActionsByType.get(type);
+        if (actions == null) {
+            return Collections.emptyList();
+        }
+        return Lists.newArrayList(Iterables.filter(actions, Filters.asPredicate(filter)));
     }
 
     @Override
@@ -101,6 +101,13 @@ private static String determineShortName(final Class<?> introspectedClass) {
      */
     private Map<Method, ObjectMember> membersByMethod = null;
 
+    /**
+     * Lazily populated (once introspected) by
+     * {@link #getObjectAction(ActionType, String)}, keyed by both the
+     * name-and-parameters and the name identity strings of each action.
+     */
+    private final Map<ActionType, Map<String, ObjectAction>> actionsByTypeAndId = Maps.newConcurrentMap();
+
     private final ObjectMemberContext objectMemberContext;
     private final IntrospectionContext introspectionContext;
     private final CreateObjectContext createObjectContext;
@@ -354,8 +361,46 @@ public ObjectAction getObjectAction(final ActionType type, final String id, fina
 
     @Override
     public ObjectAction getObjectAction(final ActionType type, final String id) {
-        final List<ObjectAction> availableActions = ListUtils.combine(getObjectActions(type, Contributed.INCLUDED), getContributedActions(type, Filters.<ObjectAction>any()));
-        return getAction(availableActions, type, id);
+        if (id == null) {
+            return null;
+        }
+        if (isNotIntrospected()) {
+            return getAction(availableActions(type), type, id);
+        }
+        Map<String, ObjectAction> actionsById = actionsByTypeAndId.get(type);
+        if (actionsById == null) {
+            actionsById = Maps.newHashMap();
+            indexActionsById(availableActions(type), type, actionsById);
+            actionsByTypeAndId.put(type, actionsById);
+        }
+        return actionsById.get(id);
+    }
+
+    private List<ObjectAction> availableActions(final ActionType type) {
+        return ListUtils.combine(getObjectActions(type, Contributed.INCLUDED), getContributedActions(type, Filters.<ObjectAction>any()));
+    }
+
+    /**
+     * Indexes the actions in the same order that
+     * {@link #getAction(List, ActionType, String)} searches them, so that for
+     * any id the first matching action wins.
+     */
+    private static void indexActionsById(final List<ObjectAction> availableActions, final ActionType type, final Map<String, ObjectAction> actionsById) {
+        for (final ObjectAction action : availableActions) {
+            if (action.getActions().size() > 0) {
+                // deal with action set
+                indexActionsById(action.getActions(), type, actionsById);
+            } else if (type.matchesTypeOf(action)) {
+                putIfAbsent(actionsById, action.getIdentifier().toNameParmsIdentityString(), action);
+                putIfAbsent(actionsById, action.getIdentifier().toNameIdentityString(), action);
+            }
+        }
+    }
+
+    private static void putIfAbsent(final Map<String, ObjectAction> actionsById, final String id, final ObjectAction action) {
+        if (!actionsById.containsKey(id)) {
+            actionsById.put(id, action);
+        }
     }
 
     @Override
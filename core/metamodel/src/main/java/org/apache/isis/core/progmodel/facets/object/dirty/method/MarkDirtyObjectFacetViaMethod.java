@@ -24,7 +24,7 @@
 import java.util.List;
 
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
-import org.apache.isis.core.metamodel.adapter.util.InvokeUtils;
+import org.apache.isis.core.metamodel.adapter.util.AdapterInvokeUtils;
 import org.apache.isis.core.metamodel.facetapi.FacetHolder;
 import org.apache.isis.core.metamodel.facets.ImperativeFacet;
 import org.apache.isis.core.progmodel.facets.object.dirty.MarkDirtyObjectFacetAbstract;
@@ -55,7 +55,7 @@ public boolean impliesObjectChanged() {
 
     @Override
     public void invoke(final ObjectAdapter object) {
-        InvokeUtils.invokeStatic(method);
+        AdapterInvokeUtils.invoke(method, object);
     }
 
 }
@@ -0,0 +1,129 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.metamodel.specloader.specimpl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.metamodel.spec.ObjectSpecificationException;
+import org.apache.isis.core.metamodel.spec.SpecificationLoader;
+import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
+import org.apache.isis.core.metamodel.spec.feature.OneToManyAssociation;
+import org.apache.isis.core.metamodel.spec.feature.OneToOneAssociation;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class ObjectSpecificationAbstractAssociationsTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private SpecificationLoader mockSpecificationLoader;
+    @Mock
+    private OneToOneAssociation mockFirstName;
+    @Mock
+    private OneToOneAssociation mockLastName;
+    @Mock
+    private OneToManyAssociation mockOrders;
+
+    public static class Customer {
+    }
+
+    private ObjectSpecificationAbstract customerSpec;
+
+    @Before
+    public void setUp() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockFirstName).getId();
+                will(returnValue("firstName"));
+                allowing(mockFirstName).isOneToOneAssociation();
+                will(returnValue(true));
+
+                allowing(mockLastName).getId();
+                will(returnValue("lastName"));
+                allowing(mockLastName).isOneToOneAssociation();
+                will(returnValue(true));
+
+                allowing(mockOrders).getId();
+                will(returnValue("orders"));
+                allowing(mockOrders).isOneToOneAssociation();
+                will(returnValue(false));
+                allowing(mockOrders).isOneToManyAssociation();
+                will(returnValue(true));
+            }
+        });
+
+        customerSpec = new ObjectSpecificationAbstractStub(Customer.class, mockSpecificationLoader);
+        customerSpec.updateAssociations(Arrays.<ObjectAssociation> asList(mockFirstName, mockOrders, mockLastName));
+    }
+
+    @Test
+    public void getAssociation_whenExists() throws Exception {
+        assertSame(mockLastName, customerSpec.getAssociation("lastName"));
+        assertSame(mockOrders, customerSpec.getAssociation("orders"));
+    }
+
+    @Test(expected = ObjectSpecificationException.class)
+    public void getAssociation_whenDoesNotExist() throws Exception {
+        customerSpec.getAssociation("middleName");
+    }
+
+    @Test
+    public void getProperties_inOrder() throws Exception {
+        assertThat(customerSpec.getProperties(), is(Arrays.<OneToOneAssociation> asList(mockFirstName, mockLastName)));
+    }
+
+    @Test
+    public void getCollections() throws Exception {
+        assertThat(customerSpec.getCollections(), is(Collections.<OneToManyAssociation> singletonList(mockOrders)));
+    }
+
+    @Test
+    public void getProperties_isShared() throws Exception {
+        assertSame(customerSpec.getProperties(), customerSpec.getProperties());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getProperties_isUnmodifiable() throws Exception {
+        final List<OneToOneAssociation> properties = customerSpec.getProperties();
+        properties.clear();
+    }
+
+    @Test
+    public void updateAssociations_replacesPrevious() throws Exception {
+        customerSpec.updateAssociations(Collections.<ObjectAssociation> singletonList(mockOrders));
+
+        assertThat(customerSpec.getProperties().isEmpty(), is(true));
+        assertSame(mockOrders, customerSpec.getAssociation("orders"));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.metamodel.specloader.specimpl;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.hamcrest.Description;
+import org.jmock.Expectations;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.metamodel.facetapi.Facet;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.spec.SpecificationLoader;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstract.IntrospectionState;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstractGetFacetTest.BarFacet;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstractGetFacetTest.BarFacetImpl;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstractGetFacetTest.FooFacet;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstractGetFacetTest.FooFacetImpl;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+/**
+ * Compares the cost of {@link ObjectSpecificationAbstract#getFacet(Class)}
+ * when it must walk the interfaces and superclasses of a deep hierarchy (as it
+ * does while the hierarchy is still being introspected) against the lookup
+ * once its facets have been frozen.
+ * 
+ * <p>
+ * Run explicitly, eg <tt>mvn test -Dtest=ObjectSpecificationAbstractGetFacetBenchmark</tt>.
+ */
+public class ObjectSpecificationAbstractGetFacetBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(ObjectSpecificationAbstractGetFacetBenchmark.class);
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int LOOKUPS_PER_ITERATION = 1000000;
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private SpecificationLoader mockSpecificationLoader;
+
+    public static interface Level0Type {}
+    public static interface Level1Type {}
+    public static interface Level2Type {}
+    public static interface Level3Type {}
+    public static interface Level4Type {}
+    public static interface Level5Type {}
+    public static interface Level6Type {}
+    public static interface Level7Type {}
+
+    public static class Level0 implements Level0Type {}
+    public static class Level1 extends Level0 implements Level1Type {}
+    public static class Level2 extends Level1 implements Level2Type {}
+    public static class Level3 extends Level2 implements Level3Type {}
+    public static class Level4 extends Level3 implements Level4Type {}
+    public static class Level5 extends Level4 implements Level5Type {}
+    public static class Level6 extends Level5 implements Level6Type {}
+    public static class Level7 extends Level6 implements Level7Type {}
+
+    private static final Class<?>[] CLASSES = { Level0.class, Level1.class, Level2.class, Level3.class, Level4.class, Level5.class, Level6.class, Level7.class };
+    private static final Class<?>[] INTERFACES = { Level0Type.class, Level1Type.class, Level2Type.class, Level3Type.class, Level4Type.class, Level5Type.class, Level6Type.class, Level7Type.class };
+
+    public static interface AbsentFacet extends Facet {
+    }
+
+    private final Map<Class<?>, ObjectSpecificationAbstract> specByClass = Maps.newHashMap();
+    private ObjectSpecificationAbstract[] specs;
+    private ObjectSpecificationAbstract leafSpec;
+
+    @BeforeClass
+    public static void configureLogging() {
+        BasicConfigurator.configure();
+        Logger.getRootLogger().setLevel(Level.OFF);
+        LOG.setLevel(Level.INFO);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockSpecificationLoader).loadSpecification(with(any(Class.class)));
+                will(new Action() {
+                    @Override
+                    public Object invoke(final Invocation invocation) throws Throwable {
+                        return specByClass.get(invocation.getParameter(0));
+                    }
+
+                    @Override
+                    public void describeTo(final Description description) {
+                        description.appendText("looks up spec by class");
+                    }
+                });
+            }
+        });
+
+        specs = new ObjectSpecificationAbstract[CLASSES.length * 2];
+        for (int i = 0; i < CLASSES.length; i++) {
+            final ObjectSpecificationAbstract classSpec = new ObjectSpecificationAbstractStub(CLASSES[i], mockSpecificationLoader);
+            final ObjectSpecificationAbstract interfaceSpec = new ObjectSpecificationAbstractStub(INTERFACES[i], mockSpecificationLoader);
+            specByClass.put(CLASSES[i], classSpec);
+            if (i > 0) {
+                classSpec.updateSuperclass(CLASSES[i - 1]);
+            }
+            classSpec.updateAsSubclassTo(Collections.<ObjectSpecification> singletonList(interfaceSpec));
+            classSpec.updateInterfaces(Collections.<ObjectSpecification> singletonList(interfaceSpec));
+            specs[2 * i] = classSpec;
+            specs[2 * i + 1] = interfaceSpec;
+        }
+        final ObjectSpecificationAbstract rootSpec = specs[0];
+        final ObjectSpecificationAbstract middleSpec = specs[CLASSES.length];
+        rootSpec.addFacet(new FooFacetImpl(rootSpec, false));
+        middleSpec.addFacet(new BarFacetImpl(middleSpec));
+        leafSpec = specs[specs.length - 2];
+    }
+
+    @Test
+    public void compare() throws Exception {
+        introspectionState(IntrospectionState.BEING_INTROSPECTED);
+        final double walkNanos = measure();
+
+        introspectionState(IntrospectionState.INTROSPECTED);
+        final double frozenNanos = measure();
+
+        LOG.info(String.format("hierarchy depth %d: walk %.1f ns/lookup, frozen %.1f ns/lookup (x%.1f)", CLASSES.length, walkNanos, frozenNanos, walkNanos / frozenNanos));
+    }
+
+    private void introspectionState(final IntrospectionState state) {
+        for (final ObjectSpecificationAbstract spec : specs) {
+            spec.setIntrospectionState(state);
+        }
+    }
+
+    private double measure() {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            lookups();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            lookups();
+        }
+        final long elapsed = System.nanoTime() - start;
+        return (double) elapsed / (MEASURED_ITERATIONS * LOOKUPS_PER_ITERATION * 3);
+    }
+
+    private int lookups() {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS_PER_ITERATION; i++) {
+            found += leafSpec.getFacet(FooFacet.class) != null ? 1 : 0;
+            found += leafSpec.getFacet(BarFacet.class) != null ? 1 : 0;
+            found += leafSpec.getFacet(AbsentFacet.class) != null ? 1 : 0;
+        }
+        if (found != 2 * LOOKUPS_PER_ITERATION) {
+            throw new IllegalStateException("unexpected lookup results");
+        }
+        return found;
+    }
+}
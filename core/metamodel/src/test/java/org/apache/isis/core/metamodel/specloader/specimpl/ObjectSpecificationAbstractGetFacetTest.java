@@ -0,0 +1,224 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.metamodel.specloader.specimpl;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.metamodel.facetapi.Facet;
+import org.apache.isis.core.metamodel.facetapi.FacetAbstract;
+import org.apache.isis.core.metamodel.facetapi.FacetHolder;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.spec.SpecificationLoader;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstract.IntrospectionState;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class ObjectSpecificationAbstractGetFacetTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private SpecificationLoader mockSpecificationLoader;
+
+    public static interface FooFacet extends Facet {
+    }
+
+    public static interface BarFacet extends Facet {
+    }
+
+    public static class FooFacetImpl extends FacetAbstract implements FooFacet {
+        private final boolean noop;
+
+        public FooFacetImpl(final FacetHolder holder, final boolean noop) {
+            super(FooFacet.class, holder, Derivation.NOT_DERIVED);
+            this.noop = noop;
+        }
+
+        @Override
+        public boolean isNoop() {
+            return noop;
+        }
+    }
+
+    public static class BarFacetImpl extends FacetAbstract implements BarFacet {
+        public BarFacetImpl(final FacetHolder holder) {
+            super(BarFacet.class, holder, Derivation.NOT_DERIVED);
+        }
+    }
+
+    public static interface Named {
+    }
+
+    public static class Base {
+    }
+
+    public static class Middle extends Base implements Named {
+    }
+
+    public static class Leaf extends Middle {
+    }
+
+    /**
+     * Runs an action (once) just after its facet types have been read, as
+     * when another thread changes the facets while a subclass is freezing
+     * its own.
+     */
+    private static class ObjectSpecificationAbstractRacingStub extends ObjectSpecificationAbstractStub {
+        private Runnable afterFacetTypesRead;
+
+        public ObjectSpecificationAbstractRacingStub(final Class<?> cls, final SpecificationLoader specificationLoader) {
+            super(cls, specificationLoader);
+        }
+
+        @Override
+        public Class<? extends Facet>[] getFacetTypes() {
+            final Class<? extends Facet>[] facetTypes = super.getFacetTypes();
+            final Runnable action = afterFacetTypesRead;
+            if (action != null) {
+                afterFacetTypesRead = null;
+                action.run();
+            }
+            return facetTypes;
+        }
+    }
+
+    private ObjectSpecificationAbstract namedSpec;
+    private ObjectSpecificationAbstractRacingStub baseSpec;
+    private ObjectSpecificationAbstract middleSpec;
+    private ObjectSpecificationAbstract leafSpec;
+
+    @Before
+    public void setUp() throws Exception {
+        namedSpec = new ObjectSpecificationAbstractStub(Named.class, mockSpecificationLoader);
+        baseSpec = new ObjectSpecificationAbstractRacingStub(Base.class, mockSpecificationLoader);
+        middleSpec = new ObjectSpecificationAbstractStub(Middle.class, mockSpecificationLoader);
+        leafSpec = new ObjectSpecificationAbstractStub(Leaf.class, mockSpecificationLoader);
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockSpecificationLoader).loadSpecification(Middle.class);
+                will(returnValue(middleSpec));
+                allowing(mockSpecificationLoader).loadSpecification(Base.class);
+                will(returnValue(baseSpec));
+            }
+        });
+
+        baseSpec.setIntrospectionState(IntrospectionState.INTROSPECTED);
+        namedSpec.setIntrospectionState(IntrospectionState.INTROSPECTED);
+
+        middleSpec.updateSuperclass(Base.class);
+        middleSpec.updateAsSubclassTo(Collections.<ObjectSpecification>singletonList(namedSpec));
+        middleSpec.updateInterfaces(Collections.<ObjectSpecification>singletonList(namedSpec));
+        middleSpec.setIntrospectionState(IntrospectionState.INTROSPECTED);
+
+        leafSpec.updateSuperclass(Middle.class);
+        leafSpec.setIntrospectionState(IntrospectionState.INTROSPECTED);
+    }
+
+    @Test
+    public void inheritedFromSuperclass() throws Exception {
+        final BarFacetImpl barFacet = new BarFacetImpl(baseSpec);
+        baseSpec.addFacet(barFacet);
+
+        assertSame(barFacet, leafSpec.getFacet(BarFacet.class));
+    }
+
+    @Test
+    public void inheritedFromInterfaceInPreferenceToSuperclass() throws Exception {
+        final FooFacetImpl interfaceFacet = new FooFacetImpl(namedSpec, false);
+        namedSpec.addFacet(interfaceFacet);
+        baseSpec.addFacet(new FooFacetImpl(baseSpec, false));
+
+        assertSame(interfaceFacet, leafSpec.getFacet(FooFacet.class));
+    }
+
+    @Test
+    public void noopLocalFacetOverriddenByInheritedFacet() throws Exception {
+        final FooFacetImpl baseFacet = new FooFacetImpl(baseSpec, false);
+        baseSpec.addFacet(baseFacet);
+        leafSpec.addFacet(new FooFacetImpl(leafSpec, true));
+
+        assertSame(baseFacet, leafSpec.getFacet(FooFacet.class));
+    }
+
+    @Test
+    public void whenNone() throws Exception {
+        baseSpec.addFacet(new BarFacetImpl(baseSpec));
+
+        assertNull(leafSpec.getFacet(FooFacet.class));
+    }
+
+    @Test
+    public void facetAddedToSuperclassAfterLookupIsPickedUp() throws Exception {
+        assertNull(leafSpec.getFacet(BarFacet.class));
+
+        final BarFacetImpl barFacet = new BarFacetImpl(baseSpec);
+        baseSpec.addFacet(barFacet);
+
+        assertSame(barFacet, leafSpec.getFacet(BarFacet.class));
+    }
+
+    @Test
+    public void facetRemovedFromSuperclassAfterLookupIsPickedUp() throws Exception {
+        final BarFacetImpl barFacet = new BarFacetImpl(baseSpec);
+        baseSpec.addFacet(barFacet);
+        assertSame(barFacet, leafSpec.getFacet(BarFacet.class));
+
+        baseSpec.removeFacet(BarFacet.class);
+
+        assertNull(leafSpec.getFacet(BarFacet.class));
+    }
+
+    @Test
+    public void whileSuperclassStillBeingIntrospected() throws Exception {
+        baseSpec.setIntrospectionState(IntrospectionState.BEING_INTROSPECTED);
+        assertNull(leafSpec.getFacet(BarFacet.class));
+
+        final BarFacetImpl barFacet = new BarFacetImpl(baseSpec);
+        baseSpec.addFacet(barFacet);
+
+        assertSame(barFacet, leafSpec.getFacet(BarFacet.class));
+    }
+
+    @Test
+    public void facetAddedToSuperclassWhileFreezingIsPickedUp() throws Exception {
+        final BarFacetImpl barFacet = new BarFacetImpl(baseSpec);
+        baseSpec.afterFacetTypesRead = new Runnable() {
+            @Override
+            public void run() {
+                baseSpec.addFacet(barFacet);
+            }
+        };
+
+        assertSame(barFacet, leafSpec.getFacet(BarFacet.class));
+        assertSame(barFacet, leafSpec.getFacet(BarFacet.class));
+    }
+
+}
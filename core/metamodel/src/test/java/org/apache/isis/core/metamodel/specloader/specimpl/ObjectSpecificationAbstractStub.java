@@ -0,0 +1,79 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.metamodel.specloader.specimpl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.isis.core.metamodel.deployment.DeploymentCategory;
+import org.apache.isis.core.metamodel.spec.ActionType;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.spec.SpecificationContext;
+import org.apache.isis.core.metamodel.spec.SpecificationLoader;
+import org.apache.isis.core.metamodel.spec.feature.ObjectAction;
+
+/**
+ * Minimal concrete {@link ObjectSpecificationAbstract}, whose type hierarchy
+ * and facets are set up directly by the test.
+ */
+class ObjectSpecificationAbstractStub extends ObjectSpecificationAbstract {
+
+    public ObjectSpecificationAbstractStub(final Class<?> cls, final SpecificationLoader specificationLoader) {
+        super(cls, cls.getSimpleName(), new SpecificationContext(DeploymentCategory.PRODUCTION, null, null, null, specificationLoader));
+    }
+
+    @Override
+    public void introspectTypeHierarchyAndMembers() {
+    }
+
+    @Override
+    public void markAsService() {
+    }
+
+    @Override
+    public boolean isService() {
+        return false;
+    }
+
+    @Override
+    public ObjectAction getObjectAction(final ActionType type, final String id, final List<ObjectSpecification> parameters) {
+        return null;
+    }
+
+    @Override
+    public ObjectAction getObjectAction(final ActionType type, final String id) {
+        return null;
+    }
+
+    @Override
+    public ObjectAction getObjectAction(final String nameParmsIdentityString) {
+        return null;
+    }
+
+    @Override
+    public List<ObjectAction> getServiceActionsReturning(final ActionType type) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<ObjectAction> getServiceActionsReturning(final List<ActionType> type) {
+        return Collections.emptyList();
+    }
+}
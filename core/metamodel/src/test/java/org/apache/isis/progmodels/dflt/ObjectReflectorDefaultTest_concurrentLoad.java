@@ -0,0 +1,211 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.progmodels.dflt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.Lists;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.commons.config.IsisConfiguration;
+import org.apache.isis.core.metamodel.facetdecorator.FacetDecorator;
+import org.apache.isis.core.metamodel.runtimecontext.noruntime.RuntimeContextNoRuntime;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.specloader.ObjectReflectorDefault;
+import org.apache.isis.core.metamodel.specloader.classsubstitutor.ClassSubstitutorAbstract;
+import org.apache.isis.core.metamodel.specloader.collectiontyperegistry.CollectionTypeRegistryDefault;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstract;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstract.IntrospectionState;
+import org.apache.isis.core.metamodel.specloader.traverser.SpecificationTraverserDefault;
+import org.apache.isis.core.progmodel.layout.dflt.MemberLayoutArrangerDefault;
+import org.apache.isis.core.progmodel.metamodelvalidator.dflt.MetaModelValidatorDefault;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.InjectIntoJMockAction;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class ObjectReflectorDefaultTest_concurrentLoad {
+
+    public static class Customer {
+        private Order lastOrder;
+
+        public Order getLastOrder() {
+            return lastOrder;
+        }
+
+        public void setLastOrder(final Order lastOrder) {
+            this.lastOrder = lastOrder;
+        }
+    }
+
+    public static class Order {
+        private String reference;
+
+        public String getReference() {
+            return reference;
+        }
+
+        public void setReference(final String reference) {
+            this.reference = reference;
+        }
+    }
+
+    /**
+     * Parks the thread introspecting {@link Customer} when it gets as far as
+     * loading the specification of {@link Order}, ie while
+     * {@link Customer}'s specification is cached but not yet introspected.
+     */
+    private static class ParkingClassSubstitutor extends ClassSubstitutorAbstract {
+        private volatile Thread parkedThread;
+        private final CountDownLatch parked = new CountDownLatch(1);
+        private final CountDownLatch unpark = new CountDownLatch(1);
+
+        @Override
+        public Class<?> getClass(final Class<?> cls) {
+            if (cls == Order.class && Thread.currentThread() == parkedThread) {
+                parkedThread = null;
+                parked.countDown();
+                try {
+                    unpark.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.getClass(cls);
+        }
+    }
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_ONLY);
+
+    @Mock
+    private IsisConfiguration mockConfiguration;
+
+    private ParkingClassSubstitutor classSubstitutor;
+    private ObjectReflectorDefault reflector;
+
+    @Before
+    public void setUp() throws Exception {
+        Logger.getRootLogger().setLevel(Level.OFF);
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockConfiguration).injectInto(with(anything()));
+                will(InjectIntoJMockAction.injectInto());
+
+                ignoring(mockConfiguration);
+            }
+        });
+
+        classSubstitutor = new ParkingClassSubstitutor();
+        reflector = new ObjectReflectorDefault(mockConfiguration, classSubstitutor, new CollectionTypeRegistryDefault(), new SpecificationTraverserDefault(), new MemberLayoutArrangerDefault(), new ProgrammingModelFacetsJava5(), new HashSet<FacetDecorator>(),
+                new MetaModelValidatorDefault());
+        reflector.setRuntimeContext(new RuntimeContextNoRuntime());
+        reflector.init();
+    }
+
+    @Test
+    public void concurrentLookupsOfIntrospectedSpecificationReturnCachedInstance() throws Exception {
+        final ObjectSpecification cached = reflector.loadSpecification(Customer.class);
+
+        final int threads = 8;
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> loaders = Lists.newArrayList();
+        for (int i = 0; i < threads; i++) {
+            loaders.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 1000; j++) {
+                            if (reflector.loadSpecification(Customer.class) != cached) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (final Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (final Thread loader : loaders) {
+            loader.start();
+        }
+        start.countDown();
+        for (final Thread loader : loaders) {
+            loader.join();
+        }
+
+        assertThat(failures.get(), is(0));
+    }
+
+    @Test
+    public void specificationStillBeingIntrospectedIsNotHandedOut() throws Exception {
+        final AtomicReference<ObjectSpecification> introspected = new AtomicReference<ObjectSpecification>();
+        final Thread introspecting = new Thread() {
+            @Override
+            public void run() {
+                introspected.set(reflector.loadSpecification(Customer.class));
+            }
+        };
+        classSubstitutor.parkedThread = introspecting;
+        introspecting.start();
+        classSubstitutor.parked.await();
+
+        final AtomicReference<ObjectSpecification> looked = new AtomicReference<ObjectSpecification>();
+        final AtomicReference<IntrospectionState> stateWhenHandedOut = new AtomicReference<IntrospectionState>();
+        final Thread lookup = new Thread() {
+            @Override
+            public void run() {
+                final ObjectSpecification spec = reflector.loadSpecification(Customer.class);
+                stateWhenHandedOut.set(((ObjectSpecificationAbstract) spec).getIntrospectionState());
+                looked.set(spec);
+            }
+        };
+        lookup.start();
+
+        // wait until the lookup either returns or blocks waiting for the introspection to finish
+        while (lookup.isAlive() && lookup.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        classSubstitutor.unpark.countDown();
+        introspecting.join();
+        lookup.join();
+
+        assertThat(stateWhenHandedOut.get(), is(IntrospectionState.INTROSPECTED));
+        assertSame(introspected.get(), looked.get());
+    }
+
+}
@@ -22,12 +22,16 @@
 import java.text.MessageFormat;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 import org.apache.log4j.Logger;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.debug.DebugBuilder;
 import org.apache.isis.core.commons.debug.DebugUtils;
 import org.apache.isis.core.commons.exceptions.IsisException;
@@ -36,6 +40,7 @@
 import org.apache.isis.core.metamodel.adapter.oid.Oid;
 import org.apache.isis.core.metamodel.adapter.oid.RootOid;
 import org.apache.isis.core.metamodel.adapter.oid.TypedOid;
+import org.apache.isis.core.metamodel.adapter.version.ConcurrencyException;
 import org.apache.isis.core.metamodel.adapter.version.Version;
 import org.apache.isis.core.metamodel.facets.collections.modify.CollectionFacet;
 import org.apache.isis.core.metamodel.facets.collections.modify.CollectionFacetUtils;
@@ -46,8 +51,12 @@
 import org.apache.isis.core.objectstore.commands.InMemoryDestroyObjectCommand;
 import org.apache.isis.core.objectstore.commands.InMemorySaveObjectCommand;
 import org.apache.isis.core.objectstore.internal.ObjectStoreInstances;
+import org.apache.isis.core.objectstore.internal.ObjectStoreJournal;
 import org.apache.isis.core.objectstore.internal.ObjectStorePersistedObjects;
 import org.apache.isis.core.objectstore.internal.ObjectStorePersistedObjectsDefault;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Commit;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Snapshot;
 import org.apache.isis.core.runtime.persistence.ObjectNotFoundException;
 import org.apache.isis.core.runtime.persistence.ObjectPersistenceException;
 import org.apache.isis.core.runtime.persistence.UnsupportedFindException;
@@ -58,11 +67,14 @@
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.SaveObjectCommand;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryBuiltIn;
 import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.persistence.IdentifierGenerator;
+import org.apache.isis.core.runtime.system.persistence.IdentifierGeneratorDefault;
+import org.apache.isis.core.runtime.system.persistence.ObjectStoreStreaming;
 import org.apache.isis.core.runtime.system.persistence.PersistenceQuery;
 import org.apache.isis.core.runtime.system.persistence.PersistenceSession;
 import org.apache.isis.core.runtime.system.persistence.PersistenceSessionFactory;
 
-public class InMemoryObjectStore implements ObjectStoreSpi {
+public class InMemoryObjectStore implements ObjectStoreSpi, ObjectStoreStreaming {
 
     private final static Logger LOG = Logger.getLogger(InMemoryObjectStore.class);
 
@@ -94,6 +106,14 @@ public void open() {
         if (persistedObjects == null) {
             if (inMemoryPersistenceSessionFactory != null) {
                 persistedObjects = inMemoryPersistenceSessionFactory.createPersistedObjects();
+                // any objects recovered from the journal already have
+                // identifiers, which must not be handed out again
+                if (persistedObjects.getJournal() != null) {
+                    final IdentifierGeneratorDefault identifierGenerator = getIdentifierGeneratorDefault();
+                    if (identifierGenerator != null) {
+                        identifierGenerator.resetToIfAhead(persistedObjects.getOidGeneratorMemento());
+                    }
+                }
             } else {
                 persistedObjects = new ObjectStorePersistedObjectsDefault();
             }
@@ -160,11 +180,14 @@ public void close() {
     // ///////////////////////////////////////////////////////
 
     /**
-     * No permanent persistence, so must always install fixtures.
+     * No permanent persistence, so must always install fixtures; unless
+     * {@link ObjectStoreJournal journalled}, in which case only if nothing was
+     * recovered from the journal.
      */
     @Override
     public boolean isFixturesInstalled() {
-        return false;
+        final ObjectStoreJournal journal = persistedObjects != null ? persistedObjects.getJournal() : null;
+        return journal != null && journal.isRecovered();
     }
 
     // ///////////////////////////////////////////////////////
@@ -220,17 +243,62 @@ public DestroyObjectCommand createDestroyObjectCommand(final ObjectAdapter objec
     // Command Execution
     // ///////////////////////////////////////////////////////
 
+    /**
+     * Executes the commands as a single {@link ObjectStoreSnapshots commit}, so
+     * that other sessions see either all or none of their changes; if any
+     * fails (eg with a {@link ConcurrencyException}) then none are applied.
+     */
     @Override
     public void execute(final List<PersistenceCommand> commands) throws ObjectPersistenceException {
         if (LOG.isInfoEnabled()) {
             LOG.info("execute commands");
         }
-        for (final PersistenceCommand command : commands) {
-            command.execute(null);
+        if (commands.isEmpty()) {
+            // nothing to commit (and, while recovering from the journal, no
+            // instances to commit to)
+            return;
         }
+        commit(new Runnable() {
+            @Override
+            public void run() {
+                for (final PersistenceCommand command : commands) {
+                    command.execute(null);
+                }
+            }
+        });
         LOG.info("end execution");
     }
 
+    /**
+     * Makes the changes as a single commit and, if {@link ObjectStoreJournal
+     * journalled}, waits for the commit to be written to the journal. That
+     * wait is once the commit is published, so that other commits can be
+     * made (and their writes grouped with this one) meanwhile.
+     */
+    private void commit(final Runnable changes) {
+        final ObjectStoreJournal journal = persistedObjects.getJournal();
+        final Commit commit = persistedObjects.getSnapshots().beginCommit();
+        long journalled = 0;
+        boolean committed = false;
+        try {
+            changes.run();
+            if (journal != null) {
+                final IdentifierGeneratorDefault identifierGenerator = getIdentifierGeneratorDefault();
+                journalled = journal.append(identifierGenerator != null ? identifierGenerator.getMemento() : null);
+            }
+            committed = true;
+        } finally {
+            if (committed) {
+                commit.publish();
+            } else {
+                commit.abort();
+            }
+        }
+        if (journal != null) {
+            journal.sync(journalled);
+        }
+    }
+
     // ///////////////////////////////////////////////////////
     // getObject, resolveField, resolveImmediately
     // ///////////////////////////////////////////////////////
@@ -289,10 +357,85 @@ public List<ObjectAdapter> loadInstancesAndAdapt(final PersistenceQuery persiste
 
         final List<ObjectAdapter> instances = Lists.newArrayList();
         final ObjectSpecification spec = persistenceQuery.getSpecification();
-        findInstances(spec, builtIn, instances);
+        final Snapshot snapshot = persistedObjects.getSnapshots().openSnapshot();
+        try {
+            findInstances(spec, builtIn, instances, snapshot);
+        } finally {
+            snapshot.close();
+        }
         return resolved(instances);
     }
 
+    /**
+     * The instances are matched and adapted only as the cursor reaches them,
+     * within a single {@link Snapshot} held open until the cursor is closed
+     * (or exhausted). The fetch size is ignored, as the instances are already
+     * in memory.
+     */
+    @Override
+    public QueryCursor<ObjectAdapter> streamInstancesAndAdapt(final PersistenceQuery persistenceQuery, final int fetchSize) {
+        if (!(persistenceQuery instanceof PersistenceQueryBuiltIn)) {
+            throw new IllegalArgumentException(MessageFormat.format("Provided PersistenceQuery not supported; was {0}; " + "the in-memory object store only supports {1}", persistenceQuery.getClass().getName(), PersistenceQueryBuiltIn.class.getName()));
+        }
+        final PersistenceQueryBuiltIn builtIn = (PersistenceQueryBuiltIn) persistenceQuery;
+
+        final List<ObjectSpecification> specs = Lists.newArrayList();
+        addWithSubclasses(persistenceQuery.getSpecification(), specs);
+        final Snapshot snapshot = persistedObjects.getSnapshots().openSnapshot();
+        final Iterator<ObjectAdapter> instances = Iterators.concat(Iterators.transform(specs.iterator(), new Function<ObjectSpecification, Iterator<ObjectAdapter>>() {
+            @Override
+            public Iterator<ObjectAdapter> apply(final ObjectSpecification spec) {
+                return instancesFor(spec).findInstances(builtIn, snapshot);
+            }
+        }));
+
+        return new QueryCursor<ObjectAdapter>() {
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                if (closed) {
+                    return false;
+                }
+                if (instances.hasNext()) {
+                    return true;
+                }
+                close();
+                return false;
+            }
+
+            @Override
+            public ObjectAdapter next() {
+                if (closed) {
+                    throw new NoSuchElementException();
+                }
+                final ObjectAdapter adapter = instances.next();
+                adapter.markAsResolvedIfPossible();
+                return adapter;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    snapshot.close();
+                }
+            }
+        };
+    }
+
+    private static void addWithSubclasses(final ObjectSpecification spec, final List<ObjectSpecification> specs) {
+        specs.add(spec);
+        for (final ObjectSpecification subclass : spec.subclasses()) {
+            addWithSubclasses(subclass, specs);
+        }
+    }
+
     @Override
     public boolean hasInstances(final ObjectSpecification spec) {
         if (instancesFor(spec).hasInstances()) {
@@ -310,14 +453,14 @@ public boolean hasInstances(final ObjectSpecification spec) {
         return false;
     }
 
-    private void findInstances(final ObjectSpecification spec, final PersistenceQueryBuiltIn persistenceQuery, final List<ObjectAdapter> foundInstances) {
+    private void findInstances(final ObjectSpecification spec, final PersistenceQueryBuiltIn persistenceQuery, final List<ObjectAdapter> foundInstances, final Snapshot snapshot) {
 
-        instancesFor(spec).findInstancesAndAdd(persistenceQuery, foundInstances);
+        instancesFor(spec).findInstancesAndAdd(persistenceQuery, foundInstances, snapshot);
 
         // include subclasses
         final List<ObjectSpecification> subclasses = spec.subclasses();
         for (int i = 0; i < subclasses.size(); i++) {
-            findInstances(subclasses.get(i), persistenceQuery, foundInstances);
+            findInstances(subclasses.get(i), persistenceQuery, foundInstances, snapshot);
         }
     }
 
@@ -339,7 +482,18 @@ public RootOid getOidForService(ObjectSpecification serviceSpec) {
 
     @Override
     public void registerService(final RootOid rootOid) {
-        persistedObjects.registerService(rootOid.getObjectSpecId(), rootOid);
+        final ObjectStoreJournal journal = persistedObjects.getJournal();
+        if (journal == null) {
+            persistedObjects.registerService(rootOid.getObjectSpecId(), rootOid);
+            return;
+        }
+        commit(new Runnable() {
+            @Override
+            public void run() {
+                persistedObjects.registerService(rootOid.getObjectSpecId(), rootOid);
+                journal.registerService(rootOid.getObjectSpecId(), rootOid);
+            }
+        });
     }
 
     private ObjectStoreInstances instancesFor(final ObjectSpecification spec) {
@@ -490,6 +644,15 @@ protected AdapterManager getAdapterManager() {
         return getPersistenceSession().getAdapterManager();
     }
 
+    /**
+     * The session's identifier generator if the default, whose state is
+     * journalled along with the objects; otherwise <tt>null</tt>.
+     */
+    protected IdentifierGeneratorDefault getIdentifierGeneratorDefault() {
+        final IdentifierGenerator identifierGenerator = getPersistenceSession().getOidGenerator().getIdentifierGenerator();
+        return identifierGenerator instanceof IdentifierGeneratorDefault ? (IdentifierGeneratorDefault) identifierGenerator : null;
+    }
+
     protected SpecificationLoader getSpecificationLookup() {
         return IsisContext.getSpecificationLoader();
     }
@@ -20,7 +20,9 @@
 package org.apache.isis.core.objectstore;
 
 import org.apache.isis.core.commons.config.IsisConfiguration;
+import org.apache.isis.core.objectstore.internal.ObjectStoreIndexes;
 import org.apache.isis.core.objectstore.internal.ObjectStoreInstances;
+import org.apache.isis.core.objectstore.internal.ObjectStoreJournal;
 import org.apache.isis.core.objectstore.internal.ObjectStorePersistedObjects;
 import org.apache.isis.core.objectstore.internal.ObjectStorePersistedObjectsDefault;
 import org.apache.isis.core.runtime.persistence.PersistenceSessionFactoryDelegate;
@@ -33,13 +35,13 @@
 
 public class InMemoryPersistenceSessionFactory extends PersistenceSessionFactoryDelegating {
 
-    private ObjectStorePersistedObjects persistedObjects;
+    private volatile ObjectStorePersistedObjects persistedObjects;
 
     public InMemoryPersistenceSessionFactory(final DeploymentType deploymentType, final IsisConfiguration configuration, final PersistenceSessionFactoryDelegate persistenceSessionFactoryDelegate) {
         super(deploymentType, configuration, persistenceSessionFactoryDelegate);
     }
 
-    ObjectStorePersistedObjects getPersistedObjects() {
+    synchronized ObjectStorePersistedObjects getPersistedObjects() {
         return persistedObjects;
     }
 
@@ -51,7 +53,9 @@ public PersistenceSession createPersistenceSession() {
             final IdentifierGenerator identifierGenerator = oidGenerator.getIdentifierGenerator();
             if (identifierGenerator instanceof IdentifierGeneratorDefault) {
                 final IdentifierGeneratorDefault identifierGeneratorDefault = (IdentifierGeneratorDefault) identifierGenerator;
-                identifierGeneratorDefault.resetTo(persistedObjects.getOidGeneratorMemento());
+                // the generator is shared by concurrent sessions, so never wind
+                // it back to a memento saved by one that closed earlier
+                identifierGeneratorDefault.resetToIfAhead(persistedObjects.getOidGeneratorMemento());
             }
         }
 
@@ -61,16 +65,29 @@ public PersistenceSession createPersistenceSession() {
     /**
      * Not API - called when {@link InMemoryObjectStore} first
      * {@link InMemoryObjectStore#open() open}ed.
+     * 
+     * <p>
+     * Sessions opened concurrently share the same persisted objects. If
+     * {@link ObjectStoreJournal journalled}, the objects are recovered from
+     * the journal, within the session being opened.
      */
-    public ObjectStorePersistedObjects createPersistedObjects() {
-        return new ObjectStorePersistedObjectsDefault();
+    public synchronized ObjectStorePersistedObjects createPersistedObjects() {
+        if (persistedObjects == null) {
+            final ObjectStoreJournal journal = ObjectStoreJournal.create(getConfiguration());
+            final ObjectStorePersistedObjects newPersistedObjects = new ObjectStorePersistedObjectsDefault(new ObjectStoreIndexes(getConfiguration()), journal);
+            if (journal != null) {
+                journal.recover(newPersistedObjects);
+            }
+            persistedObjects = newPersistedObjects;
+        }
+        return persistedObjects;
     }
 
     /**
      * Not API - called when {@link InMemoryObjectStore} is
      * {@link InMemoryObjectStore#close() close}d.
      */
-    public void attach(final PersistenceSession persistenceSession, final ObjectStorePersistedObjects persistedObjects) {
+    public synchronized void attach(final PersistenceSession persistenceSession, final ObjectStorePersistedObjects persistedObjects) {
         final OidGenerator oidGenerator = persistenceSession.getOidGenerator();
         final IdentifierGenerator identifierGenerator = oidGenerator.getIdentifierGenerator();
         if (identifierGenerator instanceof IdentifierGeneratorDefault) {
@@ -83,6 +100,10 @@ public void attach(final PersistenceSession persistenceSession, final ObjectStor
     @Override
     protected void doShutdown() {
         if (persistedObjects != null) {
+            final ObjectStoreJournal journal = persistedObjects.getJournal();
+            if (journal != null) {
+                journal.close();
+            }
             for (final ObjectStoreInstances inst : persistedObjects.instances()) {
                 inst.shutdown();
             }
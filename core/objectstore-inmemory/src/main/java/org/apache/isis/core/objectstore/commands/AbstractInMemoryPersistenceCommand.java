@@ -24,6 +24,7 @@
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 import org.apache.isis.core.objectstore.internal.ObjectStoreInstances;
+import org.apache.isis.core.objectstore.internal.ObjectStoreJournal;
 import org.apache.isis.core.objectstore.internal.ObjectStorePersistedObjects;
 import org.apache.isis.core.runtime.persistence.ObjectPersistenceException;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommandAbstract;
@@ -45,7 +46,12 @@ protected void save(final ObjectAdapter adapter) throws ObjectPersistenceExcepti
             LOG.debug("   saving object " + adapter + " as instance of " + specification.getShortIdentifier());
         }
         final ObjectStoreInstances ins = instancesFor(specification);
-        ins.save(adapter); // also sets the version
+        final ObjectStoreJournal journal = persistedObjects.getJournal();
+        if (journal != null) {
+            journal.save(ins, adapter);
+        } else {
+            ins.save(adapter); // also sets the version
+        }
     }
 
     protected void destroy(final ObjectAdapter adapter) {
@@ -54,7 +60,12 @@ protected void destroy(final ObjectAdapter adapter) {
             LOG.debug("   destroy object " + adapter + " as instance of " + specification.getShortIdentifier());
         }
         final ObjectStoreInstances ins = instancesFor(specification);
-        ins.remove(adapter.getOid());
+        final ObjectStoreJournal journal = persistedObjects.getJournal();
+        if (journal != null) {
+            journal.destroy(ins, adapter);
+        } else {
+            ins.remove(adapter); // also checks the version
+        }
     }
 
     private ObjectStoreInstances instancesFor(final ObjectSpecification spec) {
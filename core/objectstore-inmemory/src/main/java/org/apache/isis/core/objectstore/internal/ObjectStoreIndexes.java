@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.apache.log4j.Logger;
+
+import org.apache.isis.core.commons.config.ConfigurationConstants;
+import org.apache.isis.core.commons.config.IsisConfiguration;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
+
+/**
+ * Which {@link ObjectStoreInstances instances} are indexed, and on what.
+ * 
+ * <p>
+ * Indexes are opt-in, per specification, eg:
+ * 
+ * <pre>
+ * isis.persistor.in-memory.index.com.mycompany.Customer=lastName,postcode,title
+ * </pre>
+ * 
+ * <p>
+ * lists the value properties to index, with <tt>title</tt> also indexing the
+ * (lower-cased) title and <tt>*</tt> indexing every persisted value property.
+ * Indexes are maintained when objects are saved, so reflect their state as of
+ * the last save (rather than any uncommitted changes).
+ */
+public class ObjectStoreIndexes {
+
+    private final static Logger LOG = Logger.getLogger(ObjectStoreIndexes.class);
+
+    public static final String INDEX_KEY_PREFIX = ConfigurationConstants.ROOT + "persistor.in-memory.index.";
+    public static final String TITLE = "title";
+    public static final String ALL_VALUES = "*";
+
+    /**
+     * No indexes; every query scans.
+     */
+    public static final ObjectStoreIndexes NONE = new ObjectStoreIndexes(null);
+
+    private final IsisConfiguration configuration;
+
+    public ObjectStoreIndexes(final IsisConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Creates the index for the specified specification, or returns
+     * <tt>null</tt> if its instances are not to be indexed.
+     */
+    public ObjectStoreInstancesIndex createIndexFor(final ObjectSpecification spec) {
+        if (configuration == null) {
+            return null;
+        }
+        final String[] entries = configuration.getList(INDEX_KEY_PREFIX + spec.getFullIdentifier());
+        if (entries.length == 0) {
+            return null;
+        }
+
+        boolean indexTitle = false;
+        final Set<String> names = Sets.newLinkedHashSet();
+        for (final String entry : entries) {
+            final String name = entry.trim();
+            if (name.equals(TITLE)) {
+                indexTitle = true;
+            } else if (name.length() > 0) {
+                names.add(name);
+            }
+        }
+
+        final List<ObjectAssociation> properties = Lists.newArrayList();
+        for (final ObjectAssociation association : spec.getAssociations()) {
+            if (!isIndexable(association)) {
+                continue;
+            }
+            if (names.remove(association.getId()) || names.contains(ALL_VALUES)) {
+                properties.add(association);
+            }
+        }
+        names.remove(ALL_VALUES);
+        if (!names.isEmpty()) {
+            LOG.warn("not indexing " + names + " of " + spec.getFullIdentifier() + "; not persisted value properties");
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("indexing " + spec.getFullIdentifier() + " on " + properties + (indexTitle ? " and title" : ""));
+        }
+        return new ObjectStoreInstancesIndex(Collections.unmodifiableList(properties), indexTitle);
+    }
+
+    private static boolean isIndexable(final ObjectAssociation association) {
+        return association.isOneToOneAssociation() && !association.isNotPersisted() && association.getSpecification().isValue();
+    }
+
+}
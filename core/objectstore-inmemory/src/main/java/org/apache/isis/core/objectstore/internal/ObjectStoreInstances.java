@@ -19,13 +19,23 @@
 
 package org.apache.isis.core.objectstore.internal;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import org.apache.isis.applib.clock.Clock;
 import org.apache.isis.core.commons.authentication.AuthenticationSession;
@@ -33,11 +43,20 @@
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.adapter.mgr.AdapterManager;
 import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.adapter.version.ConcurrencyException;
 import org.apache.isis.core.metamodel.adapter.version.SerialNumberVersion;
 import org.apache.isis.core.metamodel.adapter.version.Version;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 import org.apache.isis.core.objectstore.InMemoryObjectStore;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Commit;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Snapshot;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryBuiltIn;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryBuiltInAbstract;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindAllInstances;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByPattern;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByTitle;
 import org.apache.isis.core.runtime.system.context.IsisContext;
 import org.apache.isis.core.runtime.system.persistence.AdapterManagerSpi;
 import org.apache.isis.core.runtime.system.persistence.PersistenceSession;
@@ -46,21 +65,49 @@
  * The objects need to store in a repeatable sequence so the elements and instances method return the same data for any repeated
  * call, and so that one subset of instances follows on the previous. This is done by keeping the objects in the order that they
  * where created.
+ *
+ * Each object is held as a chain of versions, newest first, so that it can be read (without locking) as of any open
+ * snapshot while a commit is writing a new version; see ObjectStoreSnapshots.
  */
-public class ObjectStoreInstances {
+public class ObjectStoreInstances implements ObjectStoreSnapshots.Participant {
 
-    private final Map<Oid, Object> pojoByOidMap = new HashMap<Oid, Object>();
-    private final Map<Oid, Version> versionByOidMap = new HashMap<Oid, Version>();
+    private final ConcurrentMap<Oid, Entry> entryByOid = new ConcurrentHashMap<Oid, Entry>();
+    private final ConcurrentNavigableMap<Long, Entry> entryByPosition = new ConcurrentSkipListMap<Long, Entry>();
 
-    @SuppressWarnings("unused")
     private final ObjectSpecification spec;
+    private final ObjectStoreInstancesIndex index;
+    private final ObjectStoreSnapshots snapshots;
+
+    // guarded by the commit lock
+    private long nextPosition;
+    private final Map<Entry, Record> headsBeforeCommit = Maps.newLinkedHashMap();
+    private final List<Change> changes = Lists.newArrayList();
+    private final List<Entry> destroyedEntries = Lists.newLinkedList();
 
     // ///////////////////////////////////////////////////////
     // Constructors
     // ///////////////////////////////////////////////////////
 
     public ObjectStoreInstances(final ObjectSpecification spec) {
+        this(spec, null);
+    }
+
+    public ObjectStoreInstances(final ObjectSpecification spec, final ObjectStoreInstancesIndex index) {
+        this(spec, index, new ObjectStoreSnapshots());
+    }
+
+    /**
+     * @param index
+     *            - the index to maintain and use for queries, or
+     *            <tt>null</tt> if queries should always scan.
+     * @param snapshots
+     *            - shared by all the instances of the object store, so that
+     *            commits spanning several specifications are atomic.
+     */
+    public ObjectStoreInstances(final ObjectSpecification spec, final ObjectStoreInstancesIndex index, final ObjectStoreSnapshots snapshots) {
         this.spec = spec;
+        this.index = index;
+        this.snapshots = snapshots;
     }
 
     // ///////////////////////////////////////////////////////
@@ -68,22 +115,48 @@ public ObjectStoreInstances(final ObjectSpecification spec) {
     // ///////////////////////////////////////////////////////
 
     /**
+     * A copy of the instances as of the latest commit, in the order they were
+     * created.
+     * 
+     * <p>
      * TODO: shouldn't really be exposing this directly.
      */
     public Map<Oid, Object> getObjectInstances() {
-        return pojoByOidMap;
+        final Map<Oid, Object> instances = Maps.newLinkedHashMap();
+        final Snapshot snapshot = snapshots.openSnapshot();
+        try {
+            for (final Entry entry : entryByPosition.values()) {
+                final Record record = visible(entry, snapshot.getSequence());
+                if (record != null) {
+                    instances.put(copyOf(entry.oid), record.pojo);
+                }
+            }
+        } finally {
+            snapshot.close();
+        }
+        return instances;
     }
 
     public Set<Oid> getOids() {
-        return Collections.unmodifiableSet(pojoByOidMap.keySet());
+        return Sets.newLinkedHashSet(getObjectInstances().keySet());
     }
 
     public Object getPojo(final Oid oid) {
-        return pojoByOidMap.get(oid);
+        final Record record = latest(oid);
+        return record != null ? record.pojo : null;
     }
 
     public Version getVersion(final Oid oid) {
-        return versionByOidMap.get(oid);
+        final Record record = latest(oid);
+        return record != null ? record.version : null;
+    }
+
+    public ObjectStoreInstancesIndex getIndex() {
+        return index;
+    }
+
+    public ObjectStoreSnapshots getSnapshots() {
+        return snapshots;
     }
 
     // ///////////////////////////////////////////////////////
@@ -91,21 +164,65 @@ public Version getVersion(final Oid oid) {
     // ///////////////////////////////////////////////////////
 
     public void shutdown() {
-        pojoByOidMap.clear();
-        versionByOidMap.clear();
+        entryByOid.clear();
+        entryByPosition.clear();
+        destroyedEntries.clear();
+        if (index != null) {
+            index.clear();
+        }
     }
 
     // ///////////////////////////////////////////////////////
     // save, remove
     // ///////////////////////////////////////////////////////
 
+    /**
+     * Saves the object as part of the {@link ObjectStoreSnapshots#getCurrentCommit()
+     * current commit}, if any, otherwise in a commit of its own.
+     * 
+     * @throws ConcurrencyException
+     *             if the object has since been saved (in another session) at a
+     *             different version to that held by the adapter.
+     */
     public void save(final ObjectAdapter adapter) {
-        pojoByOidMap.put(adapter.getOid(), adapter.getObject());
+        save(adapter, null);
+    }
 
-        final Version version = versionByOidMap.get(adapter.getOid());
-        final Version nextVersion = nextVersion(version);
-        versionByOidMap.put(adapter.getOid(), nextVersion);
+    /**
+     * As {@link #save(ObjectAdapter)}, also holding on to the object's encoded
+     * state (as journalled by {@link ObjectStoreJournal}) so that it can later
+     * be written to a checkpoint.
+     */
+    public void save(final ObjectAdapter adapter, final byte[] state) {
+        final Commit currentCommit = snapshots.getCurrentCommit();
+        if (currentCommit != null) {
+            save(currentCommit, adapter, state);
+            return;
+        }
+        final Commit commit = snapshots.beginCommit();
+        boolean saved = false;
+        try {
+            save(commit, adapter, state);
+            saved = true;
+        } finally {
+            if (saved) {
+                commit.publish();
+            } else {
+                commit.abort();
+            }
+        }
+    }
+
+    private void save(final Commit commit, final ObjectAdapter adapter, final byte[] state) {
+        final Oid oid = adapter.getOid();
+        final Version currentVersion = currentVersion(oid);
+        if (currentVersion != null) {
+            adapter.checkLock(currentVersion);
+        }
+        final Version nextVersion = nextVersion(currentVersion);
+        final Entry entry = write(commit, oid, adapter.getObject(), nextVersion, state);
         adapter.setVersion(nextVersion);
+        changes.add(new Change(entry, adapter, currentVersion));
     }
 
     private synchronized Version nextVersion(final Version version) {
@@ -113,9 +230,168 @@ private synchronized Version nextVersion(final Version version) {
         return SerialNumberVersion.create(sequence, getAuthenticationSession().getUserName(), new Date(Clock.getTime()));
     }
 
+    /**
+     * As {@link #remove(Oid)}, but first checking that the object has not
+     * since been saved (in another session) at a different version to that
+     * held by the adapter.
+     * 
+     * @throws ConcurrencyException
+     */
+    public void remove(final ObjectAdapter adapter) {
+        final Version currentVersion = currentVersion(adapter.getOid());
+        if (currentVersion != null) {
+            adapter.checkLock(currentVersion);
+        }
+        remove(adapter.getOid());
+    }
+
     public void remove(final Oid oid) {
-        pojoByOidMap.remove(oid);
-        versionByOidMap.remove(oid);
+        final Commit currentCommit = snapshots.getCurrentCommit();
+        if (currentCommit != null) {
+            remove(currentCommit, oid);
+            return;
+        }
+        final Commit commit = snapshots.beginCommit();
+        boolean removed = false;
+        try {
+            remove(commit, oid);
+            removed = true;
+        } finally {
+            if (removed) {
+                commit.publish();
+            } else {
+                commit.abort();
+            }
+        }
+    }
+
+    private void remove(final Commit commit, final Oid oid) {
+        if (currentVersion(oid) == null) {
+            return;
+        }
+        final Entry entry = write(commit, oid, null, null, null);
+        changes.add(new Change(entry, null, null));
+    }
+
+    /**
+     * Not API - restores an object recovered by the {@link ObjectStoreJournal
+     * journal}, at the version it was journalled, as part of the current
+     * commit.
+     */
+    public void restore(final ObjectAdapter adapter, final Version version, final byte[] state) {
+        final Commit commit = snapshots.getCurrentCommit();
+        if (commit == null) {
+            throw new IllegalStateException("objects can only be restored within a commit");
+        }
+        final Entry entry = write(commit, adapter.getOid(), adapter.getObject(), version, state);
+        adapter.setVersion(version);
+        changes.add(new Change(entry, adapter, null));
+    }
+
+    /**
+     * The version most recently written, whether published or by the current
+     * commit.
+     */
+    private Version currentVersion(final Oid oid) {
+        final Entry entry = entryByOid.get(oid);
+        final Record head = entry != null ? entry.head : null;
+        return head != null && head.pojo != null ? head.version : null;
+    }
+
+    /**
+     * Writes a new version of the object (or, if the pojo is <tt>null</tt>, a
+     * marker that it has been destroyed), only visible once the commit is
+     * published.
+     */
+    private Entry write(final Commit commit, final Oid oid, final Object pojo, final Version version, final byte[] state) {
+        commit.join(this);
+        purgeDestroyed(commit.getOldestVisibleSequence());
+
+        Entry entry = entryByOid.get(oid);
+        if (entry == null) {
+            entry = new Entry(copyOf(oid), nextPosition++);
+            entryByOid.put(entry.oid, entry);
+            entryByPosition.put(entry.position, entry);
+        }
+        final Record head = entry.head;
+        if (!headsBeforeCommit.containsKey(entry)) {
+            headsBeforeCommit.put(entry, head);
+        }
+        // saved more than once in this commit, so replace that version
+        final Record previous = head != null && head.sequence == commit.getSequence() ? head.previous : head;
+        entry.head = new Record(commit.getSequence(), pojo, version, state, previous);
+        discardSuperseded(entry.head, commit.getOldestVisibleSequence());
+        return entry;
+    }
+
+    /**
+     * Drops all but the newest of the versions that can still be seen by the
+     * oldest open snapshot.
+     */
+    private static void discardSuperseded(final Record head, final long oldestVisibleSequence) {
+        for (Record record = head; record != null; record = record.previous) {
+            if (record.sequence <= oldestVisibleSequence) {
+                record.previous = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes entirely those objects whose destruction can now be seen by
+     * every open snapshot.
+     */
+    private void purgeDestroyed(final long oldestVisibleSequence) {
+        for (final Iterator<Entry> iter = destroyedEntries.iterator(); iter.hasNext();) {
+            final Entry entry = iter.next();
+            final Record head = entry.head;
+            if (head != null && head.pojo != null) {
+                // since recreated
+                iter.remove();
+            } else if (head == null || head.sequence <= oldestVisibleSequence) {
+                entryByOid.remove(entry.oid, entry);
+                entryByPosition.remove(entry.position, entry);
+                iter.remove();
+            }
+        }
+    }
+
+    @Override
+    public void published(final long sequence) {
+        for (final Change change : changes) {
+            if (change.adapter == null) {
+                destroyedEntries.add(change.entry);
+                if (index != null) {
+                    index.remove(change.entry.oid);
+                }
+            } else if (index != null) {
+                index.add(change.entry.oid, change.adapter);
+            }
+        }
+        endCommit();
+    }
+
+    @Override
+    public void aborted(final long sequence) {
+        for (final Map.Entry<Entry, Record> headBeforeCommit : headsBeforeCommit.entrySet()) {
+            final Entry entry = headBeforeCommit.getKey();
+            entry.head = headBeforeCommit.getValue();
+            if (entry.head == null) {
+                entryByOid.remove(entry.oid, entry);
+                entryByPosition.remove(entry.position, entry);
+            }
+        }
+        for (final Change change : Lists.reverse(changes)) {
+            if (change.adapter != null && change.previousVersion != null) {
+                change.adapter.setVersion(change.previousVersion);
+            }
+        }
+        endCommit();
+    }
+
+    private void endCommit() {
+        headsBeforeCommit.clear();
+        changes.clear();
     }
 
     // ///////////////////////////////////////////////////////
@@ -130,10 +406,23 @@ public void remove(final Oid oid) {
      * a new {@link ObjectAdapter adapter}.
      */
     public ObjectAdapter getObjectAndMapIfRequired(final Oid oid) {
-        final Object pojo = getObjectInstances().get(oid);
-        if (pojo == null) {
+        final Record record = latest(oid);
+        if (record == null) {
+            return null;
+        }
+        return adapterFor(oid, record);
+    }
+
+    private ObjectAdapter getObjectAndMapIfRequired(final Entry entry, final Snapshot snapshot) {
+        final Record record = visible(entry, snapshot.getSequence());
+        if (record == null) {
             return null;
         }
+        return adapterFor(entry.oid, record);
+    }
+
+    private ObjectAdapter adapterFor(final Oid oid, final Record record) {
+        final Object pojo = record.pojo;
         final ObjectAdapter adapterLookedUpByPojo = getAdapterManager().getAdapterFor(pojo);
         if (adapterLookedUpByPojo != null) {
             return adapterLookedUpByPojo;
@@ -142,7 +431,39 @@ public ObjectAdapter getObjectAndMapIfRequired(final Oid oid) {
         if (adapterLookedUpByOid != null) {
             return adapterLookedUpByOid;
         }
-        return getPersistenceSession().mapRecreatedPojo(oid, pojo);
+        // each session's adapter has its own oid, holding the version it read
+        final ObjectAdapter adapter = getPersistenceSession().mapRecreatedPojo(copyOf(oid), pojo);
+        adapter.setVersion(record.version);
+        return adapter;
+    }
+
+    /**
+     * The latest published version of the object, for reads that are not part
+     * of a larger {@link Snapshot}.
+     */
+    private Record latest(final Oid oid) {
+        final Entry entry = entryByOid.get(oid);
+        if (entry == null) {
+            return null;
+        }
+        while (true) {
+            final long sequence = snapshots.getCommittedSequence();
+            final Record record = visible(entry, sequence);
+            // if not found, the version might have been discarded by a commit
+            // published since, so try again
+            if (record != null || sequence == snapshots.getCommittedSequence()) {
+                return record;
+            }
+        }
+    }
+
+    private static Record visible(final Entry entry, final long sequence) {
+        for (Record record = entry.head; record != null; record = record.previous) {
+            if (record.sequence <= sequence) {
+                return record.pojo != null ? record : null;
+            }
+        }
+        return null;
     }
 
     // ///////////////////////////////////////////////////////
@@ -154,27 +475,180 @@ public ObjectAdapter getObjectAndMapIfRequired(final Oid oid) {
      * {@link InMemoryObjectStore}.
      */
     public void findInstancesAndAdd(final PersistenceQueryBuiltIn persistenceQuery, final List<ObjectAdapter> foundInstances) {
-        for (final ObjectAdapter element : elements()) {
-            if (persistenceQuery.matches(element)) {
-                foundInstances.add(element);
+        final Snapshot snapshot = snapshots.openSnapshot();
+        try {
+            findInstancesAndAdd(persistenceQuery, foundInstances, snapshot);
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    /**
+     * Not API, but <tt>public</tt> so can be called by
+     * {@link InMemoryObjectStore}.
+     */
+    public void findInstancesAndAdd(final PersistenceQueryBuiltIn persistenceQuery, final List<ObjectAdapter> foundInstances, final Snapshot snapshot) {
+        Iterators.addAll(foundInstances, findInstances(persistenceQuery, snapshot));
+    }
+
+    /**
+     * Not API, but <tt>public</tt> so can be called by
+     * {@link InMemoryObjectStore}.
+     * 
+     * <p>
+     * Uses the {@link ObjectStoreInstancesIndex index} (if any) to narrow down
+     * the instances to consider before falling back to scanning them, and only
+     * adapts those instances that could be within the requested range, as
+     * (and if) the returned iterator reaches them.
+     */
+    public Iterator<ObjectAdapter> findInstances(final PersistenceQueryBuiltIn persistenceQuery, final Snapshot snapshot) {
+        final Iterator<Entry> candidates = candidatesFor(persistenceQuery).iterator();
+        return new AbstractIterator<ObjectAdapter>() {
+            @Override
+            protected ObjectAdapter computeNext() {
+                while (candidates.hasNext() && !isRangeExhausted(persistenceQuery)) {
+                    final ObjectAdapter element = matching(persistenceQuery, candidates.next(), snapshot);
+                    if (element != null) {
+                        return element;
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    private List<Entry> candidatesFor(final PersistenceQueryBuiltIn persistenceQuery) {
+        if (!(persistenceQuery instanceof PersistenceQueryFindByPattern)) {
+            return entries();
+        }
+        final PersistenceQueryFindByPattern findByPattern = (PersistenceQueryFindByPattern) persistenceQuery;
+        // only instances of the pattern's own specification can match
+        if (spec != null && !spec.equals(findByPattern.getPattern().getSpecification())) {
+            return Collections.emptyList();
+        }
+        final Map<String, Object> requiredValues = findByPattern.getRequiredValues();
+        if (index == null || !index.canLookup(requiredValues)) {
+            return entries();
+        }
+        final List<Entry> candidates = Lists.newArrayList();
+        for (final Oid oid : index.lookup(requiredValues)) {
+            final Entry entry = entryByOid.get(oid);
+            if (entry != null) {
+                candidates.add(entry);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * The adapter for the entry if it is visible and matched by the query (and
+     * within its range), otherwise <tt>null</tt>.
+     */
+    private ObjectAdapter matching(final PersistenceQueryBuiltIn persistenceQuery, final Entry entry, final Snapshot snapshot) {
+        if (persistenceQuery instanceof PersistenceQueryFindAllInstances) {
+            final PersistenceQueryFindAllInstances findAll = (PersistenceQueryFindAllInstances) persistenceQuery;
+            if (visible(entry, snapshot.getSequence()) != null && findAll.inRange()) {
+                return getObjectAndMapIfRequired(entry, snapshot);
+            }
+            return null;
+        }
+        if (persistenceQuery instanceof PersistenceQueryFindByTitle && index != null && index.isTitleIndexed()) {
+            final PersistenceQueryFindByTitle findByTitle = (PersistenceQueryFindByTitle) persistenceQuery;
+            if (visible(entry, snapshot.getSequence()) == null) {
+                return null;
+            }
+            final String indexedTitle = index.getTitle(entry.oid);
+            if (indexedTitle != null && indexedTitle.indexOf(findByTitle.getTitle()) >= 0 && findByTitle.inRange()) {
+                return getObjectAndMapIfRequired(entry, snapshot);
             }
+            return null;
+        }
+        final ObjectAdapter element = getObjectAndMapIfRequired(entry, snapshot);
+        if (element != null && persistenceQuery.matches(element)) {
+            return element;
         }
+        return null;
+    }
+
+    private static boolean isRangeExhausted(final PersistenceQueryBuiltIn persistenceQuery) {
+        return persistenceQuery instanceof PersistenceQueryBuiltInAbstract && ((PersistenceQueryBuiltInAbstract) persistenceQuery).isRangeExhausted();
     }
 
     public int numberOfInstances() {
-        return getObjectInstances().size();
+        int count = 0;
+        final Snapshot snapshot = snapshots.openSnapshot();
+        try {
+            for (final Entry entry : entryByPosition.values()) {
+                if (visible(entry, snapshot.getSequence()) != null) {
+                    count++;
+                }
+            }
+        } finally {
+            snapshot.close();
+        }
+        return count;
     }
 
     public boolean hasInstances() {
-        return numberOfInstances() > 0;
+        final Snapshot snapshot = snapshots.openSnapshot();
+        try {
+            for (final Entry entry : entryByPosition.values()) {
+                if (visible(entry, snapshot.getSequence()) != null) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    /**
+     * Not API - used by {@link ObjectStoreJournal} to write a checkpoint.
+     */
+    public interface StateVisitor {
+        void visit(Oid oid, Version version, byte[] state) throws IOException;
+    }
+
+    /**
+     * Passes the encoded state of each instance as of the snapshot, in the
+     * order they were created, to the visitor; returns the number of instances
+     * skipped because they were saved without their state.
+     */
+    public int visitStates(final Snapshot snapshot, final StateVisitor visitor) throws IOException {
+        int skipped = 0;
+        for (final Entry entry : entryByPosition.values()) {
+            final Record record = visible(entry, snapshot.getSequence());
+            if (record == null) {
+                continue;
+            }
+            if (record.state == null) {
+                skipped++;
+                continue;
+            }
+            visitor.visit(entry.oid, record.version, record.state);
+        }
+        return skipped;
+    }
+
+    /**
+     * A copy, since adapting an instance while iterating may in turn load
+     * others.
+     */
+    private List<Entry> entries() {
+        return Lists.newArrayList(entryByPosition.values());
     }
 
-    private List<ObjectAdapter> elements() {
-        final List<ObjectAdapter> v = new ArrayList<ObjectAdapter>(getObjectInstances().size());
-        for (final Oid oid : getObjectInstances().keySet()) {
-            v.add(getObjectAndMapIfRequired(oid));
+    /**
+     * The store's own copy of an oid, so that the version held by any one
+     * session's adapter is independent of the others.
+     */
+    private static Oid copyOf(final Oid oid) {
+        if (!(oid instanceof RootOid)) {
+            return oid;
         }
-        return v;
+        final RootOid rootOid = (RootOid) oid;
+        return rootOid.isTransient() ? RootOidDefault.createTransient(rootOid.getObjectSpecId(), rootOid.getIdentifier()) : RootOidDefault.create(rootOid.getObjectSpecId(), rootOid.getIdentifier());
     }
 
     // ///////////////////////////////////////////////////////
@@ -183,19 +657,75 @@ private List<ObjectAdapter> elements() {
 
     public void debugData(final DebugBuilder debug) {
         debug.indent();
-        if (getObjectInstances().size() == 0) {
+        final Map<Oid, Object> instances = getObjectInstances();
+        if (instances.size() == 0) {
             debug.appendln("no instances");
         }
-        for (final Oid oid : getObjectInstances().keySet()) {
+        for (final Oid oid : instances.keySet()) {
             final ObjectAdapter objectAdapter = getObjectAndMapIfRequired(oid);
             final String title = objectAdapter.titleString();
-            final Object object = getObjectInstances().get(oid);
+            final Object object = instances.get(oid);
             debug.appendln(oid.toString(), object + " (" + title + ")");
         }
+        if (index != null) {
+            index.debugData(debug);
+        }
         debug.appendln();
         debug.unindent();
     }
 
+    // ///////////////////////////////////////////////////////
+    // Entries and their versions
+    // ///////////////////////////////////////////////////////
+
+    private static class Entry {
+        private final Oid oid;
+        private final long position;
+        private volatile Record head;
+
+        private Entry(final Oid oid, final long position) {
+            this.oid = oid;
+            this.position = position;
+        }
+    }
+
+    private static class Record {
+        private final long sequence;
+        /**
+         * <tt>null</tt> if destroyed.
+         */
+        private final Object pojo;
+        private final Version version;
+        /**
+         * <tt>null</tt> unless journalled.
+         */
+        private final byte[] state;
+        private volatile Record previous;
+
+        private Record(final long sequence, final Object pojo, final Version version, final byte[] state, final Record previous) {
+            this.sequence = sequence;
+            this.pojo = pojo;
+            this.version = version;
+            this.state = state;
+            this.previous = previous;
+        }
+    }
+
+    private static class Change {
+        private final Entry entry;
+        /**
+         * <tt>null</tt> if destroyed.
+         */
+        private final ObjectAdapter adapter;
+        private final Version previousVersion;
+
+        private Change(final Entry entry, final ObjectAdapter adapter, final Version previousVersion) {
+            this.entry = entry;
+            this.adapter = adapter;
+            this.previousVersion = previousVersion;
+        }
+    }
+
     // ///////////////////////////////////////////////////////
     // Dependencies (from context)
     // ///////////////////////////////////////////////////////
@@ -0,0 +1,234 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.isis.core.commons.debug.DebugBuilder;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
+
+/**
+ * Hash indexes over the value properties, and optionally the titles, of the
+ * {@link ObjectStoreInstances instances} of a single specification; created
+ * by {@link ObjectStoreIndexes}.
+ * 
+ * <p>
+ * Each oid is also given a sequence number when first indexed, so that the
+ * candidates for a query can be returned in the same order that the instances
+ * are held in, keeping paged queries repeatable.
+ * 
+ * <p>
+ * Only updated once a commit is published, by the thread holding the commit
+ * lock, but may be read concurrently; lookups only narrow down the candidates,
+ * which are then checked against the snapshot being read.
+ */
+public class ObjectStoreInstancesIndex {
+
+    private final List<ObjectAssociation> properties;
+    private final boolean titleIndexed;
+
+    private final List<Map<Object, Set<Oid>>> oidsByValueByProperty = Lists.newArrayList();
+    private final Map<Oid, Object[]> valuesByOid = Maps.newConcurrentMap();
+    private final Map<Oid, String> titleByOid = Maps.newConcurrentMap();
+    private final Map<Oid, Long> sequenceByOid = Maps.newConcurrentMap();
+    private long nextSequence;
+
+    private final Comparator<Oid> bySequence = new Comparator<Oid>() {
+        @Override
+        public int compare(final Oid oid1, final Oid oid2) {
+            return sequenceOf(oid1).compareTo(sequenceOf(oid2));
+        }
+
+        private Long sequenceOf(final Oid oid) {
+            final Long sequence = sequenceByOid.get(oid);
+            // removed since looked up
+            return sequence != null ? sequence : Long.MAX_VALUE;
+        }
+    };
+
+    ObjectStoreInstancesIndex(final List<ObjectAssociation> properties, final boolean titleIndexed) {
+        this.properties = properties;
+        this.titleIndexed = titleIndexed;
+        for (int i = 0; i < properties.size(); i++) {
+            oidsByValueByProperty.add(Maps.<Object, Set<Oid>> newConcurrentMap());
+        }
+    }
+
+    public List<ObjectAssociation> getProperties() {
+        return properties;
+    }
+
+    public boolean isTitleIndexed() {
+        return titleIndexed;
+    }
+
+    // ///////////////////////////////////////////////////////
+    // add, remove, clear
+    // ///////////////////////////////////////////////////////
+
+    void add(final Oid oid, final ObjectAdapter adapter) {
+        // re-saving keeps the object's place, as it does in the instances
+        final Long sequence = sequenceByOid.get(oid);
+        remove(oid);
+
+        final Object[] values = new Object[properties.size()];
+        for (int i = 0; i < values.length; i++) {
+            final ObjectAdapter value = properties.get(i).get(adapter);
+            values[i] = value == null ? null : value.getObject();
+            if (values[i] == null) {
+                continue;
+            }
+            final Map<Object, Set<Oid>> oidsByValue = oidsByValueByProperty.get(i);
+            Set<Oid> oids = oidsByValue.get(values[i]);
+            if (oids == null) {
+                oids = Collections.newSetFromMap(Maps.<Oid, Boolean> newConcurrentMap());
+                oidsByValue.put(values[i], oids);
+            }
+            oids.add(oid);
+        }
+        valuesByOid.put(oid, values);
+        if (titleIndexed) {
+            final String title = adapter.titleString();
+            titleByOid.put(oid, title == null ? "" : title.toLowerCase());
+        }
+        sequenceByOid.put(oid, sequence != null ? sequence : nextSequence++);
+    }
+
+    void remove(final Oid oid) {
+        final Object[] values = valuesByOid.remove(oid);
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            final Map<Object, Set<Oid>> oidsByValue = oidsByValueByProperty.get(i);
+            final Set<Oid> oids = oidsByValue.get(values[i]);
+            if (oids != null) {
+                oids.remove(oid);
+                if (oids.isEmpty()) {
+                    oidsByValue.remove(values[i]);
+                }
+            }
+        }
+        titleByOid.remove(oid);
+        sequenceByOid.remove(oid);
+    }
+
+    void clear() {
+        for (final Map<Object, Set<Oid>> oidsByValue : oidsByValueByProperty) {
+            oidsByValue.clear();
+        }
+        valuesByOid.clear();
+        titleByOid.clear();
+        sequenceByOid.clear();
+    }
+
+    // ///////////////////////////////////////////////////////
+    // lookups
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * The lower-cased title of the object as of when it was last saved, or
+     * <tt>null</tt> if titles are not indexed or the oid is unknown.
+     */
+    public String getTitle(final Oid oid) {
+        return titleByOid.get(oid);
+    }
+
+    /**
+     * Whether any of the specified values (keyed by property id) can be looked
+     * up using this index.
+     */
+    public boolean canLookup(final Map<String, Object> requiredValues) {
+        for (final ObjectAssociation property : properties) {
+            if (requiredValues.containsKey(property.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The oids of the objects holding all of the specified values, for those
+     * properties that are indexed, in the order the objects were first saved.
+     * 
+     * <p>
+     * Values of properties that are not indexed are ignored, so the objects
+     * still need to be checked against the full query.
+     */
+    public List<Oid> lookup(final Map<String, Object> requiredValues) {
+        final List<Set<Oid>> matches = Lists.newArrayList();
+        Set<Oid> smallest = null;
+        for (int i = 0; i < properties.size(); i++) {
+            final String id = properties.get(i).getId();
+            if (!requiredValues.containsKey(id)) {
+                continue;
+            }
+            final Set<Oid> oids = oidsByValueByProperty.get(i).get(requiredValues.get(id));
+            if (oids == null) {
+                return Collections.emptyList();
+            }
+            matches.add(oids);
+            if (smallest == null || oids.size() < smallest.size()) {
+                smallest = oids;
+            }
+        }
+        if (smallest == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Oid> candidates = Lists.newArrayListWithCapacity(smallest.size());
+        nextCandidate: for (final Oid oid : smallest) {
+            for (final Set<Oid> oids : matches) {
+                if (oids != smallest && !oids.contains(oid)) {
+                    continue nextCandidate;
+                }
+            }
+            candidates.add(oid);
+        }
+        Collections.sort(candidates, bySequence);
+        return candidates;
+    }
+
+    // ///////////////////////////////////////////////////////
+    // Debugging
+    // ///////////////////////////////////////////////////////
+
+    public void debugData(final DebugBuilder debug) {
+        for (int i = 0; i < properties.size(); i++) {
+            debug.appendln("index on " + properties.get(i).getId(), oidsByValueByProperty.get(i).size() + " distinct values");
+        }
+        if (titleIndexed) {
+            debug.appendln("index on title", titleByOid.size() + " titles");
+        }
+    }
+
+}
@@ -0,0 +1,669 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.apache.log4j.Logger;
+
+import org.apache.isis.core.commons.config.ConfigurationConstants;
+import org.apache.isis.core.commons.config.IsisConfiguration;
+import org.apache.isis.core.commons.encoding.DataInputStreamExtended;
+import org.apache.isis.core.commons.encoding.DataOutputStreamExtended;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.adapter.oid.OidMarshaller;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.adapter.version.Version;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Commit;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Snapshot;
+import org.apache.isis.core.runtime.memento.Memento;
+import org.apache.isis.core.runtime.persistence.ObjectPersistenceException;
+import org.apache.isis.core.runtime.system.persistence.IdentifierGeneratorDefault;
+
+/**
+ * Makes the in-memory object store durable, by journalling each commit to an
+ * append-only {@link ObjectStoreLog log} and periodically writing a checkpoint
+ * (a compact binary snapshot of every persisted object); on start up the
+ * objects are {@link #recover(ObjectStorePersistedObjects) recovered} from the
+ * latest checkpoint and then the commits logged since.
+ * 
+ * <p>
+ * Opt-in, by specifying the directory to hold the log and checkpoints:
+ * 
+ * <pre>
+ * isis.persistor.in-memory.journal.directory=data/journal
+ * isis.persistor.in-memory.journal.force=true
+ * isis.persistor.in-memory.journal.checkpoint-interval=10000
+ * </pre>
+ * 
+ * <p>
+ * where <tt>force</tt> determines whether commits are forced to disk (with
+ * concurrent commits sharing each fsync), and <tt>checkpoint-interval</tt> is
+ * the number of commits after which a checkpoint is written. Checkpoints are
+ * written in the background, from a {@link Snapshot snapshot} of the objects,
+ * so do not hold up commits; the log up to that point is then deleted.
+ * 
+ * <p>
+ * Objects are journalled in the form of {@link Memento}s, captured when they
+ * are saved (and held on to for the next checkpoint).
+ */
+public class ObjectStoreJournal implements ObjectStoreSnapshots.Participant {
+
+    private final static Logger LOG = Logger.getLogger(ObjectStoreJournal.class);
+
+    public static final String JOURNAL_KEY_PREFIX = ConfigurationConstants.ROOT + "persistor.in-memory.journal.";
+    public static final String DIRECTORY_KEY = JOURNAL_KEY_PREFIX + "directory";
+    public static final String FORCE_KEY = JOURNAL_KEY_PREFIX + "force";
+    public static final String CHECKPOINT_INTERVAL_KEY = JOURNAL_KEY_PREFIX + "checkpoint-interval";
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10000;
+
+    private static final int CHECKPOINT_MAGIC = 0x49534a43;
+    private static final int CHECKPOINT_FORMAT = 1;
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".bin";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final byte SAVED = 1;
+    private static final byte DESTROYED = 2;
+    private static final byte SERVICE = 3;
+    private static final byte END = 0;
+
+    /**
+     * Creates a journal as per the configuration, or returns <tt>null</tt> if
+     * none is configured.
+     */
+    public static ObjectStoreJournal create(final IsisConfiguration configuration) {
+        final String directory = configuration.getString(DIRECTORY_KEY);
+        if (directory == null) {
+            return null;
+        }
+        final boolean force = configuration.getBoolean(FORCE_KEY, true);
+        final int checkpointInterval = configuration.getInteger(CHECKPOINT_INTERVAL_KEY, DEFAULT_CHECKPOINT_INTERVAL);
+        return new ObjectStoreJournal(new File(directory), force, checkpointInterval);
+    }
+
+    private final File directory;
+    private final boolean force;
+    private final int checkpointInterval;
+    private final ObjectStoreLog log;
+    private final OidMarshaller oidMarshaller = new OidMarshaller();
+
+    private ObjectStorePersistedObjects persistedObjects;
+    private boolean recovered;
+
+    // guarded by the commit lock
+    private final List<Change> changes = Lists.newArrayList();
+    private final Map<ObjectSpecId, Oid> services = Maps.newLinkedHashMap();
+    private IdentifierGeneratorDefault.Memento oidGeneratorMemento;
+    private int commitsSinceCheckpoint;
+
+    private final Object checkpointLock = new Object();
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+    private final ExecutorService checkpointExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("in-memory-object-store-checkpoint").setDaemon(true).build());
+
+    public ObjectStoreJournal(final File directory, final boolean force, final int checkpointInterval) {
+        this.directory = directory;
+        this.force = force;
+        this.checkpointInterval = checkpointInterval;
+        this.log = new ObjectStoreLog(directory, force);
+    }
+
+    // ///////////////////////////////////////////////////////
+    // recover
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Recreates the objects (and services) journalled previously, and then
+     * opens the log for further commits; must be called within a session.
+     * 
+     * @return whether there was anything to recover.
+     */
+    public boolean recover(final ObjectStorePersistedObjects persistedObjects) {
+        this.persistedObjects = persistedObjects;
+        final Map<Oid, Journalled> journalled = Maps.newLinkedHashMap();
+        final long startedAt = System.currentTimeMillis();
+        try {
+            deleteTemporaryFiles();
+            final long checkpointSequence = readCheckpoint(journalled);
+            log.replay(checkpointSequence, new ObjectStoreLog.RecordHandler() {
+                @Override
+                public void record(final long sequence, final byte[] payload) throws IOException {
+                    readCommit(payload, journalled);
+                }
+            });
+            log.open();
+        } catch (final IOException e) {
+            throw new ObjectPersistenceException("failed to recover journal in " + directory, e);
+        }
+
+        for (final Map.Entry<ObjectSpecId, Oid> service : services.entrySet()) {
+            persistedObjects.registerService(service.getKey(), service.getValue());
+        }
+        if (oidGeneratorMemento != null) {
+            persistedObjects.saveOidGeneratorMemento(oidGeneratorMemento);
+        }
+        restore(journalled);
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("recovered " + journalled.size() + " objects from " + directory + " in " + (System.currentTimeMillis() - startedAt) + "ms");
+        }
+        recovered = !journalled.isEmpty() || !services.isEmpty();
+        return recovered;
+    }
+
+    /**
+     * Whether any objects (or services) were {@link #recover(ObjectStorePersistedObjects) recovered}.
+     */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    private void restore(final Map<Oid, Journalled> journalled) {
+        // each object is recreated just the once, from its latest state
+        final Commit commit = persistedObjects.getSnapshots().beginCommit();
+        boolean restored = false;
+        try {
+            for (final Journalled object : journalled.values()) {
+                final ObjectAdapter adapter = decode(object.state);
+                persistedObjects.instancesFor(adapter.getSpecification()).restore(adapter, object.version, object.state);
+            }
+            restored = true;
+        } finally {
+            if (restored) {
+                commit.publish();
+            } else {
+                commit.abort();
+            }
+        }
+    }
+
+    private void readCommit(final byte[] payload, final Map<Oid, Journalled> journalled) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        oidGeneratorMemento = readOidGeneratorMemento(input, oidGeneratorMemento);
+        for (byte type = input.readByte(); type != END; type = input.readByte()) {
+            if (type == SAVED) {
+                final Oid oid = readOid(input);
+                final Version version = readVersion(input);
+                journalled.put(oid, new Journalled(version, readBytes(input)));
+            } else if (type == DESTROYED) {
+                journalled.remove(readOid(input));
+            } else if (type == SERVICE) {
+                services.put(ObjectSpecId.of(input.readUTF()), readOid(input));
+            } else {
+                throw new IOException("unknown journal entry type " + type);
+            }
+        }
+    }
+
+    // ///////////////////////////////////////////////////////
+    // journal commits
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Saves the object into its instances, journalling its state as part of
+     * the current commit.
+     */
+    public void save(final ObjectStoreInstances instances, final ObjectAdapter adapter) {
+        joinCurrentCommit();
+        final byte[] state = encode(adapter);
+        instances.save(adapter, state);
+        // the version is only known once saved
+        changes.add(new Change(SAVED, adapter.getOid(), adapter.getVersion(), state, null));
+    }
+
+    /**
+     * Removes the object from its instances, journalling its destruction as
+     * part of the current commit.
+     */
+    public void destroy(final ObjectStoreInstances instances, final ObjectAdapter adapter) {
+        joinCurrentCommit();
+        instances.remove(adapter);
+        changes.add(new Change(DESTROYED, adapter.getOid(), null, null, null));
+    }
+
+    /**
+     * Journals the service's oid as part of the current commit.
+     */
+    public void registerService(final ObjectSpecId objectSpecId, final Oid oid) {
+        joinCurrentCommit();
+        services.put(objectSpecId, oid);
+        changes.add(new Change(SERVICE, oid, null, null, objectSpecId));
+    }
+
+    private void joinCurrentCommit() {
+        final Commit commit = persistedObjects.getSnapshots().getCurrentCommit();
+        if (commit == null) {
+            throw new IllegalStateException("changes can only be journalled within a commit");
+        }
+        commit.join(this);
+    }
+
+    /**
+     * Appends the changes made by the current commit to the log, returning
+     * the sequence number to {@link #sync(long) sync} to once the commit has
+     * been published.
+     * 
+     * <p>
+     * Called before publishing the commit, so that the log holds the commits
+     * in the order they are published.
+     */
+    public long append(final IdentifierGeneratorDefault.Memento oidGeneratorMemento) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        if (oidGeneratorMemento != null) {
+            this.oidGeneratorMemento = oidGeneratorMemento;
+        }
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(bytes);
+            writeOidGeneratorMemento(output, this.oidGeneratorMemento);
+            for (final Change change : changes) {
+                output.writeByte(change.type);
+                if (change.type == SERVICE) {
+                    output.writeUTF(change.objectSpecId.asString());
+                    writeOid(output, change.oid);
+                } else {
+                    writeOid(output, change.oid);
+                    if (change.type == SAVED) {
+                        writeVersion(output, change.version);
+                        writeBytes(output, change.state);
+                    }
+                }
+            }
+            output.writeByte(END);
+            return log.append(bytes.toByteArray());
+        } catch (final IOException e) {
+            throw new ObjectPersistenceException(e);
+        }
+    }
+
+    /**
+     * Waits until the commit {@link #append(IdentifierGeneratorDefault.Memento)
+     * appended} with the specified sequence number has been written.
+     */
+    public void sync(final long sequence) {
+        if (sequence > 0) {
+            log.sync(sequence);
+        }
+    }
+
+    @Override
+    public void published(final long sequence) {
+        changes.clear();
+        if (++commitsSinceCheckpoint >= checkpointInterval && checkpointScheduled.compareAndSet(false, true)) {
+            checkpointExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        checkpoint();
+                    } catch (final RuntimeException e) {
+                        LOG.error("failed to write checkpoint to " + directory, e);
+                    } finally {
+                        checkpointScheduled.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void aborted(final long sequence) {
+        for (final Change change : changes) {
+            if (change.type == SERVICE) {
+                services.remove(change.objectSpecId);
+            }
+        }
+        changes.clear();
+    }
+
+    // ///////////////////////////////////////////////////////
+    // checkpoint
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Writes a checkpoint of all the objects as of the last commit, and then
+     * deletes the log up to that commit.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            final long[] checkpointSequence = new long[1];
+            final Map<ObjectSpecId, Oid> checkpointServices = Maps.newLinkedHashMap();
+            final IdentifierGeneratorDefault.Memento[] checkpointMemento = new IdentifierGeneratorDefault.Memento[1];
+            final Snapshot snapshot = persistedObjects.getSnapshots().openSnapshotBetweenCommits(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        checkpointSequence[0] = log.roll();
+                    } catch (final IOException e) {
+                        throw new ObjectPersistenceException("failed to roll log in " + directory, e);
+                    }
+                    checkpointServices.putAll(services);
+                    checkpointMemento[0] = oidGeneratorMemento;
+                    commitsSinceCheckpoint = 0;
+                }
+            });
+            final long startedAt = System.currentTimeMillis();
+            int written;
+            try {
+                written = writeCheckpoint(checkpointSequence[0], snapshot, checkpointServices, checkpointMemento[0]);
+            } catch (final IOException e) {
+                throw new ObjectPersistenceException("failed to write checkpoint to " + directory, e);
+            } finally {
+                snapshot.close();
+            }
+            log.deleteSegmentsUpTo(checkpointSequence[0]);
+            for (final File checkpoint : checkpoints()) {
+                if (sequenceOf(checkpoint) < checkpointSequence[0] && !checkpoint.delete()) {
+                    LOG.warn("could not delete " + checkpoint);
+                }
+            }
+            if (LOG.isInfoEnabled()) {
+                LOG.info("wrote checkpoint of " + written + " objects as of " + checkpointSequence[0] + " in " + (System.currentTimeMillis() - startedAt) + "ms");
+            }
+        }
+    }
+
+    private int writeCheckpoint(final long sequence, final Snapshot snapshot, final Map<ObjectSpecId, Oid> services, final IdentifierGeneratorDefault.Memento oidGeneratorMemento) throws IOException {
+        final File temporary = new File(directory, checkpointName(sequence) + TEMPORARY_SUFFIX);
+        final FileOutputStream file = new FileOutputStream(temporary);
+        final int[] written = new int[1];
+        try {
+            final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            final DataOutputStream output = new DataOutputStream(checked);
+            output.writeInt(CHECKPOINT_MAGIC);
+            output.writeInt(CHECKPOINT_FORMAT);
+            output.writeLong(sequence);
+            writeOidGeneratorMemento(output, oidGeneratorMemento);
+            for (final Map.Entry<ObjectSpecId, Oid> service : services.entrySet()) {
+                output.writeByte(SERVICE);
+                output.writeUTF(service.getKey().asString());
+                writeOid(output, service.getValue());
+            }
+            int skipped = 0;
+            for (final ObjectSpecification spec : persistedObjects.specifications()) {
+                skipped += persistedObjects.instancesFor(spec).visitStates(snapshot, new ObjectStoreInstances.StateVisitor() {
+                    @Override
+                    public void visit(final Oid oid, final Version version, final byte[] state) throws IOException {
+                        output.writeByte(SAVED);
+                        writeOid(output, oid);
+                        writeVersion(output, version);
+                        writeBytes(output, state);
+                        written[0]++;
+                    }
+                });
+            }
+            if (skipped > 0) {
+                LOG.warn(skipped + " objects were not saved through the journal, so are not in the checkpoint");
+            }
+            output.writeByte(END);
+            output.writeLong(checked.getChecksum().getValue());
+            output.flush();
+            if (force) {
+                file.getFD().sync();
+            }
+        } finally {
+            file.close();
+        }
+        if (!temporary.renameTo(new File(directory, checkpointName(sequence) + CHECKPOINT_SUFFIX))) {
+            throw new IOException("could not rename " + temporary);
+        }
+        return written[0];
+    }
+
+    /**
+     * Reads the latest checkpoint (if any), returning the sequence number of
+     * the last commit it includes.
+     */
+    private long readCheckpoint(final Map<Oid, Journalled> journalled) throws IOException {
+        final List<File> checkpoints = checkpoints();
+        if (checkpoints.isEmpty()) {
+            return 0;
+        }
+        final File checkpoint = checkpoints.get(checkpoints.size() - 1);
+        final CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(checkpoint), 1 << 16), new CRC32());
+        try {
+            final DataInputStream input = new DataInputStream(checked);
+            if (input.readInt() != CHECKPOINT_MAGIC || input.readInt() != CHECKPOINT_FORMAT) {
+                throw new IOException(checkpoint + " is not a checkpoint");
+            }
+            final long sequence = input.readLong();
+            oidGeneratorMemento = readOidGeneratorMemento(input, null);
+            for (byte type = input.readByte(); type != END; type = input.readByte()) {
+                if (type == SAVED) {
+                    final Oid oid = readOid(input);
+                    final Version version = readVersion(input);
+                    journalled.put(oid, new Journalled(version, readBytes(input)));
+                } else if (type == SERVICE) {
+                    services.put(ObjectSpecId.of(input.readUTF()), readOid(input));
+                } else {
+                    throw new IOException("unknown checkpoint entry type " + type);
+                }
+            }
+            final long checksum = checked.getChecksum().getValue();
+            if (input.readLong() != checksum) {
+                throw new IOException(checkpoint + " is corrupt");
+            }
+            return sequence;
+        } finally {
+            checked.close();
+        }
+    }
+
+    private List<File> checkpoints() {
+        final File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith(CHECKPOINT_PREFIX) && name.endsWith(CHECKPOINT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return Lists.newArrayList();
+        }
+        // zero-padded, so in order of their sequence number
+        Arrays.sort(files);
+        return Lists.newArrayList(files);
+    }
+
+    private void deleteTemporaryFiles() {
+        final File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.endsWith(TEMPORARY_SUFFIX);
+            }
+        });
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private static String checkpointName(final long sequence) {
+        return String.format("%s%019d", CHECKPOINT_PREFIX, sequence);
+    }
+
+    private static long sequenceOf(final File checkpoint) {
+        final String name = checkpoint.getName();
+        return Long.parseLong(name.substring(CHECKPOINT_PREFIX.length(), name.length() - CHECKPOINT_SUFFIX.length()));
+    }
+
+    // ///////////////////////////////////////////////////////
+    // close
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Writes a final checkpoint (if anything has been committed since the
+     * last), so that the next start up need not replay the log, and closes
+     * the log.
+     */
+    public void close() {
+        checkpointExecutor.shutdown();
+        try {
+            checkpointExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (persistedObjects != null && commitsSinceCheckpoint > 0) {
+                checkpoint();
+            }
+        } finally {
+            try {
+                log.close();
+            } catch (final IOException e) {
+                LOG.error("failed to close log in " + directory, e);
+            }
+        }
+    }
+
+    public ObjectStoreLog getLog() {
+        return log;
+    }
+
+    // ///////////////////////////////////////////////////////
+    // encoding
+    // ///////////////////////////////////////////////////////
+
+    private static byte[] encode(final ObjectAdapter adapter) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            new Memento(adapter).encodedData(new DataOutputStreamExtended(bytes));
+        } catch (final IOException e) {
+            throw new ObjectPersistenceException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ObjectAdapter decode(final byte[] state) {
+        try {
+            return Memento.recreateFrom(new DataInputStreamExtended(new ByteArrayInputStream(state))).recreateObject();
+        } catch (final IOException e) {
+            throw new ObjectPersistenceException(e);
+        }
+    }
+
+    private void writeOid(final DataOutputStream output, final Oid oid) throws IOException {
+        output.writeUTF(oid.enStringNoVersion(oidMarshaller));
+    }
+
+    private Oid readOid(final DataInputStream input) throws IOException {
+        return RootOidDefault.deString(input.readUTF(), oidMarshaller);
+    }
+
+    private static void writeBytes(final DataOutputStream output, final byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVersion(final DataOutputStream output, final Version version) throws IOException {
+        output.writeLong(version.getSequence());
+        output.writeUTF(version.getUser() != null ? version.getUser() : "");
+        output.writeLong(version.getUtcTimestamp() != null ? version.getUtcTimestamp() : 0);
+    }
+
+    private static Version readVersion(final DataInputStream input) throws IOException {
+        final long sequence = input.readLong();
+        final String user = input.readUTF();
+        final long utcTimestamp = input.readLong();
+        return Version.create(sequence, user.length() > 0 ? user : null, utcTimestamp != 0 ? utcTimestamp : null);
+    }
+
+    private static void writeOidGeneratorMemento(final DataOutputStream output, final IdentifierGeneratorDefault.Memento memento) throws IOException {
+        output.writeBoolean(memento != null);
+        if (memento != null) {
+            output.writeLong(memento.getPersistentSerialNumber());
+            output.writeLong(memento.getTransientSerialNumber());
+        }
+    }
+
+    private static IdentifierGeneratorDefault.Memento readOidGeneratorMemento(final DataInputStream input, final IdentifierGeneratorDefault.Memento defaultMemento) throws IOException {
+        if (!input.readBoolean()) {
+            return defaultMemento;
+        }
+        final long persistentSerialNumber = input.readLong();
+        final long transientSerialNumber = input.readLong();
+        return new IdentifierGeneratorDefault(persistentSerialNumber, transientSerialNumber).getMemento();
+    }
+
+    // ///////////////////////////////////////////////////////
+    // Changes
+    // ///////////////////////////////////////////////////////
+
+    private static class Change {
+        private final byte type;
+        private final Oid oid;
+        private final Version version;
+        private final byte[] state;
+        private final ObjectSpecId objectSpecId;
+
+        private Change(final byte type, final Oid oid, final Version version, final byte[] state, final ObjectSpecId objectSpecId) {
+            this.type = type;
+            this.oid = oid;
+            this.version = version;
+            this.state = state;
+            this.objectSpecId = objectSpecId;
+        }
+    }
+
+    private static class Journalled {
+        private final Version version;
+        private final byte[] state;
+
+        private Journalled(final Version version, final byte[] state) {
+            this.version = version;
+            this.state = state;
+        }
+    }
+
+}
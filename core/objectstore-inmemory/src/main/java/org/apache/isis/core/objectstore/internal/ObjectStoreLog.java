@@ -0,0 +1,386 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.google.common.collect.Lists;
+
+import org.apache.log4j.Logger;
+
+import org.apache.isis.core.runtime.persistence.ObjectPersistenceException;
+
+/**
+ * An append-only log of records, each given the next sequence number, held in
+ * segment files within a directory.
+ * 
+ * <p>
+ * Records are {@link #append(byte[]) appended} to a buffer, and only written
+ * (and, optionally, forced to disk) when {@link #sync(long) synced}. The first
+ * thread to sync writes out every record buffered so far, while any other
+ * threads syncing meanwhile wait for it and then find their records already
+ * written; so commits made at the same time share a single fsync (group
+ * commit).
+ * 
+ * <p>
+ * Each record is framed with its length, sequence number and a checksum, so
+ * that a record only partly written when the process died is detected, and
+ * discarded, when the log is {@link #replay(long, RecordHandler) replayed}.
+ */
+public class ObjectStoreLog {
+
+    private final static Logger LOG = Logger.getLogger(ObjectStoreLog.class);
+
+    private static final String SEGMENT_PREFIX = "log-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+    // length, sequence, checksum
+    private static final int HEADER_LENGTH = 4 + 8 + 8;
+
+    public interface RecordHandler {
+        void record(long sequence, byte[] payload) throws IOException;
+    }
+
+    private final File directory;
+    private final boolean force;
+
+    // guarded by this
+    private long appendedSequence;
+    private long syncedSequence;
+    private boolean syncing;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private long syncCount;
+    private IOException failure;
+
+    /**
+     * @param force
+     *            - whether to force each write to disk (fsync), or leave it to
+     *            the operating system; if not then commits survive the process
+     *            dying but not the machine.
+     */
+    public ObjectStoreLog(final File directory, final boolean force) {
+        this.directory = directory;
+        this.force = force;
+    }
+
+    // ///////////////////////////////////////////////////////
+    // replay, open
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Passes each record after the specified sequence to the handler, in
+     * order, truncating any record found to be incomplete or corrupt (and
+     * anything following it in that segment).
+     * 
+     * <p>
+     * Must be called before the log is {@link #open() opened}.
+     */
+    public synchronized void replay(final long afterSequence, final RecordHandler handler) throws IOException {
+        // the records up to here may since have been deleted (see
+        // deleteSegmentsUpTo), but their sequence numbers must not be reused
+        appendedSequence = Math.max(appendedSequence, afterSequence);
+        for (final File segment : segments()) {
+            final long validLength = replay(segment, afterSequence, handler);
+            if (validLength < segment.length()) {
+                LOG.warn("discarding incomplete record(s) at end of " + segment + " from byte " + validLength);
+                final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+                try {
+                    file.setLength(validLength);
+                } finally {
+                    file.close();
+                }
+            }
+        }
+    }
+
+    private long replay(final File segment, final long afterSequence, final RecordHandler handler) throws IOException {
+        final long segmentLength = segment.length();
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)));
+        try {
+            long position = 0;
+            while (segmentLength - position >= HEADER_LENGTH) {
+                final int length = input.readInt();
+                final long sequence = input.readLong();
+                final long checksum = input.readLong();
+                if (length < 0 || segmentLength - position - HEADER_LENGTH < length) {
+                    break;
+                }
+                final byte[] payload = new byte[length];
+                input.readFully(payload);
+                if (checksum(sequence, payload) != checksum) {
+                    break;
+                }
+                position += HEADER_LENGTH + length;
+                appendedSequence = Math.max(appendedSequence, sequence);
+                if (sequence > afterSequence) {
+                    handler.record(sequence, payload);
+                }
+            }
+            return position;
+        } catch (final EOFException e) {
+            throw new IOException("unexpected end of " + segment, e);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Opens a new segment, for records following on from those
+     * {@link #replay(long, RecordHandler) replayed}.
+     */
+    public synchronized void open() throws IOException {
+        syncedSequence = appendedSequence;
+        channel = openSegment(appendedSequence + 1);
+    }
+
+    private FileChannel openSegment(final long firstSequence) throws IOException {
+        directory.mkdirs();
+        final File segment = new File(directory, String.format("%s%019d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        return new FileOutputStream(segment, true).getChannel();
+    }
+
+    // ///////////////////////////////////////////////////////
+    // append, sync
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Buffers the record, returning its sequence number; it is only durable
+     * once {@link #sync(long) synced}.
+     */
+    public synchronized long append(final byte[] payload) {
+        ensureNotFailed();
+        final long sequence = appendedSequence + 1;
+        final DataOutputStream output = new DataOutputStream(buffer);
+        try {
+            output.writeInt(payload.length);
+            output.writeLong(sequence);
+            output.writeLong(checksum(sequence, payload));
+            output.write(payload);
+        } catch (final IOException e) {
+            // not expected when writing to memory
+            throw new ObjectPersistenceException(e);
+        }
+        appendedSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Returns once the record with the specified sequence number (and so all
+     * those before it) has been written.
+     */
+    public void sync(final long sequence) {
+        final byte[] batch;
+        final long batchSequence;
+        final FileChannel batchChannel;
+        synchronized (this) {
+            while (true) {
+                ensureNotFailed();
+                if (syncedSequence >= sequence) {
+                    return;
+                }
+                if (!syncing) {
+                    break;
+                }
+                awaitSync();
+            }
+            // this thread writes out all the records appended so far,
+            // including those of any other threads now waiting
+            syncing = true;
+            batch = buffer.toByteArray();
+            buffer = new ByteArrayOutputStream();
+            batchSequence = appendedSequence;
+            batchChannel = channel;
+        }
+
+        IOException writeFailure = null;
+        try {
+            write(batchChannel, batch);
+        } catch (final IOException e) {
+            writeFailure = e;
+        }
+        synchronized (this) {
+            syncing = false;
+            if (writeFailure == null) {
+                syncedSequence = batchSequence;
+                syncCount++;
+            } else {
+                // later records would not follow on, so refuse them
+                failure = writeFailure;
+            }
+            notifyAll();
+        }
+        if (writeFailure != null) {
+            throw new ObjectPersistenceException("failed to write to log in " + directory, writeFailure);
+        }
+    }
+
+    private void write(final FileChannel channel, final byte[] batch) throws IOException {
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(batch);
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    private void awaitSync() {
+        try {
+            wait();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ObjectPersistenceException("interrupted waiting for log to be written", e);
+        }
+    }
+
+    private void ensureNotFailed() {
+        if (failure != null) {
+            throw new ObjectPersistenceException("log in " + directory + " failed earlier", failure);
+        }
+        if (channel == null) {
+            throw new IllegalStateException("log not open");
+        }
+    }
+
+    // ///////////////////////////////////////////////////////
+    // roll, delete, close
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Writes out any buffered records and starts a new segment, returning the
+     * sequence number of the last record in the previous segment.
+     * 
+     * <p>
+     * Records must not be appended concurrently.
+     */
+    public synchronized long roll() throws IOException {
+        writeBuffered();
+        channel.close();
+        channel = openSegment(appendedSequence + 1);
+        return appendedSequence;
+    }
+
+    private void writeBuffered() throws IOException {
+        while (syncing) {
+            awaitSync();
+        }
+        ensureNotFailed();
+        if (syncedSequence < appendedSequence) {
+            write(channel, buffer.toByteArray());
+            buffer = new ByteArrayOutputStream();
+            syncedSequence = appendedSequence;
+            syncCount++;
+        }
+    }
+
+    /**
+     * Deletes those segments holding only records up to and including the
+     * specified sequence number (eg once a checkpoint has been taken as of
+     * that sequence).
+     */
+    public synchronized void deleteSegmentsUpTo(final long sequence) {
+        final List<File> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            final long lastSequenceInSegment = firstSequenceOf(segments.get(i + 1)) - 1;
+            if (lastSequenceInSegment <= sequence && !segments.get(i).delete()) {
+                LOG.warn("could not delete " + segments.get(i));
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (failure == null) {
+                writeBuffered();
+            }
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // ///////////////////////////////////////////////////////
+    // helpers
+    // ///////////////////////////////////////////////////////
+
+    private List<File> segments() {
+        final File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return Lists.newArrayList();
+        }
+        // zero-padded, so in order of their first sequence number
+        Arrays.sort(files);
+        return Lists.newArrayList(files);
+    }
+
+    private static long firstSequenceOf(final File segment) {
+        final String name = segment.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static long checksum(final long sequence, final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        for (int i = 0; i < 64; i += 8) {
+            crc.update((int) (sequence >>> i));
+        }
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    // ///////////////////////////////////////////////////////
+    // statistics
+    // ///////////////////////////////////////////////////////
+
+    public synchronized long getLastSequence() {
+        return appendedSequence;
+    }
+
+    /**
+     * The number of times buffered records have been written; with group
+     * commit, fewer than the number of records appended.
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+}
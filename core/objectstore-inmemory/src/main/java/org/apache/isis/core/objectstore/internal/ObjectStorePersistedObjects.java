@@ -45,6 +45,18 @@ public interface ObjectStorePersistedObjects {
 
     public Iterable<ObjectStoreInstances> instances();
 
+    /**
+     * Shared by all the {@link #instances()}, so that commits spanning several
+     * specifications are atomic.
+     */
+    public ObjectStoreSnapshots getSnapshots();
+
+    /**
+     * The journal making the objects durable, or <tt>null</tt> if they are
+     * only held in memory.
+     */
+    public ObjectStoreJournal getJournal();
+
     public void clear();
 
 }
@@ -20,6 +20,7 @@
 package org.apache.isis.core.objectstore.internal;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.isis.core.commons.exceptions.IsisException;
 import org.apache.isis.core.metamodel.adapter.oid.Oid;
@@ -32,15 +33,36 @@
 /**
  * Represents the persisted objects.
  * 
- * Attached and detached to each session.
+ * Attached and detached to each session; shared by all concurrent sessions.
  */
 public class ObjectStorePersistedObjectsDefault implements ObjectStorePersistedObjects {
 
-    private final Map<ObjectSpecification, ObjectStoreInstances> instancesBySpecMap = Maps.newHashMap();
-    private final Map<ObjectSpecId, Oid> serviceOidByIdMap = Maps.newHashMap();
+    private final ConcurrentMap<ObjectSpecification, ObjectStoreInstances> instancesBySpecMap = Maps.newConcurrentMap();
+    private final Map<ObjectSpecId, Oid> serviceOidByIdMap = Maps.newConcurrentMap();
 
-    private IdentifierGeneratorDefault.Memento oidGeneratorMemento;
+    private final ObjectStoreIndexes indexes;
+    private final ObjectStoreSnapshots snapshots = new ObjectStoreSnapshots();
+    private final ObjectStoreJournal journal;
 
+    private volatile IdentifierGeneratorDefault.Memento oidGeneratorMemento;
+
+    public ObjectStorePersistedObjectsDefault() {
+        this(ObjectStoreIndexes.NONE);
+    }
+
+    public ObjectStorePersistedObjectsDefault(final ObjectStoreIndexes indexes) {
+        this(indexes, null);
+    }
+
+    /**
+     * @param journal
+     *            - to make the objects durable, or <tt>null</tt> if they are
+     *            only to be held in memory.
+     */
+    public ObjectStorePersistedObjectsDefault(final ObjectStoreIndexes indexes, final ObjectStoreJournal journal) {
+        this.indexes = indexes;
+        this.journal = journal;
+    }
 
     @Override
     public IdentifierGeneratorDefault.Memento getOidGeneratorMemento() {
@@ -58,7 +80,7 @@ public Oid getService(final ObjectSpecId objectSpecId) {
     }
 
     @Override
-    public void registerService(final ObjectSpecId objectSpecId, final Oid oid) {
+    public synchronized void registerService(final ObjectSpecId objectSpecId, final Oid oid) {
         final Oid oidLookedUpByName = serviceOidByIdMap.get(objectSpecId);
         if (oidLookedUpByName != null) {
             if (oidLookedUpByName.equals(oid)) {
@@ -75,12 +97,23 @@ public void registerService(final ObjectSpecId objectSpecId, final Oid oid) {
     // (keySet, values etc).
     @Override
     public ObjectStoreInstances instancesFor(final ObjectSpecification spec) {
-        ObjectStoreInstances ins = instancesBySpecMap.get(spec);
-        if (ins == null) {
-            ins = new ObjectStoreInstances(spec);
-            instancesBySpecMap.put(spec, ins);
+        final ObjectStoreInstances ins = instancesBySpecMap.get(spec);
+        if (ins != null) {
+            return ins;
         }
-        return ins;
+        final ObjectStoreInstances newIns = new ObjectStoreInstances(spec, indexes.createIndexFor(spec), snapshots);
+        final ObjectStoreInstances existingIns = instancesBySpecMap.putIfAbsent(spec, newIns);
+        return existingIns != null ? existingIns : newIns;
+    }
+
+    @Override
+    public ObjectStoreSnapshots getSnapshots() {
+        return snapshots;
+    }
+
+    @Override
+    public ObjectStoreJournal getJournal() {
+        return journal;
     }
 
     @Override
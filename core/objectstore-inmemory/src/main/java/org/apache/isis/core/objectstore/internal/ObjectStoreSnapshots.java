@@ -0,0 +1,240 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Coordinates multi-version concurrency control across the
+ * {@link ObjectStoreInstances instances} of an in-memory object store.
+ * 
+ * <p>
+ * Every {@link Commit commit} is given the next sequence number and writes new
+ * versions of the objects it changes, tagged with that number; those versions
+ * only become visible to readers once the commit is {@link Commit#publish()
+ * published}, at which point all of them become visible at once. Commits are
+ * applied one at a time, but readers never wait on them: a reader simply
+ * {@link #openSnapshot() opens a snapshot} and sees the versions of objects as
+ * of the last commit published before it did so.
+ * 
+ * <p>
+ * Superseded versions are discarded as commits are made, but only once no
+ * open snapshot can still see them.
+ * 
+ * <p>
+ * Note that the in-memory object store holds the pojos themselves, rather than
+ * copies of their state, so snapshots determine which objects exist (and at
+ * what version), not the state of each pojo.
+ */
+public class ObjectStoreSnapshots {
+
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final AtomicLong committedSequence = new AtomicLong();
+    private final ConcurrentMap<Snapshot, Long> openSnapshots = new ConcurrentHashMap<Snapshot, Long>();
+
+    /**
+     * Guarded by {@link #commitLock}.
+     */
+    private Commit currentCommit;
+
+    /**
+     * The sequence number of the last commit published.
+     */
+    public long getCommittedSequence() {
+        return committedSequence.get();
+    }
+
+    // ///////////////////////////////////////////////////////
+    // Snapshots (readers)
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Opens a snapshot as of the last published commit; it must be
+     * {@link Snapshot#close() closed} once finished with.
+     */
+    public Snapshot openSnapshot() {
+        final Snapshot snapshot = new Snapshot();
+        long sequence = committedSequence.get();
+        while (true) {
+            openSnapshots.put(snapshot, sequence);
+            // if a commit was published meanwhile then the versions as of this
+            // sequence may already have been discarded, so try again
+            final long latest = committedSequence.get();
+            if (latest == sequence) {
+                break;
+            }
+            sequence = latest;
+        }
+        snapshot.sequence = sequence;
+        return snapshot;
+    }
+
+    /**
+     * As {@link #openSnapshot()}, but first waiting for any commit in progress
+     * to finish, and running the action before another can begin (so that it
+     * can, for example, note how far a log of the commits has reached).
+     */
+    public Snapshot openSnapshotBetweenCommits(final Runnable action) {
+        commitLock.lock();
+        final Snapshot snapshot = openSnapshot();
+        boolean ran = false;
+        try {
+            action.run();
+            ran = true;
+            return snapshot;
+        } finally {
+            if (!ran) {
+                snapshot.close();
+            }
+            commitLock.unlock();
+        }
+    }
+
+    public class Snapshot {
+        private long sequence;
+
+        private Snapshot() {
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public void close() {
+            openSnapshots.remove(this);
+        }
+    }
+
+    // ///////////////////////////////////////////////////////
+    // Commits (writers)
+    // ///////////////////////////////////////////////////////
+
+    /**
+     * Begins a commit, waiting for any other thread's commit to finish first;
+     * it must then be either {@link Commit#publish() published} or
+     * {@link Commit#abort() aborted}.
+     */
+    public Commit beginCommit() {
+        commitLock.lock();
+        if (currentCommit != null) {
+            commitLock.unlock();
+            throw new IllegalStateException("commit already in progress");
+        }
+        currentCommit = new Commit(committedSequence.get() + 1, oldestVisibleSequence());
+        return currentCommit;
+    }
+
+    /**
+     * The commit in progress on this thread, if any.
+     */
+    public Commit getCurrentCommit() {
+        return commitLock.isHeldByCurrentThread() ? currentCommit : null;
+    }
+
+    private long oldestVisibleSequence() {
+        long oldest = committedSequence.get();
+        for (final Long sequence : openSnapshots.values()) {
+            oldest = Math.min(oldest, sequence);
+        }
+        return oldest;
+    }
+
+    /**
+     * Called back by {@link Commit} once it has been published or aborted.
+     */
+    public interface Participant {
+        void published(long sequence);
+
+        void aborted(long sequence);
+    }
+
+    public class Commit {
+        private final long sequence;
+        private final long oldestVisibleSequence;
+        private final Set<Participant> participants = Sets.newLinkedHashSet();
+
+        private Commit(final long sequence, final long oldestVisibleSequence) {
+            this.sequence = sequence;
+            this.oldestVisibleSequence = oldestVisibleSequence;
+        }
+
+        /**
+         * The sequence number of the versions written by this commit.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Versions superseded at or before this sequence can no longer be seen
+         * by any snapshot, other than the latest such version.
+         */
+        public long getOldestVisibleSequence() {
+            return oldestVisibleSequence;
+        }
+
+        public void join(final Participant participant) {
+            participants.add(participant);
+        }
+
+        /**
+         * Makes all the versions written by this commit visible to subsequent
+         * snapshots.
+         */
+        public void publish() {
+            try {
+                committedSequence.set(sequence);
+                for (final Participant participant : participants) {
+                    participant.published(sequence);
+                }
+            } finally {
+                end();
+            }
+        }
+
+        /**
+         * Discards all the versions written by this commit.
+         */
+        public void abort() {
+            try {
+                final List<Participant> reversed = Lists.reverse(Lists.newArrayList(participants));
+                for (final Participant participant : reversed) {
+                    participant.aborted(sequence);
+                }
+            } finally {
+                end();
+            }
+        }
+
+        private void end() {
+            currentCommit = null;
+            commitLock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.commons.authentication.AuthenticationSession;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.adapter.version.Version;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
+import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByTitle;
+import org.apache.isis.core.runtime.system.persistence.AdapterManagerSpi;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class ObjectStoreInstancesIndexTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private ObjectSpecification mockSpec;
+    @Mock
+    private ObjectAssociation mockNameProperty;
+    @Mock
+    private ObjectAssociation mockCityProperty;
+    @Mock
+    private AuthenticationSession mockAuthSession;
+    @Mock
+    private AdapterManagerSpi mockAdapterManager;
+
+    private ObjectStoreInstancesIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockNameProperty).getId();
+                will(returnValue("name"));
+                allowing(mockCityProperty).getId();
+                will(returnValue("city"));
+            }
+        });
+        context.ignoring(mockAuthSession);
+        index = new ObjectStoreInstancesIndex(Lists.newArrayList(mockNameProperty, mockCityProperty), true);
+    }
+
+    @Test
+    public void looksUpOnAllIndexedValuesInOrderFirstSaved() throws Exception {
+        final Oid oid1 = oid("1");
+        final Oid oid2 = oid("2");
+        final Oid oid3 = oid("3");
+        index.add(oid3, adapter("Fred", "London", "Fred Smith"));
+        index.add(oid1, adapter("Fred", "Paris", "Fred Jones"));
+        index.add(oid2, adapter("Fred", "London", "Fred Brown"));
+
+        assertThat(index.lookup(values("name", "Fred")), contains(oid3, oid1, oid2));
+        assertThat(index.lookup(values("name", "Fred", "city", "London")), contains(oid3, oid2));
+        assertThat(index.lookup(values("name", "Fred", "city", "Rome")), is(empty()));
+        assertThat(index.lookup(values("name", "Joe")), is(empty()));
+    }
+
+    @Test
+    public void reindexesWhenResavedKeepingPlace() throws Exception {
+        final Oid oid1 = oid("1");
+        final Oid oid2 = oid("2");
+        index.add(oid1, adapter("Fred", "London", "Fred Smith"));
+        index.add(oid2, adapter("Joe", "London", "Joe Smith"));
+        index.add(oid1, adapter("Fred", "Paris", "Fred Smith"));
+
+        assertThat(index.lookup(values("city", "London")), contains(oid2));
+        assertThat(index.lookup(values("city", "Paris")), contains(oid1));
+        assertThat(index.lookup(values("name", "Fred", "surname", "Smith")), contains(oid1));
+        assertThat(index.lookup(values("name", "Fred")), contains(oid1));
+        assertThat(index.lookup(values("city", "London", "name", "Joe")), contains(oid2));
+    }
+
+    @Test
+    public void removesFromIndexes() throws Exception {
+        final Oid oid1 = oid("1");
+        index.add(oid1, adapter("Fred", "London", "Fred Smith"));
+        index.remove(oid1);
+
+        assertThat(index.lookup(values("name", "Fred")), is(empty()));
+        assertThat(index.getTitle(oid1), is((String) null));
+    }
+
+    @Test
+    public void canOnlyLookupOnIndexedProperties() throws Exception {
+        assertThat(index.canLookup(values("name", "Fred")), is(true));
+        assertThat(index.canLookup(values("surname", "Smith")), is(false));
+        assertThat(index.canLookup(Collections.<String, Object> emptyMap()), is(false));
+    }
+
+    @Test
+    public void findByTitleOnlyAdaptsInstancesWithinRange() throws Exception {
+        final ObjectStoreInstances instances = new ObjectStoreInstances(mockSpec, index) {
+            @Override
+            protected AuthenticationSession getAuthenticationSession() {
+                return mockAuthSession;
+            }
+
+            @Override
+            protected AdapterManagerSpi getAdapterManager() {
+                return mockAdapterManager;
+            }
+        };
+        final ObjectAdapter first = adapter("Fred", "London", "Fred Smith");
+        final ObjectAdapter second = adapter("Joe", "London", "Joe Smith");
+        final ObjectAdapter third = adapter("Joe", "Paris", "Joe Brown");
+        final ObjectAdapter fourth = adapter("Fred", "Paris", "Fred Smithson");
+        for (final ObjectAdapter adapter : Lists.newArrayList(first, second, third, fourth)) {
+            instances.save(adapter);
+        }
+        final Object firstPojo = first.getObject();
+        final Object secondPojo = second.getObject();
+        final Object thirdPojo = third.getObject();
+        final Object fourthPojo = fourth.getObject();
+        context.checking(new Expectations() {
+            {
+                never(mockAdapterManager).getAdapterFor(firstPojo);
+                one(mockAdapterManager).getAdapterFor(secondPojo);
+                will(returnValue(second));
+                never(mockAdapterManager).getAdapterFor(thirdPojo);
+                never(mockAdapterManager).getAdapterFor(fourthPojo);
+            }
+        });
+
+        final List<ObjectAdapter> foundInstances = Lists.newArrayList();
+        instances.findInstancesAndAdd(new PersistenceQueryFindByTitle(mockSpec, "SMITH", 1, 1), foundInstances);
+
+        assertThat(foundInstances, contains(second));
+    }
+
+    private int adapterCount;
+
+    private ObjectAdapter adapter(final String name, final String city, final String title) {
+        final String id = "" + adapterCount++;
+        final ObjectAdapter adapter = context.mock(ObjectAdapter.class, "adapter" + id);
+        final ObjectAdapter nameAdapter = context.mock(ObjectAdapter.class, "name" + id);
+        final ObjectAdapter cityAdapter = context.mock(ObjectAdapter.class, "city" + id);
+        final Object pojo = new Object();
+        context.checking(new Expectations() {
+            {
+                allowing(adapter).getOid();
+                will(returnValue(oid(id)));
+                allowing(adapter).getObject();
+                will(returnValue(pojo));
+                allowing(adapter).titleString();
+                will(returnValue(title));
+                ignoring(adapter).setVersion(with(any(Version.class)));
+
+                allowing(mockNameProperty).get(adapter);
+                will(returnValue(nameAdapter));
+                allowing(nameAdapter).getObject();
+                will(returnValue(name));
+                allowing(mockCityProperty).get(adapter);
+                will(returnValue(cityAdapter));
+                allowing(cityAdapter).getObject();
+                will(returnValue(city));
+            }
+        });
+        return adapter;
+    }
+
+    private static Oid oid(final String identifier) {
+        return RootOidDefault.create(ObjectSpecId.of("CUS"), identifier);
+    }
+
+    private static Map<String, Object> values(final String key, final Object value) {
+        return ImmutableMap.of(key, value);
+    }
+
+    private static Map<String, Object> values(final String key1, final Object value1, final String key2, final Object value2) {
+        return ImmutableMap.of(key1, value1, key2, value2);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ObjectStoreLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        Logger.getRootLogger().setLevel(Level.OFF);
+        directory = temporaryFolder.newFolder("log");
+    }
+
+    @Test
+    public void replaysSyncedRecordsInOrder() throws Exception {
+        final ObjectStoreLog log = openLog();
+        log.append(bytes("one"));
+        log.sync(log.append(bytes("two")));
+        log.close();
+
+        final List<String> replayed = replay(0);
+        assertThat(replayed.toString(), is("[1:one, 2:two]"));
+        assertThat(replay(1).toString(), is("[2:two]"));
+    }
+
+    @Test
+    public void discardsIncompleteRecordAndCarriesOnNumbering() throws Exception {
+        final ObjectStoreLog log = openLog();
+        log.sync(log.append(bytes("one")));
+        log.sync(log.append(bytes("two")));
+        log.close();
+
+        // as if the process died part way through writing the second record
+        final File segment = directory.listFiles()[0];
+        final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.setLength(file.length() - 2);
+        file.close();
+
+        final ObjectStoreLog reopened = new ObjectStoreLog(directory, true);
+        final List<String> replayed = replay(reopened, 0);
+        assertThat(replayed.toString(), is("[1:one]"));
+        reopened.open();
+        reopened.sync(reopened.append(bytes("three")));
+        reopened.close();
+
+        assertThat(replay(0).toString(), is("[1:one, 2:three]"));
+    }
+
+    @Test
+    public void rolledSegmentsCanBeDeletedOnceCheckpointed() throws Exception {
+        final ObjectStoreLog log = openLog();
+        log.append(bytes("one"));
+        log.append(bytes("two"));
+        final long checkpointed = log.roll();
+        log.sync(log.append(bytes("three")));
+        log.deleteSegmentsUpTo(checkpointed);
+        log.close();
+
+        assertThat(checkpointed, is(2L));
+        assertThat(directory.listFiles().length, is(1));
+        assertThat(replay(checkpointed).toString(), is("[3:three]"));
+    }
+
+    @Test
+    public void numberingCarriesOnFromCheckpointEvenOnceLogDeleted() throws Exception {
+        final ObjectStoreLog log = openLog();
+        log.append(bytes("one"));
+        final long checkpointed = log.roll();
+        log.deleteSegmentsUpTo(checkpointed);
+        log.close();
+
+        final ObjectStoreLog reopened = new ObjectStoreLog(directory, true);
+        replay(reopened, checkpointed);
+        reopened.open();
+        assertThat(reopened.append(bytes("two")), is(2L));
+        reopened.close();
+    }
+
+    @Test
+    public void concurrentCommitsShareWrites() throws Exception {
+        final ObjectStoreLog log = openLog();
+        final int threads = 8;
+        final int commitsPerThread = 200;
+        final Object commitLock = new Object();
+
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < commitsPerThread; j++) {
+                            final long sequence;
+                            synchronized (commitLock) {
+                                sequence = log.append(bytes("commit"));
+                            }
+                            log.sync(sequence);
+                        }
+                    } catch (final RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        done.await();
+        log.close();
+
+        assertThat(failures.get(), is(0));
+        assertThat(log.getLastSequence(), is((long) threads * commitsPerThread));
+        assertThat(log.getSyncCount(), is(lessThan((long) threads * commitsPerThread)));
+        assertThat(replay(0).size(), is(threads * commitsPerThread));
+    }
+
+    private ObjectStoreLog openLog() throws IOException {
+        final ObjectStoreLog log = new ObjectStoreLog(directory, true);
+        replay(log, 0);
+        log.open();
+        return log;
+    }
+
+    private List<String> replay(final long afterSequence) throws IOException {
+        return replay(new ObjectStoreLog(directory, true), afterSequence);
+    }
+
+    private static List<String> replay(final ObjectStoreLog log, final long afterSequence) throws IOException {
+        final List<String> replayed = Lists.newArrayList();
+        log.replay(afterSequence, new ObjectStoreLog.RecordHandler() {
+            @Override
+            public void record(final long sequence, final byte[] payload) {
+                replayed.add(sequence + ":" + new String(payload));
+            }
+        });
+        return replayed;
+    }
+
+    private static byte[] bytes(final String string) {
+        return string.getBytes();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import static org.apache.isis.core.objectstore.internal.ObjectStoreSnapshotsTest.adapter;
+import static org.apache.isis.core.objectstore.internal.ObjectStoreSnapshotsTest.oid;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.jmock.Mockery;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.isis.core.commons.authentication.AuthenticationSession;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.adapter.version.ConcurrencyException;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Commit;
+import org.apache.isis.core.runtime.authentication.standard.SimpleSession;
+
+/**
+ * Measures the commit rate of <tt>benchmark.writers</tt> threads each saving
+ * randomly chosen objects, one per commit, while <tt>benchmark.readers</tt>
+ * threads repeatedly read the published snapshot.
+ *
+ * <p>
+ * Run explicitly, eg <tt>mvn test -Dtest=ObjectStoreSnapshotsBenchmark -Dbenchmark.writers=8 -Dbenchmark.readers=8</tt>.
+ */
+public class ObjectStoreSnapshotsBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(ObjectStoreSnapshotsBenchmark.class);
+
+    private static final int OBJECTS = 100;
+    private static final int SAVES_PER_WRITER = 20000;
+
+    private final ObjectStoreSnapshots snapshots = new ObjectStoreSnapshots();
+    private final AuthenticationSession authenticationSession = new SimpleSession("tester", new String[0]);
+
+    @BeforeClass
+    public static void configureLogging() {
+        BasicConfigurator.configure();
+        Logger.getRootLogger().setLevel(Level.OFF);
+        LOG.setLevel(Level.INFO);
+    }
+
+    @Test
+    public void throughputWithConcurrentReadersAndWriters() throws Exception {
+        final int writers = Integer.getInteger("benchmark.writers", 4);
+        final int readers = Integer.getInteger("benchmark.readers", 4);
+
+        final ObjectStoreInstances instances = new ObjectStoreInstances(null, null, snapshots) {
+            @Override
+            protected AuthenticationSession getAuthenticationSession() {
+                return authenticationSession;
+            }
+        };
+        final Mockery context = new Mockery();
+        for (int i = 0; i < OBJECTS; i++) {
+            instances.save(adapter(context, oid(i), new Object()));
+        }
+
+        final AtomicInteger saved = new AtomicInteger();
+        final AtomicInteger conflicts = new AtomicInteger();
+        final AtomicLong reads = new AtomicLong();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+        final List<Thread> threads = Lists.newArrayList();
+        for (int w = 0; w < writers; w++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        final Mockery writerContext = new Mockery();
+                        final Map<Oid, ObjectAdapter> adapters = Maps.newHashMap();
+                        final Random random = new Random();
+                        for (int i = 0; i < SAVES_PER_WRITER; i++) {
+                            final Oid oid = oid(random.nextInt(OBJECTS));
+                            ObjectAdapter adapter = adapters.get(oid);
+                            if (adapter == null) {
+                                adapter = adapter(writerContext, oid, instances.getPojo(oid));
+                                adapter.setVersion(instances.getVersion(oid));
+                                adapters.put(oid, adapter);
+                            }
+                            final Commit commit = snapshots.beginCommit();
+                            try {
+                                instances.save(adapter);
+                                commit.publish();
+                                saved.incrementAndGet();
+                            } catch (final ConcurrencyException e) {
+                                commit.abort();
+                                conflicts.incrementAndGet();
+                                adapter.setVersion(instances.getVersion(oid));
+                            }
+                        }
+                    } finally {
+                        writersDone.countDown();
+                    }
+                }
+            });
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    final Random random = new Random();
+                    while (writing.get()) {
+                        instances.numberOfInstances();
+                        instances.getPojo(oid(random.nextInt(OBJECTS)));
+                        reads.incrementAndGet();
+                    }
+                }
+            });
+        }
+        final long start = System.nanoTime();
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        writersDone.await();
+        final long elapsed = System.nanoTime() - start;
+        writing.set(false);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final double seconds = elapsed / 1e9;
+        LOG.info(String.format("%d writers, %d readers: %,.0f commits/s (%,d conflicts), %,.0f scans/s", writers, readers, saved.get() / seconds, conflicts.get(), reads.get() / seconds));
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.objectstore.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.commons.authentication.AuthenticationSession;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.adapter.version.ConcurrencyException;
+import org.apache.isis.core.metamodel.adapter.version.Version;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.core.objectstore.internal.ObjectStoreSnapshots.Commit;
+import org.apache.isis.core.runtime.authentication.standard.SimpleSession;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class ObjectStoreSnapshotsTest {
+
+    private static final AtomicInteger mockCount = new AtomicInteger();
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_ONLY);
+
+    private final ObjectStoreSnapshots snapshots = new ObjectStoreSnapshots();
+    private final AuthenticationSession authenticationSession = new SimpleSession("tester", new String[0]);
+
+    private ObjectStoreInstances instances;
+
+    @Before
+    public void setUp() throws Exception {
+        instances = newInstances();
+    }
+
+    @Test
+    public void changesOnlyVisibleOnceCommitPublished() throws Exception {
+        final ObjectStoreInstances otherInstances = newInstances();
+
+        final Commit commit = snapshots.beginCommit();
+        instances.save(adapter(context, oid(1), new Object()));
+        otherInstances.save(adapter(context, oid(2), new Object()));
+        assertThat(instances.numberOfInstances(), is(0));
+        assertThat(otherInstances.numberOfInstances(), is(0));
+
+        commit.publish();
+        assertThat(instances.numberOfInstances(), is(1));
+        assertThat(otherInstances.numberOfInstances(), is(1));
+    }
+
+    @Test
+    public void abortedCommitLeavesObjectsAndAdaptersAsTheyWere() throws Exception {
+        final ObjectAdapter existing = adapter(context, oid(1), new Object());
+        instances.save(existing);
+
+        final Commit commit = snapshots.beginCommit();
+        instances.save(existing);
+        instances.save(adapter(context, oid(2), new Object()));
+        assertThat(existing.getVersion().getSequence(), is(2L));
+        commit.abort();
+
+        assertThat(instances.getVersion(oid(1)).getSequence(), is(1L));
+        assertThat(existing.getVersion().getSequence(), is(1L));
+        assertThat(instances.getPojo(oid(2)), is(nullValue()));
+        assertThat(instances.numberOfInstances(), is(1));
+    }
+
+    @Test
+    public void savingStaleAdapterThrowsConcurrencyException() throws Exception {
+        final Object pojo = new Object();
+        final ObjectAdapter firstSession = adapter(context, oid(1), pojo);
+        instances.save(firstSession);
+        final ObjectAdapter secondSession = adapter(context, oid(1), pojo);
+        secondSession.setVersion(instances.getVersion(oid(1)));
+
+        instances.save(firstSession);
+        try {
+            instances.save(secondSession);
+            fail();
+        } catch (final ConcurrencyException expected) {
+        }
+        try {
+            instances.remove(secondSession);
+            fail();
+        } catch (final ConcurrencyException expected) {
+        }
+        assertThat(instances.getVersion(oid(1)).getSequence(), is(2L));
+    }
+
+    @Test
+    public void readersNeverSeePartOfACommit() throws Exception {
+        final int writers = 4;
+        final int readers = 4;
+        final int commitsPerWriter = 300;
+
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+        final List<Thread> threads = Lists.newArrayList();
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        // mockeries aren't thread-safe, so each writer has its own
+                        final Mockery writerContext = new Mockery();
+                        final List<ObjectAdapter> created = Lists.newArrayList();
+                        for (int i = 0; i < commitsPerWriter; i++) {
+                            // each commit adds a pair of objects, and sometimes
+                            // destroys an earlier pair
+                            final Commit commit = snapshots.beginCommit();
+                            final int id = writer * 1000000 + i * 2;
+                            created.add(adapter(writerContext, oid(id), new Object()));
+                            created.add(adapter(writerContext, oid(id + 1), new Object()));
+                            instances.save(created.get(created.size() - 2));
+                            instances.save(created.get(created.size() - 1));
+                            if (i % 3 == 2) {
+                                instances.remove(created.remove(0));
+                                instances.remove(created.remove(0));
+                            }
+                            commit.publish();
+                        }
+                    } catch (final RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        writersDone.countDown();
+                    }
+                }
+            });
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    while (writing.get()) {
+                        if (instances.numberOfInstances() % 2 != 0 || instances.getObjectInstances().size() % 2 != 0) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        writersDone.await();
+        writing.set(false);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures.get(), is(0));
+        assertThat(instances.numberOfInstances(), is(writers * (commitsPerWriter - commitsPerWriter / 3) * 2));
+    }
+
+    @Test
+    public void concurrentSavesEachBumpTheVersionOnce() throws Exception {
+        final int objects = 100;
+        final int writers = 4;
+        final int readers = 4;
+        final int savesPerWriter = 2000;
+        for (int i = 0; i < objects; i++) {
+            instances.save(adapter(context, oid(i), new Object()));
+        }
+
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger saved = new AtomicInteger();
+        final AtomicInteger conflicts = new AtomicInteger();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+        final List<Thread> threads = Lists.newArrayList();
+        for (int w = 0; w < writers; w++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        // each writer is a session, with its own adapters
+                        final Mockery writerContext = new Mockery();
+                        final Map<Oid, ObjectAdapter> adapters = Maps.newHashMap();
+                        final Random random = new Random();
+                        for (int i = 0; i < savesPerWriter; i++) {
+                            final Oid oid = oid(random.nextInt(objects));
+                            ObjectAdapter adapter = adapters.get(oid);
+                            if (adapter == null) {
+                                adapter = adapter(writerContext, oid, instances.getPojo(oid));
+                                adapter.setVersion(instances.getVersion(oid));
+                                adapters.put(oid, adapter);
+                            }
+                            final Commit commit = snapshots.beginCommit();
+                            try {
+                                instances.save(adapter);
+                                commit.publish();
+                                saved.incrementAndGet();
+                            } catch (final ConcurrencyException e) {
+                                commit.abort();
+                                conflicts.incrementAndGet();
+                                adapter.setVersion(instances.getVersion(oid));
+                            }
+                        }
+                    } catch (final RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        writersDone.countDown();
+                    }
+                }
+            });
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    final Random random = new Random();
+                    while (writing.get()) {
+                        if (instances.numberOfInstances() != objects || instances.getPojo(oid(random.nextInt(objects))) == null) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        writersDone.await();
+        writing.set(false);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures.get(), is(0));
+        assertThat(saved.get() + conflicts.get(), is(writers * savesPerWriter));
+        long versions = 0;
+        for (int i = 0; i < objects; i++) {
+            versions += instances.getVersion(oid(i)).getSequence() - 1;
+        }
+        assertThat(versions, is((long) saved.get()));
+    }
+
+    private ObjectStoreInstances newInstances() {
+        return new ObjectStoreInstances(null, null, snapshots) {
+            @Override
+            protected AuthenticationSession getAuthenticationSession() {
+                return authenticationSession;
+            }
+        };
+    }
+
+    static Oid oid(final int identifier) {
+        return RootOidDefault.create(ObjectSpecId.of("CUS"), "" + identifier);
+    }
+
+    /**
+     * An adapter holding its own version, as each session's adapter would.
+     */
+    static ObjectAdapter adapter(final Mockery context, final Oid oid, final Object pojo) {
+        final ObjectAdapter adapter = context.mock(ObjectAdapter.class, "adapter" + mockCount.incrementAndGet());
+        final AtomicReference<Version> version = new AtomicReference<Version>();
+        context.checking(new Expectations() {
+            {
+                allowing(adapter).getOid();
+                will(returnValue(oid));
+                allowing(adapter).getObject();
+                will(returnValue(pojo));
+                allowing(adapter).titleString();
+                will(returnValue(oid.toString()));
+
+                allowing(adapter).getVersion();
+                will(new CustomAction("get version") {
+                    @Override
+                    public Object invoke(final Invocation invocation) throws Throwable {
+                        return version.get();
+                    }
+                });
+                allowing(adapter).setVersion(with(any(Version.class)));
+                will(new CustomAction("set version") {
+                    @Override
+                    public Object invoke(final Invocation invocation) throws Throwable {
+                        version.set((Version) invocation.getParameter(0));
+                        return null;
+                    }
+                });
+                allowing(adapter).checkLock(with(any(Version.class)));
+                will(new CustomAction("check lock") {
+                    @Override
+                    public Object invoke(final Invocation invocation) throws Throwable {
+                        final Version otherVersion = (Version) invocation.getParameter(0);
+                        if (version.get() != null && otherVersion != null && version.get().different(otherVersion)) {
+                            throw new ConcurrencyException("stale version of " + oid, oid);
+                        }
+                        return null;
+                    }
+                });
+            }
+        });
+        return adapter;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.isis.core.runtime.bytecode;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What an enhanced domain object must do when each of the (interceptable)
+ * methods declared by its class is called, worked out once for the class
+ * rather than on every call.
+ * 
+ * <p>
+ * Methods that neither require the object to be resolved nor imply that it
+ * has changed have no {@link Interception} at all, and are simply passed
+ * through to the domain object.
+ */
+public final class InterceptionPlan {
+
+    public static final class Interception {
+        private final String memberName;
+        private final boolean impliesResolve;
+        private final boolean impliesObjectChanged;
+
+        public Interception(final String memberName, final boolean impliesResolve, final boolean impliesObjectChanged) {
+            this.memberName = memberName;
+            this.impliesResolve = impliesResolve;
+            this.impliesObjectChanged = impliesObjectChanged;
+        }
+
+        /**
+         * The name of the member whose method it is, to resolve.
+         */
+        public String getMemberName() {
+            return memberName;
+        }
+
+        public boolean impliesResolve() {
+            return impliesResolve;
+        }
+
+        public boolean impliesObjectChanged() {
+            return impliesObjectChanged;
+        }
+
+        @Override
+        public String toString() {
+            return memberName + (impliesResolve ? " resolve" : "") + (impliesObjectChanged ? " objectChanged" : "");
+        }
+    }
+
+    private final Class<?> cls;
+    private final Map<Method, Interception> interceptionByMethod;
+
+    public InterceptionPlan(final Class<?> cls, final Map<Method, Interception> interceptionByMethod) {
+        this.cls = cls;
+        this.interceptionByMethod = Collections.unmodifiableMap(interceptionByMethod);
+    }
+
+    public Class<?> getCls() {
+        return cls;
+    }
+
+    /**
+     * The interception of the method, or <tt>null</tt> if it is to be passed
+     * through.
+     */
+    public Interception interceptionFor(final Method method) {
+        return interceptionByMethod.get(method);
+    }
+
+    /**
+     * The number of methods intercepted.
+     */
+    public int size() {
+        return interceptionByMethod.size();
+    }
+
+    @Override
+    public String toString() {
+        return cls.getName() + " " + interceptionByMethod.values();
+    }
+
+}
@@ -24,11 +24,21 @@
 import static org.hamcrest.CoreMatchers.notNullValue;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
 
 import org.apache.isis.core.metamodel.facets.ImperativeFacet;
+import org.apache.isis.core.metamodel.facets.ImperativeFacetUtils;
+import org.apache.isis.core.metamodel.facets.ImperativeFacetUtils.ImperativeFacetFlags;
 import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 import org.apache.isis.core.metamodel.spec.SpecificationLoaderSpi;
+import org.apache.isis.core.metamodel.spec.feature.ObjectMember;
+import org.apache.isis.core.metamodel.specloader.specimpl.ObjectSpecificationAbstract.IntrospectionState;
 import org.apache.isis.core.metamodel.specloader.specimpl.dflt.ObjectSpecificationDefault;
+import org.apache.isis.core.runtime.bytecode.InterceptionPlan.Interception;
 import org.apache.isis.core.runtime.persistence.objectfactory.ObjectChanger;
 import org.apache.isis.core.runtime.persistence.objectfactory.ObjectResolver;
 
@@ -38,6 +48,13 @@ public abstract class ObjectResolveAndObjectChangedEnhancerAbstract {
     protected final ObjectChanger objectChanger;
     protected final SpecificationLoaderSpi specificationLoader;
 
+    /**
+     * Plans by the class declaring the intercepted methods, lazily populated
+     * (on the first interception of one of its methods rather than when
+     * enhanced, so that enhancing a class does not load any specifications).
+     */
+    private final ConcurrentMap<Class<?>, InterceptionPlan> interceptionPlanByClass = Maps.newConcurrentMap();
+
     public ObjectResolveAndObjectChangedEnhancerAbstract(final ObjectResolver objectResolver, final ObjectChanger objectChanger, final SpecificationLoaderSpi specificationLoader) {
         ensureThatArg(objectResolver, is(notNullValue()));
         ensureThatArg(objectChanger, is(notNullValue()));
@@ -54,6 +71,61 @@ public ObjectResolveAndObjectChangedEnhancerAbstract(final ObjectResolver object
      */
     protected abstract void createCallback();
 
+    /**
+     * The interception of the method, or <tt>null</tt> if it is to be passed
+     * straight through to the domain object.
+     */
+    protected Interception interceptionFor(final Method method) {
+        final Class<?> declaringClass = method.getDeclaringClass();
+        if (declaringClass == Object.class) {
+            return null;
+        }
+        return interceptionPlanFor(declaringClass).interceptionFor(method);
+    }
+
+    protected InterceptionPlan interceptionPlanFor(final Class<?> cls) {
+        final InterceptionPlan plan = interceptionPlanByClass.get(cls);
+        if (plan != null) {
+            return plan;
+        }
+        return createInterceptionPlan(cls);
+    }
+
+    /**
+     * The plan is cached only if the specification it was worked out from has
+     * been fully introspected; while it is still being introspected (eg if a
+     * method is intercepted during the introspection of another class) some of
+     * its members may be missing, so the plan is used just the once.
+     */
+    private InterceptionPlan createInterceptionPlan(final Class<?> cls) {
+        final Map<Method, Interception> interceptionByMethod = Maps.newHashMap();
+        ObjectSpecificationDefault spec = null;
+        for (final Method method : cls.getDeclaredMethods()) {
+            if (!isInterceptable(method)) {
+                continue;
+            }
+            if (spec == null) {
+                spec = getJavaSpecification(cls);
+            }
+            final ObjectMember member = spec.getMember(method);
+            final ImperativeFacetFlags flags = ImperativeFacetUtils.getImperativeFacetFlags(member, method);
+            if (flags.impliesResolve() || flags.impliesObjectChanged()) {
+                interceptionByMethod.put(method, new Interception(member.getName(), flags.impliesResolve(), flags.impliesObjectChanged()));
+            }
+        }
+        final InterceptionPlan plan = new InterceptionPlan(cls, interceptionByMethod);
+        if (spec != null && spec.getIntrospectionState() != IntrospectionState.INTROSPECTED) {
+            return plan;
+        }
+        final InterceptionPlan existing = interceptionPlanByClass.putIfAbsent(cls, plan);
+        return existing != null ? existing : plan;
+    }
+
+    private static boolean isInterceptable(final Method method) {
+        final int modifiers = method.getModifiers();
+        return !Modifier.isStatic(modifiers) && !Modifier.isPrivate(modifiers) && !Modifier.isFinal(modifiers);
+    }
+
     protected ObjectSpecificationDefault getJavaSpecificationOfOwningClass(final Method method) {
         return getJavaSpecification(method.getDeclaringClass());
     }
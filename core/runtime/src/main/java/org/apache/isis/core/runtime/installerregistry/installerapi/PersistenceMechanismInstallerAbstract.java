@@ -146,7 +146,9 @@ public PersistenceSession createPersistenceSession(final PersistenceSessionFacto
         ServicesInjectorSpi servicesInjector = persistenceSessionFactory.getServicesInjector();
         
         final PersistAlgorithm persistAlgorithm = createPersistAlgorithm(getConfiguration());
-        final AdapterManagerDefault adapterManager = new AdapterManagerDefault(pojoRecreator);
+        final int expectedSize = getConfiguration().getInteger(PersistenceConstants.ADAPTER_MANAGER_EXPECTED_SIZE, PersistenceConstants.ADAPTER_MANAGER_EXPECTED_SIZE_DEFAULT);
+        final int maximumSize = getConfiguration().getInteger(PersistenceConstants.ADAPTER_MANAGER_MAXIMUM_SIZE, PersistenceConstants.ADAPTER_MANAGER_MAXIMUM_SIZE_DEFAULT);
+        final AdapterManagerDefault adapterManager = new AdapterManagerDefault(pojoRecreator, expectedSize, maximumSize);
         
         ObjectStoreSpi objectStore = createObjectStore(getConfiguration(), adapterFactory, adapterManager);
         
@@ -24,6 +24,8 @@
 import org.apache.isis.core.commons.config.IsisConfiguration;
 import org.apache.isis.core.metamodel.services.container.DomainObjectContainerDefault;
 import org.apache.isis.core.metamodel.specloader.classsubstitutor.ClassSubstitutor;
+import org.apache.isis.core.runtime.persistence.adaptermanager.AdapterManagerDefault;
+import org.apache.isis.core.runtime.persistence.adaptermanager.OidAdapterHashMap;
 import org.apache.isis.core.runtime.system.persistence.ObjectFactory;
 
 public final class PersistenceConstants {
@@ -46,6 +48,24 @@ public final class PersistenceConstants {
     public static final String DOMAIN_OBJECT_CONTAINER_CLASS_NAME = ConfigurationConstants.ROOT + "persistor.domain-object-container";
     public static final String DOMAIN_OBJECT_CONTAINER_NAME_DEFAULT = DomainObjectContainerDefault.class.getName();
 
+    /**
+     * Key used to lookup the number of adapters that the {@link AdapterManagerDefault adapter manager}
+     * of each session should be sized for, in {@link IsisConfiguration}.
+     */
+    public static final String ADAPTER_MANAGER_EXPECTED_SIZE = ConfigurationConstants.ROOT + "persistor.adapter-manager.expected-size";
+    public static final int ADAPTER_MANAGER_EXPECTED_SIZE_DEFAULT = OidAdapterHashMap.DEFAULT_OID_ADAPTER_MAP_SIZE;
+
+    /**
+     * Key used to lookup the maximum number of (resolved, persistent) root adapters that the
+     * {@link AdapterManagerDefault adapter manager} of each session holds before evicting the least
+     * recently used, in {@link IsisConfiguration}.
+     * 
+     * <p>
+     * By default (<tt>0</tt>) the number of adapters is unbounded.
+     */
+    public static final String ADAPTER_MANAGER_MAXIMUM_SIZE = ConfigurationConstants.ROOT + "persistor.adapter-manager.maximum-size";
+    public static final int ADAPTER_MANAGER_MAXIMUM_SIZE_DEFAULT = 0;
+
     private PersistenceConstants() {
     }
 
@@ -27,6 +27,8 @@
 
 import java.util.Iterator;
 
+import com.google.common.base.Predicate;
+
 import org.apache.isis.core.commons.authentication.AuthenticationSession;
 import org.apache.isis.core.commons.debug.DebugBuilder;
 import org.apache.isis.core.commons.ensure.Assert;
@@ -56,21 +58,28 @@
 import org.apache.isis.core.metamodel.spec.SpecificationLoaderSpi;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
 import org.apache.isis.core.metamodel.spec.feature.OneToManyAssociation;
+import org.apache.isis.core.runtime.persistence.PersistenceConstants;
 import org.apache.isis.core.runtime.system.context.IsisContext;
 import org.apache.isis.core.runtime.system.persistence.AdapterManagerSpi;
 import org.apache.isis.core.runtime.system.persistence.OidGenerator;
 import org.apache.isis.core.runtime.system.persistence.PersistenceSession;
+import org.apache.isis.core.runtime.system.transaction.IsisTransaction;
 import org.apache.log4j.Logger;
 
 public class AdapterManagerDefault implements AdapterManagerSpi {
 
     private static final Logger LOG = Logger.getLogger(AdapterManagerDefault.class);
 
-    protected final PojoAdapterHashMap pojoAdapterMap = new PojoAdapterHashMap();
-    protected final OidAdapterHashMap oidAdapterMap = new OidAdapterHashMap();
+    protected final PojoAdapterHashMap pojoAdapterMap;
+    protected final OidAdapterHashMap oidAdapterMap;
 
     private final PojoRecreator pojoRecreator;
 
+    /**
+     * Only populated if the number of adapters is bounded.
+     */
+    private final RecentlyUsedAdapters recentlyUsedAdapters;
+
 
     // //////////////////////////////////////////////////////////////////
     // constructor
@@ -84,7 +93,29 @@ public class AdapterManagerDefault implements AdapterManagerSpi {
      * @see http://www.datanucleus.org/servlet/forum/viewthread_thread,7238_lastpage,yes#35976
      */
     public AdapterManagerDefault(PojoRecreator pojoRecreator) {
+        this(pojoRecreator, OidAdapterHashMap.DEFAULT_OID_ADAPTER_MAP_SIZE);
+    }
+
+    /**
+     * @param expectedSize - the number of adapters expected to be mapped by a session; 
+     * see {@link PersistenceConstants#ADAPTER_MANAGER_EXPECTED_SIZE}.
+     */
+    public AdapterManagerDefault(PojoRecreator pojoRecreator, int expectedSize) {
+        this(pojoRecreator, expectedSize, 0);
+    }
+
+    /**
+     * @param expectedSize - the number of adapters expected to be mapped by a session; 
+     * see {@link PersistenceConstants#ADAPTER_MANAGER_EXPECTED_SIZE}.
+     * @param maximumSize - if positive, the number of persistent root adapters beyond which the least
+     * recently used (that are resolved and not enlisted in the current transaction) are evicted; 
+     * see {@link PersistenceConstants#ADAPTER_MANAGER_MAXIMUM_SIZE}.
+     */
+    public AdapterManagerDefault(PojoRecreator pojoRecreator, int expectedSize, int maximumSize) {
         this.pojoRecreator = pojoRecreator;
+        this.pojoAdapterMap = new PojoAdapterHashMap(expectedSize);
+        this.oidAdapterMap = new OidAdapterHashMap(expectedSize);
+        this.recentlyUsedAdapters = maximumSize > 0 ? new RecentlyUsedAdapters(maximumSize) : null;
     }
 
     // //////////////////////////////////////////////////////////////////
@@ -101,6 +132,9 @@ public void open() {
     public void close() {
         oidAdapterMap.close();
         pojoAdapterMap.close();
+        if (recentlyUsedAdapters != null) {
+            recentlyUsedAdapters.clear();
+        }
     }
 
     // //////////////////////////////////////////////////////////////////
@@ -111,6 +145,10 @@ public void close() {
     public void reset() {
         oidAdapterMap.reset();
         pojoAdapterMap.reset();
+        if (recentlyUsedAdapters != null) {
+            // services are never tracked
+            recentlyUsedAdapters.clear();
+        }
     }
 
     // //////////////////////////////////////////////////////////////////
@@ -133,7 +171,19 @@ public Iterator<ObjectAdapter> iterator() {
     public ObjectAdapter getAdapterFor(final Object pojo) {
         ensureThatArg(pojo, is(notNullValue()));
 
-        return pojoAdapterMap.getAdapter(pojo);
+        final ObjectAdapter adapter = pojoAdapterMap.getAdapter(pojo);
+        if (recentlyUsedAdapters == null) {
+            return adapter;
+        }
+        if (adapter != null) {
+            return hit(adapter);
+        }
+        final Oid evictedOid = recentlyUsedAdapters.recallOid(pojo);
+        if (evictedOid == null) {
+            recentlyUsedAdapters.miss();
+            return null;
+        }
+        return remapEvicted(evictedOid, pojo);
     }
 
     @Override
@@ -141,7 +191,39 @@ public ObjectAdapter getAdapterFor(final Oid oid) {
         ensureThatArg(oid, is(notNullValue()));
         ensureMapsConsistent(oid);
 
-        return oidAdapterMap.getAdapter(oid);
+        final ObjectAdapter adapter = oidAdapterMap.getAdapter(oid);
+        if (recentlyUsedAdapters == null) {
+            return adapter;
+        }
+        if (adapter != null) {
+            return hit(adapter);
+        }
+        final Object evictedPojo = recentlyUsedAdapters.recallPojo(oid);
+        if (evictedPojo == null) {
+            recentlyUsedAdapters.miss();
+            return null;
+        }
+        return remapEvicted(oid, evictedPojo);
+    }
+
+    private ObjectAdapter hit(final ObjectAdapter adapter) {
+        recentlyUsedAdapters.hit();
+        if (isTracked(adapter)) {
+            recentlyUsedAdapters.touch(adapter);
+        }
+        return adapter;
+    }
+
+    /**
+     * Re-creates and maps an adapter for a pojo whose previous adapter was
+     * {@link #evictLeastRecentlyUsed() evicted}; the pojo is still resolved.
+     */
+    private ObjectAdapter remapEvicted(final Oid oid, final Object pojo) {
+        recentlyUsedAdapters.remapped();
+        final ObjectAdapter adapter = createRootOrAggregatedAdapter(oid, pojo);
+        mapAndInjectServices(adapter);
+        adapter.markAsResolvedIfPossible();
+        return adapter;
     }
 
     
@@ -475,6 +557,9 @@ public void remapAsPersistent(final ObjectAdapter adapter, RootOid hintRootOid)
         }
         adapter.replaceOid(persistedRootOid);
         oidAdapterMap.add(persistedRootOid, adapter);
+        if (recentlyUsedAdapters != null) {
+            recentlyUsedAdapters.touch(adapter);
+        }
         
         // associate the collection adapters with new Oids, and re-map
         if (LOG.isDebugEnabled()) {
@@ -680,6 +765,11 @@ private ObjectAdapter mapAndInjectServices(final ObjectAdapter adapter) {
         // must inject after mapping, otherwise infinite loop
         getServicesInjector().injectServicesInto(pojo);
 
+        if (recentlyUsedAdapters != null && isTracked(adapter)) {
+            recentlyUsedAdapters.touch(adapter);
+            evictLeastRecentlyUsed();
+        }
+
         return adapter;
     }
 
@@ -689,10 +779,53 @@ private void unmap(final ObjectAdapter adapter) {
         final Oid oid = adapter.getOid();
         if (oid != null) {
             oidAdapterMap.remove(oid);
+            if (recentlyUsedAdapters != null) {
+                recentlyUsedAdapters.forget(oid);
+            }
         }
         pojoAdapterMap.remove(adapter);
     }
 
+    // //////////////////////////////////////////////////////////////////////////
+    // Helpers: eviction
+    // //////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Only persistent root adapters are candidates for eviction; services are
+     * never tracked.
+     */
+    private static boolean isTracked(final ObjectAdapter adapter) {
+        final Oid oid = adapter.getOid();
+        return oid instanceof RootOid && !oid.isTransient() && !AdapterMaps.isService(adapter);
+    }
+
+    private final Predicate<ObjectAdapter> evictable = new Predicate<ObjectAdapter>() {
+        @Override
+        public boolean apply(final ObjectAdapter adapter) {
+            return adapter.isResolved() && !isEnlistedInTransaction(adapter);
+        }
+    };
+
+    private void evictLeastRecentlyUsed() {
+        for (final ObjectAdapter adapter : recentlyUsedAdapters.removeEldest(evictable)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("evicting adapter with oid=" + adapter.getOid());
+            }
+            oidAdapterMap.remove(adapter.getOid());
+            pojoAdapterMap.remove(adapter);
+            recentlyUsedAdapters.evicted(adapter);
+        }
+    }
+
+    /**
+     * Whether the adapter has been created, saved, destroyed or dirtied in the
+     * current transaction (if any), and so must not be evicted.
+     */
+    protected boolean isEnlistedInTransaction(final ObjectAdapter adapter) {
+        final IsisTransaction transaction = getPersistenceSession().getTransactionManager().getTransaction();
+        return transaction != null && transaction.isEnlisted(adapter);
+    }
+
     // //////////////////////////////////////////////////////////////////////////
     // Helpers: ensure invariants
     // //////////////////////////////////////////////////////////////////////////
@@ -755,6 +888,12 @@ public void debugData(final DebugBuilder debug) {
         debug.appendTitle(oidAdapterMap.debugTitle());
         oidAdapterMap.debugData(debug);
 
+        if (recentlyUsedAdapters != null) {
+            debug.appendln();
+            debug.appendTitle("Recently used adapters");
+            recentlyUsedAdapters.debugData(debug);
+        }
+
     }
 
     
@@ -0,0 +1,57 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.persistence.adaptermanager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+
+/**
+ * Helpers shared by {@link PojoAdapterHashMap} and {@link OidAdapterHashMap}.
+ */
+final class AdapterMaps {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Number of lock stripes; a session is shared by at most a handful of
+     * (request) threads.
+     */
+    private static final int CONCURRENCY_LEVEL = 4;
+
+    private AdapterMaps() {
+    }
+
+    static <K> ConcurrentMap<K, ObjectAdapter> newConcurrentMapWithExpectedSize(final int expectedSize) {
+        final int initialCapacity = (int) (Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        return new ConcurrentHashMap<K, ObjectAdapter>(initialCapacity, LOAD_FACTOR, CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Whether the adapter should be held in the pinned region, surviving a
+     * {@link org.apache.isis.core.commons.components.Resettable#reset() reset}.
+     */
+    static boolean isService(final ObjectAdapter adapter) {
+        final ObjectSpecification specification = adapter.getSpecification();
+        return specification != null && specification.isService();
+    }
+}
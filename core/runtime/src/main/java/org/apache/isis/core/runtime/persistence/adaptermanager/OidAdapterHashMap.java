@@ -20,9 +20,10 @@
 package org.apache.isis.core.runtime.persistence.adaptermanager;
 
 import java.util.Iterator;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Iterators;
 
 import org.apache.log4j.Logger;
 
@@ -36,14 +37,34 @@
 
 /**
  * A map of the objects' identities and the adapters' of the objects.
+ * 
+ * <p>
+ * Safe for concurrent use. As for {@link PojoAdapterHashMap}, the adapters of
+ * {@link ObjectSpecification#isService() services} are held in a separate,
+ * pinned, region so that {@link #reset()} is a constant-time operation.
  */
 public class OidAdapterHashMap implements DebuggableWithTitle, Iterable<Oid>, SessionScopedComponent, Resettable {
 
     private static final Logger LOG = Logger.getLogger(OidAdapterHashMap.class);
     public static final int DEFAULT_OID_ADAPTER_MAP_SIZE = 100;
 
-    private final Map<Oid, ObjectAdapter> adapterByOidMap = Maps.newHashMapWithExpectedSize(DEFAULT_OID_ADAPTER_MAP_SIZE);
+    private final ConcurrentMap<Oid, ObjectAdapter> adapterByOidMap;
+    private final ConcurrentMap<Oid, ObjectAdapter> serviceAdapterByOidMap = new ConcurrentHashMap<Oid, ObjectAdapter>();
 
+    // ///////////////////////////////////////////////////////
+    // constructors
+    // ///////////////////////////////////////////////////////
+
+    public OidAdapterHashMap() {
+        this(DEFAULT_OID_ADAPTER_MAP_SIZE);
+    }
+
+    /**
+     * @param capacity - the number of (non-service) adapters expected to be held.
+     */
+    public OidAdapterHashMap(final int capacity) {
+        adapterByOidMap = AdapterMaps.newConcurrentMapWithExpectedSize(capacity);
+    }
 
     // ///////////////////////////////////////////////////////
     // open, close
@@ -58,6 +79,7 @@ public void open() {
     public void close() {
         LOG.debug("close");
         adapterByOidMap.clear();
+        serviceAdapterByOidMap.clear();
     }
 
     // ///////////////////////////////////////////////////////
@@ -70,13 +92,7 @@ public void close() {
     @Override
     public void reset() {
         LOG.debug("reset");
-        for (final Iterator<Map.Entry<Oid, ObjectAdapter>> iterator = adapterByOidMap.entrySet().iterator(); iterator.hasNext();) {
-            final Map.Entry<Oid, ObjectAdapter> entry = iterator.next();
-            final ObjectAdapter adapter = entry.getValue();
-            if (!adapter.getSpecification().isService()) {
-                iterator.remove();
-            }
-        }
+        adapterByOidMap.clear();
     }
 
     // ///////////////////////////////////////////////////////
@@ -88,7 +104,13 @@ public void reset() {
      */
     public void add(final Oid oid, final ObjectAdapter adapter) {
 
-        adapterByOidMap.put(oid, adapter);
+        if (AdapterMaps.isService(adapter)) {
+            serviceAdapterByOidMap.put(oid, adapter);
+            adapterByOidMap.remove(oid);
+        } else {
+            adapterByOidMap.put(oid, adapter);
+            serviceAdapterByOidMap.remove(oid);
+        }
         // log at end so that if toString needs adapters they're in maps.
         if (LOG.isDebugEnabled()) {
             // do not call toString() on adapter because would call hashCode on
@@ -108,7 +130,7 @@ public boolean remove(final Oid oid) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("remove oid: " + oid);
         }
-        return adapterByOidMap.remove(oid) != null;
+        return adapterByOidMap.remove(oid) != null || serviceAdapterByOidMap.remove(oid) != null;
     }
 
 
@@ -116,7 +138,8 @@ public boolean remove(final Oid oid) {
      * Get the adapter identified by the specified OID.
      */
     public ObjectAdapter getAdapter(final Oid oid) {
-        return adapterByOidMap.get(oid);
+        final ObjectAdapter adapter = adapterByOidMap.get(oid);
+        return adapter != null ? adapter : serviceAdapterByOidMap.get(oid);
     }
 
     // ///////////////////////////////////////////////////////
@@ -125,7 +148,7 @@ public ObjectAdapter getAdapter(final Oid oid) {
 
     @Override
     public Iterator<Oid> iterator() {
-        return adapterByOidMap.keySet().iterator();
+        return Iterators.concat(serviceAdapterByOidMap.keySet().iterator(), adapterByOidMap.keySet().iterator());
     }
 
     // ///////////////////////////////////////////////////////
@@ -21,8 +21,10 @@
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Iterators;
 
 import org.apache.commons.collections.map.IdentityMap;
 import org.apache.log4j.Logger;
@@ -33,8 +35,19 @@
 import org.apache.isis.core.commons.debug.DebuggableWithTitle;
 import org.apache.isis.core.commons.lang.ToString;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
 
 /**
+ * A map of the pojos and the adapters of the pojos, keyed on the pojos'
+ * identity.
+ * 
+ * <p>
+ * Safe for concurrent use (eg where a session is shared across threads, as
+ * Wicket does). The adapters of {@link ObjectSpecification#isService()
+ * services} are held in a separate, pinned, region, so that {@link #reset()}
+ * need only discard the other region rather than inspect every adapter.
+ * 
+ * <p>
  * TODO: an alternative might be to use {@link IdentityMap}.
  */
 public class PojoAdapterHashMap implements DebuggableWithTitle, Iterable<ObjectAdapter>, SessionScopedComponent, Resettable {
@@ -55,12 +68,18 @@ public int hashCode() {
         public boolean equals(final Object obj) {
             return obj == this || (obj instanceof IdentityHashKey && ((IdentityHashKey) obj).pojo == pojo);
         }
+
+        @Override
+        public String toString() {
+            return pojo.toString();
+        }
     }
 
     private static final Logger LOG = Logger.getLogger(PojoAdapterHashMap.class);
     public static final int DEFAULT_POJO_ADAPTER_MAP_SIZE = OidAdapterHashMap.DEFAULT_OID_ADAPTER_MAP_SIZE;
 
-    protected final Map<Object, ObjectAdapter> adapterByPojoMap;
+    protected final ConcurrentMap<Object, ObjectAdapter> adapterByPojoMap;
+    protected final ConcurrentMap<Object, ObjectAdapter> serviceAdapterByPojoMap = new ConcurrentHashMap<Object, ObjectAdapter>();
 
     // ///////////////////////////////////////////////////////////////////////////
     // Constructors, finalize
@@ -70,8 +89,11 @@ public PojoAdapterHashMap() {
         this(DEFAULT_POJO_ADAPTER_MAP_SIZE);
     }
 
+    /**
+     * @param capacity - the number of (non-service) adapters expected to be held.
+     */
     public PojoAdapterHashMap(final int capacity) {
-        adapterByPojoMap = Maps.newHashMapWithExpectedSize(capacity);
+        adapterByPojoMap = AdapterMaps.newConcurrentMapWithExpectedSize(capacity);
     }
 
     @Override
@@ -93,22 +115,20 @@ public void open() {
     public void close() {
         LOG.debug("close");
         adapterByPojoMap.clear();
+        serviceAdapterByPojoMap.clear();
     }
 
     // ///////////////////////////////////////////////////////////////////////////
     // reset
     // ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Removes all {@link ObjectSpecification#isService() non-service} adapters.
+     */
     @Override
     public void reset() {
         LOG.debug("reset");
-        for (final Iterator<Map.Entry<Object, ObjectAdapter>> iterator = adapterByPojoMap.entrySet().iterator(); iterator.hasNext();) {
-            final Map.Entry<Object, ObjectAdapter> entry = iterator.next();
-            final ObjectAdapter adapter = entry.getValue();
-            if (!adapter.getSpecification().isService()) {
-                iterator.remove();
-            }
-        }
+        adapterByPojoMap.clear();
     }
 
     // ///////////////////////////////////////////////////////////////////////////
@@ -116,7 +136,14 @@ public void reset() {
     // ///////////////////////////////////////////////////////////////////////////
 
     public void add(final Object pojo, final ObjectAdapter adapter) {
-        adapterByPojoMap.put(key(pojo), adapter);
+        final Object key = key(pojo);
+        if (AdapterMaps.isService(adapter)) {
+            serviceAdapterByPojoMap.put(key, adapter);
+            adapterByPojoMap.remove(key);
+        } else {
+            adapterByPojoMap.put(key, adapter);
+            serviceAdapterByPojoMap.remove(key);
+        }
         if(LOG.isDebugEnabled()) {
             LOG.debug("add adapter: #" + Long.toHexString(pojo.hashCode()) + " -> #" + Long.toHexString(adapter.hashCode()));
         }
@@ -132,7 +159,10 @@ public void remove(final ObjectAdapter object) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("remove adapter: " + object);
         }
-        adapterByPojoMap.remove(key(object.getObject()));
+        final Object key = key(object.getObject());
+        if (adapterByPojoMap.remove(key) == null) {
+            serviceAdapterByPojoMap.remove(key);
+        }
     }
 
     // ///////////////////////////////////////////////////////////////////////////
@@ -140,11 +170,14 @@ public void remove(final ObjectAdapter object) {
     // ///////////////////////////////////////////////////////////////////////////
 
     public boolean containsPojo(final Object pojo) {
-        return adapterByPojoMap.containsKey(key(pojo));
+        final Object key = key(pojo);
+        return adapterByPojoMap.containsKey(key) || serviceAdapterByPojoMap.containsKey(key);
     }
 
     public ObjectAdapter getAdapter(final Object pojo) {
-        return adapterByPojoMap.get(key(pojo));
+        final Object key = key(pojo);
+        final ObjectAdapter adapter = adapterByPojoMap.get(key);
+        return adapter != null ? adapter : serviceAdapterByPojoMap.get(key);
     }
 
     // ///////////////////////////////////////////////////////////////////////////
@@ -153,7 +186,7 @@ public ObjectAdapter getAdapter(final Object pojo) {
 
     @Override
     public Iterator<ObjectAdapter> iterator() {
-        return adapterByPojoMap.values().iterator();
+        return Iterators.concat(serviceAdapterByPojoMap.values().iterator(), adapterByPojoMap.values().iterator());
     }
 
     private Object key(final Object pojo) {
@@ -166,15 +199,19 @@ private Object key(final Object pojo) {
 
     @Override
     public void debugData(final DebugBuilder debug) {
-        int count = 0;
-        for (final Object pojo : adapterByPojoMap.keySet()) {
-            final ObjectAdapter object = adapterByPojoMap.get(pojo);
+        final int count = debugData(debug, serviceAdapterByPojoMap, 0);
+        debugData(debug, adapterByPojoMap, count);
+    }
+
+    private static int debugData(final DebugBuilder debug, final Map<Object, ObjectAdapter> map, int count) {
+        for (final Map.Entry<Object, ObjectAdapter> entry : map.entrySet()) {
             debug.append(count++ + 1, 5);
             debug.append(" '");
-            debug.append(pojo.toString(), 50);
+            debug.append(entry.getKey().toString(), 50);
             debug.append("'    ");
-            debug.appendln(object.toString());
+            debug.appendln(entry.getValue().toString());
         }
+        return count;
     }
 
     @Override
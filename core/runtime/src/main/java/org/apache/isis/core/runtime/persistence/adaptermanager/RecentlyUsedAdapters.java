@@ -0,0 +1,206 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.persistence.adaptermanager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+
+import org.apache.isis.core.commons.debug.DebugBuilder;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+
+/**
+ * Tracks the persistent root {@link ObjectAdapter adapter}s mapped by the
+ * {@link AdapterManagerDefault} in least-recently-used order, for when the
+ * number of adapters held by a session is bounded.
+ * 
+ * <p>
+ * Adapters that are evicted from the adapter manager's maps are remembered
+ * only weakly: the {@link Oid} is held against the pojo (for as long as the
+ * pojo is reachable), and the pojo against the {@link Oid}. This allows an
+ * adapter to be transparently re-mapped for the same pojo if either is
+ * subsequently looked up, rather than (in the case of the pojo) being
+ * treated as a new transient object.
+ */
+class RecentlyUsedAdapters {
+
+    private final int maximumSize;
+
+    /**
+     * In access order; guarded by itself.
+     */
+    private final Map<Oid, ObjectAdapter> adapterByOid = new LinkedHashMap<Oid, ObjectAdapter>(16, 0.75f, true);
+
+    /**
+     * Keyed on the pojo's identity.
+     */
+    private final ConcurrentMap<Object, Oid> evictedOidByPojo = new MapMaker().weakKeys().makeMap();
+    private final ConcurrentMap<Oid, Object> evictedPojoByOid = new MapMaker().weakValues().makeMap();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong remaps = new AtomicLong();
+
+    RecentlyUsedAdapters(final int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    // //////////////////////////////////////////////////////////////////
+    // tracking
+    // //////////////////////////////////////////////////////////////////
+
+    public void touch(final ObjectAdapter adapter) {
+        synchronized (adapterByOid) {
+            adapterByOid.put(adapter.getOid(), adapter);
+        }
+    }
+
+    public void forget(final Oid oid) {
+        synchronized (adapterByOid) {
+            adapterByOid.remove(oid);
+        }
+    }
+
+    /**
+     * Removes and returns the least recently used adapters (that are
+     * <tt>evictable</tt>) so that no more than the maximum size remain.
+     * 
+     * <p>
+     * Adapters that are not evictable are left in place, so the number of
+     * tracked adapters may temporarily exceed the maximum.
+     */
+    public List<ObjectAdapter> removeEldest(final Predicate<ObjectAdapter> evictable) {
+        final List<ObjectAdapter> eldest = Lists.newArrayList();
+        synchronized (adapterByOid) {
+            int excess = adapterByOid.size() - maximumSize;
+            for (final Iterator<ObjectAdapter> iterator = adapterByOid.values().iterator(); excess > 0 && iterator.hasNext();) {
+                final ObjectAdapter adapter = iterator.next();
+                if (evictable.apply(adapter)) {
+                    iterator.remove();
+                    eldest.add(adapter);
+                    excess--;
+                }
+            }
+        }
+        return eldest;
+    }
+
+    // //////////////////////////////////////////////////////////////////
+    // evicted
+    // //////////////////////////////////////////////////////////////////
+
+    public void evicted(final ObjectAdapter adapter) {
+        evictedOidByPojo.put(adapter.getObject(), adapter.getOid());
+        evictedPojoByOid.put(adapter.getOid(), adapter.getObject());
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * The {@link Oid} of a previously evicted adapter for this pojo, if any;
+     * no longer remembered once returned.
+     */
+    public Oid recallOid(final Object pojo) {
+        final Oid oid = evictedOidByPojo.remove(pojo);
+        if (oid != null) {
+            evictedPojoByOid.remove(oid);
+        }
+        return oid;
+    }
+
+    /**
+     * The pojo of a previously evicted adapter with this {@link Oid}, if any
+     * and if still reachable; no longer remembered once returned.
+     */
+    public Object recallPojo(final Oid oid) {
+        final Object pojo = evictedPojoByOid.remove(oid);
+        if (pojo != null) {
+            evictedOidByPojo.remove(pojo);
+        }
+        return pojo;
+    }
+
+    // //////////////////////////////////////////////////////////////////
+    // clear
+    // //////////////////////////////////////////////////////////////////
+
+    public void clear() {
+        synchronized (adapterByOid) {
+            adapterByOid.clear();
+        }
+        evictedOidByPojo.clear();
+        evictedPojoByOid.clear();
+    }
+
+    // //////////////////////////////////////////////////////////////////
+    // statistics
+    // //////////////////////////////////////////////////////////////////
+
+    public void hit() {
+        hits.incrementAndGet();
+    }
+
+    public void miss() {
+        misses.incrementAndGet();
+    }
+
+    public void remapped() {
+        remaps.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getRemaps() {
+        return remaps.get();
+    }
+
+    public int size() {
+        synchronized (adapterByOid) {
+            return adapterByOid.size();
+        }
+    }
+
+    public void debugData(final DebugBuilder debug) {
+        debug.appendln("maximum size", maximumSize);
+        debug.appendln("tracked", size());
+        debug.appendln("hits", hits.get());
+        debug.appendln("misses", misses.get());
+        debug.appendln("evictions", evictions.get());
+        debug.appendln("remaps", remaps.get());
+    }
+}
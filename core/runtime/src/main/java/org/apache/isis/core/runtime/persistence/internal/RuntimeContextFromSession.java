@@ -24,6 +24,7 @@
 import org.apache.isis.applib.ApplicationException;
 import org.apache.isis.applib.profiles.Localization;
 import org.apache.isis.applib.query.Query;
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.applib.services.bookmark.Bookmark;
 import org.apache.isis.core.commons.authentication.AuthenticationSession;
 import org.apache.isis.core.commons.authentication.AuthenticationSessionProvider;
@@ -261,6 +262,11 @@ public <T> ObjectAdapter firstMatchingQuery(final Query<T> query) {
                 final List<ObjectAdapter> list = CollectionFacetUtils.convertToAdapterList(instances);
                 return list.size() > 0 ? list.get(0) : null;
             }
+
+            @Override
+            public <T> QueryCursor<ObjectAdapter> streamMatchingQuery(final Query<T> query, final int fetchSize) {
+                return getPersistenceSession().streamInstances(query, fetchSize);
+            }
         };
         this.servicesInjector = new ServicesInjector() {
 
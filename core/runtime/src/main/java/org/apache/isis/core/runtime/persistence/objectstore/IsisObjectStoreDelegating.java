@@ -21,6 +21,7 @@
 
 import java.util.List;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.debug.DebugBuilder;
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.adapter.oid.RootOid;
@@ -31,6 +32,8 @@
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.DestroyObjectCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.SaveObjectCommand;
+import org.apache.isis.core.runtime.persistence.query.QueryCursorIterating;
+import org.apache.isis.core.runtime.system.persistence.ObjectStoreStreaming;
 import org.apache.isis.core.runtime.system.persistence.PersistenceQuery;
 
 /**
@@ -39,7 +42,7 @@
  * <p>
  * Useful for quickly writing decorating implementations.
  */
-public class IsisObjectStoreDelegating implements ObjectStoreSpi {
+public class IsisObjectStoreDelegating implements ObjectStoreSpi, ObjectStoreStreaming {
 
     private final ObjectStoreSpi underlying;
     private final String name;
@@ -157,6 +160,14 @@ public List<ObjectAdapter> loadInstancesAndAdapt(final PersistenceQuery persiste
         return underlying.loadInstancesAndAdapt(persistenceQuery);
     }
 
+    @Override
+    public QueryCursor<ObjectAdapter> streamInstancesAndAdapt(final PersistenceQuery persistenceQuery, final int fetchSize) {
+        if (underlying instanceof ObjectStoreStreaming) {
+            return ((ObjectStoreStreaming) underlying).streamInstancesAndAdapt(persistenceQuery, fetchSize);
+        }
+        return new QueryCursorIterating<ObjectAdapter>(underlying.loadInstancesAndAdapt(persistenceQuery));
+    }
+
     @Override
     public boolean hasInstances(final ObjectSpecification specification) {
         return underlying.hasInstances(specification);
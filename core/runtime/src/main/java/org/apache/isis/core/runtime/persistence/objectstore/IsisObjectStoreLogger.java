@@ -21,6 +21,7 @@
 
 import java.util.List;
 
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.core.commons.config.IsisConfigurationException;
 import org.apache.isis.core.commons.debug.DebugBuilder;
 import org.apache.isis.core.commons.factory.InstanceCreationException;
@@ -38,10 +39,12 @@
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.DestroyObjectCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.SaveObjectCommand;
+import org.apache.isis.core.runtime.persistence.query.QueryCursorIterating;
 import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.persistence.ObjectStoreStreaming;
 import org.apache.isis.core.runtime.system.persistence.PersistenceQuery;
 
-public class IsisObjectStoreLogger extends Logger implements ObjectStoreSpi {
+public class IsisObjectStoreLogger extends Logger implements ObjectStoreSpi, ObjectStoreStreaming {
     private final ObjectStoreSpi underlying;
 
     public IsisObjectStoreLogger(final ObjectStoreSpi decorated, final String level) {
@@ -98,6 +101,15 @@ public List<ObjectAdapter> loadInstancesAndAdapt(final PersistenceQuery criteria
         return underlying.loadInstancesAndAdapt(criteria);
     }
 
+    @Override
+    public QueryCursor<ObjectAdapter> streamInstancesAndAdapt(final PersistenceQuery criteria, final int fetchSize) {
+        log("stream instances matching " + criteria + " (fetch size " + fetchSize + ")");
+        if (underlying instanceof ObjectStoreStreaming) {
+            return ((ObjectStoreStreaming) underlying).streamInstancesAndAdapt(criteria, fetchSize);
+        }
+        return new QueryCursorIterating<ObjectAdapter>(underlying.loadInstancesAndAdapt(criteria));
+    }
+
 
     @Override
     public ObjectAdapter loadInstanceAndAdapt(final TypedOid oid) throws ObjectNotFoundException, ObjectPersistenceException {
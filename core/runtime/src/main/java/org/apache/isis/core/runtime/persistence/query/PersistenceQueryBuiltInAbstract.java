@@ -48,6 +48,10 @@ public PersistenceQueryBuiltInAbstract(final DataInputExtended input, final long
         super(input, range);
     }
 
+    /**
+     * Whether a matching instance falls within the requested range; a
+     * <tt>count</tt> of zero means all instances from the <tt>start</tt>.
+     */
     protected boolean matchesRange(final boolean ifMatches) {
         if (ifMatches == false){
             return false;
@@ -59,10 +63,31 @@ protected boolean matchesRange(final boolean ifMatches) {
         if (index++ < start){
             return false;
         }
+        if (count == 0){
+            return true;
+        }
         if (countedSoFar++ < count){
             return true;
         }
         return false;
     }
-    
+
+    /**
+     * Advances the range over an instance that is already known to match
+     * (eg from an index), returning whether it falls within the requested
+     * page; lets object stores skip adapting instances before the start.
+     */
+    public boolean inRange() {
+        return matchesRange(true);
+    }
+
+    /**
+     * Whether the requested page has been filled, in which case no further
+     * instances can match and an object store can stop looking; never so if
+     * no count was requested.
+     */
+    public boolean isRangeExhausted() {
+        return count > 0 && countedSoFar >= count;
+    }
+
 }
@@ -16,10 +16,14 @@
  *  specific language governing permissions and limitations
  *  under the License.
  */
-
 package org.apache.isis.core.runtime.persistence.query;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
 import org.apache.isis.core.metamodel.services.container.query.QueryFindByPattern;
@@ -28,9 +32,16 @@
 
 /**
  * Corresponds to {@link QueryFindByPattern}.
+ * 
+ * <p>
+ * The pattern is compiled into a list of criteria on first use, so that each
+ * candidate instance is only checked against the fields that the pattern
+ * actually constrains.
  */
 public class PersistenceQueryFindByPattern extends PersistenceQueryBuiltInAbstract {
     private final ObjectAdapter pattern;
+    private List<Criterion> criteria;
+    private Map<String, Object> requiredValues;
 
     public ObjectAdapter getPattern() {
         return pattern;
@@ -43,15 +54,48 @@ public PersistenceQueryFindByPattern(final ObjectSpecification specification, fi
 
     @Override
     public boolean matches(final ObjectAdapter object) {
+        return matchesPattern(object) && matchesRange(true);
+    }
+
+    /**
+     * Whether the object matches the pattern, without regard to (or
+     * advancing) the range.
+     */
+    public boolean matchesPattern(final ObjectAdapter object) {
         final ObjectSpecification requiredSpec = pattern.getSpecification();
         final ObjectSpecification objectSpec = object.getSpecification();
-        return objectSpec.equals(requiredSpec) && matchesPattern(pattern, object);
+        if (!objectSpec.equals(requiredSpec)) {
+            return false;
+        }
+        for (final Criterion criterion : getCriteria()) {
+            if (!criterion.matches(object)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private boolean matchesPattern(final ObjectAdapter pattern, final ObjectAdapter instance) {
-        final ObjectAdapter object = instance;
-        final ObjectSpecification nc = object.getSpecification();
-        final List<ObjectAssociation> fields = nc.getAssociations();
+    /**
+     * The values required by the pattern, keyed by the id of the value
+     * property that holds them; any instance that matches must hold equal
+     * values.
+     */
+    public Map<String, Object> getRequiredValues() {
+        getCriteria();
+        return requiredValues;
+    }
+
+    private List<Criterion> getCriteria() {
+        if (criteria == null) {
+            compile();
+        }
+        return criteria;
+    }
+
+    private void compile() {
+        final List<Criterion> criteria = Lists.newArrayList();
+        final Map<String, Object> requiredValues = Maps.newLinkedHashMap();
+        final List<ObjectAssociation> fields = pattern.getSpecification().getAssociations();
 
         for (int f = 0; f < fields.size(); f++) {
             final ObjectAssociation fld = fields.get(f);
@@ -79,32 +123,43 @@ private boolean matchesPattern(final ObjectAdapter pattern, final ObjectAdapter
                 continue;
             }
 
-            // find the object; it's a bust if nothing
-            final ObjectAdapter search = fld.get(object);
-            if (search == null) {
-                return false;
-            }
-
             if (fld.getSpecification().isValue()) {
                 // compare values directly
-                if (!reqd.getObject().equals(search.getObject())) {
-                    return false;
-                }
-                
+                criteria.add(new Criterion(fld, reqd.getObject(), null));
+                requiredValues.put(fld.getId(), reqd.getObject());
             } else {
-
                 // compare the titles
-                final String r = reqd.titleString().toLowerCase();
-                final String s = search.titleString().toLowerCase();
-
-                // if the pattern does not occur in the object, then it's a bust
-                if (s.indexOf(r) == -1) {
-                    return false;
-                }
+                criteria.add(new Criterion(fld, null, reqd.titleString().toLowerCase()));
             }
         }
 
-        return matchesRange(true);
+        this.requiredValues = Collections.unmodifiableMap(requiredValues);
+        this.criteria = criteria;
+    }
+
+    private static class Criterion {
+        private final ObjectAssociation field;
+        private final Object value;
+        private final String title;
+
+        private Criterion(final ObjectAssociation field, final Object value, final String title) {
+            this.field = field;
+            this.value = value;
+            this.title = title;
+        }
+
+        private boolean matches(final ObjectAdapter object) {
+            // find the object; it's a bust if nothing
+            final ObjectAdapter search = field.get(object);
+            if (search == null) {
+                return false;
+            }
+            if (title == null) {
+                return value.equals(search.getObject());
+            }
+            // if the pattern does not occur in the object, then it's a bust
+            return search.titleString().toLowerCase().indexOf(title) != -1;
+        }
     }
 
 }
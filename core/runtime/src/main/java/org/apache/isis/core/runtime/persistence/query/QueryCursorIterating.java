@@ -0,0 +1,61 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.persistence.query;
+
+import java.util.Iterator;
+
+import org.apache.isis.applib.query.QueryCursor;
+
+/**
+ * A {@link QueryCursor} over results already retrieved, for object stores that
+ * cannot stream them.
+ */
+public class QueryCursorIterating<T> implements QueryCursor<T> {
+
+    private Iterator<T> results;
+
+    public QueryCursorIterating(final Iterable<T> results) {
+        this.results = results.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return results != null && results.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (results == null) {
+            throw new IllegalStateException("Cursor has been closed");
+        }
+        return results.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        results = null;
+    }
+
+}
@@ -101,18 +101,18 @@ public String name() {
     // //////////////////////////////////////////////////////////////
 
     @Override
-    public String createAggregateLocalId(ObjectSpecId objectSpecId, final Object pojo, final ObjectAdapter parentAdapter) {
+    public synchronized String createAggregateLocalId(ObjectSpecId objectSpecId, final Object pojo, final ObjectAdapter parentAdapter) {
         return Long.toHexString(aggregatedId++);
     }
     
     @Override
-    public String createTransientIdentifierFor(ObjectSpecId objectSpecId, Object pojo) {
+    public synchronized String createTransientIdentifierFor(ObjectSpecId objectSpecId, Object pojo) {
          // counts down
         return "" + (transientSerialNumber--);
     }
 
     @Override
-    public String createPersistentIdentifierFor(ObjectSpecId objectSpecId, Object pojo, RootOid transientRootOid) {
+    public synchronized String createPersistentIdentifierFor(ObjectSpecId objectSpecId, Object pojo, RootOid transientRootOid) {
         return "" + (persistentSerialNumber++); // counts up
     }
 
@@ -121,7 +121,7 @@ public String createPersistentIdentifierFor(ObjectSpecId objectSpecId, Object po
     // Memento (not API)
     // //////////////////////////////////////////////////////////////
 
-    public Memento getMemento() {
+    public synchronized Memento getMemento() {
         return new Memento(this.persistentSerialNumber, this.transientSerialNumber);
     }
 
@@ -132,11 +132,25 @@ public Memento getMemento() {
      * Used in particular by the <tt>InMemoryObjectStore</tt> to reset (a new
      * {@link OidGenerator} is created each time).
      */
-    public void resetTo(final Memento memento) {
+    public synchronized void resetTo(final Memento memento) {
         this.persistentSerialNumber = memento.getPersistentSerialNumber();
         this.transientSerialNumber = memento.getTransientSerialNumber();
     }
 
+    /**
+     * As {@link #resetTo(Memento)}, but only if the {@link Memento} is ahead of
+     * this generator, so that identifiers already handed out (eg by a
+     * concurrent session) are never handed out again.
+     */
+    public synchronized void resetToIfAhead(final Memento memento) {
+        if (memento == null) {
+            return;
+        }
+        this.persistentSerialNumber = Math.max(this.persistentSerialNumber, memento.getPersistentSerialNumber());
+        // counts down
+        this.transientSerialNumber = Math.min(this.transientSerialNumber, memento.getTransientSerialNumber());
+    }
+
     // //////////////////////////////////////////////////////////////
     // debug
     // //////////////////////////////////////////////////////////////
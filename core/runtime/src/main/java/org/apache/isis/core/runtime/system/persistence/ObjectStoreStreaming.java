@@ -0,0 +1,52 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.system.persistence;
+
+import org.apache.isis.applib.query.QueryCursor;
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+
+/**
+ * Optionally implemented by an {@link ObjectStore} that can retrieve the
+ * results of a query incrementally, adapting each instance only as it is
+ * reached, rather than all at once as per
+ * {@link ObjectStore#loadInstancesAndAdapt(PersistenceQuery)}.
+ * 
+ * <p>
+ * The {@link PersistenceSession} falls back to the latter for object stores
+ * that do not implement this interface.
+ */
+public interface ObjectStoreStreaming {
+
+    /**
+     * Executes the query, returning a cursor over its results that retrieves
+     * them (in batches of approximately <tt>fetchSize</tt>, where supported)
+     * and adapts them as they are iterated over.
+     * 
+     * <p>
+     * The cursor is used only within the current transaction, and is always
+     * {@link QueryCursor#close() closed} by the caller.
+     * 
+     * @param fetchSize
+     *            the number of instances to retrieve at a time, or 0 for the
+     *            object store's default.
+     */
+    QueryCursor<ObjectAdapter> streamInstancesAndAdapt(PersistenceQuery persistenceQuery, int fetchSize);
+
+}
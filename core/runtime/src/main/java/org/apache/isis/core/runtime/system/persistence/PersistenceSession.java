@@ -28,13 +28,16 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import org.apache.log4j.Logger;
 
 import org.apache.isis.applib.query.Query;
+import org.apache.isis.applib.query.QueryCursor;
 import org.apache.isis.applib.query.QueryDefault;
 import org.apache.isis.applib.query.QueryFindAllInstances;
 import org.apache.isis.core.commons.authentication.AuthenticationSession;
@@ -84,8 +87,10 @@
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindByTitle;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindUsingApplibQueryDefault;
 import org.apache.isis.core.runtime.persistence.query.PersistenceQueryFindUsingApplibQuerySerializable;
+import org.apache.isis.core.runtime.persistence.query.QueryCursorIterating;
 import org.apache.isis.core.runtime.system.context.IsisContext;
 import org.apache.isis.core.runtime.system.transaction.EnlistedObjectDirtying;
+import org.apache.isis.core.runtime.system.transaction.IsisTransaction;
 import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
 import org.apache.isis.core.runtime.system.transaction.TransactionalClosureAbstract;
 import org.apache.isis.core.runtime.system.transaction.TransactionalClosureWithReturnAbstract;
@@ -428,6 +433,129 @@ public void onSuccess() {
         });
     }
 
+    // ///////////////////////////////////////////////////////////////////////////
+    // streamInstances
+    // ///////////////////////////////////////////////////////////////////////////
+
+    public <T> QueryCursor<ObjectAdapter> streamInstances(final Query<T> query, final int fetchSize) {
+        final PersistenceQuery persistenceQuery = createPersistenceQueryFor(query, QueryCardinality.MULTIPLE);
+        if (persistenceQuery == null) {
+            throw new IllegalArgumentException("Unknown query type: " + query.getDescription());
+        }
+        return streamInstances(persistenceQuery, fetchSize);
+    }
+
+    /**
+     * As per {@link #getInstances(PersistenceQuery)}, but the instances are
+     * retrieved from the object store (if it is {@link ObjectStoreStreaming
+     * able to}) and adapted only as the returned cursor is iterated over.
+     * 
+     * <p>
+     * Once the cursor has moved past an instance its adapter is removed from
+     * the {@link AdapterManager adapter map}, unless it was already mapped
+     * when the cursor was opened or has been enlisted in the current
+     * transaction, so that the session does not hold onto every
+     * instance in the result set. An instance that has been
+     * {@link Dirtiable manually marked} as dirty is first marked as
+     * {@link #objectChanged(ObjectAdapter) changed} (and so enlisted), since
+     * once released {@link #objectChangedAllDirty()} would no longer see it.
+     * 
+     * <p>
+     * Must be called, and the cursor used, within a transaction.
+     */
+    public QueryCursor<ObjectAdapter> streamInstances(final PersistenceQuery persistenceQuery, final int fetchSize) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("streamInstances matching " + persistenceQuery + ", fetch size " + fetchSize);
+        }
+        ensureThatState(getTransactionManager().inTransaction(), is(true), "must be within a transaction to stream instances");
+        final QueryCursor<ObjectAdapter> instances;
+        if (objectStore instanceof ObjectStoreStreaming) {
+            instances = ((ObjectStoreStreaming) objectStore).streamInstancesAndAdapt(persistenceQuery, fetchSize);
+        } else {
+            instances = new QueryCursorIterating<ObjectAdapter>(objectStore.loadInstancesAndAdapt(persistenceQuery));
+        }
+        clearAllDirty();
+        return new QueryCursorReleasing(instances, mappedOids());
+    }
+
+    private Set<Oid> mappedOids() {
+        final Set<Oid> oids = Sets.newHashSet();
+        for (final ObjectAdapter adapter : adapterManager) {
+            oids.add(adapter.getOid());
+        }
+        return oids;
+    }
+
+    /**
+     * Releases each adapter once the cursor has moved past it, other than
+     * those that were already mapped when the cursor was opened.
+     */
+    private class QueryCursorReleasing implements QueryCursor<ObjectAdapter> {
+
+        private final QueryCursor<ObjectAdapter> underlying;
+        private final Set<Oid> alreadyMapped;
+        private ObjectAdapter current;
+
+        public QueryCursorReleasing(final QueryCursor<ObjectAdapter> underlying, final Set<Oid> alreadyMapped) {
+            this.underlying = underlying;
+            this.alreadyMapped = alreadyMapped;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return underlying.hasNext();
+        }
+
+        @Override
+        public ObjectAdapter next() {
+            releaseCurrent();
+            current = underlying.next();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            releaseCurrent();
+            underlying.close();
+        }
+
+        private void releaseCurrent() {
+            if (current != null && !alreadyMapped.contains(current.getOid())) {
+                release(current);
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Removes the adapter of a persistent, resolved instance from the adapter
+     * map, provided it is not enlisted in the current transaction (as it will
+     * be if it has been manually marked as dirty).
+     */
+    private void release(final ObjectAdapter adapter) {
+        final Oid oid = adapter.getOid();
+        if (!(oid instanceof RootOid) || oid.isTransient() || !adapter.isResolved()) {
+            return;
+        }
+        if (adapterManager.getAdapterFor(oid) != adapter) {
+            // already evicted, or replaced
+            return;
+        }
+        if (dirtiableSupport) {
+            objectChangedIfDirty(adapter);
+        }
+        final IsisTransaction transaction = getTransactionManager().getTransaction();
+        if (transaction != null && transaction.isEnlisted(adapter)) {
+            return;
+        }
+        adapterManager.removeAdapter(adapter);
+    }
+
     // ///////////////////////////////////////////////////////////////////////////
     // Manual dirtying support
     // ///////////////////////////////////////////////////////////////////////////
@@ -470,13 +598,17 @@ public void objectChangedAllDirty() {
             LOG.debug("marking as changed any objects that have been manually set as dirty");
         }
         for (final ObjectAdapter adapter : adapterManager) {
-            if (adapter.getSpecification().isDirty(adapter)) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("  found dirty object " + adapter);
-                }
-                objectChanged(adapter);
-                adapter.getSpecification().clearDirty(adapter);
+            objectChangedIfDirty(adapter);
+        }
+    }
+
+    private void objectChangedIfDirty(final ObjectAdapter adapter) {
+        if (adapter.getSpecification().isDirty(adapter)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("  found dirty object " + adapter);
             }
+            objectChanged(adapter);
+            adapter.getSpecification().clearDirty(adapter);
         }
     }
 
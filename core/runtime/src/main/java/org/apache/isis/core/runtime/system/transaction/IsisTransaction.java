@@ -54,7 +54,6 @@
 import org.apache.isis.core.metamodel.facets.object.publish.PublishedObjectFacet;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociation;
 import org.apache.isis.core.metamodel.spec.feature.ObjectAssociationFilters;
-import org.apache.isis.core.runtime.persistence.objectstore.transaction.CreateObjectCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.DestroyObjectCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
 import org.apache.isis.core.runtime.persistence.objectstore.transaction.PublishingServiceWithDefaultPayloadFactories;
@@ -185,7 +184,7 @@ public boolean isComplete() {
 
 
     private final TransactionalResource objectStore;
-    private final List<PersistenceCommand> commands = Lists.newArrayList();
+    private final PersistenceCommandQueue commands = new PersistenceCommandQueue();
     private final IsisTransactionManager transactionManager;
     private final org.apache.isis.core.commons.authentication.MessageBroker messageBroker;
     private final UpdateNotifier updateNotifier;
@@ -266,14 +265,14 @@ public void addCommand(final PersistenceCommand command) {
 
         // Saves are ignored when preceded by another save, or a delete
         if (command instanceof SaveObjectCommand) {
-            if (alreadyHasCreate(onObject) || alreadyHasSave(onObject)) {
+            if (commands.hasCreate(onObject) || commands.hasSave(onObject)) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("ignored command as object already created/saved" + command);
                 }
                 return;
             }
 
-            if (alreadyHasDestroy(onObject)) {
+            if (commands.hasDestroy(onObject)) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("ignored command " + command + " as object no longer exists");
                 }
@@ -283,22 +282,22 @@ public void addCommand(final PersistenceCommand command) {
 
         // Destroys are ignored when preceded by a create, or another destroy
         if (command instanceof DestroyObjectCommand) {
-            if (alreadyHasCreate(onObject)) {
-                removeCreate(onObject);
+            if (commands.hasCreate(onObject)) {
+                commands.removeCreate(onObject);
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("ignored both create and destroy command " + command);
                 }
                 return;
             }
 
-            if (alreadyHasSave(onObject)) {
-                removeSave(onObject);
+            if (commands.hasSave(onObject)) {
+                commands.removeSave(onObject);
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("removed prior save command " + command);
                 }
             }
 
-            if (alreadyHasDestroy(onObject)) {
+            if (commands.hasDestroy(onObject)) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("ignored command " + command + " as command already recorded");
                 }
@@ -312,6 +311,14 @@ public void addCommand(final PersistenceCommand command) {
         commands.add(command);
     }
 
+    /**
+     * Whether the adapter has been created, saved or destroyed (by way of a
+     * {@link #addCommand(PersistenceCommand) command}) or
+     * {@link #auditDirty(ObjectAdapter) dirtied} in this transaction.
+     */
+    public synchronized boolean isEnlisted(final ObjectAdapter adapter) {
+        return commands.hasCommandFor(adapter) || changedObjects.contains(adapter);
+    }
 
 
     /////////////////////////////////////////////////////////////////////////
@@ -382,9 +389,10 @@ private void doFlush() {
         
         try {
             
-            objectStore.execute(Collections.unmodifiableList(commands));
+            final List<PersistenceCommand> commandList = commands.asList();
+            objectStore.execute(commandList);
             
-            for (final PersistenceCommand command : commands) {
+            for (final PersistenceCommand command : commandList) {
                 if (command instanceof DestroyObjectCommand) {
                     final ObjectAdapter adapter = command.onAdapter();
                     adapter.setVersion(null);
@@ -558,50 +566,6 @@ public RuntimeException getAbortCause() {
 
     
     
-    // //////////////////////////////////////////////////////////
-    // Helpers
-    // //////////////////////////////////////////////////////////
-
-    private boolean alreadyHasCommand(final Class<?> commandClass, final ObjectAdapter onObject) {
-        return getCommand(commandClass, onObject) != null;
-    }
-
-    private boolean alreadyHasCreate(final ObjectAdapter onObject) {
-        return alreadyHasCommand(CreateObjectCommand.class, onObject);
-    }
-
-    private boolean alreadyHasDestroy(final ObjectAdapter onObject) {
-        return alreadyHasCommand(DestroyObjectCommand.class, onObject);
-    }
-
-    private boolean alreadyHasSave(final ObjectAdapter onObject) {
-        return alreadyHasCommand(SaveObjectCommand.class, onObject);
-    }
-
-    private PersistenceCommand getCommand(final Class<?> commandClass, final ObjectAdapter onObject) {
-        for (final PersistenceCommand command : commands) {
-            if (command.onAdapter().equals(onObject)) {
-                if (commandClass.isAssignableFrom(command.getClass())) {
-                    return command;
-                }
-            }
-        }
-        return null;
-    }
-
-    private void removeCommand(final Class<?> commandClass, final ObjectAdapter onObject) {
-        final PersistenceCommand toDelete = getCommand(commandClass, onObject);
-        commands.remove(toDelete);
-    }
-
-    private void removeCreate(final ObjectAdapter onObject) {
-        removeCommand(CreateObjectCommand.class, onObject);
-    }
-
-    private void removeSave(final ObjectAdapter onObject) {
-        removeCommand(SaveObjectCommand.class, onObject);
-    }
-
     // ////////////////////////////////////////////////////////////////
     // toString
     // ////////////////////////////////////////////////////////////////
@@ -0,0 +1,141 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.system.transaction;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.CreateObjectCommand;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.DestroyObjectCommand;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.SaveObjectCommand;
+
+/**
+ * The {@link PersistenceCommand}s enlisted in an {@link IsisTransaction}, held
+ * in the order that they were added.
+ *
+ * <p>
+ * The {@link CreateObjectCommand create}, {@link SaveObjectCommand save} and
+ * {@link DestroyObjectCommand destroy} commands are additionally indexed by the
+ * {@link ObjectAdapter} they act upon, so that the coalescing performed by
+ * {@link IsisTransaction#addCommand(PersistenceCommand)} does not need to scan
+ * all the commands so far; lookups and removals are constant time.
+ *
+ * <p>
+ * Not thread-safe; the owning {@link IsisTransaction} is responsible for
+ * synchronization.
+ */
+class PersistenceCommandQueue {
+
+    private final Set<PersistenceCommand> commands = Sets.newLinkedHashSet();
+
+    private final Map<ObjectAdapter, PersistenceCommand> createByAdapter = Maps.newHashMap();
+    private final Map<ObjectAdapter, PersistenceCommand> saveByAdapter = Maps.newHashMap();
+    private final Map<ObjectAdapter, PersistenceCommand> destroyByAdapter = Maps.newHashMap();
+
+    public void add(final PersistenceCommand command) {
+        if (!commands.add(command)) {
+            return;
+        }
+        final Map<ObjectAdapter, PersistenceCommand> index = indexFor(command);
+        if (index == null) {
+            return;
+        }
+        final ObjectAdapter onAdapter = command.onAdapter();
+        // as per a scan of the list, the earliest command for an adapter wins
+        if (!index.containsKey(onAdapter)) {
+            index.put(onAdapter, command);
+        }
+    }
+
+    public boolean hasCreate(final ObjectAdapter onAdapter) {
+        return createByAdapter.containsKey(onAdapter);
+    }
+
+    public boolean hasSave(final ObjectAdapter onAdapter) {
+        return saveByAdapter.containsKey(onAdapter);
+    }
+
+    public boolean hasDestroy(final ObjectAdapter onAdapter) {
+        return destroyByAdapter.containsKey(onAdapter);
+    }
+
+    public boolean hasCommandFor(final ObjectAdapter onAdapter) {
+        return hasCreate(onAdapter) || hasSave(onAdapter) || hasDestroy(onAdapter);
+    }
+
+    public void removeCreate(final ObjectAdapter onAdapter) {
+        remove(createByAdapter, onAdapter);
+    }
+
+    public void removeSave(final ObjectAdapter onAdapter) {
+        remove(saveByAdapter, onAdapter);
+    }
+
+    private void remove(final Map<ObjectAdapter, PersistenceCommand> index, final ObjectAdapter onAdapter) {
+        final PersistenceCommand toDelete = index.remove(onAdapter);
+        if (toDelete != null) {
+            commands.remove(toDelete);
+        }
+    }
+
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    public int size() {
+        return commands.size();
+    }
+
+    /**
+     * A snapshot of the commands, in the order in which they were added.
+     */
+    public List<PersistenceCommand> asList() {
+        return Collections.unmodifiableList(Lists.newArrayList(commands));
+    }
+
+    public void clear() {
+        commands.clear();
+        createByAdapter.clear();
+        saveByAdapter.clear();
+        destroyByAdapter.clear();
+    }
+
+    private Map<ObjectAdapter, PersistenceCommand> indexFor(final PersistenceCommand command) {
+        if (command instanceof CreateObjectCommand) {
+            return createByAdapter;
+        }
+        if (command instanceof SaveObjectCommand) {
+            return saveByAdapter;
+        }
+        if (command instanceof DestroyObjectCommand) {
+            return destroyByAdapter;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.persistence.adaptermanager;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.Lists;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.core.metamodel.spec.ObjectSpecification;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class OidAdapterHashMapTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private ObjectAdapter mockServiceAdapter;
+    @Mock
+    private ObjectAdapter mockEntityAdapter;
+    @Mock
+    private ObjectSpecification mockServiceSpec;
+    @Mock
+    private ObjectSpecification mockEntitySpec;
+
+    private final Oid serviceOid = RootOidDefault.create(ObjectSpecId.of("SVC"), "1");
+    private final Oid entityOid = RootOidDefault.create(ObjectSpecId.of("CUS"), "1");
+
+    private OidAdapterHashMap oidAdapterMap;
+
+    @Before
+    public void setUp() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockServiceAdapter).getSpecification();
+                will(returnValue(mockServiceSpec));
+                allowing(mockServiceSpec).isService();
+                will(returnValue(true));
+
+                allowing(mockEntityAdapter).getSpecification();
+                will(returnValue(mockEntitySpec));
+                allowing(mockEntitySpec).isService();
+                will(returnValue(false));
+            }
+        });
+        oidAdapterMap = new OidAdapterHashMap(10);
+        oidAdapterMap.add(serviceOid, mockServiceAdapter);
+        oidAdapterMap.add(entityOid, mockEntityAdapter);
+    }
+
+    @Test
+    public void getAdapter_findsServicesAndNonServices() throws Exception {
+        assertThat(oidAdapterMap.getAdapter(serviceOid), is(mockServiceAdapter));
+        assertThat(oidAdapterMap.getAdapter(entityOid), is(mockEntityAdapter));
+        assertThat(Lists.newArrayList(oidAdapterMap).size(), is(2));
+    }
+
+    @Test
+    public void reset_retainsOnlyServices() throws Exception {
+        oidAdapterMap.reset();
+
+        assertThat(oidAdapterMap.getAdapter(serviceOid), is(mockServiceAdapter));
+        assertThat(oidAdapterMap.getAdapter(entityOid), is(nullValue()));
+        assertThat(Lists.newArrayList(oidAdapterMap), is((Object) Lists.newArrayList(serviceOid)));
+    }
+
+    @Test
+    public void close_removesServicesToo() throws Exception {
+        oidAdapterMap.close();
+
+        assertThat(oidAdapterMap.getAdapter(serviceOid), is(nullValue()));
+        assertThat(oidAdapterMap.iterator().hasNext(), is(false));
+    }
+
+    @Test
+    public void remove_fromEitherRegion() throws Exception {
+        assertThat(oidAdapterMap.remove(serviceOid), is(true));
+        assertThat(oidAdapterMap.remove(entityOid), is(true));
+        assertThat(oidAdapterMap.remove(entityOid), is(false));
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.persistence.adaptermanager;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.metamodel.adapter.oid.Oid;
+import org.apache.isis.core.metamodel.adapter.oid.RootOidDefault;
+import org.apache.isis.core.metamodel.spec.ObjectSpecId;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+public class RecentlyUsedAdaptersTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private ObjectAdapter mockAdapter1;
+    @Mock
+    private ObjectAdapter mockAdapter2;
+    @Mock
+    private ObjectAdapter mockAdapter3;
+
+    private final Oid oid1 = RootOidDefault.create(ObjectSpecId.of("CUS"), "1");
+    private final Oid oid2 = RootOidDefault.create(ObjectSpecId.of("CUS"), "2");
+    private final Oid oid3 = RootOidDefault.create(ObjectSpecId.of("CUS"), "3");
+
+    private final Object pojo1 = new Object();
+
+    private RecentlyUsedAdapters recentlyUsedAdapters;
+
+    @Before
+    public void setUp() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockAdapter1).getOid();
+                will(returnValue(oid1));
+                allowing(mockAdapter1).getObject();
+                will(returnValue(pojo1));
+                allowing(mockAdapter2).getOid();
+                will(returnValue(oid2));
+                allowing(mockAdapter3).getOid();
+                will(returnValue(oid3));
+            }
+        });
+        recentlyUsedAdapters = new RecentlyUsedAdapters(2);
+        recentlyUsedAdapters.touch(mockAdapter1);
+        recentlyUsedAdapters.touch(mockAdapter2);
+        recentlyUsedAdapters.touch(mockAdapter3);
+    }
+
+    @Test
+    public void removeEldest_whenOverMaximum() throws Exception {
+        final List<ObjectAdapter> eldest = recentlyUsedAdapters.removeEldest(Predicates.<ObjectAdapter>alwaysTrue());
+
+        assertThat(eldest, is(Arrays.asList(mockAdapter1)));
+        assertThat(recentlyUsedAdapters.size(), is(2));
+    }
+
+    @Test
+    public void removeEldest_inAccessOrder() throws Exception {
+        recentlyUsedAdapters.touch(mockAdapter1);
+
+        final List<ObjectAdapter> eldest = recentlyUsedAdapters.removeEldest(Predicates.<ObjectAdapter>alwaysTrue());
+
+        assertThat(eldest, is(Arrays.asList(mockAdapter2)));
+    }
+
+    @Test
+    public void removeEldest_skipsThoseNotEvictable() throws Exception {
+        final Predicate<ObjectAdapter> notAdapter1 = Predicates.not(Predicates.<ObjectAdapter>equalTo(mockAdapter1));
+
+        final List<ObjectAdapter> eldest = recentlyUsedAdapters.removeEldest(notAdapter1);
+
+        assertThat(eldest, is(Arrays.asList(mockAdapter2)));
+    }
+
+    @Test
+    public void removeEldest_whenNoneEvictable() throws Exception {
+        final List<ObjectAdapter> eldest = recentlyUsedAdapters.removeEldest(Predicates.<ObjectAdapter>alwaysFalse());
+
+        assertThat(eldest.isEmpty(), is(true));
+        assertThat(recentlyUsedAdapters.size(), is(3));
+    }
+
+    @Test
+    public void recall_byPojoOrOid_onlyOnce() throws Exception {
+        recentlyUsedAdapters.evicted(mockAdapter1);
+        assertThat(recentlyUsedAdapters.getEvictions(), is(1L));
+
+        assertThat(recentlyUsedAdapters.recallOid(pojo1), is(oid1));
+        assertThat(recentlyUsedAdapters.recallPojo(oid1), is(nullValue()));
+
+        recentlyUsedAdapters.evicted(mockAdapter1);
+        assertThat(recentlyUsedAdapters.recallPojo(oid1), is(pojo1));
+        assertThat(recentlyUsedAdapters.recallOid(pojo1), is(nullValue()));
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.isis.core.runtime.system.transaction;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.metamodel.adapter.ObjectAdapter;
+import org.apache.isis.core.runtime.persistence.ObjectPersistenceException;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.CreateObjectCommand;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommand;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.PersistenceCommandContext;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.PojoAdapterBuilder;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.PojoAdapterBuilder.Persistence;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.SaveObjectCommand;
+import org.apache.isis.core.runtime.persistence.objectstore.transaction.TransactionalResource;
+import org.apache.isis.core.unittestsupport.jmock.auto.Mock;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+/**
+ * Measures the cost of enlisting a large number of create and save commands
+ * into a single {@link IsisTransaction}.
+ *
+ * <p>
+ * Run explicitly, eg <tt>mvn test -Dtest=IsisTransactionCommandQueueBenchmark</tt>.
+ */
+public class IsisTransactionCommandQueueBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(IsisTransactionCommandQueueBenchmark.class);
+
+    @BeforeClass
+    public static void configureLogging() {
+        BasicConfigurator.configure();
+        Logger.getRootLogger().setLevel(Level.OFF);
+        LOG.setLevel(Level.INFO);
+    }
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private IsisTransactionManager mockTransactionManager;
+    @Mock
+    private MessageBroker mockMessageBroker;
+    @Mock
+    private UpdateNotifier mockUpdateNotifier;
+
+    private CountingTransactionalResource objectStore;
+
+    @Before
+    public void setUp() throws Exception {
+        objectStore = new CountingTransactionalResource();
+
+        // warm up
+        enlistAndCommit(5000);
+    }
+
+    @Test
+    public void enlist10k() throws Exception {
+        enlistAndCommit(10000);
+    }
+
+    @Test
+    public void enlist100k() throws Exception {
+        enlistAndCommit(100000);
+    }
+
+    private void enlistAndCommit(final int numberOfObjects) {
+        final ObjectAdapter[] transientAdapters = adapters(numberOfObjects, Persistence.TRANSIENT);
+        final ObjectAdapter[] persistentAdapters = adapters(numberOfObjects, Persistence.PERSISTENT);
+
+        final IsisTransaction transaction = new IsisTransaction(mockTransactionManager, mockMessageBroker, mockUpdateNotifier, objectStore, null, null);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < numberOfObjects; i++) {
+            transaction.addCommand(createCommand(transientAdapters[i]));
+            // ignored, because created in same xactn
+            transaction.addCommand(saveCommand(transientAdapters[i]));
+            transaction.addCommand(saveCommand(persistentAdapters[i]));
+            // ignored, because already saved in same xactn
+            transaction.addCommand(saveCommand(persistentAdapters[i]));
+        }
+        final long enlisted = System.nanoTime();
+        transaction.commit();
+        final long committed = System.nanoTime();
+
+        assertThat(objectStore.executed, is(2 * numberOfObjects));
+
+        final int numberOfCommands = 4 * numberOfObjects;
+        LOG.info(String.format("%,d objects, %,d commands: enlist %,d ms (%,d ns/command), commit %,d ms",
+                numberOfObjects, numberOfCommands,
+                (enlisted - start) / 1000000, (enlisted - start) / numberOfCommands,
+                (committed - enlisted) / 1000000));
+    }
+
+    private static ObjectAdapter[] adapters(final int numberOfObjects, final Persistence persistence) {
+        final ObjectAdapter[] adapters = new ObjectAdapter[numberOfObjects];
+        for (int i = 0; i < numberOfObjects; i++) {
+            adapters[i] = PojoAdapterBuilder.create().with(persistence).withIdentifier("" + i).build();
+        }
+        return adapters;
+    }
+
+    private static CreateObjectCommand createCommand(final ObjectAdapter object) {
+        return new CreateObjectCommand() {
+            @Override
+            public void execute(final PersistenceCommandContext context) throws ObjectPersistenceException {
+            }
+
+            @Override
+            public ObjectAdapter onAdapter() {
+                return object;
+            }
+        };
+    }
+
+    private static SaveObjectCommand saveCommand(final ObjectAdapter object) {
+        return new SaveObjectCommand() {
+            @Override
+            public void execute(final PersistenceCommandContext context) throws ObjectPersistenceException {
+            }
+
+            @Override
+            public ObjectAdapter onAdapter() {
+                return object;
+            }
+        };
+    }
+
+    private static class CountingTransactionalResource implements TransactionalResource {
+        private int executed;
+
+        @Override
+        public void startTransaction() {
+        }
+
+        @Override
+        public void execute(final List<PersistenceCommand> unmodifiableList) {
+            executed = unmodifiableList.size();
+        }
+
+        @Override
+        public void endTransaction() {
+        }
+
+        @Override
+        public void abortTransaction() {
+        }
+    }
+}
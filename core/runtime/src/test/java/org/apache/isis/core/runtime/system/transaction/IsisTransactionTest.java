@@ -19,6 +19,7 @@
 
 package org.apache.isis.core.runtime.system.transaction;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.apache.isis.applib.services.audit.AuditingService;
@@ -291,6 +292,29 @@ public void commit_ignoresBothCreateAndDestroyCommandsWhenForSameObject() throws
     }
 
 
+    @Test
+    public void commit_retainsOrderOfRemainingCommandsWhenCreateAndDestroyCancelOut() throws Exception {
+
+        command = createSaveCommand(persistentAdapter1, "command 1");
+        command2 = createCreateCommand(transientAdapter1, "command 2");
+        command3 = createSaveCommand(persistentAdapter2, "command 3");
+        final PersistenceCommand command4 = createDestroyCommand(transientAdapter1, "command 4");
+        final PersistenceCommand command5 = createCreateCommand(transientAdapter2, "command 5");
+
+        context.checking(new Expectations() {
+            {
+                one(mockObjectStore).execute(with(equal(Arrays.asList(command, command3, command5))));
+            }
+        });
+
+        transaction.addCommand(command);
+        transaction.addCommand(command2);
+        transaction.addCommand(command3);
+        transaction.addCommand(command4);
+        transaction.addCommand(command5);
+        transaction.commit();
+    }
+
     @Test
     public void commit_testNoCommands() throws Exception {
         context.checking(new Expectations() {
@@ -154,6 +154,10 @@ public SelfReferencingEntity newPolySelfRefClass() {
         return object;
     }
 
+    public List<SelfReferencingEntity> somePolySelfRefClasses(final long startIndex, final long rowCount) {
+        return allInstances(SelfReferencingEntity.class, startIndex, rowCount);
+    }
+
     public List<Stringable> allPolyInterfaces() {
         return allInstances(Stringable.class);
     }